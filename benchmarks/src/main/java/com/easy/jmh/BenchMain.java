@@ -0,0 +1,31 @@
+package com.easy.jmh;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * benchmarks.jar 的入口：参数与 org.openjdk.jmh.Main 相同，只是命令行没指定 -prof 时默认挂上 gc 分析器，
+ * 每个基准都带 gc.alloc.rate.norm（每次操作分配的字节数）。
+ * <pre>
+ *   java -jar benchmarks/target/benchmarks.jar                 # 全部
+ *   java -jar benchmarks/target/benchmarks.jar Chess -f 1      # 按正则挑
+ *   java -jar benchmarks/target/benchmarks.jar -rf json -rff benchmarks/baseline/results.json
+ * </pre>
+ */
+public final class BenchMain {
+
+    private BenchMain(){}
+
+    public static void main(String[] args) throws Exception {
+        CommandLineOptions cli = new CommandLineOptions(args);
+        if (cli.shouldHelp()) { cli.showHelp(); return; }
+        ChainedOptionsBuilder b = new OptionsBuilder().parent(cli);
+        if (cli.getProfilers().isEmpty()) b.addProfiler(GCProfiler.class);
+        Runner r = new Runner(b.build());
+        if (cli.shouldList()) { r.list(); return; }
+        r.run();
+    }
+}
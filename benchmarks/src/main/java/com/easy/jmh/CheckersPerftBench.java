@@ -0,0 +1,43 @@
+package com.easy.jmh;
+
+import com.easy.game.CheckersBoard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 跳棋 bitboard 走法生成：一次 legalMoves（整个局面，连跳链展开，不分配），以及 perft 6（走子 + 撤销 + 生成，叶子只数不走）。
+ * 开局的节点数见 {@code com.easy.bench.CheckersPerft}，每秒节点数 = 节点数 / 单次耗时。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CheckersPerftBench {
+
+    /** start：开局；midgame：固定种子随机走 24 步（双方还剩 8、6 个子，perft 6 = 35819） */
+    @Param({ "start", "midgame" })
+    public String position;
+
+    private final CheckersBoard board = new CheckersBoard();
+    private final long[] moves = new long[CheckersBoard.MAX_MOVES];
+
+    @Setup
+    public void setup(){
+        Random r = new Random(42);
+        for (int i = 0, plies = "midgame".equals(position) ? 24 : 0; i < plies; i++) {
+            int n = board.legalMoves(moves);
+            if (n == 0) break;
+            board.make(moves[r.nextInt(n)]);
+        }
+    }
+
+    @Benchmark
+    public int legalMoves(){ return board.legalMoves(moves); }
+
+    @Benchmark
+    public long perft6(){ return board.perft(6); }
+}
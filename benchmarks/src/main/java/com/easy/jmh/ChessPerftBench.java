@@ -0,0 +1,38 @@
+package com.easy.jmh;
+
+import com.easy.game.ChessBoard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * bitboard 走法生成：一次 legalMoves（整个局面，不分配），以及 perft 3（走子 + 撤销 + 生成，叶子只数不走）。
+ * 节点数见 {@code com.easy.bench.Perft}，每秒节点数 = 节点数 / 单次耗时。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ChessPerftBench {
+
+    /** start：开局；kiwipete：易位、过路兵、牵制都有的中局 */
+    @Param({ "start", "kiwipete" })
+    public String position;
+
+    private ChessBoard board;
+    private final int[] moves = new int[ChessBoard.MAX_MOVES];
+
+    @Setup
+    public void setup(){
+        board = new ChessBoard("start".equals(position) ? ChessBoard.START
+                : "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1");
+    }
+
+    @Benchmark
+    public int legalMoves(){ return board.legalMoves(moves); }
+
+    @Benchmark
+    public long perft3(){ return board.perft(3); }
+}
@@ -0,0 +1,60 @@
+package com.easy.jmh;
+
+import com.easy.net.InviteCodec;
+import com.easy.net.InviteVerifier;
+import com.easy.util.AES256;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/** 邀请码生成/解析/校验（新鲜度 + nonce 去重），以及其下的 AES256 加解密（邀请码长度的明文） */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class CryptoBench {
+
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+    private static final String PLAIN = "v=1|ip=203.0.113.7|port=5000|ts=1760000000|nonce=0123456789abcdef|udp=5000";
+
+    private String invite, cipher;
+    private final String[] fresh = new String[1 << 16];   // 互不相同的邀请码，verify 每次用一个新的
+    private int next;
+    private InviteVerifier verifier = new InviteVerifier();
+
+    @Setup
+    public void setup() throws Exception {
+        invite = InviteCodec.gen("203.0.113.7", 5000, 5000);
+        cipher = AES256.encrypt(PLAIN, KEY);
+        for (int i = 0; i < fresh.length; i++) fresh[i] = InviteCodec.gen("203.0.113.7", 5000, 5000);
+    }
+
+    @Benchmark
+    public String inviteGen() throws Exception {
+        return InviteCodec.gen("203.0.113.7", 5000, 5000);
+    }
+
+    @Benchmark
+    public InviteCodec.Endpoint inviteParse() throws Exception {
+        return InviteCodec.parse(invite);
+    }
+
+    @Benchmark
+    public InviteCodec.Endpoint inviteVerify() throws Exception {
+        if (next == fresh.length) { next = 0; verifier = new InviteVerifier(); } // 用完一轮换新校验器，否则全是重放
+        return verifier.verify(fresh[next++]);
+    }
+
+    @Benchmark
+    public String aesEncrypt() throws Exception {
+        return AES256.encrypt(PLAIN, KEY);
+    }
+
+    @Benchmark
+    public String aesDecrypt() throws Exception {
+        return AES256.decrypt(cipher, KEY);
+    }
+}
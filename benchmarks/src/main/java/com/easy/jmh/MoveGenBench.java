@@ -0,0 +1,91 @@
+package com.easy.jmh;
+
+import com.easy.game.CheckersGame;
+import com.easy.game.ChessGame;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.Point;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 走法生成：一次操作 = 对当前一方所有棋子各调一次 legalMovesFrom。
+ * 局面取开局和固定种子随机走 20 步后的中局（两端各一个实例对下，和联机时一样）。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class MoveGenBench {
+
+    @Param({ "opening", "midgame" })
+    public String position;
+
+    private ChessGame chess;
+    private CheckersGame checkers;
+    private int[] chessSquares, checkersSquares;   // x*8+y，只含本方棋子所在格
+
+    @Setup
+    public void setup(){
+        int plies = "midgame".equals(position) ? 20 : 0;
+        Random r = new Random(42);
+
+        ChessGame w = new ChessGame(), b = new ChessGame();
+        w.reset(true); w.setMyTurn(true); b.reset(false); b.setMyTurn(false);
+        for (int i = 0; i < plies; i++) {
+            ChessGame m = (i & 1) == 0 ? w : b, o = m == w ? b : w;
+            int[] mv = pick(r, m, null);
+            if (mv == null || !m.move(mv[0], mv[1], mv[2], mv[3])) break;
+            o.moveFromPeer(mv[0], mv[1], mv[2], mv[3]);
+        }
+        chess = w;
+        chessSquares = squares(w, null);
+
+        CheckersGame p = new CheckersGame(), q = new CheckersGame();
+        p.reset(true); p.setMyTurn(true); q.reset(false); q.setMyTurn(false);
+        for (int i = 0; i < plies; i++) {
+            CheckersGame m = (i & 1) == 0 ? p : q, o = m == p ? q : p;
+            int[] mv = pick(r, null, m);
+            if (mv == null || !m.move(mv[0], mv[1], mv[2], mv[3])) break;
+            o.moveFromPeer(mv[0], mv[1], mv[2], mv[3]);
+        }
+        checkers = p;
+        checkersSquares = squares(null, p);
+    }
+
+    @Benchmark
+    public int chessLegalMoves(){
+        int n = 0;
+        for (int s : chessSquares) n += chess.legalMovesFrom(s >> 3, s & 7).size();
+        return n;
+    }
+
+    @Benchmark
+    public int checkersLegalMoves(){
+        int n = 0;
+        for (int s : checkersSquares) n += checkers.legalMovesFrom(s >> 3, s & 7).size();
+        return n;
+    }
+
+    private static int[] squares(ChessGame c, CheckersGame k){
+        List<Integer> l = new ArrayList<>();
+        for (int x = 0; x < 8; x++) for (int y = 0; y < 8; y++) {
+            if (c != null && c.isMyPiece(c.get(x, y))) l.add(x * 8 + y);
+            if (k != null && k.isMyPieceAt(x, y)) l.add(x * 8 + y);
+        }
+        return l.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static int[] pick(Random r, ChessGame c, CheckersGame k){
+        List<int[]> all = new ArrayList<>();
+        for (int s : squares(c, k)) {
+            int x = s >> 3, y = s & 7;
+            for (Point p : c != null ? c.legalMovesFrom(x, y) : k.legalMovesFrom(x, y)) all.add(new int[]{ x, y, p.x, p.y });
+        }
+        return all.isEmpty() ? null : all.get(r.nextInt(all.size()));
+    }
+}
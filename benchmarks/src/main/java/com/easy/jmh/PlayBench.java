@@ -0,0 +1,64 @@
+package com.easy.jmh;
+
+import com.easy.game.GomokuGame;
+import com.easy.game.ReversiGame;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 落子路径：一次操作 = reset 后按固定种子预先录好的一整局重放一遍。
+ * Reversi.play 每步含翻子与下一方合法落点集合（bitboard）；Gomoku.play 每步含成五判断与棋型增量更新。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class PlayBench {
+
+    private final ReversiGame reversi = new ReversiGame();
+    private final GomokuGame gomoku = new GomokuGame();
+    private int[] reversiMoves, gomokuMoves;   // y*n+x
+
+    @Setup
+    public void setup(){
+        Random r = new Random(7);
+        reversiMoves = record(r, reversi, 8);
+        gomokuMoves = record(r, gomoku, 15);
+    }
+
+    @Benchmark
+    public long reversiGame(){
+        reversi.reset(true);
+        for (int c : reversiMoves) reversi.play(c & 7, c >> 3);
+        return reversi.hash();
+    }
+
+    @Benchmark
+    public long gomokuGame(){
+        gomoku.reset(true);
+        for (int c : gomokuMoves) gomoku.play(c % 15, c / 15);
+        return gomoku.hash();
+    }
+
+    /** 一个实例自己和自己下（play 内部轮换颜色），录下整局 */
+    private static int[] record(Random r, com.easy.game.Game g, int n){
+        g.reset(true);
+        List<Integer> l = new ArrayList<>();
+        while (!g.isFinished() && l.size() < n * n) {
+            int off = r.nextInt(n * n), c = -1;
+            for (int i = 0; i < n * n; i++) {
+                int k = (off + i) % (n * n);
+                if (g.play(k % n, k / n)) { c = k; break; }
+            }
+            if (c < 0) break;
+            l.add(c);
+        }
+        return l.stream().mapToInt(Integer::intValue).toArray();
+    }
+}
@@ -0,0 +1,57 @@
+package com.easy.jmh;
+
+import com.easy.net.Proto;
+import com.easy.net.Wire;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 一帧 MOVE 的编解码：Proto.sendJSON / readJSON（JSON 行），对照 Wire 的二进制帧。
+ * 解码每次都新建读端，和读循环里每帧的实际开销（不含 socket）一致。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ProtoBench {
+
+    private JSONObject move;
+    private byte[] jsonLine, binFrame;
+    private final ByteArrayOutputStream sink = new ByteArrayOutputStream(256);
+
+    @Setup
+    public void setup(){
+        move = Proto.move(7, 7, 0, "07b03d66fa18adbe").put("seq", 1234);
+        jsonLine = Wire.encode(move, false);
+        binFrame = Wire.encode(move, true);
+    }
+
+    @Benchmark
+    public int sendJSON() throws IOException {
+        sink.reset();
+        Proto.sendJSON(sink, move);
+        return sink.size();
+    }
+
+    @Benchmark
+    public JSONObject readJSON() throws IOException {
+        BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(jsonLine), StandardCharsets.UTF_8));
+        return Proto.readJSON(br);
+    }
+
+    @Benchmark
+    public byte[] wireEncodeBinary(){
+        return Wire.encode(move, true);
+    }
+
+    @Benchmark
+    public JSONObject wireDecodeBinary() throws IOException {
+        return new Wire.Reader(new ByteArrayInputStream(binFrame)).read();
+    }
+}
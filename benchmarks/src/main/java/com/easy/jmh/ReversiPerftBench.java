@@ -0,0 +1,88 @@
+package com.easy.jmh;
+
+import com.easy.game.ReversiBoard;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 黑白棋走法树（perft 6，8200 个叶子；停一手算一步）：bitboard 和原来 int[8][8] 的写法对比。
+ * array 是改成 {@link ReversiBoard} 之前 ReversiGame 的原样逻辑——每个空格调 flipCount 扫八个方向判断能不能下，
+ * 落子时再调一次把子翻过去——只多了一个撤销栈，好在同一棋盘上来回走。每秒走法数 = 8200 / 单次耗时。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReversiPerftBench {
+
+    private final ReversiBoard board = new ReversiBoard();
+    private final ArrayReversi array = new ArrayReversi();
+
+    @Benchmark
+    public long bitboard(){ return board.perft(6); }
+
+    @Benchmark
+    public long array(){ return array.perft(1, 6, false); }
+
+    /** 原 ReversiGame 的 int[8][8] 走法判断与翻子 */
+    static final class ArrayReversi {
+        private final int n = 8;
+        private final int[][] b = new int[n][n];
+        private final int[] undo = new int[64 * 20];
+        private int top;
+
+        ArrayReversi(){
+            b[3][3] = 2; b[4][4] = 2;
+            b[3][4] = 1; b[4][3] = 1;
+        }
+
+        long perft(int c, int depth, boolean passed){
+            if (depth == 0) return 1;
+            long nodes = 0;
+            boolean any = false;
+            for (int y = 0; y < n; y++) for (int x = 0; x < n; x++) {
+                if (b[y][x] != 0 || flipCount(x, y, c, false) <= 0) continue;
+                any = true;
+                if (depth == 1) { nodes++; continue; }
+                int mark = top;
+                flipCount(x, y, c, true);
+                b[y][x] = c;
+                nodes += perft(3 - c, depth - 1, false);
+                b[y][x] = 0;
+                while (top > mark) { int s = undo[--top]; b[s >> 3][s & 7] = 3 - c; }
+            }
+            if (!any) return passed ? 1 : perft(3 - c, depth - 1, true);
+            return nodes;
+        }
+
+        private int flipCount(int x,int y,int c, boolean apply){
+            int total=0; int[][] dirs={{1,0},{-1,0},{0,1},{0,-1},{1,1},{1,-1},{-1,1},{-1,-1}};
+            for (int[] d: dirs){
+                int i=1; int cnt=0;
+                while(true){
+                    int nx=x+i*d[0], ny=y+i*d[1];
+                    if (nx<0||nx>=n||ny<0||ny>=n) { cnt=0; break; }
+                    int v=b[ny][nx];
+                    if (v==0){ cnt=0; break; }
+                    if (v==c){ break; }
+                    cnt++; i++;
+                }
+                int endx=x+i*d[0], endy=y+i*d[1];
+                if (cnt>0 && endx>=0&&endx<n&&endy>=0&&endy<n && b[endy][endx]==c){
+                    total+=cnt;
+                    if (apply){
+                        for (int k=1;k<=cnt;k++){
+                            int nx=x+k*d[0], ny=y+k*d[1];
+                            b[ny][nx]=c;
+                            undo[top++] = ny*8+nx;
+                        }
+                    }
+                }
+            }
+            return total;
+        }
+    }
+}
@@ -1,9 +1,44 @@
 package com.easy;
 
+import com.easy.net.AddressResolver;
+import com.easy.net.NetClient;
+import com.easy.net.NioServer;
+import com.easy.net.UpnpHelper;
+import com.easy.ui.ConsoleSink;
 import com.easy.ui.MainFrame;
+import com.easy.ui.PracticeBot;
+import com.easy.util.Metrics;
 
 public class App {
-    public static void main(String[] args){
+    public static void main(String[] args) throws Exception {
+        // 指标端点：-Deasy.metrics.port=9464 → http://127.0.0.1:9464/metrics（JMX 始终可用）
+        String mp = System.getProperty("easy.metrics.port");
+        if (mp != null) System.out.println("[METRICS] http://127.0.0.1:" + Metrics.serve(Integer.parseInt(mp)) + "/metrics");
+        // 无界面中转模式：java -jar easy-p2p.jar --hub <port> [loops]
+        if (args.length > 0 && "--hub".equals(args[0])) {
+            int port = args.length > 1 ? Integer.parseInt(args[1]) : 2266;
+            int loops = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+            NioServer hub = new NioServer(port, loops, System.out::println);
+            hub.start();
+            hub.startReporter(5000);
+            Runtime.getRuntime().addShutdownHook(new Thread(hub::close));
+            return;
+        }
+        // 无界面陪练：java -jar easy-p2p.jar --bot <邀请码> [每步毫秒] [线程数]，连上房主后等对方选国际象棋、五子棋或黑白棋
+        if (args.length > 1 && "--bot".equals(args[0])) {
+            long ms = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+            int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+            ConsoleSink log = System.out::println;
+            PracticeBot bot = new PracticeBot(log, threads, ms);
+            NetClient c = new NetClient(log, bot, bot);
+            bot.attach(c);
+            c.connect(args[1].replaceAll("\\s+", ""));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> { c.close(); bot.close(); }));
+            return;
+        }
+        // SSDP、查公网 IP 都要等：趁界面起来的工夫在后台做完，点“生成邀请码”时直接用缓存
+        UpnpHelper.warmUp();
+        AddressResolver.shared().warmUp();
         javax.swing.SwingUtilities.invokeLater(MainFrame::new);
     }
 }
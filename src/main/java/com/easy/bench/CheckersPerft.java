@@ -0,0 +1,33 @@
+package com.easy.bench;
+
+import com.easy.game.CheckersBoard;
+
+/**
+ * {@link CheckersBoard} 走法生成的正确性与速度：从开局数各深度的走法树叶子数，和公认的英式跳棋结果比对，打印每秒节点数。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.CheckersPerft [--deep]
+ * </pre>
+ * 连跳整条链算一步，同起止、同吃子的不同路线只算一次。
+ * 默认数到 10 层（一千八百多万节点）；--deep 到 11 层。任何一个数不对退出码为 1。
+ */
+public final class CheckersPerft {
+
+    private static final long[] NODES = { 7, 49, 302, 1469, 7361, 36768, 179740, 845931, 3963680, 18391564, 85242128 };
+
+    public static void main(String[] args){
+        int maxDepth = args.length > 0 && "--deep".equals(args[0]) ? 11 : 10;
+        new CheckersBoard().perft(8);                                  // 热身
+        System.out.printf("%5s %12s %12s %9s %9s  %s%n", "depth", "nodes", "expected", "ms", "Mnps", "");
+        boolean allOk = true;
+        for (int d = 1; d <= maxDepth; d++) {
+            CheckersBoard b = new CheckersBoard();
+            long t0 = System.nanoTime();
+            long n = b.perft(d);
+            long ns = System.nanoTime() - t0;
+            boolean ok = n == NODES[d - 1];
+            allOk &= ok;
+            System.out.printf("%5d %12d %12d %9.1f %9.1f  %s%n", d, n, NODES[d - 1], ns / 1e6, n * 1e3 / ns, ok ? "ok" : "MISMATCH");
+        }
+        if (!allOk) System.exit(1);
+    }
+}
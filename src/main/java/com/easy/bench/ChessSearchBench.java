@@ -0,0 +1,65 @@
+package com.easy.bench;
+
+import com.easy.game.ChessBoard;
+import com.easy.game.ChessSearch;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link ChessSearch} 的多线程扩展性：同一组局面按固定深度搜，线程数 1、2、4 … N，
+ * 报每秒节点数、到达该深度的耗时，以及相对单线程的加速比和效率（加速比 / 线程数）。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.ChessSearchBench [--depth 10] [--threads 8] [--tt 64]
+ * </pre>
+ * Lazy SMP 多出来的线程主要靠共享置换表让主线程少搜节点，所以“到达深度的耗时”才是真加速；
+ * 节点/秒的效率只说明各线程有没有互相拖慢（内存带宽、伪共享）。每组都新建引擎，置换表从空开始。
+ */
+public final class ChessSearchBench {
+
+    private static final String[][] POSITIONS = {
+            { "start", ChessBoard.START },
+            { "kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1" },
+            { "middle", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10" },
+            { "endgame", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1" },
+    };
+
+    public static void main(String[] args){
+        int depth = 10, maxThreads = Runtime.getRuntime().availableProcessors(), ttMb = 64;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--depth" -> depth = Integer.parseInt(args[i + 1]);
+                case "--threads" -> maxThreads = Integer.parseInt(args[i + 1]);
+                case "--tt" -> ttMb = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("未知参数 " + args[i]);
+            }
+        }
+        List<Integer> counts = new ArrayList<>();
+        for (int t = 1; t < maxThreads; t *= 2) counts.add(t);
+        counts.add(maxThreads);
+
+        System.out.printf("cores %d, depth %d, tt %d MB%n", Runtime.getRuntime().availableProcessors(), depth, ttMb);
+        try (ChessSearch warm = new ChessSearch(1, ttMb)) {              // 热身：让 JIT 编译完搜索和评估
+            for (String[] p : POSITIONS) warm.search(new ChessBoard(p[1]), Math.min(depth, 7), 0);
+        }
+        System.out.printf("%-8s %12s %10s %10s %9s %9s %9s  %s%n", "threads", "nodes", "ms", "knps", "nps-eff", "speedup", "eff", "");
+        double baseMs = 0, baseNps = 0;
+        for (int t : counts) {
+            long nodes = 0, ns = 0;
+            StringBuilder moves = new StringBuilder();
+            for (String[] p : POSITIONS) {
+                try (ChessSearch s = new ChessSearch(t, ttMb)) {
+                    ChessSearch.Result r = s.search(new ChessBoard(p[1]), depth, 0);
+                    nodes += r.nodes();
+                    ns += r.nanos();
+                    moves.append(p[0]).append('=').append(ChessBoard.uci(r.move())).append(' ');
+                }
+            }
+            double ms = ns / 1e6, nps = nodes * 1e9 / ns;
+            if (t == 1) { baseMs = ms; baseNps = nps; }
+            double speedup = baseMs / ms;
+            System.out.printf("%-8d %12d %10.0f %10.0f %8.0f%% %9.2f %8.0f%%  %s%n",
+                    t, nodes, ms, nps / 1e3, 100 * nps / (baseNps * t), speedup, 100 * speedup / t, moves.toString().trim());
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.easy.bench;
+
+import com.easy.net.NetThreads;
+import com.easy.net.UpnpHelper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 本机上的 UPnP 路由替身：SSDP 应答端（UDP，回答单播来的 M-SEARCH）加 HTTP 端（设备描述 + WANIPConnection 控制），
+ * 记下 AddPortMapping / DeletePortMapping 并按租期过期，没有路由器也能把 {@link UpnpHelper} 走一遍。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.FakeIgd [--lease 4] [--ssdp-delay-ms 1500] [--permanent-only] [--serve]
+ * </pre>
+ * 默认跑演示：起替身 → -Deasy.upnp.ssdp 指过去 → warmUp → 开 TCP/UDP 映射 → 等两轮续租 → 关映射，
+ * 打印每步调用返回用了多久、结果什么时候到。--ssdp-delay-ms 模拟 SSDP 慢，--permanent-only 模拟只收租期 0 的路由（错误 725）。
+ * --serve 只起替身，另开 App 时带上打印出来的 -Deasy.upnp.ssdp=127.0.0.1:端口。
+ */
+public final class FakeIgd implements AutoCloseable {
+
+    static final String WANIP = "urn:schemas-upnp-org:service:WANIPConnection:1";
+    private static final Pattern ARG = Pattern.compile("<(New\\w+)>([^<]*)</\\1>");
+
+    private record Mapping(String client, int internalPort, String desc, int lease, long expiresAt, int adds) {}
+
+    private final DatagramSocket ssdp;
+    private final HttpServer http;
+    private final long ssdpDelayMs;
+    private final boolean permanentOnly;
+    private final Map<String, Mapping> mappings = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    public FakeIgd(long ssdpDelayMs, boolean permanentOnly) throws IOException {
+        this.ssdpDelayMs = ssdpDelayMs;
+        this.permanentOnly = permanentOnly;
+        InetAddress lo = InetAddress.getLoopbackAddress();
+        ssdp = new DatagramSocket(new InetSocketAddress(lo, 0));
+        http = HttpServer.create(new InetSocketAddress(lo, 0), 0);
+        http.createContext("/rootDesc.xml", this::description);
+        http.createContext("/ctl/IPConn", this::control);
+        http.start();
+        NetThreads.start("fake-igd-ssdp", this::ssdpLoop);
+    }
+
+    public int ssdpPort(){ return ssdp.getLocalPort(); }
+
+    /** 还在租期内的映射，键 "port/PROTO" */
+    public Map<String, Mapping> mappings(){
+        long now = System.currentTimeMillis();
+        mappings.entrySet().removeIf(e -> {
+            boolean dead = e.getValue().lease > 0 && now >= e.getValue().expiresAt;
+            if (dead) System.out.println("[IGD] 租期到期，删除 " + e.getKey());
+            return dead;
+        });
+        return mappings;
+    }
+
+    private void ssdpLoop(){
+        byte[] buf = new byte[1536];
+        while (!closed) {
+            try {
+                DatagramPacket p = new DatagramPacket(buf, buf.length);
+                ssdp.receive(p);
+                String req = new String(buf, 0, p.getLength(), StandardCharsets.ISO_8859_1);
+                if (!req.startsWith("M-SEARCH")) continue;
+                if (ssdpDelayMs > 0) Thread.sleep(ssdpDelayMs);
+                byte[] resp = ("HTTP/1.1 200 OK\r\nCACHE-CONTROL: max-age=120\r\nST: urn:schemas-upnp-org:device:InternetGatewayDevice:1\r\n"
+                        + "USN: uuid:fake-igd::urn:schemas-upnp-org:device:InternetGatewayDevice:1\r\nEXT:\r\nSERVER: easy-p2p FakeIgd\r\n"
+                        + "LOCATION: http://127.0.0.1:" + http.getAddress().getPort() + "/rootDesc.xml\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1);
+                ssdp.send(new DatagramPacket(resp, resp.length, p.getSocketAddress()));
+            } catch (Exception e) {
+                if (!closed) System.out.println("[IGD] SSDP 异常: " + e);
+            }
+        }
+    }
+
+    // weupnp 的描述解析要求先有 WANCommonInterfaceConfig 再有 WANIPConnection，和真路由一样
+    private void description(HttpExchange ex) throws IOException {
+        reply(ex, 200, """
+                <?xml version="1.0"?>
+                <root xmlns="urn:schemas-upnp-org:device-1-0">
+                <specVersion><major>1</major><minor>0</minor></specVersion>
+                <device>
+                <deviceType>urn:schemas-upnp-org:device:InternetGatewayDevice:1</deviceType>
+                <friendlyName>easy-p2p FakeIgd</friendlyName><manufacturer>easy-p2p</manufacturer>
+                <modelDescription>loopback IGD stand-in</modelDescription><modelName>FakeIgd</modelName><modelNumber>1</modelNumber>
+                <deviceList><device>
+                <deviceType>urn:schemas-upnp-org:device:WANDevice:1</deviceType>
+                <serviceList><service>
+                <serviceType>urn:schemas-upnp-org:service:WANCommonInterfaceConfig:1</serviceType>
+                <serviceId>urn:upnp-org:serviceId:WANCommonIFC1</serviceId>
+                <controlURL>/ctl/CmnIfCfg</controlURL><eventSubURL>/evt/CmnIfCfg</eventSubURL><SCPDURL>/WANCfg.xml</SCPDURL>
+                </service></serviceList>
+                <deviceList><device>
+                <deviceType>urn:schemas-upnp-org:device:WANConnectionDevice:1</deviceType>
+                <serviceList><service>
+                <serviceType>urn:schemas-upnp-org:service:WANIPConnection:1</serviceType>
+                <serviceId>urn:upnp-org:serviceId:WANIPConn1</serviceId>
+                <controlURL>/ctl/IPConn</controlURL><eventSubURL>/evt/IPConn</eventSubURL><SCPDURL>/WANIPCn.xml</SCPDURL>
+                </service></serviceList>
+                </device></deviceList>
+                </device></deviceList>
+                </device>
+                </root>
+                """);
+    }
+
+    private void control(HttpExchange ex) throws IOException {
+        String soap = String.valueOf(ex.getRequestHeaders().getFirst("SOAPAction")).replace("\"", "");
+        String action = soap.substring(soap.indexOf('#') + 1);          // 头是 "服务类型#动作"
+        Map<String, String> a = new HashMap<>();
+        Matcher m = ARG.matcher(new String(ex.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+        while (m.find()) a.put(m.group(1), m.group(2));
+        String key = a.get("NewExternalPort") + "/" + a.get("NewProtocol");
+        switch (action) {
+            case "AddPortMapping" -> {
+                int lease = Integer.parseInt(a.getOrDefault("NewLeaseDuration", "0"));
+                if (permanentOnly && lease > 0) { error(ex, 725, "OnlyPermanentLeasesSupported"); return; }
+                Mapping old = mappings().get(key);
+                int adds = old == null ? 1 : old.adds + 1;
+                mappings.put(key, new Mapping(a.get("NewInternalClient"), Integer.parseInt(a.get("NewInternalPort")),
+                        a.get("NewPortMappingDescription"), lease, System.currentTimeMillis() + lease * 1000L, adds));
+                System.out.println("[IGD] AddPortMapping " + key + " -> " + a.get("NewInternalClient") + ":" + a.get("NewInternalPort")
+                        + " 租期 " + lease + " s" + (old == null ? "" : "（续租第 " + (adds - 1) + " 次）"));
+                ok(ex, action, "");
+            }
+            case "DeletePortMapping" -> {
+                if (mappings().remove(key) == null) { error(ex, 714, "NoSuchEntryInArray"); return; }
+                System.out.println("[IGD] DeletePortMapping " + key);
+                ok(ex, action, "");
+            }
+            case "GetSpecificPortMappingEntry" -> {
+                Mapping e = mappings().get(key);
+                if (e == null) { error(ex, 714, "NoSuchEntryInArray"); return; }
+                ok(ex, action, "<NewInternalPort>" + e.internalPort + "</NewInternalPort><NewInternalClient>" + e.client
+                        + "</NewInternalClient><NewEnabled>1</NewEnabled><NewPortMappingDescription>" + e.desc
+                        + "</NewPortMappingDescription><NewLeaseDuration>" + e.lease + "</NewLeaseDuration>");
+            }
+            case "GetExternalIPAddress" -> ok(ex, action, "<NewExternalIPAddress>203.0.113.7</NewExternalIPAddress>");
+            case "GetStatusInfo" -> ok(ex, action, "<NewConnectionStatus>Connected</NewConnectionStatus>");
+            default -> error(ex, 401, "Invalid Action");
+        }
+    }
+
+    private static void ok(HttpExchange ex, String action, String body) throws IOException {
+        reply(ex, 200, "<?xml version=\"1.0\"?><s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+                + "s:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\"><s:Body><u:" + action + "Response xmlns:u=\""
+                + WANIP + "\">" + body + "</u:" + action + "Response></s:Body></s:Envelope>");
+    }
+
+    private static void error(HttpExchange ex, int code, String desc) throws IOException {
+        reply(ex, 500, "<?xml version=\"1.0\"?><s:Envelope xmlns:s=\"http://schemas.xmlsoap.org/soap/envelope/\" "
+                + "s:encodingStyle=\"http://schemas.xmlsoap.org/soap/encoding/\"><s:Body><s:Fault><faultcode>s:Client</faultcode>"
+                + "<faultstring>UPnPError</faultstring><detail><UPnPError xmlns=\"urn:schemas-upnp-org:control-1-0\"><errorCode>"
+                + code + "</errorCode><errorDescription>" + desc + "</errorDescription></UPnPError></detail></s:Fault></s:Body></s:Envelope>");
+    }
+
+    private static void reply(HttpExchange ex, int status, String xml) throws IOException {
+        byte[] b = xml.getBytes(StandardCharsets.UTF_8);
+        ex.getResponseHeaders().set("Content-Type", "text/xml; charset=\"utf-8\"");
+        ex.sendResponseHeaders(status, b.length);
+        try (OutputStream os = ex.getResponseBody()) { os.write(b); }
+    }
+
+    @Override
+    public void close(){
+        closed = true;
+        ssdp.close();
+        http.stop(0);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int lease = 4;
+        long delay = 1500;
+        boolean permanentOnly = false, serve = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--lease" -> lease = Integer.parseInt(args[++i]);
+                case "--ssdp-delay-ms" -> delay = Long.parseLong(args[++i]);
+                case "--permanent-only" -> permanentOnly = true;
+                case "--serve" -> serve = true;
+                default -> throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        FakeIgd igd = new FakeIgd(delay, permanentOnly);
+        System.out.println("[IGD] SSDP 127.0.0.1:" + igd.ssdpPort() + "  →  -Deasy.upnp.ssdp=127.0.0.1:" + igd.ssdpPort());
+        if (serve) { Thread.currentThread().join(); return; }
+
+        System.setProperty("easy.upnp.ssdp", "127.0.0.1:" + igd.ssdpPort());
+        System.setProperty("easy.upnp.lease", Integer.toString(lease));
+        UpnpHelper.setLog(s -> System.out.println("[upnp] " + s));
+        int port = 35211;
+
+        long t0 = System.nanoTime();
+        UpnpHelper.warmUp();
+        System.out.printf("warmUp 返回 %.2f ms%n", ms(t0));
+        long t1 = System.nanoTime();
+        CompletableFuture<Boolean> tcp = UpnpHelper.openTcp(port, "easy-p2p");
+        System.out.printf("openTcp 返回 %.2f ms（done=%b）%n", ms(t1), tcp.isDone());
+        System.out.printf("TCP 映射 %s，从 warmUp 起 %.0f ms%n", tcp.join(), ms(t0));
+        long t2 = System.nanoTime();
+        boolean udp = UpnpHelper.openUdp(port, "easy-p2p").join();
+        System.out.printf("UDP 映射 %s，%.1f ms（网关已缓存）%n", udp, ms(t2));
+
+        Thread.sleep(lease * 1000L + 500);          // 过半续一次、再过半又一次
+        System.out.println("续租后映射表: " + igd.mappings().keySet());
+        UpnpHelper.closeTcp(port).join();
+        UpnpHelper.closeUdp(port).join();
+        System.out.println("关闭后映射表: " + igd.mappings().keySet());
+        igd.close();
+    }
+
+    private static double ms(long since){ return (System.nanoTime() - since) / 1e6; }
+}
@@ -0,0 +1,72 @@
+package com.easy.bench;
+
+import com.easy.game.GomokuBoard;
+import com.easy.game.GomokuSearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link GomokuSearch} 在固定每步时限下的表现：几组开局（固定种子随机落子）各搜一次，
+ * 线程数 1、2、4 … N，报评估局面数/秒、alpha-beta 到达的深度和找到走法的方式（VCF / VCT / 搜索）。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.GomokuSearchBench [--ms 1000] [--threads 8] [--positions 6]
+ * </pre>
+ */
+public final class GomokuSearchBench {
+
+    public static void main(String[] args){
+        long ms = 1000;
+        int maxThreads = Runtime.getRuntime().availableProcessors(), positions = 6;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--ms" -> ms = Long.parseLong(args[i + 1]);
+                case "--threads" -> maxThreads = Integer.parseInt(args[i + 1]);
+                case "--positions" -> positions = Integer.parseInt(args[i + 1]);
+                default -> throw new IllegalArgumentException("未知参数 " + args[i]);
+            }
+        }
+        List<GomokuBoard> set = new ArrayList<>();
+        for (int k = 0; k < positions; k++) set.add(opening(k, 6 + 4 * k));
+        List<Integer> counts = new ArrayList<>();
+        for (int t = 1; t < maxThreads; t *= 2) counts.add(t);
+        counts.add(maxThreads);
+
+        System.out.printf("cores %d, %d ms per move, %d positions%n", Runtime.getRuntime().availableProcessors(), ms, positions);
+        try (GomokuSearch warm = new GomokuSearch(1)) {                 // 热身
+            for (GomokuBoard b : set) warm.search(b, Math.min(ms, 300));
+        }
+        System.out.printf("%-8s %12s %12s %10s  %s%n", "threads", "evals", "evals/s", "avg depth", "per position");
+        for (int t : counts) {
+            long evals = 0, ns = 0;
+            int depthSum = 0, searched = 0;
+            StringBuilder how = new StringBuilder();
+            try (GomokuSearch s = new GomokuSearch(t)) {
+                for (GomokuBoard b : set) {
+                    GomokuSearch.Result r = s.search(b, ms);
+                    evals += r.evals();
+                    ns += r.nanos();
+                    if ("搜索".equals(r.how())) { depthSum += r.depth(); searched++; }
+                    how.append(r.how()).append(r.how().equals("搜索") ? "/d" + r.depth() : "").append(' ');
+                }
+            }
+            System.out.printf("%-8d %12d %12.0f %10s  %s%n", t, evals, evals * 1e9 / ns,
+                    searched == 0 ? "-" : String.format("%.1f", (double) depthSum / searched), how.toString().trim());
+        }
+    }
+
+    /** 固定种子：中心起手，之后在已有子周围随机落，不留冲四（免得开局就是强制应手） */
+    private static GomokuBoard opening(long seed, int stones){
+        GomokuBoard b = new GomokuBoard();
+        Random r = new Random(seed);
+        b.play(GomokuBoard.index(7, 7));
+        while (b.count() < stones) {
+            int p = r.nextInt(GomokuBoard.CELLS);
+            if (!b.isCandidate(p)) continue;
+            b.play(p);
+            if (b.fiveThreats(GomokuBoard.BLACK) + b.fiveThreats(GomokuBoard.WHITE) > 0) b.undo();   // 出现冲四就退回
+        }
+        return b;
+    }
+}
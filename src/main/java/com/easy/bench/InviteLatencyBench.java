@@ -0,0 +1,91 @@
+package com.easy.bench;
+
+import com.easy.net.AddressResolver;
+import com.easy.net.InviteCodec;
+import com.easy.net.RttStats;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Callable;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * “生成邀请码”从点击到出码要多久：取公网 IP + 生成邀请码（监听端口那一步两种做法一样，不计）。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.InviteLatencyBench [公网 IP 服务延迟 ms=300] [点击次数=200]
+ * </pre>
+ * 公网 IP 服务是本机 HTTP 替身，按给定延迟回一行 IP（真实的 checkip 往返通常 100～500 ms）。
+ * <ul>
+ *   <li>blocking：旧做法，每次点击现查一次</li>
+ *   <li>cold：AddressResolver 刚建好就点（启动后立刻点，等第一次解析）</li>
+ *   <li>warm：warmUp 完成之后点</li>
+ *   <li>expired：缓存已过期再点：先交旧值，后台刷新</li>
+ * </ul>
+ */
+public final class InviteLatencyBench {
+
+    public static void main(String[] args) throws Exception {
+        long delayMs = args.length > 0 ? Long.parseLong(args[0]) : 300;
+        int clicks = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        AtomicInteger hits = new AtomicInteger();
+        HttpServer http = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        http.createContext("/", ex -> {
+            hits.incrementAndGet();
+            try { Thread.sleep(delayMs); } catch (InterruptedException ignore) {}
+            byte[] b = "203.0.113.7\n".getBytes(StandardCharsets.US_ASCII);
+            ex.sendResponseHeaders(200, b.length);
+            try (OutputStream os = ex.getResponseBody()) { os.write(b); }
+        });
+        http.setExecutor(java.util.concurrent.Executors.newCachedThreadPool());
+        http.start();
+        Callable<String> source = AddressResolver.httpSource("http://127.0.0.1:" + http.getAddress().getPort() + "/");
+
+        System.out.printf("%-9s %7s %10s %10s %10s %9s%n", "mode", "clicks", "p50 ms", "p99 ms", "max ms", "lookups");
+        int blocking = Math.max(1, Math.min(clicks, (int) (5000 / Math.max(1, delayMs))));
+        run("blocking", blocking, 0, hits, source);
+
+        RttStats cold = new RttStats();
+        int before = hits.get();
+        for (int i = 0; i < Math.min(clicks, 10); i++) {
+            AddressResolver r = new AddressResolver(source, AddressResolver.DEFAULT_TTL_MS);
+            long t0 = System.nanoTime();
+            InviteCodec.gen(r.publicIp().join(), 35211, 0);
+            cold.record(System.nanoTime() - t0);
+            r.close();
+        }
+        print("cold", cold, hits.get() - before);
+
+        AddressResolver warm = new AddressResolver(source, AddressResolver.DEFAULT_TTL_MS);
+        warm.warmUp();
+        warm.publicIp().join();
+        run("warm", clicks, 0, hits, () -> warm.publicIp().join());
+        warm.close();
+
+        AddressResolver expiring = new AddressResolver(source, 1);
+        expiring.publicIp().join();
+        run("expired", clicks, 2, hits, () -> expiring.publicIp().join());     // ttl 1 ms，每次点击前都已过期
+        expiring.close();
+        http.stop(0);
+        System.exit(0);
+    }
+
+    private static void run(String mode, int clicks, long pauseMs, AtomicInteger hits, Callable<String> ip) throws Exception {
+        RttStats s = new RttStats();
+        int before = hits.get();
+        for (int i = 0; i < clicks; i++) {
+            if (pauseMs > 0) Thread.sleep(pauseMs);
+            long t0 = System.nanoTime();
+            InviteCodec.gen(ip.call(), 35211, 0);
+            s.record(System.nanoTime() - t0);
+        }
+        print(mode, s, hits.get() - before);
+    }
+
+    private static void print(String mode, RttStats s, int lookups){
+        System.out.printf("%-9s %7d %10.3f %10.3f %10.3f %9d%n", mode, s.count(),
+                s.percentileNs(50) / 1e6, s.percentileNs(99) / 1e6, s.percentileNs(100) / 1e6, lookups);
+    }
+}
@@ -0,0 +1,361 @@
+package com.easy.bench;
+
+import com.easy.game.*;
+import com.easy.net.InviteCodec;
+import com.easy.net.NetClient;
+import com.easy.net.NetServer;
+import com.easy.net.NetThreads;
+import com.easy.net.Proto;
+import com.easy.net.RttStats;
+import com.easy.ui.ConsoleSink;
+import com.easy.ui.MoveListener;
+import com.easy.ui.MoveSender;
+import com.easy.ui.NetEventListener;
+import com.easy.util.Metrics;
+
+import java.awt.Point;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryUsage;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 压测 / 长稳（soak）工具：本机起 N 局，每局一个 NetServer 房主 + 一个无界面 NetClient，
+ * 客户端用 {@link InviteCodec#gen} 生成的真实邀请码连 127.0.0.1，房主用 {@link Proto#gameSelect} 选棋，
+ * 双方机器人从现有 Game 实现里随机挑合法步，按给定速率对下。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.LoadGen [--matches 50] [--rate 5] [--duration 60] [--report 5]
+ *        [--game GOMOKU|REVERSI|CHESS|CHECKERS|MIX] [--max-plies 200] [--threads platform|virtual] [--verbose]
+ *        [--metrics-port 0]
+ * </pre>
+ * rate = 每局每秒步数（双方合计），机器人收到对方一步后等 1/rate 秒再走。
+ * 每个报告周期打印：吞吐、回合延迟（我方发出到收到对方回应，扣掉对方的思考时间）p50/p99/p99.9、
+ * 错误（连接失败、发送失败、非法步、哈希不一致、日志里的断线/异常）、堆与 GC。
+ * 给了 --metrics-port 就在压测期间开 {@link Metrics} 的 /metrics 端点（0 = 任取空闲端口），
+ * 结束时像 Prometheus 一样经 HTTP 抓一次并打印，用来核对各计数和上面的统计对得上。
+ * <p>
+ * 开新一局只由客户端发起（连上时、它走不动、终局或到步数上限时发 GAME suggest），房主收到后 select；
+ * 这时双方都没有在途的走子，跨局的非法步不会被误记为错误。
+ */
+public final class LoadGen {
+
+    // ===== 参数 =====
+    private int matches = 50;
+    private double rate = 5;
+    private int durationS = 60;
+    private int reportS = 5;
+    private String game = "MIX";
+    private int maxPlies = 200;
+    private boolean verbose;
+    private int metricsPort = -1;
+
+    // ===== 统计（所有局共用） =====
+    private final LongAdder moves = new LongAdder(), rounds = new LongAdder();
+    private final LongAdder connectFail = new LongAdder(), sendFail = new LongAdder(), illegal = new LongAdder(),
+            desync = new LongAdder(), logErrors = new LongAdder();
+    private volatile RttStats turn = new RttStats();
+    private final RttStats turnAll = new RttStats();
+
+    private volatile boolean stopping;     // 收尾关连接时的断开日志不算错误
+    private ScheduledExecutorService timer;
+    private final List<NetServer> hosts = new ArrayList<>();
+    private final List<NetClient> clients = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        LoadGen g = new LoadGen();
+        for (int i = 0; i < args.length; i++) {
+            String a = args[i];
+            String v = i + 1 < args.length ? args[i + 1] : "";
+            switch (a) {
+                case "--matches"   -> { g.matches = Integer.parseInt(v); i++; }
+                case "--rate"      -> { g.rate = Double.parseDouble(v); i++; }
+                case "--duration"  -> { g.durationS = Integer.parseInt(v); i++; }
+                case "--report"    -> { g.reportS = Integer.parseInt(v); i++; }
+                case "--game"      -> { g.game = v.toUpperCase(Locale.ROOT); i++; }
+                case "--max-plies" -> { g.maxPlies = Integer.parseInt(v); i++; }
+                case "--threads"   -> { NetThreads.setMode("virtual".equalsIgnoreCase(v) ? NetThreads.Mode.VIRTUAL : NetThreads.Mode.PLATFORM); i++; }
+                case "--verbose"   -> g.verbose = true;
+                case "--metrics-port" -> { g.metricsPort = Integer.parseInt(v); i++; }
+                default -> throw new IllegalArgumentException("未知参数: " + a);
+            }
+        }
+        g.run();
+    }
+
+    private void run() throws Exception {
+        System.out.printf("matches=%d rate=%.1f/s/match duration=%ds game=%s threads=%s java=%s%n",
+                matches, rate, durationS, game, NetThreads.mode(), Runtime.version());
+        if (metricsPort >= 0) {
+            metricsPort = Metrics.serve(metricsPort);
+            System.out.println("metrics: http://127.0.0.1:" + metricsPort + "/metrics");
+        }
+        timer = Executors.newScheduledThreadPool(Math.max(2, Runtime.getRuntime().availableProcessors()), r -> {
+            Thread t = new Thread(r, "loadgen-bot");
+            t.setDaemon(true);
+            return t;
+        });
+        GameType[] mix = { GameType.GOMOKU, GameType.REVERSI, GameType.CHESS, GameType.CHECKERS };
+
+        long t0 = System.nanoTime();
+        for (int i = 0; i < matches; i++) {
+            GameType type = "MIX".equals(game) ? mix[i % mix.length] : GameType.from(game);
+            try {
+                startMatch(i, type);
+            } catch (Exception e) {
+                connectFail.increment();
+                if (verbose) System.out.println("match " + i + " 建立失败: " + e);
+            }
+        }
+        System.out.printf("已建立 %d/%d 局，用时 %.1f s%n", clients.size(), matches, (System.nanoTime() - t0) / 1e9);
+
+        System.out.printf("%6s %9s %9s %8s %8s %8s %6s %5s %5s %5s %5s %5s %9s %9s %7s %7s%n",
+                "t(s)", "moves", "moves/s", "p50ms", "p99ms", "p999ms", "rounds",
+                "conn", "send", "illeg", "desyn", "log", "heap MB", "commit MB", "gc n", "gc ms");
+        long start = System.nanoTime(), lastMoves = 0, lastGcN = gcCount(), lastGcMs = gcMillis();
+        long end = start + TimeUnit.SECONDS.toNanos(durationS);
+        while (System.nanoTime() < end) {
+            Thread.sleep(Math.min(TimeUnit.SECONDS.toMillis(reportS), Math.max(1, TimeUnit.NANOSECONDS.toMillis(end - System.nanoTime()))));
+            RttStats r = turn;
+            turn = new RttStats();
+            long m = moves.sum(), gcN = gcCount(), gcMs = gcMillis();
+            MemoryUsage heap = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage();
+            System.out.printf("%6.0f %9d %9.0f %8s %8s %8s %6d %5d %5d %5d %5d %5d %9.1f %9.1f %7d %7d%n",
+                    (System.nanoTime() - start) / 1e9, m, (m - lastMoves) / (double) reportS,
+                    ms(r, 50), ms(r, 99), ms(r, 99.9), rounds.sum(),
+                    connectFail.sum(), sendFail.sum(), illegal.sum(), desync.sum(), logErrors.sum(),
+                    heap.getUsed() / 1048576.0, heap.getCommitted() / 1048576.0, gcN - lastGcN, gcMs - lastGcMs);
+            lastMoves = m; lastGcN = gcN; lastGcMs = gcMs;
+        }
+
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("总计: moves=%d (%.0f/s) rounds=%d 回合延迟 p50=%s p99=%s p99.9=%s max=%s ms%n",
+                moves.sum(), moves.sum() / secs, rounds.sum(),
+                ms(turnAll, 50), ms(turnAll, 99), ms(turnAll, 99.9), ms(turnAll, 100));
+        System.out.printf("错误: 连接=%d 发送=%d 非法步=%d 哈希不一致=%d 日志=%d%n",
+                connectFail.sum(), sendFail.sum(), illegal.sum(), desync.sum(), logErrors.sum());
+        System.out.printf("GC: %d 次 / %d ms（%s）%n", gcCount(), gcMillis(), gcNames());
+
+        stopping = true;
+        timer.shutdownNow();
+        for (NetClient c : clients) c.close();
+        for (NetServer s : hosts) s.close();
+        if (metricsPort >= 0) {
+            Thread.sleep(200); // 等读循环退出，连接关闭计数落地
+            try (InputStream in = URI.create("http://127.0.0.1:" + metricsPort + "/metrics").toURL().openStream()) {
+                System.out.println("---- /metrics ----");
+                System.out.print(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            Metrics.stopServing();
+        }
+    }
+
+    private void startMatch(int id, GameType type) throws Exception {
+        int port;
+        try (ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) { port = probe.getLocalPort(); }
+        Bot hostBot = new Bot(true, type), clientBot = new Bot(false, type);
+        NetServer s = new NetServer(port, sink("host#" + id), hostBot, hostBot);
+        s.setUpnpEnabled(false);
+        hostBot.out = s;
+        s.start();
+        hosts.add(s);
+
+        NetClient c = new NetClient(sink("client#" + id), clientBot, clientBot);
+        clientBot.out = c;
+        c.setPreferUdp(false);
+        c.connect(InviteCodec.gen("127.0.0.1", port));
+        clients.add(c);
+        // 由客户端请求开局：它的 suggest 排在 HELLO 后面，房主处理到时握手一定已完成
+        clientBot.askNewRound();
+    }
+
+    /** 网络层日志：平时丢弃，只数断线/异常类的行 */
+    private ConsoleSink sink(String who){
+        return s -> {
+            if (stopping) return;
+            if (s.contains("error") || s.contains("异常") || s.contains("失败") || s.contains("断开")) {
+                logErrors.increment();
+                if (verbose) System.out.println(who + " " + s);
+            }
+        };
+    }
+
+    private static String ms(RttStats r, double p){
+        long v = r.percentileNs(p);
+        return v < 0 ? "-" : String.format("%.1f", v / 1e6);
+    }
+
+    private static long gcCount(){
+        long n = 0;
+        for (GarbageCollectorMXBean b : ManagementFactory.getGarbageCollectorMXBeans()) n += Math.max(0, b.getCollectionCount());
+        return n;
+    }
+    private static long gcMillis(){
+        long n = 0;
+        for (GarbageCollectorMXBean b : ManagementFactory.getGarbageCollectorMXBeans()) n += Math.max(0, b.getCollectionTime());
+        return n;
+    }
+    private static String gcNames(){
+        List<String> l = new ArrayList<>();
+        for (GarbageCollectorMXBean b : ManagementFactory.getGarbageCollectorMXBeans()) l.add(b.getName());
+        return String.join(", ", l);
+    }
+
+    // ===== 机器人 =====
+
+    /**
+     * 一方棋手。网络读线程（对方走子）和 timer 线程（自己走子）都会进来，所以全部 synchronized；
+     * round 每开一局 +1，上一局排好的走子任务看到 round 变了就作废。房主固定先手。
+     */
+    private final class Bot implements MoveListener, NetEventListener {
+        final boolean host;
+        final GameType type;
+        final long thinkNs = (long) (1e9 / rate);
+        MoveSender out;
+        Game g;
+        int round, plies;
+        long sentAt;
+
+        Bot(boolean host, GameType type){ this.host = host; this.type = type; }
+
+        /** 房主：开局并通知对方；客户端在 onGameSelected 里跟着开 */
+        synchronized void newRound(){
+            reset();
+            if (host) {
+                try { out.sendJson(Proto.gameSelect(type.name(), "host")); } catch (Exception e) { sendFail.increment(); }
+                schedule();
+            }
+        }
+
+        private void reset(){
+            g = switch (type) {
+                case REVERSI -> new ReversiGame();
+                case CHESS -> new ChessGame();
+                case CHECKERS -> new CheckersGame();
+                default -> new GomokuGame();
+            };
+            g.reset(host);
+            g.setMyTurn(host);
+            round++; plies = 0; sentAt = 0;
+            rounds.increment();
+            Metrics.GAMES_STARTED.inc(type.name());
+        }
+
+        private void schedule(){
+            int r = round;
+            timer.schedule(() -> move(r), thinkNs, TimeUnit.NANOSECONDS);
+        }
+
+        private synchronized void move(int r){
+            if (r != round) return;
+            if (g.isFinished()) { if (!host) askNewRound(); return; }
+            if (!g.myTurn()) return;
+            if (!host && plies >= maxPlies) { askNewRound(); return; }
+            if (!playRandom()) {
+                if (host) newRound(); else askNewRound();   // 走不动（满盘、无子可动）
+                return;
+            }
+            plies++;
+            moves.increment();
+            sentAt = System.nanoTime();
+            if (g.isFinished()) { Metrics.GAMES_FINISHED.inc(type.name()); if (!host) askNewRound(); }
+            else if (g.myTurn()) schedule();                  // 对方无步可走（黑白棋 pass），接着走
+        }
+
+        synchronized void askNewRound(){
+            try { out.sendJson(Proto.gameSuggest(type.name())); } catch (Exception e) { sendFail.increment(); }
+        }
+
+        /** 随机挑一步合法步，走完并发出；一步都没有返回 false */
+        private boolean playRandom(){
+            ThreadLocalRandom rnd = ThreadLocalRandom.current();
+            String h;
+            try {
+                switch (type) {
+                    case CHESS, CHECKERS -> {
+                        List<int[]> all = new ArrayList<>();
+                        for (int y = 0; y < 8; y++) for (int x = 0; x < 8; x++) {
+                            if (g instanceof ChessGame cg) {
+                                int v = cg.get(x, y);
+                                if (v == 0 || !cg.isMyPiece(v)) continue;
+                                for (Point p : cg.legalMovesFrom(x, y)) all.add(new int[]{ x, y, p.x, p.y, -1 });
+                            } else {
+                                CheckersGame ck = (CheckersGame) g;
+                                if (!ck.isMyPieceAt(x, y)) continue;
+                                for (Point p : ck.legalMovesFrom(x, y))           // 起止相同的几条连跳各算一步
+                                    for (int cap : ck.captureChoices(x, y, p.x, p.y)) all.add(new int[]{ x, y, p.x, p.y, cap });
+                            }
+                        }
+                        while (!all.isEmpty()) {
+                            int[] m = all.remove(rnd.nextInt(all.size()));
+                            boolean ok;
+                            try {
+                                ok = g instanceof ChessGame cg ? cg.move(m[0], m[1], m[2], m[3]) : ((CheckersGame) g).move(m[0], m[1], m[2], m[3], m[4]);
+                            } catch (RuntimeException e) {
+                                ok = false;
+                            }
+                            if (!ok) continue;
+                            h = Zobrist.hex(g.hash());
+                            out.sendJson(g instanceof CheckersGame ? Proto.checkersMove(m[0], m[1], m[2], m[3], m[4], h) : Proto.moveFxFy(m[0], m[1], m[2], m[3], h));
+                            return true;
+                        }
+                        return false;
+                    }
+                    default -> {
+                        int n = g.size(), cells = n * n, off = rnd.nextInt(cells);
+                        for (int i = 0; i < cells; i++) {
+                            int c = (off + i) % cells, x = c % n, y = c / n;
+                            if (!g.play(x, y)) continue;
+                            out.sendMove(x, y, 0, Zobrist.hex(g.hash()));
+                            return true;
+                        }
+                        return false;
+                    }
+                }
+            } catch (Exception e) {
+                sendFail.increment();
+                return true; // 已经在本地走了，算这一步
+            }
+        }
+
+        private void onReply(boolean applied, String hash){
+            if (!applied) { illegal.increment(); Metrics.MOVE_REJECTS.inc(type.name()); return; }
+            plies++;
+            if (g.isFinished()) Metrics.GAMES_FINISHED.inc(type.name());
+            Long want = Zobrist.parse(hash);
+            if (want != null && want != g.hash()) desync.increment();
+            if (sentAt > 0) {
+                long v = System.nanoTime() - sentAt - thinkNs;
+                turn.record(Math.max(0, v));
+                turnAll.record(Math.max(0, v));
+                sentAt = 0;
+            }
+            if (g.isFinished() || g.myTurn()) schedule(); // 终局时客户端在 move 里请求新一局，房主等 suggest
+        }
+
+        @Override public void onOpponentMove(int x, int y){ onOpponentMove(x, y, ""); }
+        @Override public synchronized void onOpponentMove(int x, int y, String hash){
+            onReply(g.play(x, y), hash);
+        }
+        @Override public void onOpponentMoveFxFy(int fx, int fy, int x, int y, String hash){ onOpponentMoveFxFy(fx, fy, x, y, -1, hash); }
+        @Override public synchronized void onOpponentMoveFxFy(int fx, int fy, int x, int y, int cap, String hash){
+            boolean ok = g instanceof ChessGame cg ? cg.moveFromPeer(fx, fy, x, y)
+                    : g instanceof CheckersGame ck && ck.moveFromPeer(fx, fy, x, y, cap);
+            onReply(ok, hash);
+        }
+
+        @Override public synchronized void onGameSelected(GameType t, String starter){ if (!host) reset(); }
+        @Override public synchronized void onGameSuggested(GameType t){ if (host) newRound(); }
+    }
+}
@@ -0,0 +1,66 @@
+package com.easy.bench;
+
+import com.easy.game.ChessBoard;
+
+/**
+ * {@link ChessBoard} 走法生成的正确性与速度：对几个标准局面数走法树叶子数，和公认的结果比对，打印每秒节点数。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.Perft [--deep]
+ *   java -cp easy-p2p.jar com.easy.bench.Perft --divide "&lt;FEN&gt;" &lt;深度&gt;     按第一步拆开计数，和别的引擎对着查错
+ * </pre>
+ * 局面覆盖易位（含被攻击的途经格）、吃过路兵（含横向牵制）、升变、双将。任何一个数不对退出码为 1。
+ * 默认每个局面跑到几百万节点；--deep 再深一层（上亿节点，要几十秒）。
+ */
+public final class Perft {
+
+    private record Case(String name, String fen, long... nodes) {}
+
+    private static final Case[] CASES = {
+            new Case("start", ChessBoard.START, 20, 400, 8902, 197281, 4865609, 119060324),
+            new Case("kiwipete", "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 48, 2039, 97862, 4085603, 193690690),
+            new Case("pos3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 14, 191, 2812, 43238, 674624, 11030083),
+            new Case("pos4", "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 6, 264, 9467, 422333, 15833292),
+            new Case("pos5", "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 44, 1486, 62379, 2103487, 89941194),
+            new Case("pos6", "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 46, 2079, 89890, 3894594, 164075551),
+    };
+
+    public static void main(String[] args) throws Exception {
+        if (args.length == 3 && "--divide".equals(args[0])) { divide(args[1], Integer.parseInt(args[2])); return; }
+        boolean deep = args.length > 0 && "--deep".equals(args[0]);
+
+        for (Case c : CASES) new ChessBoard(c.fen).perft(3);          // 热身
+        System.out.printf("%-9s %5s %12s %12s %9s %9s  %s%n", "position", "depth", "nodes", "expected", "ms", "Mnps", "");
+        boolean allOk = true;
+        long total = 0, totalNs = 0;
+        for (Case c : CASES) {
+            int depth = c.nodes.length - (deep ? 0 : 1);
+            ChessBoard b = new ChessBoard(c.fen);
+            String before = b.fen();
+            long t0 = System.nanoTime();
+            long n = b.perft(depth);
+            long ns = System.nanoTime() - t0;
+            boolean ok = n == c.nodes[depth - 1] && before.equals(b.fen());   // 走完还原回原局面
+            allOk &= ok;
+            total += n;
+            totalNs += ns;
+            System.out.printf("%-9s %5d %12d %12d %9.0f %9.1f  %s%n", c.name, depth, n, c.nodes[depth - 1], ns / 1e6, n * 1e3 / ns, ok ? "ok" : "MISMATCH");
+        }
+        System.out.printf("%-9s %5s %12d %12s %9.0f %9.1f%n", "total", "", total, "", totalNs / 1e6, total * 1e3 / totalNs);
+        if (!allOk) System.exit(1);
+    }
+
+    private static void divide(String fen, int depth){
+        ChessBoard b = new ChessBoard(fen);
+        int[] moves = new int[ChessBoard.MAX_MOVES];
+        int n = b.legalMoves(moves);
+        long total = 0;
+        for (int i = 0; i < n; i++) {
+            b.make(moves[i]);
+            long c = b.perft(depth - 1);
+            b.unmake(moves[i]);
+            total += c;
+            System.out.println(ChessBoard.uci(moves[i]) + ": " + c);
+        }
+        System.out.println("moves " + n + ", nodes " + total);
+    }
+}
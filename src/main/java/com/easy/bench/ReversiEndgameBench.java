@@ -0,0 +1,95 @@
+package com.easy.bench;
+
+import com.easy.game.ReversiBoard;
+import com.easy.game.ReversiSearch;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * {@link ReversiSearch} 终局精确求解：按空格数各取几个固定种子的随机对局局面，线程数 1、2、4 … N 各解一遍，
+ * 报节点数、耗时、每秒节点数和相对单线程的加速比；各线程数解出的子数差必须一致，否则退出码为 1。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.ReversiEndgameBench [--empties 14-20] [--threads 8] [--positions 3] [--ms 120000]
+ * </pre>
+ * YBWC 多出来的节点（兄弟先于 alpha 收紧就开搜）会让节点数随线程数上升，所以“耗时”才是真加速。
+ * 每个局面都新建引擎，置换表从空开始；超过 --ms 没解完的记为超时。
+ */
+public final class ReversiEndgameBench {
+
+    public static void main(String[] args){
+        int from = 14, to = 20, positions = 3, maxThreads = Runtime.getRuntime().availableProcessors();
+        long ms = 120_000;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--empties" -> {
+                    String[] r = args[i + 1].split("-");
+                    from = Integer.parseInt(r[0]);
+                    to = Integer.parseInt(r[r.length - 1]);
+                }
+                case "--threads" -> maxThreads = Integer.parseInt(args[i + 1]);
+                case "--positions" -> positions = Integer.parseInt(args[i + 1]);
+                case "--ms" -> ms = Long.parseLong(args[i + 1]);
+                default -> throw new IllegalArgumentException("未知参数 " + args[i]);
+            }
+        }
+        List<Integer> counts = new ArrayList<>();
+        for (int t = 1; t < maxThreads; t *= 2) counts.add(t);
+        counts.add(maxThreads);
+
+        System.out.printf("cores %d, %d positions per empties count, limit %d ms%n", Runtime.getRuntime().availableProcessors(), positions, ms);
+        try (ReversiSearch warm = new ReversiSearch(1)) {                // 热身
+            Random r = new Random(99);
+            for (int k = 0; k < 20; k++) warm.solve(position(r, 14), ms);
+        }
+        System.out.printf("%-8s %-8s %14s %10s %10s %9s  %s%n", "empties", "threads", "nodes", "ms", "knps", "speedup", "diff per position");
+        boolean allOk = true;
+        for (int e = from; e <= to; e++) {
+            Random r = new Random(e);
+            List<ReversiBoard> set = new ArrayList<>();
+            for (int k = 0; k < positions; k++) set.add(position(r, e));
+            String want = null;
+            double baseMs = 0;
+            for (int t : counts) {
+                long nodes = 0, ns = 0;
+                boolean timeout = false;
+                StringBuilder diffs = new StringBuilder();
+                for (ReversiBoard b : set) {
+                    try (ReversiSearch s = new ReversiSearch(t)) {
+                        ReversiSearch.Result res = s.solve(b, ms);
+                        nodes += res.nodes();
+                        ns += res.nanos();
+                        timeout |= !res.exact();
+                        diffs.append(res.exact() ? String.format("%+d", res.score()) : "超时").append(' ');
+                    }
+                }
+                String d = diffs.toString().trim();
+                if (want == null) { want = d; baseMs = ns / 1e6; }
+                boolean ok = d.equals(want);
+                allOk &= ok;
+                System.out.printf("%-8d %-8d %14d %10.0f %10.0f %9s  %s%s%n", e, t, nodes, ns / 1e6, nodes * 1e6 / ns,
+                        timeout ? "-" : String.format("%.2f", baseMs / (ns / 1e6)), d, ok ? "" : "  MISMATCH");
+            }
+        }
+        if (!allOk) System.exit(1);
+    }
+
+    /** 固定种子随机对局走到正好剩 empties 个空格、轮到的一方有棋可走 */
+    private static ReversiBoard position(Random r, int empties){
+        while (true) {
+            ReversiBoard b = new ReversiBoard();
+            while (b.empties() > empties) {
+                long m = b.legal();
+                if (m == 0) {
+                    b.pass();
+                    if (b.legal() == 0) break;
+                    continue;
+                }
+                for (int k = r.nextInt(Long.bitCount(m)); k > 0; k--) m &= m - 1;
+                b.play(Long.numberOfTrailingZeros(m));
+            }
+            if (b.empties() == empties && b.legal() != 0) return b;
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package com.easy.bench;
+
+import com.easy.game.ReversiBoard;
+
+/**
+ * {@link ReversiBoard} 走法生成的正确性与速度：从开局数各深度的走法树叶子数，和公认的结果比对，打印每秒节点数。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.ReversiPerft [--deep]
+ * </pre>
+ * 停一手算一步，双方都无棋可走的终局算一个叶子（第 9 步起出现全灭局，深度 10 以上会用到这条）。
+ * 默认数到 10 层（两千多万节点）；--deep 到 11 层。任何一个数不对退出码为 1。
+ */
+public final class ReversiPerft {
+
+    private static final long[] NODES = { 4, 12, 56, 244, 1396, 8200, 55092, 390216, 3005288, 24571284, 212258800 };
+
+    public static void main(String[] args){
+        int maxDepth = args.length > 0 && "--deep".equals(args[0]) ? 11 : 10;
+        new ReversiBoard().perft(8);                                   // 热身
+        System.out.printf("%5s %12s %12s %9s %9s  %s%n", "depth", "nodes", "expected", "ms", "Mnps", "");
+        boolean allOk = true;
+        for (int d = 1; d <= maxDepth; d++) {
+            ReversiBoard b = new ReversiBoard();
+            long t0 = System.nanoTime();
+            long n = b.perft(d);
+            long ns = System.nanoTime() - t0;
+            boolean ok = n == NODES[d - 1];
+            allOk &= ok;
+            System.out.printf("%5d %12d %12d %9.1f %9.1f  %s%n", d, n, NODES[d - 1], ns / 1e6, n * 1e3 / ns, ok ? "ok" : "MISMATCH");
+        }
+        if (!allOk) System.exit(1);
+    }
+}
@@ -0,0 +1,112 @@
+package com.easy.bench;
+
+import com.easy.game.GameType;
+import com.easy.net.InviteCodec;
+import com.easy.net.NetClient;
+import com.easy.net.NetServer;
+import com.easy.net.Proto;
+import com.easy.net.RttStats;
+import com.easy.ui.ConsoleSink;
+import com.easy.ui.MoveListener;
+import com.easy.ui.NetEventListener;
+
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 完整会话（NetServer ⇄ NetClient：HELLO、GAME select、MOVE、ACK）的往返延迟与吞吐。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.SessionBench [每组步数=5000] [tcp]
+ * </pre>
+ * 默认跑进程内 {@link com.easy.net.Loopback}：不开 socket、不碰 UPnP，结果只反映协议栈本身（编码、Outbox、分发、ACK），
+ * 可重复；加 tcp 参数再跑一组 127.0.0.1 真实连接（经邀请码）作对照。
+ * 每种传输各跑明文和 {@link com.easy.net.SecureChannel} 加密（AES-GCM）两组，两行之差就是加密的每步代价。
+ * 房主收到一步就原样回一步：ping-pong 组一次只有一步在途，burst 组最多 window 步在途。
+ */
+public final class SessionBench {
+
+    private static final int WINDOW = 256;          // burst 在途上限，小于 Outbox 容量
+    private static final ConsoleSink QUIET = s -> {};
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        boolean tcp = args.length > 1 && "tcp".equalsIgnoreCase(args[1]);
+        System.out.printf("%-9s %-6s %-10s %8s %9s %9s %9s %10s  %s%n", "transport", "crypto", "mode", "moves", "p50 us", "p99 us", "max us", "moves/s", "ack rtt");
+        run("loopback", false, Math.min(n, 1000));            // 热身
+        run("loopback", true, Math.min(n, 1000));
+        run("loopback", false, n);
+        run("loopback", true, n);
+        if (tcp) { run("tcp", false, n); run("tcp", true, n); }
+    }
+
+    private static void run(String transport, boolean encrypt, int n) throws Exception {
+        Semaphore echoes = new Semaphore(0);
+        CountDownLatch selected = new CountDownLatch(1);
+        NetServer[] host = new NetServer[1];
+        MoveListener echo = (x, y) -> {
+            try { host[0].sendMove(x, y, 0, ""); } catch (Exception ignore) {}
+        };
+        boolean viaTcp = "tcp".equals(transport);
+        int port = 0;
+        if (viaTcp) try (ServerSocket probe = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) { port = probe.getLocalPort(); }
+        host[0] = new NetServer(port, QUIET, echo, null);
+        host[0].setUpnpEnabled(false);
+        host[0].setEncrypt(encrypt);
+        NetClient client = new NetClient(QUIET, (x, y) -> echoes.release(), new NetEventListener() {
+            @Override public void onOpponentMove(int x, int y){}
+            @Override public void onGameSelected(GameType type, String starter){ selected.countDown(); }
+            @Override public void onGameSuggested(GameType type){}
+        });
+        client.setEncrypt(encrypt);
+
+        if (viaTcp) {
+            host[0].start();
+            client.connect(InviteCodec.gen("127.0.0.1", port));
+        } else {
+            client.connectLoopback(host[0]::acceptLoopback);
+        }
+        host[0].sendJson(Proto.gameSelect(GameType.GOMOKU.name(), "host"));
+        if (!selected.await(5, TimeUnit.SECONDS)) throw new IllegalStateException("GAME select 未送达");
+        if (client.isEncrypted() != encrypt) throw new IllegalStateException("加密协商结果不符: " + client.isEncrypted());
+        String crypto = encrypt ? "gcm" : "plain";
+
+        try {
+            // ping-pong：一步一回
+            RttStats r = new RttStats();
+            long t0 = System.nanoTime();
+            for (int i = 0; i < n; i++) {
+                long s = System.nanoTime();
+                client.sendMove(i % 15, (i / 15) % 15, 0, "");
+                if (!echoes.tryAcquire(5, TimeUnit.SECONDS)) throw new IllegalStateException("第 " + i + " 步没有回音");
+                r.record(System.nanoTime() - s);
+            }
+            row(transport, crypto, "ping-pong", n, r, n / ((System.nanoTime() - t0) / 1e9), client.rtt());
+
+            // burst：最多 WINDOW 步在途
+            client.rtt().reset();
+            Semaphore window = new Semaphore(WINDOW);
+            t0 = System.nanoTime();
+            int got = 0;
+            for (int i = 0; i < n; i++) {
+                while (!window.tryAcquire()) { echoes.acquire(); got++; window.release(); }
+                client.sendMove(i % 15, (i / 15) % 15, 0, "");
+            }
+            while (got < n) { if (!echoes.tryAcquire(5, TimeUnit.SECONDS)) throw new IllegalStateException("burst 回音不全: " + got); got++; }
+            row(transport, crypto, "burst", n, null, n / ((System.nanoTime() - t0) / 1e9), client.rtt());
+        } finally {
+            client.close();
+            host[0].close();
+        }
+    }
+
+    private static void row(String transport, String crypto, String mode, int n, RttStats r, double rate, RttStats ack){
+        System.out.printf("%-9s %-6s %-10s %8d %9s %9s %9s %10.0f  p50=%.0fus p99=%.0fus%n", transport, crypto, mode, n,
+                r == null ? "-" : String.format("%.0f", r.percentileNs(50) / 1e3),
+                r == null ? "-" : String.format("%.0f", r.percentileNs(99) / 1e3),
+                r == null ? "-" : String.format("%.0f", r.percentileNs(100) / 1e3),
+                rate, ack.percentileNs(50) / 1e3, ack.percentileNs(99) / 1e3);
+    }
+}
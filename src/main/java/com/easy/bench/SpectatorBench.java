@@ -0,0 +1,122 @@
+package com.easy.bench;
+
+import com.easy.net.Broadcaster;
+import com.easy.net.NetThreads;
+import com.easy.net.Proto;
+import com.easy.net.RttStats;
+import com.easy.net.Wire;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 观战广播扇出：不同观战人数下每秒能推多少步、棋手线程每次 publish 花多久。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.SpectatorBench [步数=20000]
+ * </pre>
+ * 观战者是回环 TCP 连接，接收端用一个 Selector 线程统一收字节（不让压测客户端自己的线程数喧宾夺主）。
+ * 发布端按最慢观战者限速（在途不超过 256 帧），测的是不丢人的持续吞吐；
+ * 最后一组额外挂一个从不读的观战者，看它被断开、publish 耗时不受影响。
+ */
+public final class SpectatorBench {
+
+    public static void main(String[] args) throws Exception {
+        int moves = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        System.out.printf("%10s %6s %12s %14s %14s %14s %8s%n",
+                "spectators", "stuck", "moves/s", "deliveries/s", "publish p50us", "publish p99us", "dropped");
+        run(10, moves / 4, false);                 // 热身
+        for (int n : new int[]{ 1, 10, 50, 100, 200, 500 }) run(n, moves, false);
+        run(100, moves, true);
+    }
+
+    private static void run(int n, int moves, boolean withStuck) throws Exception {
+        Broadcaster b = new Broadcaster(m -> {});
+        long[] got = new long[n];
+        List<SocketChannel> chans = new ArrayList<>();
+        Selector sel = Selector.open();
+        try (ServerSocketChannel ss = ServerSocketChannel.open()) {
+            ss.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), n + 8);
+            for (int i = 0; i < n; i++) {
+                SocketChannel c = SocketChannel.open(ss.getLocalAddress());
+                SocketChannel s = ss.accept();
+                s.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                chans.add(c); chans.add(s);
+                c.configureBlocking(false);
+                c.register(sel, SelectionKey.OP_READ, i);
+                b.add("w" + i, true, s);
+            }
+            if (withStuck) {
+                SocketChannel c = SocketChannel.open();
+                c.setOption(StandardSocketOptions.SO_RCVBUF, 4096);
+                c.connect(ss.getLocalAddress());
+                SocketChannel s = ss.accept();
+                s.setOption(StandardSocketOptions.SO_SNDBUF, 4096);
+                chans.add(c); chans.add(s);
+                b.add("stuck", true, s);                  // 从不读
+            }
+
+            // 预先算出每步广播帧的字节数，接收端按字节数判断收到了几步
+            long[] cumBytes = new long[moves + 1];
+            JSONObject[] msgs = new JSONObject[moves];
+            for (int i = 0; i < moves; i++) {
+                msgs[i] = Proto.moveFxFy(i & 7, (i >> 3) & 7, (i + 1) & 7, (i >> 2) & 7).put("seq", i + 1);
+                JSONObject withBy = new JSONObject(msgs[i], JSONObject.getNames(msgs[i])).put("by", i & 1);
+                cumBytes[i + 1] = cumBytes[i] + Wire.encode(withBy, true).length;
+            }
+            long total = cumBytes[moves];
+            long[] minBytes = { 0 };
+            Thread rx = NetThreads.start("bench-rx", () -> {
+                ByteBuffer buf = ByteBuffer.allocateDirect(64 * 1024);
+                try {
+                    while (true) {
+                        sel.select(100);
+                        for (SelectionKey k : sel.selectedKeys()) {
+                            int idx = (Integer) k.attachment();
+                            int r;
+                            do { buf.clear(); r = ((SocketChannel) k.channel()).read(buf); if (r > 0) got[idx] += r; } while (r > 0);
+                        }
+                        sel.selectedKeys().clear();
+                        long m = Long.MAX_VALUE;
+                        for (long g : got) m = Math.min(m, g);
+                        synchronized (minBytes) { minBytes[0] = m; }
+                        if (m >= total) return;
+                    }
+                } catch (IOException ignore) {}
+            });
+
+            RttStats pub = new RttStats();
+            long t0 = System.nanoTime();
+            for (int i = 0; i < moves; i++) {
+                if (i >= 256) while (received(minBytes) < cumBytes[i - 256]) Thread.yield();
+                long p = System.nanoTime();
+                b.publish(msgs[i], i & 1);
+                pub.record(System.nanoTime() - p);
+            }
+            rx.join(60_000);
+            double sec = (System.nanoTime() - t0) / 1e9;
+
+            String stats = b.stats();
+            String dropped = stats.substring(stats.indexOf("dropped=") + 8);
+            System.out.printf("%10d %6s %12.0f %14.0f %14.1f %14.1f %8s%n", n, withStuck ? "1" : "0",
+                    moves / sec, (double) moves * n / sec, pub.percentileNs(50) / 1e3, pub.percentileNs(99) / 1e3, dropped);
+            b.close();
+        } finally {
+            for (SocketChannel c : chans) try { c.close(); } catch (IOException ignore) {}
+            sel.close();
+        }
+    }
+
+    private static long received(long[] minBytes){
+        synchronized (minBytes) { return minBytes[0]; }
+    }
+}
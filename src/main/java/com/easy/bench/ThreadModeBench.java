@@ -0,0 +1,106 @@
+package com.easy.bench;
+
+import com.easy.net.NetThreads;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 平台线程 vs 虚拟线程：每连接一个阻塞读线程时的内存占用与唤醒延迟。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.ThreadModeBench [连接数=2000] [轮数=5]
+ *   （JDK 21+ 才会跑虚拟线程那一组）
+ * </pre>
+ * 内存取 /proc/self/status 的 VmRSS 增量（非 Linux 时只看堆）；唤醒延迟 = 对端写 1 字节到读线程醒来的时间。
+ */
+public final class ThreadModeBench {
+
+    public static void main(String[] args) throws Exception {
+        int conns  = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        System.out.println("connections=" + conns + " rounds=" + rounds + " java=" + Runtime.version());
+        run(NetThreads.Mode.PLATFORM, conns, rounds);
+        if (NetThreads.virtualAvailable()) run(NetThreads.Mode.VIRTUAL, conns, rounds);
+        else System.out.println("VIRTUAL  : 当前 JVM 不支持虚拟线程，跳过");
+    }
+
+    private static void run(NetThreads.Mode mode, int conns, int rounds) throws Exception {
+        System.gc(); Thread.sleep(200);
+        long rss0 = rssKb(), heap0 = heapUsed();
+
+        List<Socket> writers = new ArrayList<>(conns);
+        List<Socket> readers = new ArrayList<>(conns);
+        long[] wokeAt = new long[conns];
+        AtomicReference<CountDownLatch> latch = new AtomicReference<>(new CountDownLatch(conns));
+
+        try (ServerSocket ss = new ServerSocket()) {
+            ss.bind(new InetSocketAddress("127.0.0.1", 0), conns);
+            for (int i = 0; i < conns; i++) {
+                Socket w = new Socket("127.0.0.1", ss.getLocalPort());
+                w.setTcpNoDelay(true);
+                Socket r = ss.accept();
+                writers.add(w); readers.add(r);
+                final int id = i;
+                final InputStream in = r.getInputStream();
+                NetThreads.start(mode, "bench-read-" + i, () -> {
+                    try {
+                        while (in.read() >= 0) {
+                            wokeAt[id] = System.nanoTime();
+                            latch.get().countDown();
+                        }
+                    } catch (Exception ignore) {}
+                });
+            }
+            Thread.sleep(500); // 让读线程都进入阻塞
+            System.gc(); Thread.sleep(200);
+            long rss1 = rssKb(), heap1 = heapUsed();
+
+            long[] lat = new long[conns * rounds];
+            int k = 0;
+            for (int r = 0; r < rounds; r++) {
+                latch.set(new CountDownLatch(conns));
+                long[] sentAt = new long[conns];
+                for (int i = 0; i < conns; i++) {
+                    OutputStream out = writers.get(i).getOutputStream();
+                    sentAt[i] = System.nanoTime();
+                    out.write(1); out.flush();
+                }
+                latch.get().await();
+                for (int i = 0; i < conns; i++) lat[k++] = wokeAt[i] - sentAt[i];
+            }
+            Arrays.sort(lat);
+            System.out.printf("%-9s: rss/conn=%s heap/conn=%.1fKB wake p50=%.1fus p99=%.1fus max=%.1fus%n",
+                    mode,
+                    rss0 < 0 ? "n/a" : String.format("%.1fKB", (rss1 - rss0) / (double) conns),
+                    (heap1 - heap0) / 1024.0 / conns,
+                    lat[lat.length / 2] / 1e3, lat[(int) (lat.length * 0.99)] / 1e3, lat[lat.length - 1] / 1e3);
+        } finally {
+            for (Socket s : writers) try { s.close(); } catch (Exception ignore) {}
+            for (Socket s : readers) try { s.close(); } catch (Exception ignore) {}
+        }
+    }
+
+    private static long heapUsed(){
+        return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+    }
+
+    private static long rssKb(){
+        try {
+            for (String line : Files.readAllLines(Path.of("/proc/self/status"))) {
+                if (line.startsWith("VmRSS:")) return Long.parseLong(line.replaceAll("[^0-9]", ""));
+            }
+        } catch (Exception ignore) {}
+        return -1;
+    }
+}
@@ -0,0 +1,109 @@
+package com.easy.bench;
+
+import com.easy.net.NetThreads;
+import com.easy.net.Proto;
+import com.easy.net.RttStats;
+import com.easy.net.UdpLink;
+import com.easy.net.Wire;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.net.*;
+import java.nio.channels.DatagramChannel;
+
+/**
+ * 回环上一来一回地走子（一次只有一步在途，和真实对局一样），比较 TCP 与 UdpLink 的往返尾延迟。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.UdpBench [每组步数=2000]
+ * </pre>
+ * 内核 TCP 在回环上没法注入丢包，所以有丢包的对照组用 UdpLink 模拟 TCP 的行为
+ * （最小 RTO 200ms 同 Linux、关 SACK；单步在途时凑不齐 3 个重复 ACK，快速重传用不上），记作 "tcp-like"。
+ * 丢包在两个方向的发送端注入。
+ */
+public final class UdpBench {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        System.out.printf("%-10s %6s %9s %9s %9s %9s %9s  %s%n", "transport", "loss", "p50 ms", "p99 ms", "p99.9 ms", "max ms", "moves/s", "link");
+        tcp(Math.min(n, 500));                              // 热身
+        tcp(n);
+        for (double loss : new double[]{ 0, 0.01, 0.05 }) {
+            udp(n, loss, false);
+            udp(n, loss, true);
+        }
+    }
+
+    private static void tcp(int n) throws Exception {
+        try (ServerSocket ss = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            NetThreads.start("bench-tcp-echo", () -> {
+                try (Socket s = ss.accept()) {
+                    s.setTcpNoDelay(true);
+                    echo(s.getInputStream(), s.getOutputStream());
+                } catch (IOException ignore) {}
+            });
+            try (Socket c = new Socket(InetAddress.getLoopbackAddress(), ss.getLocalPort())) {
+                c.setTcpNoDelay(true);
+                RttStats r = new RttStats();
+                double rate = pingPong(c.getInputStream(), c.getOutputStream(), n, r);
+                row("tcp", 0, r, rate, "kernel");
+            }
+        }
+    }
+
+    private static void udp(int n, double loss, boolean tcpLike) throws Exception {
+        try (DatagramChannel ch = DatagramChannel.open()) {
+            ch.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+            UdpLink c = UdpLink.connect((InetSocketAddress) ch.getLocalAddress());
+            UdpLink[] srv = new UdpLink[1];
+            Thread t = NetThreads.start("bench-udp-echo", () -> {
+                try {
+                    UdpLink s = UdpLink.accept(ch, 5000);
+                    if (s == null) return;
+                    tune(s, loss, tcpLike);
+                    srv[0] = s;
+                    echo(s.in(), s.out());
+                } catch (IOException ignore) {}
+            });
+            tune(c, loss, tcpLike);
+            RttStats r = new RttStats();
+            double rate = pingPong(c.in(), c.out(), n, r);
+            row(tcpLike ? "tcp-like" : "udp", loss, r, rate, c.stats());
+            c.close();
+            t.join(2000);
+            if (srv[0] != null) srv[0].close();
+        }
+    }
+
+    private static void tune(UdpLink l, double loss, boolean tcpLike){
+        l.setLossRate(loss);
+        if (tcpLike) { l.setMinRtoMs(200); l.setSackEnabled(false); }
+    }
+
+    private static double pingPong(InputStream in, OutputStream out, int n, RttStats r) throws IOException {
+        Wire.Reader rd = new Wire.Reader(in);
+        long start = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            JSONObject m = Proto.moveFxFy(i & 7, (i >> 3) & 7, (i + 1) & 7, (i >> 2) & 7).put("seq", i + 1);
+            long t0 = System.nanoTime();
+            Wire.write(out, m, true);
+            out.flush();
+            if (rd.read() == null) throw new EOFException("echo closed after " + i);
+            r.record(System.nanoTime() - t0);
+        }
+        return n / ((System.nanoTime() - start) / 1e9);
+    }
+
+    private static void echo(InputStream in, OutputStream out) throws IOException {
+        Wire.Reader rd = new Wire.Reader(in);
+        JSONObject jo;
+        while ((jo = rd.read()) != null) {
+            Wire.write(out, Proto.ack(jo.optInt("seq", -1)), true);
+            out.flush();
+        }
+    }
+
+    private static void row(String name, double loss, RttStats r, double rate, String link){
+        System.out.printf("%-10s %5.0f%% %9.3f %9.3f %9.3f %9.3f %9.0f  %s%n", name, loss * 100,
+                r.percentileNs(50) / 1e6, r.percentileNs(99) / 1e6, r.percentileNs(99.9) / 1e6, r.percentileNs(100) / 1e6, rate, link);
+    }
+}
@@ -0,0 +1,84 @@
+package com.easy.bench;
+
+import com.easy.net.Proto;
+import com.easy.net.Wire;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * JSON 行 vs 二进制帧：每条消息字节数、编码/解码吞吐。
+ * <pre>
+ *   java -cp easy-p2p.jar com.easy.bench.WireBench [每轮条数=200000]
+ * </pre>
+ * JSON 一列走原来的 Proto.sendJSON/readJSON；binary 一列走 Wire.encode/Wire.Reader。
+ */
+public final class WireBench {
+
+    public static void main(String[] args) throws Exception {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        JSONObject[] msgs = {
+            Proto.move(7, 11, 0, ""),
+            Proto.moveFxFy(4, 6, 4, 4),
+            Proto.battleFire(3, 9),
+            Proto.gameSelect("CHESS", "host"),
+            Proto.ack(),
+        };
+        String[] names = { "MOVE", "MOVE_FXFY", "BATTLE fire", "GAME select", "ACK" };
+
+        System.out.printf("%-12s %8s %8s %14s %14s %14s %14s%n",
+                "msg", "json B", "bin B", "json enc/s", "bin enc/s", "json dec/s", "bin dec/s");
+        for (int round = 0; round < 2; round++) { // 第一轮热身
+            for (int i = 0; i < msgs.length; i++) {
+                JSONObject m = msgs[i];
+                int jb = Wire.encode(m, false).length, bb = Wire.encode(m, true).length;
+                double je = encJson(m, n), be = encBin(m, n);
+                double jd = decJson(m, n), bd = decBin(m, n);
+                if (round == 1)
+                    System.out.printf("%-12s %8d %8d %14.0f %14.0f %14.0f %14.0f%n", names[i], jb, bb, je, be, jd, bd);
+            }
+        }
+    }
+
+    private static double encJson(JSONObject m, int n) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(1 << 16);
+        long t = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            Proto.sendJSON(bos, m);
+            if (bos.size() > 1 << 15) bos.reset();
+        }
+        return n / ((System.nanoTime() - t) / 1e9);
+    }
+
+    private static double encBin(JSONObject m, int n) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream(1 << 16);
+        long t = System.nanoTime();
+        for (int i = 0; i < n; i++) {
+            Wire.write(bos, m, true);
+            if (bos.size() > 1 << 15) bos.reset();
+        }
+        return n / ((System.nanoTime() - t) / 1e9);
+    }
+
+    private static double decJson(JSONObject m, int n) throws IOException {
+        byte[] one = (m.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+        BufferedReader br = new BufferedReader(new InputStreamReader(new ByteArrayInputStream(repeat(one, n)), StandardCharsets.UTF_8));
+        long t = System.nanoTime();
+        for (int i = 0; i < n; i++) Proto.readJSON(br);
+        return n / ((System.nanoTime() - t) / 1e9);
+    }
+
+    private static double decBin(JSONObject m, int n) throws IOException {
+        Wire.Reader rd = new Wire.Reader(new ByteArrayInputStream(repeat(Wire.encode(m, true), n)));
+        long t = System.nanoTime();
+        for (int i = 0; i < n; i++) rd.read();
+        return n / ((System.nanoTime() - t) / 1e9);
+    }
+
+    private static byte[] repeat(byte[] one, int n){
+        byte[] all = new byte[one.length * n];
+        for (int i = 0; i < n; i++) System.arraycopy(one, 0, all, i * one.length, one.length);
+        return all;
+    }
+}
@@ -25,6 +25,12 @@ public class BattleshipGame implements Game {
     private String  result = "";
 
     private Phase phase = Phase.SETUP;
+
+    // 双方可见的共享局面只有“谁打过哪一格”：命中结果依赖各自布阵，不进哈希
+    private static final long[][] Z = Zobrist.table(2, 100, 5); // [0]=先手方开火, [1]=后手方开火
+    private boolean iStarted = true;
+    private boolean starterToMove = true;
+    private long hash;
     private long setupDeadline = System.currentTimeMillis() + 30_000L; // 30秒布阵
 
     @Override public GameType type(){ return GameType.BATTLE; }
@@ -42,6 +48,9 @@ public class BattleshipGame implements Game {
         }
         for (int i=0;i<placed.length;i++) placed[i]=0;
         myTurn = iStart;
+        iStarted = iStart;
+        starterToMove = true;
+        hash = 0;
         finished=false; result="";
         phase = Phase.SETUP;
         setupDeadline = System.currentTimeMillis()+30_000L;
@@ -125,6 +134,7 @@ public class BattleshipGame implements Game {
         // 本地演示版：随机 30% 命中
         boolean hit = new Random().nextInt(100) < 30;
         enemyFog[x][y] = hit? 1 : -1;
+        shot(iStarted, x, y);
         myTurn = false;
         return hit? FireResult.HIT : FireResult.MISS;
     }
@@ -133,6 +143,7 @@ public class BattleshipGame implements Game {
     public void applyEnemyFire(int x,int y){
         if (hitOnMe[x][y]!=0) return;
         hitOnMe[x][y] = (own[x][y]>0? 1 : -1);
+        shot(!iStarted, x, y);
         // 判输
         if (allMyShipsDown()){
             finished=true; result="你被击沉全部舰船";
@@ -141,6 +152,52 @@ public class BattleshipGame implements Game {
         }
     }
 
+    private void shot(boolean byStarter, int x, int y){
+        hash ^= Z[byStarter?0:1][y*N+x] ^ Zobrist.SIDE;
+        starterToMove = !byStarter;
+    }
+
+    @Override public long hash(){ return hash; }
+
+    /** 快照：轮到谁 + 先手方/后手方各自打过的格子（不含命中结果与布阵） */
+    @Override public String snapshot(){
+        StringBuilder sb = new StringBuilder("B;").append(starterToMove?1:0).append(';');
+        int[][] starterShots = iStarted ? enemyFog : hitOnMe, otherShots = iStarted ? hitOnMe : enemyFog;
+        for (int y=0;y<N;y++) for (int x=0;x<N;x++) sb.append(starterShots[x][y]!=0 ? '1' : '0');
+        for (int y=0;y<N;y++) for (int x=0;x<N;x++) sb.append(otherShots[x][y]!=0 ? '1' : '0');
+        return sb.toString();
+    }
+
+    /** 按快照补齐开火记录：对方打我的格子按己方布阵重算命中；我打对方的格子结果未知，记为落空 */
+    @Override public boolean restore(String s){
+        String[] p = s == null ? new String[0] : s.split(";", 3);
+        if (p.length != 3 || !"B".equals(p[0]) || p[2].length() != 2*N*N) return false;
+        if (!p[2].chars().allMatch(c -> c=='0' || c=='1')) return false;
+        int mineOff = iStarted ? 0 : N*N, theirsOff = iStarted ? N*N : 0;
+        for (int i=0;i<N*N;i++){
+            int x=i%N, y=i/N;
+            if (p[2].charAt(mineOff+i)=='1') { if (enemyFog[x][y]==0) enemyFog[x][y]=-1; }
+            else enemyFog[x][y]=0;
+            if (p[2].charAt(theirsOff+i)=='1') { if (hitOnMe[x][y]==0) hitOnMe[x][y]=(own[x][y]>0? 1 : -1); }
+            else hitOnMe[x][y]=0;
+        }
+        starterToMove = "1".equals(p[1]);
+        long h = starterToMove ? 0 : Zobrist.SIDE;
+        for (int i=0;i<N*N;i++){
+            if (p[2].charAt(i)=='1') h ^= Z[0][i];
+            if (p[2].charAt(N*N+i)=='1') h ^= Z[1][i];
+        }
+        hash = h;
+        if (allMyShipsDown() && hasShips()) { finished=true; result="你被击沉全部舰船"; }
+        myTurn = starterToMove == iStarted;
+        return true;
+    }
+
+    private boolean hasShips(){
+        for (int y=0;y<N;y++) for (int x=0;x<N;x++) if (own[x][y]>0) return true;
+        return false;
+    }
+
     private boolean allMyShipsDown(){
         // 只要 own 上的舰格全部对应 hitOnMe==1
         outer:
@@ -0,0 +1,270 @@
+package com.easy.game;
+
+/**
+ * 英式跳棋（8×8，32 个深色格）的 bitboard 局面：双方兵、王各一个 32 位掩码。
+ * 深色格编号 s = y*4 + x/2（(x+y) 为奇数的格子），先手方（P1）从下往上走、在 y = 0 升王，后手方（P2）反之。
+ * <p>
+ * 每格四个斜向的一步邻格 {@link #STEP} 和隔一格的落点 {@link #JUMP} 预先算好。规则：
+ * 全局强制吃子（任何一子能吃，这一步就只能吃）；连跳必须跳完，整条链是一步；兵在连跳中走到底线升王，这一步到此结束。
+ * <p>
+ * 走法是一个 long，整条连跳链压在里面：
+ * <pre>
+ *   bit 0-4  from      bit 5-9  to      bit 10  这一步升王
+ *   bit 11-42 被吃掉的子（深色格掩码）
+ * </pre>
+ * {@link #legalMoves} 写进调用方给的数组，不分配；{@link #make} / {@link #unmake} 原地改局面，被吃的王记在内部栈上。
+ * 哈希与格子编码沿用 {@link CheckersGame} 原来的数组实现（y*8+x，1 兵 2 兵 3 王 4 王），快照和哈希两端对得上；增量维护。单线程使用。
+ */
+public final class CheckersBoard {
+
+    public static final int P1 = 0, P2 = 1;
+    /** 格子内容，也是快照里每格的数字 */
+    public static final int EMPTY = 0, MAN1 = 1, MAN2 = 2, KING1 = 3, KING2 = 4;
+    /** 连跳链去重后，实战和 perft 局面里远不到这个数 */
+    public static final int MAX_MOVES = 128;
+
+    /** 方向：0 左上 1 右上 2 左下 3 右下（y 向下）；P1 的兵只走 0、1，P2 的兵只走 2、3 */
+    private static final int[] DX = { -1, 1, -1, 1 }, DY = { -1, -1, 1, 1 };
+    /** STEP[d][s]：一步的邻格，-1 = 出界；JUMP[d][s]：隔 STEP 一格的落点 */
+    static final int[][] STEP = new int[4][32], JUMP = new int[4][32];
+    private static final int[] SQ64 = new int[32];
+    private static final int ROW0 = 0x0000000F, ROW7 = 0xF0000000;
+    private static final long[][] Z = Zobrist.table(64, 5, 4);
+
+    static {
+        for (int s = 0; s < 32; s++) {
+            int x = x(s), y = y(s);
+            SQ64[s] = y * 8 + x;
+            for (int d = 0; d < 4; d++) {
+                STEP[d][s] = square(x + DX[d], y + DY[d]);
+                JUMP[d][s] = square(x + 2 * DX[d], y + 2 * DY[d]);
+            }
+        }
+    }
+
+    private final int[] men = new int[2], kings = new int[2];
+    private int side;
+    private long hash;
+    private int[] undo = new int[256];
+    private int ply;
+
+    public CheckersBoard(){ reset(); }
+
+    public CheckersBoard(CheckersBoard o){
+        men[0] = o.men[0]; men[1] = o.men[1];
+        kings[0] = o.kings[0]; kings[1] = o.kings[1];
+        side = o.side; hash = o.hash;
+        undo = o.undo.clone(); ply = o.ply;
+    }
+
+    /** 开局：P2 占上三行，P1 占下三行，P1 先走 */
+    public void reset(){
+        men[P2] = 0x00000FFF;
+        men[P1] = 0xFFF00000;
+        kings[P1] = kings[P2] = 0;
+        side = P1;
+        ply = 0;
+        hash = rehash();
+    }
+
+    /** 按 64 格摆局面（下标 y*8+x，内容 EMPTY..KING2；浅色格忽略） */
+    public void load(int[] cells, boolean p1ToMove){
+        men[0] = men[1] = kings[0] = kings[1] = 0;
+        for (int s = 0; s < 32; s++) {
+            int v = cells[SQ64[s]];
+            if (v == MAN1) men[P1] |= 1 << s;
+            else if (v == MAN2) men[P2] |= 1 << s;
+            else if (v == KING1) kings[P1] |= 1 << s;
+            else if (v == KING2) kings[P2] |= 1 << s;
+        }
+        side = p1ToMove ? P1 : P2;
+        ply = 0;
+        hash = rehash();
+    }
+
+    // ===== 坐标 =====
+
+    /** (x, y) 对应的深色格编号，浅色格或出界返回 -1 */
+    public static int square(int x, int y){
+        if (x < 0 || x >= 8 || y < 0 || y >= 8 || ((x + y) & 1) == 0) return -1;
+        return y * 4 + (x >> 1);
+    }
+
+    public static int x(int s){ return 2 * (s & 3) + ((s >> 2 & 1) == 0 ? 1 : 0); }
+    public static int y(int s){ return s >> 2; }
+
+    public static int from(long m){ return (int) m & 31; }
+    public static int to(long m){ return (int) (m >>> 5) & 31; }
+    public static boolean promotes(long m){ return (m >>> 10 & 1) != 0; }
+    public static int captured(long m){ return (int) (m >>> 11); }
+
+    private static long move(int from, int to, int captured, boolean promotes){
+        return from | to << 5 | (promotes ? 1L << 10 : 0) | (captured & 0xFFFFFFFFL) << 11;
+    }
+
+    // ===== 局面 =====
+
+    public boolean p1ToMove(){ return side == P1; }
+    public long hash(){ return hash; }
+    public int pieces(int who){ return Integer.bitCount(men[who] | kings[who]); }
+
+    /** 格子内容 EMPTY..KING2 */
+    public int get(int s){
+        int b = 1 << s;
+        if ((men[P1] & b) != 0) return MAN1;
+        if ((men[P2] & b) != 0) return MAN2;
+        if ((kings[P1] & b) != 0) return KING1;
+        if ((kings[P2] & b) != 0) return KING2;
+        return EMPTY;
+    }
+
+    private static int code(int who, boolean king){ return (king ? KING1 : MAN1) + who; }
+
+    // ===== 走法生成 =====
+
+    /** 走子方全部合法步写进 out，返回步数；有吃子就只出吃子（整条连跳链一步） */
+    public int legalMoves(long[] out){
+        int me = side, op = side ^ 1;
+        int mine = men[me] | kings[me], theirs = men[op] | kings[op], empty = ~(mine | theirs);
+        int n = 0;
+        for (int p = mine; p != 0; p &= p - 1) {
+            int s = Integer.numberOfTrailingZeros(p);
+            boolean king = (kings[me] & 1 << s) != 0;
+            n = jumps(s, s, 0, king, me, theirs, empty | 1 << s, out, n);
+        }
+        if (n > 0) return n;
+        for (int p = mine; p != 0; p &= p - 1) {
+            int s = Integer.numberOfTrailingZeros(p);
+            n = steps(s, (kings[me] & 1 << s) != 0, me, empty, out, n);
+        }
+        return n;
+    }
+
+    /** 只生成 s 上这个子的合法步（界面点选用）；不是走子方的子、或别的子必须吃而它吃不了时为 0 */
+    public int legalMovesFrom(int s, long[] out){
+        int me = side, op = side ^ 1;
+        int mine = men[me] | kings[me], theirs = men[op] | kings[op], empty = ~(mine | theirs);
+        if ((mine & 1 << s) == 0) return 0;
+        boolean king = (kings[me] & 1 << s) != 0;
+        int n = jumps(s, s, 0, king, me, theirs, empty | 1 << s, out, 0);
+        if (n > 0 || canJump(me, theirs, empty)) return n;
+        return steps(s, king, me, empty, out, 0);
+    }
+
+    /** 走子方有没有子能吃（只看第一跳） */
+    private boolean canJump(int me, int theirs, int empty){
+        for (int p = men[me] | kings[me]; p != 0; p &= p - 1) {
+            int s = Integer.numberOfTrailingZeros(p);
+            boolean king = (kings[me] & 1 << s) != 0;
+            for (int d = king ? 0 : 2 * me, end = king ? 4 : d + 2; d < end; d++) {
+                int land = JUMP[d][s];
+                if (land >= 0 && (theirs & 1 << STEP[d][s]) != 0 && (empty & 1 << land) != 0) return true;
+            }
+        }
+        return false;
+    }
+
+    private int steps(int s, boolean king, int me, int empty, long[] out, int n){
+        int promoRow = me == P1 ? ROW0 : ROW7;
+        for (int d = king ? 0 : 2 * me, end = king ? 4 : d + 2; d < end; d++) {
+            int t = STEP[d][s];
+            if (t >= 0 && (empty & 1 << t) != 0) out[n++] = move(s, t, 0, !king && (promoRow & 1 << t) != 0);
+        }
+        return n;
+    }
+
+    /**
+     * 从 at 往下接着跳（深度优先）；跳不动了就把整条链记成一步。起点算作空格（王可以绕一圈跳回原地），
+     * 被吃的子留在盘上直到这一步走完，所以既不能再跳一次也不能落在上面。同样起止、同样吃子的两条路线只记一次。
+     */
+    private int jumps(int from, int at, int cap, boolean king, int me, int theirs, int empty, long[] out, int n){
+        int promoRow = me == P1 ? ROW0 : ROW7;
+        boolean more = false;
+        for (int d = king ? 0 : 2 * me, end = king ? 4 : d + 2; d < end; d++) {
+            int mid = STEP[d][at], land = JUMP[d][at];
+            if (land < 0 || (theirs & ~cap & 1 << mid) == 0 || (empty & 1 << land) == 0) continue;
+            more = true;
+            int c = cap | 1 << mid;
+            if (!king && (promoRow & 1 << land) != 0) n = add(out, n, move(from, land, c, true));   // 兵跳到底线：升王，链到此为止
+            else n = jumps(from, land, c, king, me, theirs, empty, out, n);
+        }
+        if (!more && cap != 0) n = add(out, n, move(from, at, cap, false));
+        return n;
+    }
+
+    private static int add(long[] out, int n, long m){
+        for (int i = n - 1; i >= 0 && from(out[i]) == from(m); i--) if (out[i] == m) return n;
+        out[n] = m;
+        return n + 1;
+    }
+
+    // ===== 走子 / 撤销 =====
+
+    public void make(long m){
+        int me = side, op = side ^ 1, f = from(m), t = to(m), cap = captured(m);
+        int fb = 1 << f, tb = 1 << t;
+        boolean king = (kings[me] & fb) != 0, promo = promotes(m);
+        hash ^= Z[SQ64[f]][code(me, king)] ^ Z[SQ64[t]][code(me, king || promo)];
+        if (king) kings[me] = kings[me] & ~fb | tb;                     // 王的连跳可能绕回起点，不能用异或
+        else if (promo) { men[me] ^= fb; kings[me] |= tb; }
+        else men[me] ^= fb | tb;
+        int capKings = kings[op] & cap;
+        for (int c = cap; c != 0; c &= c - 1) {
+            int s = Integer.numberOfTrailingZeros(c);
+            hash ^= Z[SQ64[s]][code(op, (capKings & 1 << s) != 0)];
+        }
+        men[op] &= ~cap;
+        kings[op] &= ~cap;
+        if (ply == undo.length) undo = java.util.Arrays.copyOf(undo, ply * 2);
+        undo[ply++] = capKings;
+        side = op;
+        hash ^= Zobrist.SIDE;
+    }
+
+    public void unmake(long m){
+        int op = side, me = side ^ 1, f = from(m), t = to(m), cap = captured(m);
+        int fb = 1 << f, tb = 1 << t;
+        int capKings = undo[--ply];
+        boolean promo = promotes(m), king = !promo && (kings[me] & tb) != 0;
+        if (king) kings[me] = kings[me] & ~tb | fb;
+        else if (promo) { kings[me] &= ~tb; men[me] |= fb; }
+        else men[me] ^= fb | tb;
+        men[op] |= cap & ~capKings;
+        kings[op] |= capKings;
+        for (int c = cap; c != 0; c &= c - 1) {
+            int s = Integer.numberOfTrailingZeros(c);
+            hash ^= Z[SQ64[s]][code(op, (capKings & 1 << s) != 0)];
+        }
+        hash ^= Z[SQ64[f]][code(me, king)] ^ Z[SQ64[t]][code(me, king || promo)] ^ Zobrist.SIDE;
+        side = me;
+    }
+
+    private long rehash(){
+        long h = side == P1 ? 0 : Zobrist.SIDE;
+        for (int s = 0; s < 32; s++) {
+            int v = get(s);
+            if (v != EMPTY) h ^= Z[SQ64[s]][v];
+        }
+        return h;
+    }
+
+    // ===== perft =====
+
+    /** 走法树叶子数（走到无棋可走的局面算一个叶子） */
+    public long perft(int depth){
+        return depth <= 0 ? 1 : perft(depth, new long[depth][MAX_MOVES]);
+    }
+
+    private long perft(int depth, long[][] buf){
+        long[] ms = buf[depth - 1];
+        int n = legalMoves(ms);
+        if (depth == 1) return n;
+        long nodes = 0;
+        for (int i = 0; i < n; i++) {
+            make(ms[i]);
+            nodes += perft(depth - 1, buf);
+            unmake(ms[i]);
+        }
+        return nodes;
+    }
+}
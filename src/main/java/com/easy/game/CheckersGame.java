@@ -4,18 +4,22 @@ import java.awt.Point;
 import java.util.ArrayList;
 import java.util.List;
 
-/** English Checkers / Draughts（单段吃子，升王） */
+/**
+ * English Checkers / Draughts：局面和走法生成在 {@link CheckersBoard}，这里只管谁是先手、轮次和终局。
+ * 全局强制吃子，连跳整条链算一步。起点终点相同、吃掉的子不同的链是不同的步（兵的菱形两连跳、王绕圈都会有），
+ * 所以走子按 (起点, 终点, 吃子掩码) 精确匹配，线上随 MOVE 带 cap（见 {@link com.easy.net.Proto#checkersMove}）。
+ * 轮到的一方无棋可走（含无子）即判负。
+ */
 public class CheckersGame implements Game {
-    private static final int EMPTY=0, P1=1, P2=2, K1=3, K2=4;
     private final int N = 8;
-    private final int[][] b = new int[N][N];
+    private final CheckersBoard board = new CheckersBoard();
+    private final long[] moves = new long[CheckersBoard.MAX_MOVES];
 
     private boolean iAmP1 = true;
     private boolean myTurn = true;
 
     private boolean finished = false;
     private String result = "";
-    private Point lastFrom, lastTo;
 
     @Override public GameType type(){ return GameType.CHECKERS; }
     @Override public int size(){ return N; }
@@ -25,154 +29,128 @@ public class CheckersGame implements Game {
     @Override public boolean isFinished(){ return finished; }
     @Override public String resultText(){ return result; }
 
+    /** 底层局面（电脑对手、基准测试用；别在外面改它） */
+    public CheckersBoard board(){ return board; }
+
     @Override
     public void reset(boolean iStart){
         iAmP1   = iStart;
         myTurn  = iStart;
-        finished=false; result=""; lastFrom=lastTo=null;
-        for (int y=0;y<N;y++) for (int x=0;x<N;x++) b[x][y]=EMPTY;
-        for (int y=0;y<3;y++) for (int x=0;x<N;x++) if(((x+y)&1)==1) b[x][y]=P2;
-        for (int y=N-3;y<N;y++) for (int x=0;x<N;x++) if(((x+y)&1)==1) b[x][y]=P1;
+        finished=false; result="";
+        board.reset();
     }
 
     @Override public int get(int x,int y){
-        int v=b[x][y];
-        if (v==EMPTY) return 0;
-        return (v==P1||v==K1) ? 1 : 2;
+        int v = piece(x,y);
+        if (v==CheckersBoard.EMPTY) return 0;
+        return (v==CheckersBoard.MAN1||v==CheckersBoard.KING1) ? 1 : 2;
     }
 
-    public boolean isMyPieceAt(int x,int y){
-        int v=b[x][y];
-        if (v==EMPTY) return false;
-        return iAmP1? (v==P1||v==K1) : (v==P2||v==K2);
+    private int piece(int x,int y){
+        int s = CheckersBoard.square(x,y);
+        return s < 0 ? CheckersBoard.EMPTY : board.get(s);
     }
 
-    private boolean in(int x,int y){ return x>=0&&x<N&&y>=0&&y<N; }
-    private boolean mine(int v){ return v==P1||v==K1; }
-    private boolean opp (int v){ return v==P2||v==K2; }
-    private boolean isKing(int v){ return v==K1||v==K2; }
+    public boolean isMyPieceAt(int x,int y){
+        int v = get(x,y);
+        return v != 0 && (v == 1) == iAmP1;
+    }
 
+    /** 这个子这一步能落的终点（连跳给整条链的终点）；别的子必须吃而它吃不了、或没轮到它那一方时为空 */
     public List<Point> legalMovesFrom(int x,int y){
-        int v=b[x][y]; List<Point> res=new ArrayList<>();
-        if (v==EMPTY) return res;
-        if (isKing(v)){
-            tryStep(x,y, 1, 1,res,true);
-            tryStep(x,y,-1, 1,res,true);
-            tryStep(x,y, 1,-1,res,true);
-            tryStep(x,y,-1,-1,res,true);
-        }else if (v==P1){ // 向上
-            tryStep(x,y, 1,-1,res,false);
-            tryStep(x,y,-1,-1,res,false);
-        }else{ // P2 向下
-            tryStep(x,y, 1, 1,res,false);
-            tryStep(x,y,-1, 1,res,false);
+        List<Point> res = new ArrayList<>();
+        int s = CheckersBoard.square(x,y);
+        if (s < 0) return res;
+        int n = board.legalMovesFrom(s, moves);
+        for (int i = 0; i < n; i++) {
+            int t = CheckersBoard.to(moves[i]);
+            Point p = new Point(CheckersBoard.x(t), CheckersBoard.y(t));
+            if (!res.contains(p)) res.add(p);
         }
-        // 如果存在吃子，必须吃（简化：只判断当前子）
-        boolean hasJump = res.stream().anyMatch(p -> Math.abs(p.x-x)==2);
-        if (hasJump) res.removeIf(p -> Math.abs(p.x-x)!=2);
         return res;
     }
 
-    private void tryStep(int x,int y,int dx,int dy,List<Point> res, boolean king){
-        int nx=x+dx, ny=y+dy;
-        if (in(nx,ny) && b[nx][ny]==EMPTY) res.add(new Point(nx,ny));
-        int jx=x+2*dx, jy=y+2*dy, mx=x+dx, my=y+dy;
-        if (in(jx,jy) && b[jx][jy]==EMPTY && in(mx,my) && opp(b[mx][my])) res.add(new Point(jx,jy));
+    /**
+     * 起止相同的各条合法链吃掉的子（{@link CheckersBoard} 的深色格掩码，不吃子的一步为 0），按生成顺序；
+     * 多于一个时界面让玩家选。
+     */
+    public List<Integer> captureChoices(int fx,int fy,int tx,int ty){
+        List<Integer> res = new ArrayList<>();
+        int f = CheckersBoard.square(fx,fy), t = CheckersBoard.square(tx,ty);
+        if (f < 0 || t < 0) return res;
+        int n = board.legalMovesFrom(f, moves);
+        for (int i = 0; i < n; i++) if (CheckersBoard.to(moves[i]) == t) res.add(CheckersBoard.captured(moves[i]));
+        return res;
     }
 
-    // 对手合法终点（不强制我方/对方身份）
-    private List<Point> legalMovesFromPeer(int x,int y){
-        int v=b[x][y]; List<Point> res=new ArrayList<>();
-        if (v==EMPTY) return res;
-        if (isKing(v)){
-            tryStepPeer(x,y, 1, 1,res,true);
-            tryStepPeer(x,y,-1, 1,res,true);
-            tryStepPeer(x,y, 1,-1,res,true);
-            tryStepPeer(x,y,-1,-1,res,true);
-        }else if (v==P1){
-            tryStepPeer(x,y, 1,-1,res,false);
-            tryStepPeer(x,y,-1,-1,res,false);
-        }else{
-            tryStepPeer(x,y, 1, 1,res,false);
-            tryStepPeer(x,y,-1, 1,res,false);
+    /** 吃子掩码里的各个格子（x, y） */
+    public static List<Point> capturedSquares(int cap){
+        List<Point> res = new ArrayList<>();
+        for (int c = cap; c != 0; c &= c - 1) {
+            int s = Integer.numberOfTrailingZeros(c);
+            res.add(new Point(CheckersBoard.x(s), CheckersBoard.y(s)));
         }
-        boolean hasJump = false;
-        for (Point p : res) if (Math.abs(p.x-x)==2) { hasJump=true; break; }
-        if (hasJump) res.removeIf(p -> Math.abs(p.x-x)!=2);
         return res;
     }
-    private void tryStepPeer(int x,int y,int dx,int dy,List<Point> res, boolean king){
-        int nx=x+dx, ny=y+dy;
-        if (in(nx,ny) && b[nx][ny]==EMPTY) res.add(new Point(nx,ny));
-        int jx=x+2*dx, jy=y+2*dy, mx=x+dx, my=y+dy;
-        if (in(jx,jy) && b[jx][jy]==EMPTY && in(mx,my) && b[mx][my]!=EMPTY) res.add(new Point(jx,jy));
-    }
-
-    public boolean move(int fx,int fy,int tx,int ty){
-        if (!myTurn || finished) return false;
-        if (!in(fx,fy)||!in(tx,ty)) return false;
-        int v=b[fx][fy]; if (v==EMPTY) return false;
-        if (iAmP1 && !mine(v)) return false;
-        if (!iAmP1 && !opp(v)) return false;
-
-        boolean ok = legalMovesFrom(fx,fy).stream().anyMatch(p -> p.x==tx && p.y==ty);
-        if (!ok) return false;
-
-        boolean jumped = Math.abs(tx-fx)==2;
-        int cx=(fx+tx)/2, cy=(fy+ty)/2;
-
-        b[tx][ty]=v; b[fx][fy]=EMPTY;
-        if (jumped) b[cx][cy]=EMPTY;
-
-        if (v==P1 && ty==0) b[tx][ty]=K1;
-        if (v==P2 && ty==N-1) b[tx][ty]=K2;
 
-        lastFrom=new Point(fx,fy); lastTo=new Point(tx,ty);
-
-        // 胜负（对手无子或无路）
-        if (noPieces(!iAmP1) || noMoves(!iAmP1)) { finished=true; result="先手胜"; }
+    /** 只给起止：只有一条链时才走得通（有歧义用带 cap 的重载） */
+    public boolean move(int fx,int fy,int tx,int ty){ return move(fx,fy,tx,ty,-1); }
 
+    /** cap：这一步吃掉的子（{@link #captureChoices} 给出的之一），-1 = 不指定 */
+    public boolean move(int fx,int fy,int tx,int ty,int cap){
+        if (!myTurn || finished) return false;
+        if (!isMyPieceAt(fx,fy)) return false;
+        if (!apply(fx,fy,tx,ty,cap)) return false;
         myTurn=false;
         return true;
     }
 
-    public boolean moveFromPeer(int fx,int fy,int tx,int ty){
-        if (!in(fx,fy)||!in(tx,ty)||finished) return false;
-        int v=b[fx][fy]; if (v==EMPTY) return false;
-        boolean ok = legalMovesFromPeer(fx,fy).stream().anyMatch(p -> p.x==tx && p.y==ty);
-        if (!ok) return false;
-
-        boolean jumped = Math.abs(tx-fx)==2;
-        int cx=(fx+tx)/2, cy=(fy+ty)/2;
-
-        b[tx][ty]=v; b[fx][fy]=EMPTY;
-        if (jumped) b[cx][cy]=EMPTY;
-
-        if (v==P1 && ty==0) b[tx][ty]=K1;
-        if (v==P2 && ty==N-1) b[tx][ty]=K2;
-
-        lastFrom=new Point(fx,fy); lastTo=new Point(tx,ty);
+    public boolean moveFromPeer(int fx,int fy,int tx,int ty){ return moveFromPeer(fx,fy,tx,ty,-1); }
 
+    public boolean moveFromPeer(int fx,int fy,int tx,int ty,int cap){
+        if (finished) return false;
+        if (!apply(fx,fy,tx,ty,cap)) return false;
         myTurn=true;
         return true;
     }
 
-    private boolean noPieces(boolean forP1){
-        for (int y=0;y<N;y++) for (int x=0;x<N;x++){
-            int v=b[x][y];
-            if (forP1 && (v==P1||v==K1)) return false;
-            if (!forP1 && (v==P2||v==K2)) return false;
+    /** 按起止（和吃子掩码）找唯一的合法步走掉，再看下一手有没有棋可走；没指定 cap 又有歧义时不走 */
+    private boolean apply(int fx,int fy,int tx,int ty,int cap){
+        int f = CheckersBoard.square(fx,fy), t = CheckersBoard.square(tx,ty);
+        if (f < 0 || t < 0) return false;
+        int n = board.legalMovesFrom(f, moves);
+        long m = 0;
+        int found = 0;
+        for (int i = 0; i < n; i++) {
+            if (CheckersBoard.to(moves[i]) != t || cap != -1 && CheckersBoard.captured(moves[i]) != cap) continue;
+            m = moves[i];
+            found++;
         }
+        if (found != 1) return false;
+        board.make(m);
+        if (board.legalMoves(moves) == 0) { finished=true; result = board.p1ToMove() ? "后手胜" : "先手胜"; }
         return true;
     }
-    private boolean noMoves(boolean forP1){
-        boolean saveTurn = myTurn; myTurn = forP1;
-        for (int y=0;y<N;y++) for (int x=0;x<N;x++){
-            if ((forP1 ? mine(b[x][y]) : opp(b[x][y])) && !legalMovesFrom(x,y).isEmpty()){
-                myTurn = saveTurn; return false;
-            }
-        }
-        myTurn = saveTurn; return true;
+
+    @Override public long hash(){ return board.hash(); }
+
+    @Override public String snapshot(){
+        StringBuilder sb = new StringBuilder("K;").append(board.p1ToMove()?1:0).append(';').append(finished?1:0).append(';');
+        for (int y=0;y<N;y++) for (int x=0;x<N;x++) sb.append((char)('0'+piece(x,y)));
+        return sb.append(';').append(result).toString();
+    }
+
+    @Override public boolean restore(String s){
+        String[] p = s == null ? new String[0] : s.split(";", 5);
+        if (p.length != 5 || !"K".equals(p[0]) || p[3].length() != N*N) return false;
+        if (!p[3].chars().allMatch(c -> c>='0' && c<='0'+CheckersBoard.KING2)) return false;
+        int[] cells = new int[N*N];
+        for (int i=0;i<N*N;i++) cells[i] = p[3].charAt(i)-'0';
+        board.load(cells, "1".equals(p[1]));
+        finished = "1".equals(p[2]);
+        result = p[4];
+        myTurn = board.p1ToMove() == iAmP1;
+        return true;
     }
 
     @Override public boolean play(int x,int y){ return false; }
@@ -0,0 +1,147 @@
+package com.easy.game;
+
+/**
+ * 国际象棋的预计算攻击表。格子编号 a1=0 … h8=63（LERF），bit i 对应格子 i。
+ * <ul>
+ *   <li>马、王、兵：每格一个攻击掩码</li>
+ *   <li>车、象：magic bitboard——遮罩内的占位乘 magic 右移得到下标，一次查表出攻击集。
+ *       magic 在类加载时用固定种子现找（几十毫秒），各格的表首尾相接放在一个数组里</li>
+ *   <li>BETWEEN / LINE：两格之间（不含两端）/ 两格所在整条直线，判将军挡格和牵制用</li>
+ * </ul>
+ */
+public final class ChessAttacks {
+
+    public static final long RANK_2 = 0xFFL << 8, RANK_7 = 0xFFL << 48;
+
+    static final long[] KNIGHT_ATT = new long[64], KING_ATT = new long[64];
+    /** PAWN_ATT[color][sq]：该方的兵站在 sq 时攻击的格子（0 白往上，1 黑往下） */
+    static final long[][] PAWN_ATT = new long[2][64];
+    static final long[][] BETWEEN = new long[64][64], LINE = new long[64][64];
+
+    private static final long[] ROOK_MASK = new long[64], ROOK_MAGIC = new long[64], BISHOP_MASK = new long[64], BISHOP_MAGIC = new long[64];
+    private static final int[] ROOK_SHIFT = new int[64], ROOK_OFF = new int[64], BISHOP_SHIFT = new int[64], BISHOP_OFF = new int[64];
+    private static final long[] ROOK_TABLE, BISHOP_TABLE;
+
+    private static final int[][] ROOK_DIRS = {{1,0},{-1,0},{0,1},{0,-1}}, BISHOP_DIRS = {{1,1},{1,-1},{-1,1},{-1,-1}};
+
+    static {
+        int[][] kn = {{1,2},{2,1},{2,-1},{1,-2},{-1,-2},{-2,-1},{-2,1},{-1,2}};
+        for (int sq = 0; sq < 64; sq++) {
+            int f = sq & 7, r = sq >> 3;
+            for (int[] d : kn) KNIGHT_ATT[sq] |= bit(f + d[0], r + d[1]);
+            for (int df = -1; df <= 1; df++) for (int dr = -1; dr <= 1; dr++) if (df != 0 || dr != 0) KING_ATT[sq] |= bit(f + df, r + dr);
+            PAWN_ATT[0][sq] = bit(f - 1, r + 1) | bit(f + 1, r + 1);
+            PAWN_ATT[1][sq] = bit(f - 1, r - 1) | bit(f + 1, r - 1);
+        }
+        for (int a = 0; a < 64; a++) {
+            for (int[] d : concat(ROOK_DIRS, BISHOP_DIRS)) {
+                long ray = 0;
+                for (int f = (a & 7) + d[0], r = (a >> 3) + d[1]; f >= 0 && f < 8 && r >= 0 && r < 8; f += d[0], r += d[1]) {
+                    int b = r * 8 + f;
+                    BETWEEN[a][b] = ray;
+                    ray |= 1L << b;
+                }
+                // 整条线：a 两侧各延伸到边
+                long full = slide(a, 0, d) | slide(a, 0, new int[]{ -d[0], -d[1] }) | 1L << a;
+                for (long m = slide(a, 0, d); m != 0; m &= m - 1) LINE[a][Long.numberOfTrailingZeros(m)] = full;
+            }
+        }
+        ROOK_TABLE = init(ROOK_DIRS, ROOK_MASK, ROOK_MAGIC, ROOK_SHIFT, ROOK_OFF, 0x9E3779B97F4A7C15L);
+        BISHOP_TABLE = init(BISHOP_DIRS, BISHOP_MASK, BISHOP_MAGIC, BISHOP_SHIFT, BISHOP_OFF, 0xD1B54A32D192ED03L);
+    }
+
+    private ChessAttacks(){}
+
+    public static long knight(int sq){ return KNIGHT_ATT[sq]; }
+    public static long king(int sq){ return KING_ATT[sq]; }
+    public static long pawn(int color, int sq){ return PAWN_ATT[color][sq]; }
+
+    public static long rook(int sq, long occ){
+        return ROOK_TABLE[ROOK_OFF[sq] + (int) (((occ & ROOK_MASK[sq]) * ROOK_MAGIC[sq]) >>> ROOK_SHIFT[sq])];
+    }
+
+    public static long bishop(int sq, long occ){
+        return BISHOP_TABLE[BISHOP_OFF[sq] + (int) (((occ & BISHOP_MASK[sq]) * BISHOP_MAGIC[sq]) >>> BISHOP_SHIFT[sq])];
+    }
+
+    public static long queen(int sq, long occ){ return rook(sq, occ) | bishop(sq, occ); }
+
+    /** 为每格找 magic 并填表；返回拼在一起的攻击表 */
+    private static long[] init(int[][] dirs, long[] mask, long[] magic, int[] shift, int[] off, long seed){
+        int total = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            mask[sq] = relevant(sq, dirs);
+            shift[sq] = 64 - Long.bitCount(mask[sq]);
+            off[sq] = total;
+            total += 1 << Long.bitCount(mask[sq]);
+        }
+        long[] table = new long[total];
+        long[] occ = new long[4096], att = new long[4096];
+        int[] epoch = new int[4096];
+        long s = seed;
+        for (int sq = 0; sq < 64; sq++) {
+            int n = 0;
+            long m = mask[sq], sub = 0;
+            do {                                            // 枚举遮罩的所有子集（carry-rippler）
+                occ[n] = sub;
+                att[n++] = slideAll(sq, sub, dirs);
+                sub = (sub - m) & m;
+            } while (sub != 0);
+            int size = 1 << (64 - shift[sq]);
+            for (int tries = 1; ; tries++) {
+                s ^= s << 13; s ^= s >>> 7; s ^= s << 17; long r1 = s;
+                s ^= s << 13; s ^= s >>> 7; s ^= s << 17; long r2 = s;
+                s ^= s << 13; s ^= s >>> 7; s ^= s << 17;
+                long cand = r1 & r2 & s;                    // 稀疏的随机数更容易成为 magic
+                if (Long.bitCount((m * cand) & 0xFF00000000000000L) < 6) continue;
+                boolean ok = true;
+                for (int i = 0; i < n && ok; i++) {
+                    int idx = (int) ((occ[i] * cand) >>> shift[sq]);
+                    if (epoch[idx] != tries) { epoch[idx] = tries; table[off[sq] + idx] = att[i]; }
+                    else if (table[off[sq] + idx] != att[i]) ok = false;
+                }
+                if (ok) { magic[sq] = cand; break; }
+            }
+            java.util.Arrays.fill(epoch, 0, size, 0);
+        }
+        return table;
+    }
+
+    /** 滑子在 sq 的相关占位：射线上去掉最后一格（边上的子挡不挡都一样） */
+    private static long relevant(int sq, int[][] dirs){
+        long m = 0;
+        for (int[] d : dirs) {
+            int f = (sq & 7) + d[0], r = (sq >> 3) + d[1];
+            while (f + d[0] >= 0 && f + d[0] < 8 && r + d[1] >= 0 && r + d[1] < 8) {
+                m |= 1L << (r * 8 + f);
+                f += d[0]; r += d[1];
+            }
+        }
+        return m;
+    }
+
+    private static long slideAll(int sq, long occ, int[][] dirs){
+        long a = 0;
+        for (int[] d : dirs) a |= slide(sq, occ, d);
+        return a;
+    }
+
+    /** 沿一个方向走到（含）第一个占位格 */
+    private static long slide(int sq, long occ, int[] d){
+        long a = 0;
+        for (int f = (sq & 7) + d[0], r = (sq >> 3) + d[1]; f >= 0 && f < 8 && r >= 0 && r < 8; f += d[0], r += d[1]) {
+            long b = 1L << (r * 8 + f);
+            a |= b;
+            if ((occ & b) != 0) break;
+        }
+        return a;
+    }
+
+    private static long bit(int f, int r){ return f >= 0 && f < 8 && r >= 0 && r < 8 ? 1L << (r * 8 + f) : 0; }
+
+    private static int[][] concat(int[][] a, int[][] b){
+        int[][] c = java.util.Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, c, a.length, b.length);
+        return c;
+    }
+}
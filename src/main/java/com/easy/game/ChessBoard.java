@@ -0,0 +1,428 @@
+package com.easy.game;
+
+import java.util.Arrays;
+
+import static com.easy.game.ChessAttacks.*;
+
+/**
+ * 国际象棋的 bitboard 局面：12 个棋子位板 + 双方占位 + 逐格棋子表，完整规则（易位、吃过路兵、升变、将军判定）。
+ * 格子 a1=0 … h8=63；棋子编码 color*6 + type。
+ * <p>
+ * 走法是一个 int：
+ * <pre>
+ *   bit 0-5  from      bit 6-11 to
+ *   bit 12-14 升变棋子（0 = 不升变，否则 KNIGHT..QUEEN）
+ *   bit 15-16 NORMAL / CASTLE / EN_PASSANT / DOUBLE_PUSH
+ * </pre>
+ * {@link #legalMoves} 直接生成合法步：先算将军子和被牵制子，只有吃过路兵要试走一步再看王；
+ * {@link #make} / {@link #unmake} 原地改局面，撤销信息压在内部栈上，不分配；{@link #captures} 只出吃子和升变，给搜索用。
+ * 哈希是增量 Zobrist（棋子、易位权、可被吃的过路兵所在列、轮到谁），同时记每步之前的哈希供重复局面判定。
+ * 单线程使用。
+ */
+public final class ChessBoard {
+
+    public static final int WHITE = 0, BLACK = 1;
+    public static final int PAWN = 0, KNIGHT = 1, BISHOP = 2, ROOK = 3, QUEEN = 4, KING = 5;
+    public static final int NONE = -1;
+    public static final int NORMAL = 0, CASTLE = 1, EN_PASSANT = 2, DOUBLE_PUSH = 3;
+    /** 任何局面的合法步都不超过 218 */
+    public static final int MAX_MOVES = 256;
+    public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    static final int WK_CASTLE = 1, WQ_CASTLE = 2, BK_CASTLE = 4, BQ_CASTLE = 8;
+    private static final int[] CASTLE_MASK = new int[64];
+
+    private static final long[][] Z = Zobrist.table(64, 12, 3);
+    private static final long[] ZC = Zobrist.table(1, 16, 7)[0];
+    private static final long[] ZE = Zobrist.table(1, 8, 8)[0];
+
+    static {
+        Arrays.fill(CASTLE_MASK, 15);
+        CASTLE_MASK[0] = 15 & ~WQ_CASTLE;  CASTLE_MASK[7] = 15 & ~WK_CASTLE;  CASTLE_MASK[4] = 15 & ~(WK_CASTLE | WQ_CASTLE);
+        CASTLE_MASK[56] = 15 & ~BQ_CASTLE; CASTLE_MASK[63] = 15 & ~BK_CASTLE; CASTLE_MASK[60] = 15 & ~(BK_CASTLE | BQ_CASTLE);
+    }
+
+    final long[] bb = new long[12];
+    final long[] byColor = new long[2];
+    long occ;
+    final int[] board = new int[64];
+    int side, castling, ep = NONE, halfmove, fullmove = 1;
+    long hash;
+
+    // 撤销栈：每步之前的哈希，和打包的 castling | ep+1 | 被吃子+1 | halfmove
+    private long[] hist = new long[256];
+    private int[] undo = new int[256];
+    private int ply;
+
+    public ChessBoard(){ this(START); }
+
+    public ChessBoard(String fen){ setFen(fen); }
+
+    /** 复制局面连同走子历史（重复局面判定要用），搜索线程各拿一份 */
+    public ChessBoard(ChessBoard o){
+        System.arraycopy(o.bb, 0, bb, 0, 12);
+        byColor[0] = o.byColor[0]; byColor[1] = o.byColor[1]; occ = o.occ;
+        System.arraycopy(o.board, 0, board, 0, 64);
+        side = o.side; castling = o.castling; ep = o.ep; halfmove = o.halfmove; fullmove = o.fullmove; hash = o.hash;
+        hist = o.hist.clone(); undo = o.undo.clone(); ply = o.ply;
+    }
+
+    public static int move(int from, int to, int promo, int flag){ return from | to << 6 | promo << 12 | flag << 15; }
+    public static int from(int m){ return m & 63; }
+    public static int to(int m){ return (m >>> 6) & 63; }
+    public static int promo(int m){ return (m >>> 12) & 7; }
+    public static int flag(int m){ return (m >>> 15) & 3; }
+
+    public int side(){ return side; }
+    public long hash(){ return hash; }
+    public int halfmove(){ return halfmove; }
+    /** sq 上的棋子（color*6 + type），空格 {@link #NONE} */
+    public int pieceAt(int sq){ return board[sq]; }
+    public long pieces(int color, int type){ return bb[color * 6 + type]; }
+    public long occupied(int color){ return byColor[color]; }
+    public long occupied(){ return occ; }
+    public int castling(){ return castling; }
+    public int epSquare(){ return ep; }
+
+    public int kingSquare(int color){ return Long.numberOfTrailingZeros(bb[color * 6 + KING]); }
+
+    public boolean inCheck(){ return attackers(kingSquare(side), side ^ 1, occ) != 0; }
+
+    /** by 方攻击 s 的棋子（占位按 o 算） */
+    public long attackers(int s, int by, long o){
+        int b = by * 6;
+        return (PAWN_ATT[by ^ 1][s] & bb[b + PAWN]) | (KNIGHT_ATT[s] & bb[b + KNIGHT]) | (KING_ATT[s] & bb[b + KING])
+                | (bishop(s, o) & (bb[b + BISHOP] | bb[b + QUEEN])) | (rook(s, o) & (bb[b + ROOK] | bb[b + QUEEN]));
+    }
+
+    // ===== 走子 =====
+
+    public void make(int m){
+        int from = m & 63, to = (m >>> 6) & 63, promo = (m >>> 12) & 7, flag = (m >>> 15) & 3;
+        int us = side, them = us ^ 1;
+        int p = board[from];
+        int cap = flag == EN_PASSANT ? them * 6 + PAWN : board[to];
+        if (ply == hist.length) { hist = Arrays.copyOf(hist, ply * 2); undo = Arrays.copyOf(undo, ply * 2); }
+        hist[ply] = hash;
+        undo[ply++] = castling | (ep + 1) << 4 | (cap + 1) << 11 | Math.min(halfmove, 0xFFFF) << 15;
+
+        long h = hash;
+        if (ep != NONE) { h ^= ZE[ep & 7]; ep = NONE; }
+        if (cap != NONE) {
+            int cs = flag == EN_PASSANT ? to + (us == WHITE ? -8 : 8) : to;
+            remove(cap, cs);
+            h ^= Z[cs][cap];
+        }
+        remove(p, from);
+        int placed = promo != 0 ? us * 6 + promo : p;
+        put(placed, to);
+        h ^= Z[from][p] ^ Z[to][placed];
+        if (flag == CASTLE) {
+            int rf = to > from ? to + 1 : to - 2, rt = to > from ? to - 1 : to + 1, r = us * 6 + ROOK;
+            remove(r, rf);
+            put(r, rt);
+            h ^= Z[rf][r] ^ Z[rt][r];
+        } else if (flag == DOUBLE_PUSH) {
+            int t = (from + to) >> 1;
+            if ((PAWN_ATT[us][t] & bb[them * 6 + PAWN]) != 0) { ep = t; h ^= ZE[t & 7]; }   // 对方真能吃才算
+        }
+        int nc = castling & CASTLE_MASK[from] & CASTLE_MASK[to];
+        h ^= ZC[castling] ^ ZC[nc];
+        castling = nc;
+        halfmove = p - us * 6 == PAWN || cap != NONE ? 0 : halfmove + 1;
+        if (us == BLACK) fullmove++;
+        side = them;
+        hash = h ^ Zobrist.SIDE;
+    }
+
+    public void unmake(int m){
+        int from = m & 63, to = (m >>> 6) & 63, promo = (m >>> 12) & 7, flag = (m >>> 15) & 3;
+        int u = undo[--ply];
+        int us = side ^= 1;
+        if (us == BLACK) fullmove--;
+        int placed = board[to];
+        remove(placed, to);
+        put(promo != 0 ? us * 6 + PAWN : placed, from);
+        if (flag == CASTLE) {
+            int rf = to > from ? to + 1 : to - 2, rt = to > from ? to - 1 : to + 1, r = us * 6 + ROOK;
+            remove(r, rt);
+            put(r, rf);
+        }
+        int cap = ((u >>> 11) & 15) - 1;
+        if (cap != NONE) put(cap, flag == EN_PASSANT ? to + (us == WHITE ? -8 : 8) : to);
+        castling = u & 15;
+        ep = ((u >>> 4) & 127) - 1;
+        halfmove = u >>> 15;
+        hash = hist[ply];
+    }
+
+    /** 空着（只换走子方），搜索的空着裁剪用；被将军时不能调用 */
+    public void makeNull(){
+        if (ply == hist.length) { hist = Arrays.copyOf(hist, ply * 2); undo = Arrays.copyOf(undo, ply * 2); }
+        hist[ply] = hash;
+        undo[ply++] = castling | (ep + 1) << 4 | Math.min(halfmove, 0xFFFF) << 15;
+        if (ep != NONE) { hash ^= ZE[ep & 7]; ep = NONE; }
+        hash ^= Zobrist.SIDE;
+        halfmove++;
+        side ^= 1;
+    }
+
+    public void unmakeNull(){
+        int u = undo[--ply];
+        side ^= 1;
+        ep = ((u >>> 4) & 127) - 1;
+        halfmove = u >>> 15;
+        hash = hist[ply];
+    }
+
+    private void put(int p, int s){
+        long b = 1L << s;
+        bb[p] |= b; byColor[p >= 6 ? 1 : 0] |= b; occ |= b;
+        board[s] = p;
+    }
+
+    private void remove(int p, int s){
+        long b = ~(1L << s);
+        bb[p] &= b; byColor[p >= 6 ? 1 : 0] &= b; occ &= b;
+        board[s] = NONE;
+    }
+
+    // ===== 走法生成 =====
+
+    /** 当前一方的全部合法步写进 out，返回个数 */
+    public int legalMoves(int[] out){ return generate(out, false); }
+
+    /** 只生成吃子和升变（静态搜索用）；被将军时照样只出吃子，要全部应将请用 {@link #legalMoves} */
+    public int captures(int[] out){ return generate(out, true); }
+
+    private int generate(int[] out, boolean noisy){
+        int us = side, them = us ^ 1, o = us * 6;
+        long own = byColor[us];
+        int k = kingSquare(us);
+        long checkers = attackers(k, them, occ);
+        int n = 0;
+        long free = noisy ? byColor[them] : ~own;
+
+        long occNoKing = occ ^ (1L << k);               // 王沿着将军线后退仍在线上，算攻击时把王拿掉
+        for (long t = KING_ATT[k] & free; t != 0; t &= t - 1) {
+            int to = Long.numberOfTrailingZeros(t);
+            if (attackers(to, them, occNoKing) == 0) out[n++] = move(k, to, 0, NORMAL);
+        }
+        if ((checkers & (checkers - 1)) != 0) return n;  // 双将只能动王
+
+        long target = free;
+        if (checkers != 0) {
+            int c = Long.numberOfTrailingZeros(checkers);
+            target &= checkers | BETWEEN[k][c];
+        } else if (!noisy) {
+            n = castles(out, n, us, them);
+        }
+        long pinned = pinned(k, us, them);
+
+        for (long f = bb[o + KNIGHT] & ~pinned; f != 0; f &= f - 1) {
+            int from = Long.numberOfTrailingZeros(f);
+            n = emit(out, n, from, KNIGHT_ATT[from] & target);
+        }
+        for (long f = bb[o + BISHOP] | bb[o + QUEEN]; f != 0; f &= f - 1) {
+            int from = Long.numberOfTrailingZeros(f);
+            long a = bishop(from, occ) & target;
+            if ((pinned >>> from & 1) != 0) a &= LINE[k][from];
+            n = emit(out, n, from, a);
+        }
+        for (long f = bb[o + ROOK] | bb[o + QUEEN]; f != 0; f &= f - 1) {
+            int from = Long.numberOfTrailingZeros(f);
+            long a = rook(from, occ) & target;
+            if ((pinned >>> from & 1) != 0) a &= LINE[k][from];
+            n = emit(out, n, from, a);
+        }
+
+        int fwd = us == WHITE ? 8 : -8;
+        long startRank = us == WHITE ? RANK_2 : RANK_7;
+        for (long f = bb[o + PAWN]; f != 0; f &= f - 1) {
+            int from = Long.numberOfTrailingZeros(f);
+            long allow = target;
+            if ((pinned >>> from & 1) != 0) allow &= LINE[k][from];
+            int one = from + fwd;
+            if ((occ >>> one & 1) == 0) {
+                // 推兵的落点是空格，不在 target 里：另按将军挡格/牵制线算
+                long push = noisy ? (one >= 56 || one < 8 ? ~own : 0) : ~own;
+                if (checkers != 0) push &= BETWEEN[k][Long.numberOfTrailingZeros(checkers)];
+                if ((pinned >>> from & 1) != 0) push &= LINE[k][from];
+                if ((push >>> one & 1) != 0) n = pawnTo(out, n, from, one);
+                int two = one + fwd;
+                if (!noisy && (startRank >>> from & 1) != 0 && (occ >>> two & 1) == 0 && (push >>> two & 1) != 0)
+                    out[n++] = move(from, two, 0, DOUBLE_PUSH);
+            }
+            for (long c = PAWN_ATT[us][from] & byColor[them] & allow; c != 0; c &= c - 1)
+                n = pawnTo(out, n, from, Long.numberOfTrailingZeros(c));
+            if (ep != NONE && (PAWN_ATT[us][from] >>> ep & 1) != 0) {
+                // 吃过路兵一步拿掉同一横线上的两个子，牵制表管不到：试走一步看王
+                int m = move(from, ep, 0, EN_PASSANT);
+                make(m);
+                boolean ok = attackers(k, them, occ) == 0;
+                unmake(m);
+                if (ok) out[n++] = m;
+            }
+        }
+        return n;
+    }
+
+    private int castles(int[] out, int n, int us, int them){
+        if (us == WHITE) {
+            if ((castling & WK_CASTLE) != 0 && (occ & 0x60L) == 0 && attackers(5, them, occ) == 0 && attackers(6, them, occ) == 0)
+                out[n++] = move(4, 6, 0, CASTLE);
+            if ((castling & WQ_CASTLE) != 0 && (occ & 0x0EL) == 0 && attackers(3, them, occ) == 0 && attackers(2, them, occ) == 0)
+                out[n++] = move(4, 2, 0, CASTLE);
+        } else {
+            if ((castling & BK_CASTLE) != 0 && (occ & 0x60L << 56) == 0 && attackers(61, them, occ) == 0 && attackers(62, them, occ) == 0)
+                out[n++] = move(60, 62, 0, CASTLE);
+            if ((castling & BQ_CASTLE) != 0 && (occ & 0x0EL << 56) == 0 && attackers(59, them, occ) == 0 && attackers(58, them, occ) == 0)
+                out[n++] = move(60, 58, 0, CASTLE);
+        }
+        return n;
+    }
+
+    /** 被钉在王前的本方子：对方滑子隔着恰好一个子看到王 */
+    private long pinned(int k, int us, int them){
+        int t = them * 6;
+        long snipers = (rook(k, byColor[them]) & (bb[t + ROOK] | bb[t + QUEEN]))
+                | (bishop(k, byColor[them]) & (bb[t + BISHOP] | bb[t + QUEEN]));
+        long pinned = 0;
+        for (; snipers != 0; snipers &= snipers - 1) {
+            long b = BETWEEN[k][Long.numberOfTrailingZeros(snipers)] & occ;
+            if (b != 0 && (b & (b - 1)) == 0) pinned |= b & byColor[us];
+        }
+        return pinned;
+    }
+
+    private static int emit(int[] out, int n, int from, long targets){
+        for (; targets != 0; targets &= targets - 1) out[n++] = move(from, Long.numberOfTrailingZeros(targets), 0, NORMAL);
+        return n;
+    }
+
+    private static int pawnTo(int[] out, int n, int from, int to){
+        if (to >= 56 || to < 8) {
+            out[n++] = move(from, to, QUEEN, NORMAL);
+            out[n++] = move(from, to, KNIGHT, NORMAL);
+            out[n++] = move(from, to, ROOK, NORMAL);
+            out[n++] = move(from, to, BISHOP, NORMAL);
+        } else {
+            out[n++] = move(from, to, 0, NORMAL);
+        }
+        return n;
+    }
+
+    // ===== 终局判定 =====
+
+    /** 当前局面此前出现过的次数（只回看到上一次吃子/动兵为止） */
+    public int repetitions(){
+        int c = 0;
+        for (int i = ply - 2, stop = Math.max(0, ply - halfmove); i >= stop; i -= 2) if (hist[i] == hash) c++;
+        return c;
+    }
+
+    /** 双方都不可能将死：王对王、王+单个轻子对王、王象对王象且象同色 */
+    public boolean insufficientMaterial(){
+        if ((bb[PAWN] | bb[ROOK] | bb[QUEEN] | bb[6 + PAWN] | bb[6 + ROOK] | bb[6 + QUEEN]) != 0) return false;
+        long minors = bb[KNIGHT] | bb[BISHOP] | bb[6 + KNIGHT] | bb[6 + BISHOP];
+        int n = Long.bitCount(minors);
+        if (n <= 1) return true;
+        long bishops = bb[BISHOP] | bb[6 + BISHOP];
+        long dark = 0xAA55AA55AA55AA55L;
+        return n == Long.bitCount(bishops) && ((bishops & dark) == 0 || (bishops & ~dark) == 0);
+    }
+
+    // ===== perft =====
+
+    /** 走法树叶子数（最后一层只数不走） */
+    public long perft(int depth){
+        return depth <= 0 ? 1 : perft(depth, new int[depth][MAX_MOVES]);
+    }
+
+    private long perft(int depth, int[][] buf){
+        int[] moves = buf[depth - 1];
+        int n = legalMoves(moves);
+        if (depth == 1) return n;
+        long nodes = 0;
+        for (int i = 0; i < n; i++) {
+            make(moves[i]);
+            nodes += perft(depth - 1, buf);
+            unmake(moves[i]);
+        }
+        return nodes;
+    }
+
+    // ===== FEN / 记谱 =====
+
+    public void setFen(String fen){
+        String[] f = fen.trim().split("\\s+");
+        if (f.length < 4) throw new IllegalArgumentException("bad FEN: " + fen);
+        Arrays.fill(bb, 0);
+        byColor[0] = byColor[1] = occ = 0;
+        Arrays.fill(board, NONE);
+        int r = 7, c = 0;
+        for (int i = 0; i < f[0].length(); i++) {
+            char ch = f[0].charAt(i);
+            if (ch == '/') { r--; c = 0; }
+            else if (ch >= '1' && ch <= '8') c += ch - '0';
+            else {
+                int t = "pnbrqk".indexOf(Character.toLowerCase(ch));
+                if (t < 0 || r < 0 || c > 7) throw new IllegalArgumentException("bad FEN: " + fen);
+                put((Character.isUpperCase(ch) ? WHITE : BLACK) * 6 + t, r * 8 + c++);
+            }
+        }
+        if (Long.bitCount(bb[KING]) != 1 || Long.bitCount(bb[6 + KING]) != 1) throw new IllegalArgumentException("bad FEN: " + fen);
+        side = "b".equals(f[1]) ? BLACK : WHITE;
+        castling = 0;
+        for (char ch : f[2].toCharArray()) castling |= switch (ch) { case 'K' -> WK_CASTLE; case 'Q' -> WQ_CASTLE; case 'k' -> BK_CASTLE; case 'q' -> BQ_CASTLE; default -> 0; };
+        ep = "-".equals(f[3]) ? NONE : square(f[3]);
+        halfmove = f.length > 4 ? Integer.parseInt(f[4]) : 0;
+        fullmove = f.length > 5 ? Integer.parseInt(f[5]) : 1;
+        ply = 0;
+        hash = rehash();
+    }
+
+    public String fen(){
+        StringBuilder sb = new StringBuilder();
+        for (int r = 7; r >= 0; r--) {
+            int empty = 0;
+            for (int c = 0; c < 8; c++) {
+                int p = board[r * 8 + c];
+                if (p == NONE) { empty++; continue; }
+                if (empty > 0) { sb.append(empty); empty = 0; }
+                char ch = "pnbrqk".charAt(p % 6);
+                sb.append(p < 6 ? Character.toUpperCase(ch) : ch);
+            }
+            if (empty > 0) sb.append(empty);
+            if (r > 0) sb.append('/');
+        }
+        sb.append(side == WHITE ? " w " : " b ");
+        if (castling == 0) sb.append('-');
+        if ((castling & WK_CASTLE) != 0) sb.append('K');
+        if ((castling & WQ_CASTLE) != 0) sb.append('Q');
+        if ((castling & BK_CASTLE) != 0) sb.append('k');
+        if ((castling & BQ_CASTLE) != 0) sb.append('q');
+        sb.append(' ').append(ep == NONE ? "-" : name(ep));
+        return sb.append(' ').append(halfmove).append(' ').append(fullmove).toString();
+    }
+
+    /** 长代数记谱，如 e2e4、e7e8q */
+    public static String uci(int m){
+        String s = name(from(m)) + name(to(m));
+        return promo(m) == 0 ? s : s + "pnbrqk".charAt(promo(m));
+    }
+
+    public static String name(int sq){ return "" + (char) ('a' + (sq & 7)) + (char) ('1' + (sq >> 3)); }
+
+    private static int square(String s){
+        if (s.length() != 2 || s.charAt(0) < 'a' || s.charAt(0) > 'h' || s.charAt(1) < '1' || s.charAt(1) > '8')
+            throw new IllegalArgumentException("bad square: " + s);
+        return (s.charAt(1) - '1') * 8 + s.charAt(0) - 'a';
+    }
+
+    private long rehash(){
+        long h = ZC[castling] ^ (side == BLACK ? Zobrist.SIDE : 0) ^ (ep != NONE ? ZE[ep & 7] : 0);
+        for (int s = 0; s < 64; s++) if (board[s] != NONE) h ^= Z[s][board[s]];
+        return h;
+    }
+}
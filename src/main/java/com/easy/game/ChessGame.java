@@ -4,14 +4,20 @@ import java.awt.Point;
 import java.util.ArrayList;
 import java.util.List;
 
-/** 最小版国际象棋（不含易位/吃过路兵），吃王判胜；带 legalMovesFrom 供 UI 高亮 */
+/**
+ * 国际象棋。规则和走法生成在 {@link ChessBoard}（bitboard：易位、吃过路兵、升变、将军/将死/逼和），
+ * 这里只管 UI 坐标（x 为列、y=0 是黑方底线）、轮次和终局文字；升变一律升后（走子帧里不带升变子）。
+ * 每次局面变化后生成一遍合法步缓存起来，legalMovesFrom / move / moveFromPeer 都从缓存里找。
+ */
 public class ChessGame implements Game {
 
     public static final int WP=1, WN=2, WB=3, WR=4, WQ=5, WK=6;
     public static final int BP=-1, BN=-2, BB=-3, BR=-4, BQ=-5, BK=-6;
 
     private final int N = 8;
-    private final int[][] b = new int[N][N];
+    private final ChessBoard board = new ChessBoard();
+    private final int[] moves = new int[ChessBoard.MAX_MOVES];
+    private int moveCount;
 
     private boolean iAmWhite = true;
     private boolean myTurn = true;
@@ -33,33 +39,34 @@ public class ChessGame implements Game {
         myTurn   = iStart;
         finished = false;
         result   = "";
-        for (int y=0;y<N;y++) for (int x=0;x<N;x++) b[x][y]=0;
-        // 白
-        b[0][7]=WR; b[1][7]=WN; b[2][7]=WB; b[3][7]=WQ; b[4][7]=WK; b[5][7]=WB; b[6][7]=WN; b[7][7]=WR;
-        for (int x=0;x<N;x++) b[x][6]=WP;
-        // 黑
-        b[0][0]=BR; b[1][0]=BN; b[2][0]=BB; b[3][0]=BQ; b[4][0]=BK; b[5][0]=BB; b[6][0]=BN; b[7][0]=BR;
-        for (int x=0;x<N;x++) b[x][1]=BP;
+        board.setFen(ChessBoard.START);
+        moveCount = board.legalMoves(moves);
     }
 
-    @Override public int get(int x,int y){ return b[x][y]; }
+    /** 底层局面（只读用；AI、基准） */
+    public ChessBoard board(){ return board; }
+
+    @Override public int get(int x,int y){
+        int p = board.pieceAt(sq(x,y));
+        return p == ChessBoard.NONE ? 0 : p < 6 ? p + 1 : -(p - 5);
+    }
 
     public boolean isMyPiece(int v){
         if (v==0) return false;
         return (iAmWhite && v > 0) || (!iAmWhite && v < 0);
     }
 
+    /** 轮到该子一方时它的合法落点（升变的四种只算一个格子）；不是它的回合返回空 */
     public List<Point> legalMovesFrom(int fx,int fy){
         List<Point> res = new ArrayList<>();
-        if (!in(fx,fy)) return res;
-        int v = b[fx][fy];
-        if (v==0) return res;
-        if (!isMyPiece(v)) return res;
-
-        for (int ty=0; ty<N; ty++){
-            for (int tx=0; tx<N; tx++){
-                if (isLegalFromTo(fx,fy,tx,ty)) res.add(new Point(tx,ty));
-            }
+        if (!in(fx,fy) || !isMyPiece(get(fx,fy))) return res;
+        int from = sq(fx,fy);
+        for (int i = 0; i < moveCount; i++) {
+            int m = moves[i];
+            int promo = ChessBoard.promo(m);
+            if (ChessBoard.from(m) != from || promo != 0 && promo != ChessBoard.QUEEN) continue;
+            int to = ChessBoard.to(m);
+            res.add(new Point(to & 7, 7 - (to >> 3)));
         }
         return res;
     }
@@ -67,90 +74,84 @@ public class ChessGame implements Game {
     public boolean move(int fx,int fy,int tx,int ty){
         if (!myTurn || finished) return false;
         if (!in(fx,fy) || !in(tx,ty)) return false;
-        int v=b[fx][fy];
-        if (v==0 || !isMyPiece(v)) return false;
-        if (!isLegalFromTo(fx,fy,tx,ty)) return false;
-
-        int captured = b[tx][ty];
-        b[tx][ty] = v; b[fx][fy] = 0;
-        // 升变
-        if (v==WP && ty==0) b[tx][ty]=WQ;
-        if (v==BP && ty==7) b[tx][ty]=BQ;
-
-        if (captured == WK){ finished = true; result = "黑方胜"; }
-        if (captured == BK){ finished = true; result = "白方胜"; }
+        if (!isMyPiece(get(fx,fy))) return false;
+        int m = find(fx,fy,tx,ty);
+        if (m < 0) return false;
 
+        apply(m);
         myTurn = false;
         return true;
     }
 
     public boolean moveFromPeer(int fx,int fy,int tx,int ty){
         if (!in(fx,fy) || !in(tx,ty) || finished) return false;
-        int v=b[fx][fy]; if (v==0) return false;
-        if (!isLegalFromTo(fx,fy,tx,ty)) return false;
-
-        int captured = b[tx][ty];
-        b[tx][ty] = v; b[fx][fy] = 0;
-        if (v==WP && ty==0) b[tx][ty]=WQ;
-        if (v==BP && ty==7) b[tx][ty]=BQ;
-
-        if (captured == WK){ finished = true; result = "黑方胜"; }
-        if (captured == BK){ finished = true; result = "白方胜"; }
+        int m = find(fx,fy,tx,ty);
+        if (m < 0) return false;
 
+        apply(m);
         myTurn = true;
         return true;
     }
 
-    private boolean in(int x,int y){ return x>=0 && x<N && y>=0 && y<N; }
+    /** 合法步里 from→to 的那一步；升变取升后（生成时排在第一个） */
+    private int find(int fx,int fy,int tx,int ty){
+        int from = sq(fx,fy), to = sq(tx,ty);
+        for (int i = 0; i < moveCount; i++)
+            if (ChessBoard.from(moves[i]) == from && ChessBoard.to(moves[i]) == to) return moves[i];
+        return -1;
+    }
 
-    private boolean isLegalFromTo(int fx,int fy,int tx,int ty){
-        int v = b[fx][fy];
-        int dst = b[tx][ty];
-        if (v==0) return false;
-        if (dst!=0 && Integer.signum(dst)==Integer.signum(v)) return false;
-
-        int piece = Math.abs(v);
-        return switch (piece) {
-            case 1 -> { // pawn
-                int dir = v>0 ? -1 : 1; // 白向上，黑向下
-                boolean ok=false;
-                if (tx==fx && dst==0){
-                    if (ty==fy+dir) ok=true;
-                    if ((v==WP && fy==6 || v==BP && fy==1) && ty==fy+2*dir && b[fx][fy+dir]==0) ok=true;
-                }
-                if (Math.abs(tx-fx)==1 && ty==fy+dir && dst!=0) ok=true;
-                yield ok;
-            }
-            case 2 -> { int dx=Math.abs(tx-fx), dy=Math.abs(ty-fy); yield dx*dy==2; } // knight
-            case 3 -> clearLine(fx,fy,tx,ty, 1,1) || clearLine(fx,fy,tx,ty, 1,-1) || clearLine(fx,fy,tx,ty, -1,1) || clearLine(fx,fy,tx,ty, -1,-1); // bishop
-            case 4 -> clearLine(fx,fy,tx,ty, 1,0) || clearLine(fx,fy,tx,ty, -1,0) || clearLine(fx,fy,tx,ty, 0,1) || clearLine(fx,fy,tx,ty, 0,-1); // rook
-            case 5 -> isLegalFromTo(fx,fy,tx,ty,3) || isLegalFromTo(fx,fy,tx,ty,4); // queen
-            case 6 -> { int dx=Math.abs(tx-fx), dy=Math.abs(ty-fy); yield dx<=1 && dy<=1; } // king
-            default -> false;
-        };
+    /** 走子（已验合法），重新生成合法步并判终局 */
+    private void apply(int m){
+        board.make(m);
+        refresh();
     }
-    private boolean isLegalFromTo(int fx,int fy,int tx,int ty,int kind){
-        if (kind==3){
-            return clearLine(fx,fy,tx,ty, 1,1) || clearLine(fx,fy,tx,ty, 1,-1) || clearLine(fx,fy,tx,ty, -1,1) || clearLine(fx,fy,tx,ty, -1,-1);
-        }
-        if (kind==4){
-            return clearLine(fx,fy,tx,ty, 1,0) || clearLine(fx,fy,tx,ty, -1,0) || clearLine(fx,fy,tx,ty, 0,1) || clearLine(fx,fy,tx,ty, 0,-1);
+
+    private void refresh(){
+        moveCount = board.legalMoves(moves);
+        if (moveCount == 0) {
+            finished = true;
+            result = !board.inCheck() ? "和棋（逼和）" : board.side() == ChessBoard.WHITE ? "黑方胜（将死）" : "白方胜（将死）";
+        } else if (board.halfmove() >= 100) {
+            finished = true; result = "和棋（五十回合无吃子无动兵）";
+        } else if (board.repetitions() >= 2) {
+            finished = true; result = "和棋（三次重复局面）";
+        } else if (board.insufficientMaterial()) {
+            finished = true; result = "和棋（子力不足）";
         }
-        return false;
     }
-    private boolean clearLine(int fx,int fy,int tx,int ty,int dx,int dy){
-        int ddx = Integer.compare(tx,fx), ddy = Integer.compare(ty,fy);
-        if (dx==1 && dy==1 && Math.abs(tx-fx)!=Math.abs(ty-fy)) return false;
-        if (dx==1 && dy==0 && fy!=ty) return false;
-        if (dx==0 && dy==1 && fx!=tx) return false;
-
-        int x=fx+ddx, y=fy+ddy;
-        while (x!=tx || y!=ty){
-            if (b[x][y]!=0) return false;
-            x+=ddx; y+=ddy;
+
+    /** 当前轮到的一方是否被将军 */
+    public boolean inCheck(){ return board.inCheck(); }
+
+    @Override public long hash(){ return board.hash(); }
+
+    /** C;FEN;是否结束;结果 */
+    @Override public String snapshot(){
+        return "C;" + board.fen() + ';' + (finished?1:0) + ';' + result;
+    }
+
+    @Override public boolean restore(String s){
+        String[] p = s == null ? new String[0] : s.split(";", 4);
+        if (p.length != 4 || !"C".equals(p[0])) return false;
+        String before = board.fen();
+        try {
+            board.setFen(p[1]);
+        } catch (RuntimeException e) {
+            board.setFen(before);
+            return false;
         }
+        finished = false;
+        result = "";
+        refresh();
+        if ("1".equals(p[2])) { finished = true; result = p[3]; }
+        myTurn = (board.side() == ChessBoard.WHITE) == iAmWhite;
         return true;
     }
 
+    private boolean in(int x,int y){ return x>=0 && x<N && y>=0 && y<N; }
+
+    private static int sq(int x,int y){ return (7 - y) * 8 + x; }
+
     @Override public boolean play(int x,int y){ return false; }
 }
@@ -0,0 +1,540 @@
+package com.easy.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * 国际象棋引擎：alpha-beta（PVS）+ 迭代加深 + 静态搜索，Lazy SMP 多线程。
+ * <ul>
+ *   <li>每个线程拿一份 {@link ChessBoard} 副本各自从根迭代加深，只通过共享置换表交流；
+ *       辅助线程按跳层表错开深度，免得大家同时搜同一层</li>
+ *   <li>置换表无锁：每项两个 long（key ^ data、data），读出来 XOR 对不上就当没命中，撕裂写自然被丢掉</li>
+ *   <li>走法排序：置换表着法 → 吃子（MVV-LVA）→ 两个杀手着法 → 历史表</li>
+ *   <li>裁剪：空着（R = 2 + depth/4）、后排安静着法减一到两层（LMR），被将军延伸一层</li>
+ *   <li>评估：子力 + 棋子位置表（中局/残局按剩余子力插值）+ 机动性、双象、叠兵、通路兵</li>
+ * </ul>
+ * 一次只跑一个 {@link #search}；{@link #stop} 可以从别的线程随时调用，搜索会尽快返回已完成的最深一层的结果。
+ */
+public final class ChessSearch implements AutoCloseable {
+
+    public static final int MATE = 32000, INF = 32767;
+    public static final int MAX_PLY = 96;
+    private static final int MATE_BOUND = MATE - MAX_PLY;
+
+    /** 一次搜索的结果；score 从走子方看，单位厘兵，|score| ≥ {@link #MATE} - 100 表示能算出杀棋 */
+    public record Result(int move, int score, int depth, long nodes, long nanos, String pv) {
+        public long nps(){ return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos; }
+        public boolean isMate(){ return Math.abs(score) >= MATE_BOUND; }
+        @Override public String toString(){
+            String s = isMate() ? (score > 0 ? "#" : "#-") + (MATE - Math.abs(score) + 1) / 2 : String.valueOf(score);
+            return String.format("depth %d score %s nodes %d nps %d time %.0fms pv %s", depth, s, nodes, nps(), nanos / 1e6, pv);
+        }
+    }
+
+    private final int threads;
+    private final TT tt;
+    private final Worker[] workers;
+    private final ExecutorService pool;
+    private volatile boolean stop;
+    private volatile long deadline;
+    private volatile boolean queenPromotionsOnly;
+
+    /** @param threads 搜索线程数（含调用线程）；@param ttMb 置换表大小（MB，向下取到 2 的幂） */
+    public ChessSearch(int threads, int ttMb){
+        this.threads = Math.max(1, threads);
+        this.tt = new TT(ttMb);
+        this.workers = new Worker[this.threads];
+        for (int i = 0; i < this.threads; i++) workers[i] = new Worker(i);
+        this.pool = this.threads == 1 ? null : Executors.newFixedThreadPool(this.threads - 1, r -> {
+            Thread t = new Thread(r, "chess-search");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    public int threads(){ return threads; }
+
+    /**
+     * 根节点只考虑升后、不考虑低升变。给 {@link ChessGame} 下棋时要开：它和线上 MOVE 只有起止两格，
+     * 升变一律按升后走，搜出来的低升变会被换成一步没搜过的棋。
+     */
+    public void setQueenPromotionsOnly(boolean v){ queenPromotionsOnly = v; }
+
+    /** 让正在进行的搜索尽快返回 */
+    public void stop(){ stop = true; }
+
+    /** 新的一局：清空置换表和历史表 */
+    public synchronized void clear(){
+        tt.clear();
+        for (Worker w : workers) w.clear();
+    }
+
+    @Override public void close(){
+        stop = true;
+        if (pool != null) pool.shutdownNow();
+    }
+
+    /**
+     * 在调用线程上搜索 pos（不改动 pos），辅助线程并行跑。
+     * @param maxDepth 最大深度；@param timeMs 限时（≤0 不限时，只看深度）
+     * @return 最好的一步；无合法步时 move 为 0
+     */
+    public synchronized Result search(ChessBoard pos, int maxDepth, long timeMs){
+        long t0 = System.nanoTime();
+        maxDepth = Math.max(1, Math.min(maxDepth, MAX_PLY - 16));
+        deadline = timeMs > 0 ? t0 + timeMs * 1_000_000L : Long.MAX_VALUE;
+        stop = false;
+        tt.age++;
+        for (Worker w : workers) w.prepare(pos);
+        List<Future<?>> helpers = new ArrayList<>();
+        for (int i = 1; i < threads; i++) {
+            Worker w = workers[i];
+            int d = maxDepth;
+            helpers.add(pool.submit(() -> w.iterate(d, 0)));
+        }
+        workers[0].iterate(maxDepth, timeMs);
+        stop = true;
+        for (Future<?> f : helpers) {
+            try { f.get(); } catch (Exception e) { throw new IllegalStateException("搜索线程异常", e); }
+        }
+        // 一般取主线程；辅助线程完整搜完了更深的一层就用它的
+        Worker best = workers[0];
+        for (Worker w : workers) if (w.bestMove != 0 && w.completed > best.completed) best = w;
+        long nodes = 0;
+        for (Worker w : workers) nodes += w.nodes;
+        return new Result(best.bestMove, best.bestScore, best.completed, nodes, System.nanoTime() - t0, pv(pos, best.bestMove));
+    }
+
+    /** 主变：沿置换表往下走（合法性逐步验证，遇到重复就停） */
+    private String pv(ChessBoard pos, int first){
+        if (first == 0) return "";
+        ChessBoard b = new ChessBoard(pos);
+        StringBuilder sb = new StringBuilder();
+        int[] ms = new int[ChessBoard.MAX_MOVES];
+        int m = first;
+        for (int i = 0; i < 24 && m != 0; i++) {
+            int n = b.legalMoves(ms);
+            boolean legal = false;
+            for (int j = 0; j < n && !legal; j++) legal = ms[j] == m;
+            if (!legal) break;
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(ChessBoard.uci(m));
+            b.make(m);
+            if (b.repetitions() > 0) break;
+            long e = tt.probe(b.hash());
+            m = e == 0 ? 0 : TT.move(e);
+        }
+        return sb.toString();
+    }
+
+    // ===== 单个搜索线程 =====
+
+    // 辅助线程跳层表：第 i 个辅助线程在 (depth + PHASE) / SIZE 为奇数的层上跳过
+    private static final int[] SKIP_SIZE  = { 1, 1, 2, 2, 2, 2, 3, 3, 3, 3, 3, 3, 4, 4, 4, 4, 4, 4, 4, 4 };
+    private static final int[] SKIP_PHASE = { 0, 1, 0, 1, 2, 3, 0, 1, 2, 3, 4, 5, 0, 1, 2, 3, 4, 5, 6, 7 };
+
+    private static final int TT_SCORE = 2_000_000, CAPTURE = 1_000_000, KILLER1 = 900_000, KILLER2 = 899_000;
+    private static final int HISTORY_MAX = 1 << 16;
+
+    private final class Worker {
+        final int id;
+        ChessBoard b;
+        long nodes;
+        int completed, bestMove, bestScore;
+        final int[][] moves = new int[MAX_PLY][ChessBoard.MAX_MOVES];
+        final int[][] scores = new int[MAX_PLY][ChessBoard.MAX_MOVES];
+        final int[][] killers = new int[MAX_PLY][2];
+        final int[][] history = new int[2][64 * 64];
+        final int[] root = new int[ChessBoard.MAX_MOVES];
+        int rootN, iterMove;
+
+        Worker(int id){ this.id = id; }
+
+        void clear(){
+            for (int[] h : history) java.util.Arrays.fill(h, 0);
+        }
+
+        void prepare(ChessBoard pos){
+            b = new ChessBoard(pos);
+            nodes = 0;
+            completed = 0; bestMove = 0; bestScore = 0;
+            for (int[] k : killers) k[0] = k[1] = 0;
+            for (int[] h : history) for (int i = 0; i < h.length; i++) h[i] >>= 2;   // 上一步的历史分打折留着
+            rootN = b.legalMoves(root);
+            if (queenPromotionsOnly) {
+                int n = 0;
+                for (int i = 0; i < rootN; i++) {
+                    int p = ChessBoard.promo(root[i]);
+                    if (p == 0 || p == ChessBoard.QUEEN) root[n++] = root[i];
+                }
+                rootN = n;
+            }
+            long e = tt.probe(b.hash());
+            if (e != 0) toFront(TT.move(e));
+        }
+
+        /** 迭代加深；timeMs > 0 的（主线程）在用掉一半时间后不再开新的一层 */
+        void iterate(int maxDepth, long timeMs){
+            if (rootN == 0) return;
+            if (rootN == 1 && id == 0 && timeMs > 0) { bestMove = root[0]; return; }   // 只有一步可走，不用想
+            long t0 = System.nanoTime();
+            int score = 0;
+            for (int depth = 1; depth <= maxDepth && !stop; depth++) {
+                if (id > 0 && depth > 1) {
+                    int i = (id - 1) % SKIP_SIZE.length;
+                    if (((depth + SKIP_PHASE[i]) / SKIP_SIZE[i]) % 2 != 0) continue;
+                }
+                iterMove = 0;
+                int alpha = -INF, beta = INF;
+                if (depth >= 5 && Math.abs(score) < MATE_BOUND) { alpha = score - 40; beta = score + 40; }
+                int s = searchRoot(depth, alpha, beta);
+                if (!stop && (s <= alpha || s >= beta)) { iterMove = 0; s = searchRoot(depth, -INF, INF); }   // 出窗口，全窗口重搜
+                if (stop) {
+                    if (iterMove != 0) bestMove = iterMove;   // 没搜完的这一层里已经证明更好的一步
+                    break;
+                }
+                score = s;
+                completed = depth; bestMove = iterMove; bestScore = s;
+                if (id == 0) {
+                    if (timeMs > 0 && (System.nanoTime() - t0) / 1_000_000L > timeMs / 2) break;
+                    if (Math.abs(s) >= MATE_BOUND && depth > MATE - Math.abs(s)) break;   // 杀棋已经算清
+                }
+            }
+            if (bestMove == 0 && id == 0) bestMove = root[0];     // 时间短到第一层都没搜完，先走排第一的
+        }
+
+        int searchRoot(int depth, int alpha, int beta){
+            int best = -INF;
+            for (int i = 0; i < rootN; i++) {
+                int m = root[i];
+                b.make(m);
+                int s;
+                if (i == 0) s = -search(-beta, -alpha, depth - 1, 1, true);
+                else {
+                    s = -search(-alpha - 1, -alpha, depth - 1, 1, true);
+                    if (s > alpha && s < beta && !stop) s = -search(-beta, -alpha, depth - 1, 1, true);
+                }
+                b.unmake(m);
+                if (stop) break;
+                if (s > best) {
+                    best = s;
+                    if (s > alpha) {
+                        alpha = s;
+                        iterMove = m;
+                        toFront(m);
+                        if (s >= beta) break;
+                    } else if (i == 0) {
+                        iterMove = m;
+                    }
+                }
+            }
+            if (iterMove != 0 && !stop) tt.store(b.hash(), iterMove, best, depth, best >= beta ? TT.LOWER : TT.EXACT, 0);
+            return best;
+        }
+
+        void toFront(int m){
+            for (int i = 0; i < rootN; i++) if (root[i] == m) {
+                System.arraycopy(root, 0, root, 1, i);
+                root[0] = m;
+                return;
+            }
+        }
+
+        int search(int alpha, int beta, int depth, int ply, boolean nullOk){
+            boolean inCheck = b.inCheck();
+            if (inCheck) depth++;
+            if (depth <= 0) return quiesce(alpha, beta, ply);
+            if ((++nodes & 1023) == 0 && System.nanoTime() > deadline) stop = true;
+            if (stop) return 0;
+            if (b.halfmove() >= 100 || b.repetitions() > 0 || b.insufficientMaterial()) return 0;
+            alpha = Math.max(alpha, -MATE + ply);
+            beta = Math.min(beta, MATE - ply - 1);
+            if (alpha >= beta) return alpha;
+            if (ply >= MAX_PLY - 1) return evaluate(b);
+
+            boolean pvNode = beta - alpha > 1;
+            long h = b.hash();
+            int ttMove = 0;
+            long e = tt.probe(h);
+            if (e != 0) {
+                ttMove = TT.move(e);
+                if (!pvNode && TT.depth(e) >= depth) {
+                    int s = TT.score(e, ply), bound = TT.bound(e);
+                    if (bound == TT.EXACT || bound == TT.LOWER && s >= beta || bound == TT.UPPER && s <= alpha) return s;
+                }
+            }
+
+            if (!pvNode && nullOk && !inCheck && depth >= 3 && hasPieces(b.side()) && evaluate(b) >= beta) {
+                b.makeNull();
+                int s = -search(-beta, -beta + 1, depth - 3 - depth / 4, ply + 1, false);
+                b.unmakeNull();
+                if (stop) return 0;
+                if (s >= beta) return s >= MATE_BOUND ? beta : s;
+            }
+
+            int[] ms = moves[ply], sc = scores[ply];
+            int n = b.legalMoves(ms);
+            if (n == 0) return inCheck ? -MATE + ply : 0;
+            order(ms, sc, n, ply, ttMove);
+
+            int best = -INF, bestMove = 0, origAlpha = alpha;
+            for (int i = 0; i < n; i++) {
+                int m = pick(ms, sc, i, n);
+                boolean quiet = isQuiet(m);
+                b.make(m);
+                int s;
+                if (i == 0) s = -search(-beta, -alpha, depth - 1, ply + 1, true);
+                else {
+                    int r = 0;
+                    if (quiet && i >= 3 && depth >= 3 && !inCheck && sc[i] < KILLER2 && !b.inCheck()) r = i >= 8 && depth >= 6 ? 2 : 1;
+                    s = -search(-alpha - 1, -alpha, depth - 1 - r, ply + 1, true);
+                    if (s > alpha && r > 0) s = -search(-alpha - 1, -alpha, depth - 1, ply + 1, true);
+                    if (s > alpha && s < beta) s = -search(-beta, -alpha, depth - 1, ply + 1, true);
+                }
+                b.unmake(m);
+                if (stop) return 0;
+                if (s > best) {
+                    best = s;
+                    bestMove = m;
+                    if (s > alpha) {
+                        alpha = s;
+                        if (s >= beta) {
+                            if (quiet) cutoff(m, depth, ply);
+                            break;
+                        }
+                    }
+                }
+            }
+            tt.store(h, bestMove, best, depth, best >= beta ? TT.LOWER : best > origAlpha ? TT.EXACT : TT.UPPER, ply);
+            return best;
+        }
+
+        /** 静态搜索：只看吃子和升变（被将军时看全部应将），站桩分兜底 */
+        int quiesce(int alpha, int beta, int ply){
+            if ((++nodes & 1023) == 0 && System.nanoTime() > deadline) stop = true;
+            if (stop) return 0;
+            boolean inCheck = b.inCheck();
+            if (ply >= MAX_PLY - 1) return inCheck ? 0 : evaluate(b);
+            int stand = -INF;
+            if (!inCheck) {
+                stand = evaluate(b);
+                if (stand >= beta) return stand;
+                if (stand > alpha) alpha = stand;
+            }
+            int[] ms = moves[ply], sc = scores[ply];
+            int n = inCheck ? b.legalMoves(ms) : b.captures(ms);
+            if (n == 0 && inCheck) return -MATE + ply;
+            order(ms, sc, n, ply, 0);
+            int best = stand;
+            for (int i = 0; i < n; i++) {
+                int m = pick(ms, sc, i, n);
+                if (!inCheck && ChessBoard.promo(m) == 0) {
+                    int to = ChessBoard.to(m), victim = b.pieceAt(to);
+                    int gain = victim == ChessBoard.NONE ? VALUE[ChessBoard.PAWN] : VALUE[victim % 6];
+                    if (stand + gain + 200 <= alpha) continue;               // 吃了也追不回来
+                    int attacker = b.pieceAt(ChessBoard.from(m)) % 6;
+                    if (VALUE[attacker] > gain && b.attackers(to, b.side() ^ 1, b.occupied()) != 0) continue;   // 大吃小且有保护，多半亏
+                }
+                b.make(m);
+                int s = -quiesce(-beta, -alpha, ply + 1);
+                b.unmake(m);
+                if (stop) return 0;
+                if (s > best) {
+                    best = s;
+                    if (s > alpha) {
+                        alpha = s;
+                        if (s >= beta) break;
+                    }
+                }
+            }
+            return best;
+        }
+
+        boolean isQuiet(int m){
+            return b.pieceAt(ChessBoard.to(m)) == ChessBoard.NONE && ChessBoard.flag(m) != ChessBoard.EN_PASSANT && ChessBoard.promo(m) == 0;
+        }
+
+        boolean hasPieces(int color){
+            return (b.occupied(color) & ~b.pieces(color, ChessBoard.PAWN) & ~b.pieces(color, ChessBoard.KING)) != 0;
+        }
+
+        void cutoff(int m, int depth, int ply){
+            int[] k = killers[ply];
+            if (k[0] != m) { k[1] = k[0]; k[0] = m; }
+            int[] h = history[b.side()];
+            int i = m & 0xFFF;
+            h[i] += depth * depth;
+            if (h[i] > HISTORY_MAX) for (int j = 0; j < h.length; j++) h[j] >>= 1;
+        }
+
+        void order(int[] ms, int[] sc, int n, int ply, int ttMove){
+            int[] k = killers[ply], h = history[b.side()];
+            for (int i = 0; i < n; i++) {
+                int m = ms[i];
+                if (m == ttMove) { sc[i] = TT_SCORE; continue; }
+                int victim = b.pieceAt(ChessBoard.to(m)), promo = ChessBoard.promo(m);
+                if (victim != ChessBoard.NONE || ChessBoard.flag(m) == ChessBoard.EN_PASSANT || promo != 0) {
+                    int v = victim == ChessBoard.NONE ? 0 : victim % 6;
+                    sc[i] = CAPTURE + v * 16 + promo * 64 - b.pieceAt(ChessBoard.from(m)) % 6;   // MVV-LVA
+                } else if (m == k[0]) sc[i] = KILLER1;
+                else if (m == k[1]) sc[i] = KILLER2;
+                else sc[i] = h[m & 0xFFF];
+            }
+        }
+
+        /** 选择排序的一步：把 [i, n) 里分最高的换到 i */
+        int pick(int[] ms, int[] sc, int i, int n){
+            int bi = i;
+            for (int j = i + 1; j < n; j++) if (sc[j] > sc[bi]) bi = j;
+            int m = ms[bi]; ms[bi] = ms[i]; ms[i] = m;
+            int s = sc[bi]; sc[bi] = sc[i]; sc[i] = s;
+            return m;
+        }
+    }
+
+    // ===== 评估 =====
+
+    static final int[] VALUE = { 100, 320, 330, 500, 900, 0 };
+    private static final int[] PHASE = { 0, 1, 1, 2, 4, 0 };
+    private static final int[][] MG = new int[12][64], EG = new int[12][64];
+    private static final long[][] PASSED = new long[2][64];
+    private static final long[] FILE = new long[8];
+    private static final int[] PASSED_EG = { 0, 10, 20, 35, 60, 100, 150, 0 };
+
+    // 位置表按 a8..h1 的顺序书写（白方视角，第一行是第 8 横线）
+    private static final int[][] PST = {
+        {  0,  0,  0,  0,  0,  0,  0,  0,  50, 50, 50, 50, 50, 50, 50, 50,  10, 10, 20, 30, 30, 20, 10, 10,   5,  5, 10, 25, 25, 10,  5,  5,
+           0,  0,  0, 20, 20,  0,  0,  0,   5, -5,-10,  0,  0,-10, -5,  5,   5, 10, 10,-20,-20, 10, 10,  5,   0,  0,  0,  0,  0,  0,  0,  0 },
+        {-50,-40,-30,-30,-30,-30,-40,-50, -40,-20,  0,  0,  0,  0,-20,-40, -30,  0, 10, 15, 15, 10,  0,-30, -30,  5, 15, 20, 20, 15,  5,-30,
+         -30,  0, 15, 20, 20, 15,  0,-30, -30,  5, 10, 15, 15, 10,  5,-30, -40,-20,  0,  5,  5,  0,-20,-40, -50,-40,-30,-30,-30,-30,-40,-50 },
+        {-20,-10,-10,-10,-10,-10,-10,-20, -10,  0,  0,  0,  0,  0,  0,-10, -10,  0,  5, 10, 10,  5,  0,-10, -10,  5,  5, 10, 10,  5,  5,-10,
+         -10,  0, 10, 10, 10, 10,  0,-10, -10, 10, 10, 10, 10, 10, 10,-10, -10,  5,  0,  0,  0,  0,  5,-10, -20,-10,-10,-10,-10,-10,-10,-20 },
+        {  0,  0,  0,  0,  0,  0,  0,  0,   5, 10, 10, 10, 10, 10, 10,  5,  -5,  0,  0,  0,  0,  0,  0, -5,  -5,  0,  0,  0,  0,  0,  0, -5,
+          -5,  0,  0,  0,  0,  0,  0, -5,  -5,  0,  0,  0,  0,  0,  0, -5,  -5,  0,  0,  0,  0,  0,  0, -5,   0,  0,  0,  5,  5,  0,  0,  0 },
+        {-20,-10,-10, -5, -5,-10,-10,-20, -10,  0,  0,  0,  0,  0,  0,-10, -10,  0,  5,  5,  5,  5,  0,-10,  -5,  0,  5,  5,  5,  5,  0, -5,
+           0,  0,  5,  5,  5,  5,  0, -5, -10,  5,  5,  5,  5,  5,  0,-10, -10,  0,  5,  0,  0,  0,  0,-10, -20,-10,-10, -5, -5,-10,-10,-20 },
+        {-30,-40,-40,-50,-50,-40,-40,-30, -30,-40,-40,-50,-50,-40,-40,-30, -30,-40,-40,-50,-50,-40,-40,-30, -30,-40,-40,-50,-50,-40,-40,-30,
+         -20,-30,-30,-40,-40,-30,-30,-20, -10,-20,-20,-20,-20,-20,-20,-10,  20, 20,  0,  0,  0,  0, 20, 20,  20, 30, 10,  0,  0, 10, 30, 20 },
+    };
+    private static final int[] KING_EG = {
+        -50,-40,-30,-20,-20,-30,-40,-50, -30,-20,-10,  0,  0,-10,-20,-30, -30,-10, 20, 30, 30, 20,-10,-30, -30,-10, 30, 40, 40, 30,-10,-30,
+        -30,-10, 30, 40, 40, 30,-10,-30, -30,-10, 20, 30, 30, 20,-10,-30, -30,-30,  0,  0,  0,  0,-30,-30, -50,-30,-30,-30,-30,-30,-30,-50 };
+
+    static {
+        for (int t = 0; t < 6; t++) {
+            for (int sq = 0; sq < 64; sq++) {
+                int w = sq ^ 56;                                  // 白子在 sq 查表的下标；黑子镜像后正好是 sq
+                int mgW = VALUE[t] + PST[t][w], egW = VALUE[t] + (t == ChessBoard.KING ? KING_EG[w] : t == ChessBoard.PAWN ? 20 + PST[t][w] : PST[t][w]);
+                int mgB = VALUE[t] + PST[t][sq], egB = VALUE[t] + (t == ChessBoard.KING ? KING_EG[sq] : t == ChessBoard.PAWN ? 20 + PST[t][sq] : PST[t][sq]);
+                MG[t][sq] = mgW; EG[t][sq] = egW;
+                MG[6 + t][sq] = -mgB; EG[6 + t][sq] = -egB;
+            }
+        }
+        for (int f = 0; f < 8; f++) FILE[f] = 0x0101010101010101L << f;
+        for (int sq = 0; sq < 64; sq++) {
+            int f = sq & 7, r = sq >> 3;
+            long files = FILE[f] | (f > 0 ? FILE[f - 1] : 0) | (f < 7 ? FILE[f + 1] : 0);
+            PASSED[0][sq] = r == 7 ? 0 : files & (-1L << ((r + 1) * 8));
+            PASSED[1][sq] = r == 0 ? 0 : files & (-1L >>> ((8 - r) * 8));
+        }
+    }
+
+    /** 静态评估，从走子方看 */
+    static int evaluate(ChessBoard b){
+        int mg = 0, eg = 0, phase = 0;
+        long occ = b.occ;
+        for (int p = 0; p < 12; p++) {
+            long x = b.bb[p];
+            phase += PHASE[p % 6] * Long.bitCount(x);
+            int[] m = MG[p], e = EG[p];
+            for (; x != 0; x &= x - 1) {
+                int sq = Long.numberOfTrailingZeros(x);
+                mg += m[sq]; eg += e[sq];
+            }
+        }
+        for (int c = 0; c < 2; c++) {
+            int sign = c == ChessBoard.WHITE ? 1 : -1, o = c * 6;
+            long own = b.byColor[c], pawns = b.bb[o], enemyPawns = b.bb[6 - o];
+            int mob = 0;
+            for (long x = b.bb[o + ChessBoard.KNIGHT]; x != 0; x &= x - 1)
+                mob += 4 * Long.bitCount(ChessAttacks.knight(Long.numberOfTrailingZeros(x)) & ~own);
+            for (long x = b.bb[o + ChessBoard.BISHOP]; x != 0; x &= x - 1)
+                mob += 5 * Long.bitCount(ChessAttacks.bishop(Long.numberOfTrailingZeros(x), occ) & ~own);
+            for (long x = b.bb[o + ChessBoard.ROOK]; x != 0; x &= x - 1)
+                mob += 2 * Long.bitCount(ChessAttacks.rook(Long.numberOfTrailingZeros(x), occ) & ~own);
+            int bonusMg = mob, bonusEg = mob;
+            if (Long.bitCount(b.bb[o + ChessBoard.BISHOP]) >= 2) { bonusMg += 30; bonusEg += 50; }
+            for (int f = 0; f < 8; f++) {
+                int n = Long.bitCount(pawns & FILE[f]);
+                if (n > 1) { bonusMg -= 10 * (n - 1); bonusEg -= 20 * (n - 1); }
+            }
+            for (long x = pawns; x != 0; x &= x - 1) {
+                int sq = Long.numberOfTrailingZeros(x);
+                if ((PASSED[c][sq] & enemyPawns) == 0) {
+                    int rank = c == ChessBoard.WHITE ? sq >> 3 : 7 - (sq >> 3);
+                    bonusMg += PASSED_EG[rank] / 2;
+                    bonusEg += PASSED_EG[rank];
+                }
+            }
+            mg += sign * bonusMg;
+            eg += sign * bonusEg;
+        }
+        phase = Math.min(phase, 24);
+        int s = (mg * phase + eg * (24 - phase)) / 24;
+        return (b.side == ChessBoard.WHITE ? s : -s) + 10;    // 先手方的节奏分
+    }
+
+    // ===== 置换表 =====
+
+    /**
+     * 无锁置换表：table[2i] = key ^ data，table[2i+1] = data。
+     * data：bit 0-16 着法、17-32 分数 + 32768、33-40 深度、41-42 界类型、43-50 搜索代数。
+     */
+    static final class TT {
+        static final int EXACT = 1, LOWER = 2, UPPER = 3;
+        final long[] table;
+        final int mask;
+        int age;
+
+        TT(int mb){
+            long entries = Math.max(1L << 10, Long.highestOneBit(Math.max(1, mb) * (1L << 20) / 16));
+            entries = Math.min(entries, 1L << 28);
+            table = new long[(int) entries * 2];
+            mask = (int) entries - 1;
+        }
+
+        void clear(){ java.util.Arrays.fill(table, 0); }
+
+        /** 命中返回 data，否则 0（data 的分数域带偏移，永远不为 0） */
+        long probe(long key){
+            int i = ((int) key & mask) << 1;
+            long k = table[i], d = table[i + 1];
+            return (k ^ d) == key ? d : 0;
+        }
+
+        void store(long key, int move, int score, int depth, int bound, int ply){
+            int i = ((int) key & mask) << 1;
+            long k = table[i], d = table[i + 1];
+            boolean same = (k ^ d) == key;
+            // 同一局面且不比原来浅的、别的局面里深度不够或是旧搜索留下的，才覆盖
+            if (d != 0 && (same ? depth < depth(d) - 2 && bound != EXACT : depth < depth(d) && age(d) == (age & 0xFF))) return;
+            if (move == 0 && same) move = move(d);
+            if (score >= MATE_BOUND) score += ply; else if (score <= -MATE_BOUND) score -= ply;   // 杀棋分存成到本局面的距离
+            long data = move | (long) (score + 32768) << 17 | (long) depth << 33 | (long) bound << 41 | (long) (age & 0xFF) << 43;
+            table[i] = key ^ data;
+            table[i + 1] = data;
+        }
+
+        static int move(long d){ return (int) (d & 0x1FFFF); }
+        static int depth(long d){ return (int) (d >>> 33) & 0xFF; }
+        static int bound(long d){ return (int) (d >>> 41) & 3; }
+        static int age(long d){ return (int) (d >>> 43) & 0xFF; }
+        static int score(long d, int ply){
+            int s = (int) ((d >>> 17) & 0xFFFF) - 32768;
+            return s >= MATE_BOUND ? s - ply : s <= -MATE_BOUND ? s + ply : s;
+        }
+    }
+}
@@ -11,4 +11,8 @@ public interface Game {
     String resultText();        // winner text or end reason
     void reset(boolean hostStarts); // reset and set starter
     GameType type();
+
+    long hash();                // Zobrist hash of the state both peers share (incremental, O(1))
+    String snapshot();          // shared state for SYNC (absolute coordinates, no per-side info)
+    boolean restore(String s);  // overwrite shared state from a peer snapshot; false if malformed
 }
@@ -0,0 +1,274 @@
+package com.easy.game;
+
+/**
+ * 五子棋（15×15，无禁手，长连算赢）的搜索用局面：落子/悔棋时增量维护每个格子在四个方向上的棋型。
+ * <p>
+ * 每个格子每个方向记一个 16 位的“线码”：以它为中心、两侧各 4 格的 8 个邻格，每格 2 位（0 空、1 黑、2 白、3 盘外）。
+ * 一子落下只影响四条线上两侧各 4 格，共 32 个（格子, 方向）；改它们的线码后查表 {@link #PATTERN} 得到
+ * “某方在这个空格下子后，这条线上形成什么棋型”（成五、活四、冲四、活三、眠三、活二、眠二）。
+ * <p>
+ * 在此基础上增量维护：每个格子对双方的分值（四个方向棋型分之和）、双方所有空格分值的总和（即评估）、
+ * 双方“下一手就能成五”的空格数，以及“周围两格内有子”的计数（候选点）。格子编号 p = y*15 + x。
+ * 单线程使用；搜索线程各自 {@link #GomokuBoard(GomokuBoard) 复制}一份。
+ */
+public final class GomokuBoard {
+
+    public static final int N = 15, CELLS = N * N;
+    public static final int EMPTY = 0, BLACK = 1, WHITE = 2;
+
+    /** 棋型：下在这个空格后，这个方向上形成的最好形状 */
+    public static final int NONE = 0, TWO = 1, OPEN_TWO = 2, THREE = 3, OPEN_THREE = 4, FOUR = 5, OPEN_FOUR = 6, FIVE = 7;
+    /** 棋型分：评估和走法排序都用它 */
+    static final int[] WEIGHT = { 0, 3, 12, 15, 70, 90, 500, 3000 };
+
+    private static final int[] DX = { 1, 0, 1, 1 }, DY = { 0, 1, 1, -1 };
+    /** PATTERN[c-1][线码]：c 方下在中心后这条线的棋型 */
+    static final byte[][] PATTERN = new byte[2][1 << 16];
+    private static final long[][] Z = Zobrist.table(CELLS, 3, 1);
+
+    static {
+        // 对 c 方来说邻格只有三种：己方、空、挡（对方或盘外），先按 3^8 种排列分类，再展开到 4^8 个线码
+        int[] line = new int[9];
+        byte[] byTernary = new byte[6561];
+        for (int t = 0; t < 6561; t++) {
+            for (int s = 0, v = t; s < 8; s++, v /= 3) line[s < 4 ? s : s + 1] = v % 3 == 2 ? 3 : v % 3;   // 0 空 1 己方 3 挡
+            line[4] = 1;
+            byTernary[t] = (byte) classify(line, 1);
+        }
+        for (int key = 0; key < 1 << 16; key++) {
+            for (int c = 1; c <= 2; c++) {
+                int t = 0;
+                for (int s = 7; s >= 0; s--) {
+                    int v = key >>> (2 * s) & 3;
+                    t = t * 3 + (v == EMPTY ? 0 : v == c ? 1 : 2);
+                }
+                PATTERN[c - 1][key] = byTernary[t];
+            }
+        }
+    }
+
+    private final int[] cell = new int[CELLS];
+    private final int[] key = new int[CELLS * 4];          // (p*4 + dir)
+    private final byte[] pat = new byte[CELLS * 8];        // (p*4 + dir)*2 + c-1
+    private final int[] score = new int[CELLS * 2];        // p*2 + c-1：四个方向棋型分之和
+    private final byte[] fives = new byte[CELLS * 2];      // p*2 + c-1：成五的方向数
+    private final int[] near = new int[CELLS];
+    private final int[] total = new int[2], fiveCells = new int[2];
+    private final int[] moves = new int[CELLS];
+    private int count, side = BLACK;
+    private long hash;
+
+    public GomokuBoard(){
+        for (int p = 0; p < CELLS; p++) for (int d = 0; d < 4; d++) {
+            int k = 0;
+            for (int s = 0; s < 8; s++) {
+                int off = s < 4 ? s - 4 : s - 3;
+                int x = p % N + off * DX[d], y = p / N + off * DY[d];
+                if (x < 0 || x >= N || y < 0 || y >= N) k |= 3 << (2 * s);
+            }
+            key[p * 4 + d] = k;
+            for (int c = 1; c <= 2; c++) setPattern(p, d, c, PATTERN[c - 1][k]);
+        }
+    }
+
+    public GomokuBoard(GomokuBoard o){
+        System.arraycopy(o.cell, 0, cell, 0, CELLS);
+        System.arraycopy(o.key, 0, key, 0, key.length);
+        System.arraycopy(o.pat, 0, pat, 0, pat.length);
+        System.arraycopy(o.score, 0, score, 0, score.length);
+        System.arraycopy(o.fives, 0, fives, 0, fives.length);
+        System.arraycopy(o.near, 0, near, 0, CELLS);
+        System.arraycopy(o.moves, 0, moves, 0, o.count);
+        total[0] = o.total[0]; total[1] = o.total[1];
+        fiveCells[0] = o.fiveCells[0]; fiveCells[1] = o.fiveCells[1];
+        count = o.count; side = o.side; hash = o.hash;
+    }
+
+    public static int index(int x, int y){ return y * N + x; }
+
+    /** 轮到谁：{@link #BLACK} / {@link #WHITE} */
+    public int side(){ return side; }
+    public int stone(int p){ return cell[p]; }
+    public int count(){ return count; }
+    public long hash(){ return hash; }
+    /** 最后一手的格子，空盘返回 -1 */
+    public int last(){ return count == 0 ? -1 : moves[count - 1]; }
+
+    /** c 方下在空格 p 后 dir 方向的棋型 */
+    public int pattern(int p, int dir, int c){ return pat[(p * 4 + dir) * 2 + c - 1]; }
+    /** c 方下在 p 的棋型分（四个方向之和） */
+    public int score(int p, int c){ return score[p * 2 + c - 1]; }
+    /** c 方下在 p 能不能直接成五 */
+    public boolean makesFive(int p, int c){ return fives[p * 2 + c - 1] != 0; }
+    /** c 方“下一手就能成五”的空格个数：≥1 是冲四/活四在盘上，对方必须挡 */
+    public int fiveThreats(int c){ return fiveCells[c - 1]; }
+    /** c 方下一手能成五的第一个空格，没有返回 -1 */
+    public int fiveCell(int c){
+        if (fiveCells[c - 1] == 0) return -1;
+        for (int p = 0; p < CELLS; p++) if (cell[p] == EMPTY && fives[p * 2 + c - 1] != 0) return p;
+        return -1;
+    }
+
+    /** 周围两格内有子的空格才算候选点 */
+    public boolean isCandidate(int p){ return cell[p] == EMPTY && near[p] > 0; }
+
+    /** 从走子方看的评估：双方所有空格上潜在棋型分之差 */
+    public int eval(){
+        int me = total[side - 1], opp = total[2 - side];
+        return me - opp + (me >> 3);      // 轮到自己走，自己的形状多值一点
+    }
+
+    /**
+     * c 方下在 p 的威胁等级（走法排序、威胁搜索用）：
+     * 5 成五；4 活四或双冲四；3 冲四+活三；2 双活三；1 单个冲四或活三；0 其他
+     */
+    public int threat(int p, int c){
+        int i = p * 4, f = 0, o4 = 0, o3 = 0;
+        for (int d = 0; d < 4; d++) {
+            int t = pat[(i + d) * 2 + c - 1];
+            if (t == FIVE) return 5;
+            if (t == OPEN_FOUR) o4 += 2;
+            else if (t == FOUR) f++;
+            else if (t == OPEN_THREE) o3++;
+        }
+        if (o4 > 0 || f >= 2) return 4;
+        if (f == 1 && o3 > 0) return 3;
+        if (o3 >= 2) return 2;
+        return f + o3 > 0 ? 1 : 0;
+    }
+
+    /** 下一子（空格、未分胜负由调用方保证）；换走子方 */
+    public void play(int p){
+        put(p, side);
+        side = 3 - side;
+        hash ^= Zobrist.SIDE;
+    }
+
+    /** 清空后按 cells（0/1/2，p = y*15+x）摆子，再指定轮到谁；快照恢复用 */
+    public void load(int[] cells, int toMove){
+        while (count > 0) undo();
+        if (side != BLACK) { side = BLACK; hash ^= Zobrist.SIDE; }
+        for (int p = 0; p < CELLS; p++) if (cells[p] != EMPTY) put(p, cells[p]);
+        if (toMove != side) { side = toMove; hash ^= Zobrist.SIDE; }
+    }
+
+    private void put(int p, int c){
+        for (int k = 0; k < 2; k++) {                     // p 不再是空格：从总分和成五计数里拿掉
+            total[k] -= score[p * 2 + k];
+            if (fives[p * 2 + k] != 0) fiveCells[k]--;
+        }
+        cell[p] = c;
+        hash ^= Z[p][c];
+        moves[count++] = p;
+        update(p, c);
+    }
+
+    /** 撤销最后一手（轮到谁跟着退回到下这手的一方） */
+    public void undo(){
+        int p = moves[--count];
+        int c = cell[p];
+        cell[p] = EMPTY;
+        hash ^= Z[p][c];
+        if (side != c) hash ^= Zobrist.SIDE;
+        update(p, EMPTY);
+        for (int k = 0; k < 2; k++) {
+            total[k] += score[p * 2 + k];
+            if (fives[p * 2 + k] != 0) fiveCells[k]++;
+        }
+        side = c;
+    }
+
+    /** p 变成 v：改四条线上两侧各 4 格的线码和棋型，再改两格内的候选计数 */
+    private void update(int p, int v){
+        int x0 = p % N, y0 = p / N;
+        for (int d = 0; d < 4; d++) {
+            for (int off = -4; off <= 4; off++) {
+                if (off == 0) continue;
+                int x = x0 + off * DX[d], y = y0 + off * DY[d];
+                if (x < 0 || x >= N || y < 0 || y >= N) continue;
+                int q = y * N + x, qi = q * 4 + d;
+                int s = -off < 0 ? -off + 4 : -off + 3;     // p 在 q 的第几个邻格
+                int k = key[qi] & ~(3 << (2 * s)) | v << (2 * s);
+                key[qi] = k;
+                setPattern(q, d, BLACK, PATTERN[0][k]);
+                setPattern(q, d, WHITE, PATTERN[1][k]);
+            }
+        }
+        int delta = v == EMPTY ? -1 : 1;
+        for (int y = Math.max(0, y0 - 2); y <= Math.min(N - 1, y0 + 2); y++)
+            for (int x = Math.max(0, x0 - 2); x <= Math.min(N - 1, x0 + 2); x++) near[y * N + x] += delta;
+    }
+
+    private void setPattern(int q, int d, int c, int t){
+        int i = (q * 4 + d) * 2 + c - 1, j = q * 2 + c - 1;
+        int old = pat[i];
+        if (old == t) return;
+        pat[i] = (byte) t;
+        int diff = WEIGHT[t] - WEIGHT[old];
+        score[j] += diff;
+        boolean wasFive = fives[j] != 0;
+        if (old == FIVE) fives[j]--;
+        if (t == FIVE) fives[j]++;
+        if (cell[q] == EMPTY) {
+            total[c - 1] += diff;
+            boolean isFive = fives[j] != 0;
+            if (wasFive != isFive) fiveCells[c - 1] += isFive ? 1 : -1;
+        }
+    }
+
+    /** 从头重算的评估（不用增量），校验和基准对照用 */
+    public int evalFull(){
+        int[] t = new int[2];
+        for (int p = 0; p < CELLS; p++) {
+            if (cell[p] != EMPTY) continue;
+            for (int d = 0; d < 4; d++) {
+                int k = 0;
+                for (int s = 0; s < 8; s++) {
+                    int off = s < 4 ? s - 4 : s - 3;
+                    int x = p % N + off * DX[d], y = p / N + off * DY[d];
+                    k |= (x < 0 || x >= N || y < 0 || y >= N ? 3 : cell[y * N + x]) << (2 * s);
+                }
+                t[0] += WEIGHT[PATTERN[0][k]];
+                t[1] += WEIGHT[PATTERN[1][k]];
+            }
+        }
+        int me = t[side - 1], opp = t[2 - side];
+        return me - opp + (me >> 3);
+    }
+
+    // ===== 棋型分类（类加载时建表） =====
+
+    /** line[0..8]，中心 line[4] 已放 c；其他格 0 空、c 己方、其余（对方/盘外）都算挡 */
+    private static int classify(int[] line, int c){
+        if (five(line, c)) return FIVE;
+        int wins = 0;
+        for (int i = 0; i < 9; i++) {
+            if (line[i] != EMPTY) continue;
+            line[i] = c;
+            if (five(line, c)) wins++;
+            line[i] = EMPTY;
+        }
+        if (wins >= 2) return OPEN_FOUR;
+        if (wins == 1) return FOUR;
+        int best = NONE;
+        for (int i = 0; i < 9 && best < OPEN_THREE; i++) {
+            if (line[i] != EMPTY) continue;
+            line[i] = c;
+            int t = classify(line, c);
+            line[i] = EMPTY;
+            if (t == OPEN_FOUR) best = OPEN_THREE;
+            else if (t == FOUR) best = Math.max(best, THREE);
+            else if (t == OPEN_THREE) best = Math.max(best, OPEN_TWO);
+            else if (t == THREE) best = Math.max(best, TWO);
+        }
+        return best;
+    }
+
+    /** 过中心的连续五子（含长连） */
+    private static boolean five(int[] line, int c){
+        int n = 1;
+        for (int i = 3; i >= 0 && line[i] == c; i--) n++;
+        for (int i = 5; i < 9 && line[i] == c; i++) n++;
+        return n >= 5;
+    }
+}
@@ -1,8 +1,12 @@
 package com.easy.game;
 
+/**
+ * 五子棋（15×15，无禁手）。局面、哈希和棋型都在 {@link GomokuBoard} 里随每一手增量更新，这里只管轮次和胜负；
+ * 成五判定直接查“这个空格下上去是不是五”，AI 拿同一个局面去搜。
+ */
 public class GomokuGame implements Game {
     private final int n = 15;
-    private final int[][] b = new int[n][n];
+    private final GomokuBoard board = new GomokuBoard();
     private boolean myTurn = true;
     private int current = 1; // 1 black, 2 white
     private boolean finished = false;
@@ -16,21 +20,24 @@ public class GomokuGame implements Game {
     @Override public GameType type(){ return GameType.GOMOKU; }
 
     @Override public void reset(boolean hostStarts){
-        for (int y=0;y<n;y++) for (int x=0;x<n;x++) b[y][x]=0;
         this.hostStarts = hostStarts;
         this.current = 1;
         this.finished = false;
         this.result = "";
         this.myTurn = hostStarts;
+        board.load(new int[n * n], GomokuBoard.BLACK);
     }
 
+    /** 带增量棋型的局面（只读用；AI、基准） */
+    public GomokuBoard board(){ return board; }
+
     @Override public boolean play(int x, int y){
         if (finished) return false;
         if (x<0 || x>=n || y<0 || y>=n) return false;
-        if (b[y][x]!=0) return false;
-        b[y][x] = current;
-        // win check
-        if (isFive(x,y,current)) {
+        if (board.stone(y*n+x)!=GomokuBoard.EMPTY) return false;
+        boolean five = board.makesFive(y*n+x, current);
+        board.play(y*n+x);               // 局面里的走子方照常换（哈希随之翻 SIDE），成五后 current 停在胜方
+        if (five) {
             finished = true;
             result = (current==1? "黑子":"白子") + "胜";
         } else {
@@ -40,19 +47,30 @@ public class GomokuGame implements Game {
         return true;
     }
 
-    private boolean isFive(int x, int y, int c){
-        int[][] dirs = {{1,0},{0,1},{1,1},{1,-1}};
-        for (int[] d: dirs){
-            int cnt=1;
-            for(int s=1;s<5;s++){ int nx=x+s*d[0], ny=y+s*d[1]; if (in(nx,ny)&&b[ny][nx]==c) cnt++; else break; }
-            for(int s=1;s<5;s++){ int nx=x-s*d[0], ny=y-s*d[1]; if (in(nx,ny)&&b[ny][nx]==c) cnt++; else break; }
-            if (cnt>=5) return true;
-        }
-        return false;
-    }
-    private boolean in(int x,int y){ return x>=0 && x<n && y>=0 && y<n; }
 
-    @Override public int get(int x, int y){ return b[y][x]; }
+    @Override public int get(int x, int y){ return board.stone(y*n+x); }
     @Override public boolean isFinished(){ return finished; }
     @Override public String resultText(){ return result.isEmpty()? "进行中": result; }
+
+    @Override public long hash(){ return board.hash(); }
+
+    @Override public String snapshot(){
+        StringBuilder sb = new StringBuilder("G;").append(current).append(';').append(finished?1:0).append(';');
+        for (int p=0;p<n*n;p++) sb.append((char)('0'+board.stone(p)));
+        return sb.append(';').append(result).toString();
+    }
+
+    @Override public boolean restore(String s){
+        String[] p = s == null ? new String[0] : s.split(";", 5);
+        if (p.length != 5 || !"G".equals(p[0]) || p[3].length() != n*n) return false;
+        if (!p[3].chars().allMatch(c -> c>='0' && c<='2')) return false;
+        int[] cells = new int[n*n];
+        for (int i=0;i<n*n;i++) cells[i] = p[3].charAt(i)-'0';
+        current = "2".equals(p[1]) ? 2 : 1;
+        finished = "1".equals(p[2]);
+        board.load(cells, finished ? 3 - current : current);   // 和对局中走到这里时一样：成五那手之后局面已换边
+        result = p[4];
+        myTurn = !finished && ((current==1) == hostStarts);
+        return true;
+    }
 }
@@ -0,0 +1,380 @@
+package com.easy.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.easy.game.GomokuBoard.*;
+
+/**
+ * 五子棋引擎，建在 {@link GomokuBoard} 的增量棋型上。一步棋按顺序试：
+ * <ol>
+ *   <li>能成五就成五；对方有冲四就挡；自己能走出活四/双四就走</li>
+ *   <li>VCF：只用冲四连续进攻（对方每步只有一个挡点），算到底</li>
+ *   <li>VCT：冲四 + 活三连续进攻，对方挡活三时试所有挡点和反冲四</li>
+ *   <li>都没有：alpha-beta（PVS + 置换表）迭代加深，候选点只取周围两格内有子、按双方棋型分排前面的一批；
+ *       根节点第一步串行搜出 alpha，其余根着法拆成任务丢给 fork/join 池并行做零窗口搜索</li>
+ * </ol>
+ * 整步限时：VCF、VCT 各占一段，剩下给 alpha-beta；{@link #stop} 可以从别的线程调。
+ */
+public final class GomokuSearch implements AutoCloseable {
+
+    public static final int WIN = 1_000_000;
+    private static final int INF = WIN + 1000, MAX_PLY = 64;
+    private static final int ROOT_WIDTH = 16, WIDTH = 10;
+
+    /** 结果：move 为格子编号（y*15+x），how 说明是怎么找到的 */
+    public record Result(int move, int score, int depth, long evals, long nanos, String how) {
+        public int x(){ return move % N; }
+        public int y(){ return move / N; }
+        public long evalsPerSecond(){ return nanos == 0 ? 0 : evals * 1_000_000_000L / nanos; }
+        @Override public String toString(){
+            return String.format("(%d,%d) %s depth %d score %d evals %d (%d/s) time %.0fms",
+                    x(), y(), how, depth, score, evals, evalsPerSecond(), nanos / 1e6);
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final long[] tt = new long[1 << 21];          // 2^20 项，每项 key ^ data、data
+    private final LongAdder evals = new LongAdder();
+    private volatile boolean stop;
+    private volatile long deadline;
+
+    public GomokuSearch(int threads){
+        pool = new ForkJoinPool(Math.max(1, threads), p -> {
+            var t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("gomoku-search-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    public int threads(){ return pool.getParallelism(); }
+
+    public void stop(){ stop = true; }
+
+    @Override public void close(){ stop = true; pool.shutdownNow(); }
+
+    /** 在 pos 上给走子方找一步（不改动 pos）；盘已满返回 move = -1 */
+    public synchronized Result search(GomokuBoard pos, long timeMs){
+        long t0 = System.nanoTime();
+        deadline = t0 + Math.max(1, timeMs) * 1_000_000L;
+        stop = false;
+        evals.reset();
+        GomokuBoard b = new GomokuBoard(pos);
+        int me = b.side(), opp = 3 - me;
+
+        if (b.count() == 0) return done(index(N / 2, N / 2), 0, 0, t0, "天元");
+        int p = b.fiveCell(me);
+        if (p >= 0) return done(p, WIN, 1, t0, "成五");
+        p = b.fiveCell(opp);
+        if (p >= 0) return done(p, 0, 1, t0, "挡四");
+        for (int q = 0; q < CELLS; q++) if (b.isCandidate(q) && b.threat(q, me) == 4) return done(q, WIN, 3, t0, "活四");
+
+        Threats th = new Threats(b, t0 + timeMs * 1_000_000L / 5);
+        boolean vcf = th.vcf(24);
+        evals.add(th.nodes);
+        if (vcf) return done(th.first, WIN, 0, t0, "VCF");
+        th = new Threats(b, t0 + timeMs * 1_000_000L * 2 / 5);
+        boolean vct = th.vct(8);
+        evals.add(th.nodes);
+        if (vct) return done(th.first, WIN, 0, t0, "VCT");
+
+        return alphaBeta(b, timeMs, t0);
+    }
+
+    private Result done(int move, int score, int depth, long t0, String how){
+        return new Result(move, score, depth, evals.sum(), System.nanoTime() - t0, how);
+    }
+
+    // ===== 威胁空间搜索 =====
+
+    /** VCF / VCT；在自己的局面副本上走，超时或节点用完就当没找到 */
+    private final class Threats {
+        final GomokuBoard b;
+        final int att;
+        final long until;
+        final int[][] buf = new int[MAX_PLY][CELLS];
+        final long[] failed = new long[1 << 14];          // 已证明走不通的 (局面, 剩余深度)
+        int first = -1, nodes, ply;
+        boolean out;                                      // 超时后一直为 true，整棵树尽快退出
+
+        Threats(GomokuBoard pos, long until){
+            this.b = new GomokuBoard(pos);
+            this.att = pos.side();
+            this.until = Math.min(until, deadline);
+        }
+
+        boolean timeUp(){
+            if (!out && (++nodes & 31) == 0 && System.nanoTime() > until) out = true;
+            return out || stop;
+        }
+
+        /** 攻方走：只用冲四 */
+        boolean vcf(int depth){
+            if (timeUp()) return false;
+            int def = 3 - att;
+            if (b.fiveCell(att) >= 0) return true;
+            int[] ms = buf[ply];
+            int n = 0;
+            int block = b.fiveCell(def);
+            if (block >= 0) {
+                if (b.fiveThreats(def) > 1 || !four(block, att)) return false;   // 挡的同时必须冲四
+                ms[n++] = block;
+            } else {
+                for (int q = 0; q < CELLS; q++) if (b.isCandidate(q) && four(q, att)) ms[n++] = q;
+            }
+            if (depth <= 0) return false;
+            sortByThreat(ms, n, att);
+            for (int i = 0; i < n; i++) {
+                int q = ms[i];
+                b.play(q);
+                boolean ok;
+                if (b.fiveThreats(att) >= 2) ok = true;       // 活四/双四
+                else {
+                    int f = b.fiveCell(att);
+                    ok = false;
+                    if (f >= 0 && !b.makesFive(f, def)) {       // 对方唯一的挡点
+                        b.play(f); ply++;
+                        ok = vcf(depth - 1);
+                        ply--; b.undo();
+                    } else if (f >= 0) {                         // 挡点正好是对方成五：对方赢
+                        ok = false;
+                    }
+                }
+                b.undo();
+                if (ok) { if (ply == 0) first = q; return true; }
+            }
+            return false;
+        }
+
+        /** 攻方走：冲四或活三 */
+        boolean vct(int depth){
+            if (timeUp()) return false;
+            int def = 3 - att;
+            if (b.fiveCell(att) >= 0) return true;
+            int block = b.fiveCell(def);
+            if (block >= 0) {                                   // 对方反冲四，先挡
+                if (b.fiveThreats(def) > 1) return false;
+                b.play(block); ply++;
+                boolean ok = defend(depth);
+                ply--; b.undo();
+                if (ok && ply == 0) first = block;
+                return ok;
+            }
+            if (depth <= 0 || known(depth)) return false;
+            int[] ms = buf[ply];
+            int n = 0;
+            for (int q = 0; q < CELLS; q++) if (b.isCandidate(q) && b.threat(q, att) >= 1) ms[n++] = q;
+            sortByThreat(ms, n, att);
+            for (int i = 0; i < n && i < 20; i++) {
+                int q = ms[i];
+                b.play(q); ply++;
+                boolean ok = defend(depth);
+                ply--; b.undo();
+                if (ok) { if (ply == 0) first = q; return true; }
+            }
+            remember(depth);
+            return false;
+        }
+
+        /** 守方走：攻方刚走出冲四或活三，试所有应法，全都输才算攻方成功 */
+        boolean defend(int depth){
+            if (timeUp()) return false;
+            int def = b.side();
+            if (b.fiveCell(def) >= 0) return false;
+            int n4 = b.fiveThreats(att);
+            if (n4 >= 2) return true;
+            int[] ms = buf[ply];
+            int n = 0;
+            if (n4 == 1) ms[n++] = b.fiveCell(att);
+            else {
+                boolean three = false;
+                for (int q = 0; q < CELLS && !three; q++) three = b.isCandidate(q) && b.threat(q, att) >= 4;
+                if (!three) return false;                      // 攻方这手没有形成威胁
+                // 挡点：攻方能成活四/冲四的格子，加上守方自己的冲四
+                for (int q = 0; q < CELLS; q++)
+                    if (b.isCandidate(q) && (four(q, att) || b.threat(q, att) >= 4 || four(q, def))) ms[n++] = q;
+            }
+            for (int i = 0; i < n; i++) {
+                b.play(ms[i]); ply++;
+                boolean ok = vct(depth - 1);
+                ply--; b.undo();
+                if (!ok) return false;
+            }
+            return true;
+        }
+
+        boolean known(int depth){
+            long h = b.hash();
+            return failed[(int) h & (failed.length - 1)] == (h ^ depth);
+        }
+
+        void remember(int depth){
+            long h = b.hash();
+            failed[(int) h & (failed.length - 1)] = h ^ depth;
+        }
+
+        /** c 方下在 q 至少冲四 */
+        boolean four(int q, int c){
+            for (int d = 0; d < 4; d++) if (b.pattern(q, d, c) >= FOUR) return true;
+            return false;
+        }
+
+        void sortByThreat(int[] ms, int n, int c){
+            for (int i = 1; i < n; i++) {
+                int m = ms[i], k = b.threat(m, c) * 10000 + b.score(m, c), j = i - 1;
+                while (j >= 0 && b.threat(ms[j], c) * 10000 + b.score(ms[j], c) < k) { ms[j + 1] = ms[j]; j--; }
+                ms[j + 1] = m;
+            }
+        }
+    }
+
+    // ===== alpha-beta =====
+
+    private Result alphaBeta(GomokuBoard b, long timeMs, long t0){
+        int[] root = new int[CELLS];
+        int n = candidates(b, root, ROOT_WIDTH);
+        if (n == 0) return done(-1, 0, 0, t0, "满盘");
+        int[] scores = new int[n];
+        int bestMove = root[0], bestScore = 0, completed = 0;
+        for (int depth = 2; depth <= 20 && !stop; depth++) {
+            final int d = depth;
+            int[] res = pool.invoke(new RecursiveTask<int[]>() {
+                @Override protected int[] compute(){ return searchRoot(b, root, n, scores, d); }
+            });
+            if (stop) break;
+            bestMove = res[0]; bestScore = res[1]; completed = depth;
+            if (Math.abs(bestScore) >= WIN - MAX_PLY) break;
+            if ((System.nanoTime() - t0) / 1_000_000L > timeMs / 2) break;
+            sortRoot(root, scores, n);
+        }
+        return done(bestMove, bestScore, completed, t0, "搜索");
+    }
+
+    /** 长子串行定 alpha，其余根着法并行零窗口；返回 {最好着法, 分} */
+    private int[] searchRoot(GomokuBoard pos, int[] root, int n, int[] scores, int depth){
+        Node first = new Node(pos);
+        first.b.play(root[0]);
+        int alpha = -first.root(depth - 1, -INF, INF);
+        if (stop) return new int[]{ root[0], alpha };
+        scores[0] = alpha;
+        int best = root[0];
+        final int a0 = alpha;
+        List<RecursiveTask<Integer>> tasks = new ArrayList<>();
+        for (int i = 1; i < n; i++) {
+            int m = root[i];
+            tasks.add(new RecursiveTask<>() {
+                @Override protected Integer compute(){
+                    Node nd = new Node(pos);
+                    nd.b.play(m);
+                    int s = -nd.root(depth - 1, -a0 - 1, -a0);
+                    if (s > a0 && !stop) s = -nd.root(depth - 1, -INF, -a0);
+                    return s;
+                }
+            });
+        }
+        ForkJoinTask.invokeAll(tasks);
+        for (int i = 1; i < n; i++) {
+            int s = tasks.get(i - 1).join();
+            scores[i] = s;
+            if (s > alpha && !stop) { alpha = s; best = root[i]; }
+        }
+        return new int[]{ best, alpha };
+    }
+
+    private static void sortRoot(int[] root, int[] scores, int n){
+        for (int i = 1; i < n; i++) {
+            int m = root[i], s = scores[i], j = i - 1;
+            while (j >= 0 && scores[j] < s) { root[j + 1] = root[j]; scores[j + 1] = scores[j]; j--; }
+            root[j + 1] = m; scores[j + 1] = s;
+        }
+    }
+
+    /** 候选点：周围两格有子的空格，按“自己下这里 + 对方下这里”的棋型分排序取前 width 个 */
+    static int candidates(GomokuBoard b, int[] out, int width){
+        int me = b.side(), opp = 3 - me, n = 0;
+        int[] key = new int[CELLS];
+        for (int q = 0; q < CELLS; q++) {
+            if (!b.isCandidate(q)) continue;
+            int k = b.threat(q, me) * 100_000 + b.threat(q, opp) * 50_000 + b.score(q, me) * 2 + b.score(q, opp);
+            int j = n++;
+            while (j > 0 && key[j - 1] < k) { out[j] = out[j - 1]; key[j] = key[j - 1]; j--; }
+            out[j] = q; key[j] = k;
+        }
+        return Math.min(n, width);
+    }
+
+    /** 一个搜索任务：自己的局面副本 + 走法缓冲 */
+    private final class Node {
+        final GomokuBoard b;
+        final int[][] buf = new int[MAX_PLY][CELLS];
+        long count;
+
+        Node(GomokuBoard pos){ b = new GomokuBoard(pos); }
+
+        /** 根着法走完之后的一次搜索；结束时把没凑满 64 的节点数也记上 */
+        int root(int depth, int alpha, int beta){
+            count = 0;
+            int s = ab(depth, alpha, beta, 1);
+            evals.add(count & 63);
+            return s;
+        }
+
+        int ab(int depth, int alpha, int beta, int ply){
+            if ((++count & 63) == 0) {
+                evals.add(64);
+                if (System.nanoTime() > deadline) stop = true;
+            }
+            if (stop) return 0;
+            int me = b.side(), opp = 3 - me;
+            if (b.fiveThreats(me) > 0) return WIN - ply;
+            int n4 = b.fiveThreats(opp);
+            if (n4 >= 2) return -(WIN - ply - 1);
+            if (ply >= MAX_PLY - 1 || depth <= 0 && n4 == 0) return b.eval();
+
+            int[] ms = buf[ply];
+            int n;
+            if (n4 == 1) { ms[0] = b.fiveCell(opp); n = 1; }                 // 必须挡，不减深度
+            else {
+                n = candidates(b, ms, WIDTH);
+                if (n == 0) return 0;
+                if (b.threat(ms[0], me) == 4) return WIN - ply - 2;               // 走出活四
+            }
+            long h = b.hash();
+            int ti = ((int) h & ((tt.length >> 1) - 1)) << 1;
+            long tk = tt[ti], td = tt[ti + 1];
+            if ((tk ^ td) == h) {
+                int tdepth = (int) (td >>> 29) & 63, bound = (int) (td >>> 35) & 3, tmove = (int) (td & 0xFF);
+                int ts = (int) ((td >>> 8) & 0x1FFFFF) - (1 << 20);
+                if (tdepth >= depth && (bound == 1 || bound == 2 && ts >= beta || bound == 3 && ts <= alpha)) return ts;
+                for (int i = 1; i < n; i++) if (ms[i] == tmove) { ms[i] = ms[0]; ms[0] = tmove; break; }
+            }
+            int next = n4 == 1 ? depth : depth - 1;
+            int best = -INF, bestMove = ms[0], a0 = alpha;
+            for (int i = 0; i < n; i++) {
+                b.play(ms[i]);
+                int s;
+                if (i == 0) s = -ab(next, -beta, -alpha, ply + 1);
+                else {
+                    s = -ab(next, -alpha - 1, -alpha, ply + 1);
+                    if (s > alpha && s < beta) s = -ab(next, -beta, -alpha, ply + 1);
+                }
+                b.undo();
+                if (stop) return 0;
+                if (s > best) {
+                    best = s; bestMove = ms[i];
+                    if (s > alpha) { alpha = s; if (s >= beta) break; }
+                }
+            }
+            int bound = best >= beta ? 2 : best > a0 ? 1 : 3;
+            long data = bestMove | (long) (best + (1 << 20)) << 8 | (long) Math.max(0, depth) << 29 | (long) bound << 35;
+            tt[ti] = h ^ data;
+            tt[ti + 1] = data;
+            return best;
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package com.easy.game;
+
+/**
+ * 黑白棋局面：黑、白各一个 64 位掩码，格子 sq = y*8 + x 对应第 sq 位。
+ * <p>
+ * 合法落点用移位 + 掩码一次算出八个方向（{@link #moves}），翻子用预先算好的射线掩码：
+ * 每个方向取射线上第一个不是对方子的格子，是己方子就把中间一段整体翻过来（{@link #flips}），不逐格走。
+ * 子数就是 {@link Long#bitCount}。走子后立刻算好下一方的合法落点集合，“有没有棋可走”只看它是不是 0。
+ * <p>
+ * 静态方法只认 (己方, 对方) 两个掩码，搜索直接用它们，不经过这个对象。单线程使用。
+ */
+public final class ReversiBoard {
+
+    public static final int EMPTY = 0, BLACK = 1, WHITE = 2;
+
+    /** 不含 a、h 两列：横向、斜向移位时防止从一行的头绕到另一行的尾 */
+    private static final long INNER = 0x7E7E7E7E7E7E7E7EL;
+    /** 开局四子：(3,3)、(4,4) 白，(4,3)、(3,4) 黑 */
+    private static final long START_BLACK = 1L << 28 | 1L << 35, START_WHITE = 1L << 27 | 1L << 36;
+
+    /** RAY[d][sq]：从 sq 出发沿方向 d 的所有格子（不含 sq）；d 0..3 格号递增，4..7 递减 */
+    private static final long[][] RAY = new long[8][64];
+    private static final int[] DX = { 1, 0, 1, -1, -1, 0, -1, 1 }, DY = { 0, 1, 1, 1, 0, -1, -1, -1 };
+    private static final long[][] Z = Zobrist.table(64, 3, 2);
+
+    static {
+        for (int d = 0; d < 8; d++) for (int sq = 0; sq < 64; sq++) {
+            long r = 0;
+            for (int x = (sq & 7) + DX[d], y = (sq >> 3) + DY[d]; x >= 0 && x < 8 && y >= 0 && y < 8; x += DX[d], y += DY[d])
+                r |= 1L << (y * 8 + x);
+            RAY[d][sq] = r;
+        }
+    }
+
+    private long black, white, legal;
+    private int side;
+    private long hash;
+
+    public ReversiBoard(){ reset(); }
+
+    public ReversiBoard(ReversiBoard o){
+        black = o.black; white = o.white; legal = o.legal;
+        side = o.side; hash = o.hash;
+    }
+
+    /** 开局四子，黑先 */
+    public void reset(){
+        black = START_BLACK;
+        white = START_WHITE;
+        side = BLACK;
+        hash = Z[28][BLACK] ^ Z[35][BLACK] ^ Z[27][WHITE] ^ Z[36][WHITE];
+        legal = moves(black, white);
+    }
+
+    /** 按格子摆局面（0 空 1 黑 2 白，下标 y*8+x），toMove 为走子方 */
+    public void load(int[] cells, int toMove){
+        black = white = 0;
+        long h = 0;
+        for (int sq = 0; sq < 64; sq++) {
+            if (cells[sq] == BLACK) black |= 1L << sq;
+            else if (cells[sq] == WHITE) white |= 1L << sq;
+            if (cells[sq] != EMPTY) h ^= Z[sq][cells[sq]];
+        }
+        side = toMove;
+        hash = toMove == WHITE ? h ^ Zobrist.SIDE : h;
+        legal = side == BLACK ? moves(black, white) : moves(white, black);
+    }
+
+    public int side(){ return side; }
+    public long hash(){ return hash; }
+    public long black(){ return black; }
+    public long white(){ return white; }
+    /** 走子方 / 对方的掩码 */
+    public long mine(){ return side == BLACK ? black : white; }
+    public long theirs(){ return side == BLACK ? white : black; }
+    /** 走子方的合法落点集合，0 = 只能停一手 */
+    public long legal(){ return legal; }
+    public int count(int c){ return Long.bitCount(c == BLACK ? black : white); }
+    public int empties(){ return 64 - Long.bitCount(black | white); }
+
+    public int get(int sq){
+        long bit = 1L << sq;
+        return (black & bit) != 0 ? BLACK : (white & bit) != 0 ? WHITE : EMPTY;
+    }
+
+    /** 走子方落在 sq：不合法返回 false；合法则翻子、换边并算好对方的合法落点 */
+    public boolean play(int sq){
+        if ((legal >>> sq & 1) == 0) return false;
+        long me = mine(), opp = theirs(), f = flips(sq, me, opp);
+        me |= f | 1L << sq;
+        opp &= ~f;
+        long h = hash ^ Z[sq][side] ^ Zobrist.SIDE;
+        for (long t = f; t != 0; t &= t - 1) {
+            int s = Long.numberOfTrailingZeros(t);
+            h ^= Z[s][BLACK] ^ Z[s][WHITE];
+        }
+        if (side == BLACK) { black = me; white = opp; } else { white = me; black = opp; }
+        side = 3 - side;
+        hash = h;
+        legal = moves(opp, me);
+        return true;
+    }
+
+    /** 走子方无棋可走，换对方走 */
+    public void pass(){
+        side = 3 - side;
+        hash ^= Zobrist.SIDE;
+        legal = moves(mine(), theirs());
+    }
+
+    // ===== 掩码运算 =====
+
+    /** me 的全部合法落点：八个方向各做一次 6 步的连续填充（夹住的对方子最多 6 个） */
+    public static long moves(long me, long opp){
+        long empty = ~(me | opp), h = opp & INNER;
+        return empty & (fillL(me, h, 1) << 1 | fillR(me, h, 1) >>> 1
+                | fillL(me, opp, 8) << 8 | fillR(me, opp, 8) >>> 8
+                | fillL(me, h, 7) << 7 | fillR(me, h, 7) >>> 7
+                | fillL(me, h, 9) << 9 | fillR(me, h, 9) >>> 9);
+    }
+
+    private static long fillL(long g, long p, int s){
+        long t = p & g << s;
+        t |= p & t << s; t |= p & t << s; t |= p & t << s; t |= p & t << s; t |= p & t << s;
+        return t;
+    }
+
+    private static long fillR(long g, long p, int s){
+        long t = p & g >>> s;
+        t |= p & t >>> s; t |= p & t >>> s; t |= p & t >>> s; t |= p & t >>> s; t |= p & t >>> s;
+        return t;
+    }
+
+    /**
+     * me 落在 sq 翻过来的子（不含 sq 本身），不合法的落点返回 0。
+     * 每个方向：射线上第一个不是对方子的格子若是己方子，它和 sq 之间的一段全是对方子，整段翻。
+     */
+    public static long flips(int sq, long me, long opp){
+        long f = 0, notOpp = ~opp;
+        for (int d = 0; d < 4; d++) {                               // 格号递增：最低位就是最近的
+            long ray = RAY[d][sq], o = ray & notOpp;
+            o &= -o;
+            if ((o & me) != 0) f |= ray & o - 1;
+        }
+        for (int d = 4; d < 8; d++) {                               // 格号递减：最高位最近
+            long ray = RAY[d][sq], o = Long.highestOneBit(ray & notOpp);
+            if ((o & me) != 0) f |= ray & -(o << 1);
+        }
+        return f;
+    }
+
+    /** 从当前局面数 depth 步的走法树叶子数；停一手算一步，双方都无棋可走的终局算一个叶子 */
+    public long perft(int depth){ return perft(mine(), theirs(), depth, false); }
+
+    private static long perft(long me, long opp, int depth, boolean passed){
+        if (depth == 0) return 1;
+        long m = moves(me, opp);
+        if (m == 0) return passed ? 1 : perft(opp, me, depth - 1, true);
+        if (depth == 1) return Long.bitCount(m);
+        long n = 0;
+        for (; m != 0; m &= m - 1) {
+            int sq = Long.numberOfTrailingZeros(m);
+            long f = flips(sq, me, opp);
+            n += perft(opp & ~f, me | f | 1L << sq, depth - 1, false);
+        }
+        return n;
+    }
+}
@@ -0,0 +1,460 @@
+package com.easy.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.LongAdder;
+
+import static com.easy.game.ReversiBoard.flips;
+import static com.easy.game.ReversiBoard.moves;
+
+/**
+ * 黑白棋引擎，直接在 {@link ReversiBoard} 的 (己方, 对方) 掩码上搜。
+ * <ul>
+ *   <li>中局：PVS + 置换表迭代加深，评估 = 四条边（各带两个 X 格）的棋型表 + 行动力 + 潜在行动力（前沿子）。
+ *       边棋型表在类加载时按角、稳定子、C/X 格的规则算好，3^10 项，评估时查四次</li>
+ *   <li>终局：空格数 ≤ {@link #EXACT_EMPTIES} 时精确求解最终子数差。着法按“对方走完后的行动力”升序
+ *       （fastest-first）、奇偶区域优先排序，9 空以上查置换表（上下界），6 空以下按奇偶区域直接走不排序。
+ *       14 空以上按 YBWC 拆给 fork/join 池：长子串行搜完定出 alpha，其余兄弟并行零窗口，
+ *       谁超过 beta 就把这个分裂点作废，下面的任务各自尽快退出</li>
+ * </ul>
+ * 整步限时；终局求解给到 {@link #ENDGAME_FACTOR} 倍的时间，先用其中一小段跑中局搜索兜底，解不完就用中局的着法。
+ * {@link #stop} 可以从别的线程调，搜索在几毫秒内返回。
+ */
+public final class ReversiSearch implements AutoCloseable {
+
+    public static final int EXACT_EMPTIES = 20, ENDGAME_FACTOR = 4;
+    private static final int WIN = 30000, INF = 32000;
+    private static final int SHALLOW = 6, TT_EMPTIES = 9, SPLIT_EMPTIES = 14;
+    private static final long NOT_A = 0xFEFEFEFEFEFEFEFEL, NOT_H = 0x7F7F7F7F7F7F7F7FL;
+    private static final long[] QUADRANT = { 0x000000000F0F0F0FL, 0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L, 0xF0F0F0F000000000L };
+
+    /** 四条边 + 两头的 X 格，格子顺序就是棋型表下标的三进制位 */
+    private static final int[][] EDGE_SQ = {
+            { 0, 1, 2, 3, 4, 5, 6, 7, 9, 14 },
+            { 56, 57, 58, 59, 60, 61, 62, 63, 49, 54 },
+            { 0, 8, 16, 24, 32, 40, 48, 56, 9, 49 },
+            { 7, 15, 23, 31, 39, 47, 55, 63, 14, 54 },
+    };
+    private static final int[] POW3 = { 1, 3, 9, 27, 81, 243, 729, 2187, 6561, 19683 };
+    /** EDGE[下标]：0 空 1 己方 2 对方，己方分 - 对方分 */
+    private static final short[] EDGE = new short[59049];
+    /** 中局排序用的静态格子分：角最好，X/C 格最差 */
+    private static final int[] SQ_WEIGHT = new int[64];
+
+    static {
+        int[] d = new int[10];
+        for (int i = 0; i < EDGE.length; i++) {
+            for (int k = 0, v = i; k < 10; k++, v /= 3) d[k] = v % 3;
+            EDGE[i] = (short) (edgeValue(d, 1) - edgeValue(d, 2));
+        }
+        int[] row = { 20, -3, 11, 8, 8, 11, -3, 20 };
+        for (int sq = 0; sq < 64; sq++) {
+            int x = sq & 7, y = sq >> 3;
+            SQ_WEIGHT[sq] = Math.min(row[x], row[y]);
+        }
+        for (int c : new int[]{ 9, 14, 49, 54 }) SQ_WEIGHT[c] = -7;
+    }
+
+    /** c 方在一条边上的分：角、从己方角连出去的稳定子（满边全算）、空角旁的 C/X 格扣分、A/B 格小加分 */
+    private static int edgeValue(int[] d, int c){
+        int v = 0;
+        boolean full = true;
+        for (int k = 0; k < 8; k++) full &= d[k] != 0;
+        boolean[] stable = new boolean[8];
+        if (d[0] == c) for (int k = 0; k < 8 && d[k] == c; k++) stable[k] = true;
+        if (d[7] == c) for (int k = 7; k >= 0 && d[k] == c; k--) stable[k] = true;
+        for (int k = 0; k < 8; k++) {
+            if (d[k] != c) continue;
+            if (k == 0 || k == 7) v += 35;
+            else if (stable[k] || full) v += 8;
+            else if (k == 2 || k == 5) v += 3;
+            else if (k == 3 || k == 4) v += 1;
+        }
+        if (d[1] == c && d[0] == 0) v -= 12;
+        if (d[6] == c && d[7] == 0) v -= 12;
+        if (d[8] == c && d[0] == 0) v -= 20;
+        if (d[9] == c && d[7] == 0) v -= 20;
+        return v;
+    }
+
+    /** 结果：move 为格子编号（y*8+x），-1 = 只能停一手；exact 时 score 是终局子数差（走子方 - 对方），depth 是空格数 */
+    public record Result(int move, int score, int depth, long nodes, long nanos, boolean exact) {
+        public int x(){ return move & 7; }
+        public int y(){ return move >> 3; }
+        public long nps(){ return nanos == 0 ? 0 : nodes * 1_000_000_000L / nanos; }
+        @Override public String toString(){
+            return String.format("(%d,%d) %s %s %+d nodes %d (%d knps) time %.0fms", x(), y(),
+                    exact ? "终局精确" : "中局", exact ? "empties " + depth + " diff" : "depth " + depth + " score",
+                    score, nodes, nps() / 1000, nanos / 1e6);
+        }
+    }
+
+    private final ForkJoinPool pool;
+    private final long[] midTT = new long[1 << 21];       // 2^20 项，每项 key ^ data、data
+    private final long[] endTT = new long[1 << 21];
+    private final LongAdder nodes = new LongAdder();
+    private volatile boolean stop, out;                  // stop：外面叫停；out：这一段到点
+    private volatile long deadline;
+
+    public ReversiSearch(int threads){
+        pool = new ForkJoinPool(Math.max(1, threads), p -> {
+            var t = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(p);
+            t.setName("reversi-search-" + t.getPoolIndex());
+            t.setDaemon(true);
+            return t;
+        }, null, false);
+    }
+
+    public int threads(){ return pool.getParallelism(); }
+
+    public void stop(){ stop = true; }
+
+    private boolean halted(){ return stop || out; }
+
+    /** 新对局前清空置换表 */
+    public synchronized void clear(){
+        java.util.Arrays.fill(midTT, 0);
+        java.util.Arrays.fill(endTT, 0);
+    }
+
+    @Override public void close(){ stop = true; pool.shutdownNow(); }
+
+    /** 在 pos 上给走子方找一步（不改动 pos） */
+    public synchronized Result search(ReversiBoard pos, long timeMs){
+        long t0 = System.nanoTime();
+        stop = false;
+        nodes.reset();
+        long me = pos.mine(), opp = pos.theirs();
+        if (moves(me, opp) == 0) return new Result(-1, 0, 0, 0, 0, false);
+        int empties = pos.empties();
+        if (empties > EXACT_EMPTIES) return midgame(me, opp, t0, t0 + ms(timeMs));
+
+        Result mid = midgame(me, opp, t0, t0 + ms(timeMs) / 4);
+        if (stop) return mid;
+        Result end = exact(me, opp, t0, t0 + ms(timeMs) * ENDGAME_FACTOR);
+        if (end.exact()) return end;
+        return new Result(mid.move(), mid.score(), mid.depth(), end.nodes(), end.nanos(), false);
+    }
+
+    /** 精确求解 pos（不管空格数多少）；超时或被 stop 时返回 exact = false */
+    public synchronized Result solve(ReversiBoard pos, long timeMs){
+        long t0 = System.nanoTime();
+        stop = false;
+        nodes.reset();
+        return exact(pos.mine(), pos.theirs(), t0, t0 + ms(timeMs));
+    }
+
+    private static long ms(long timeMs){ return Math.max(1, timeMs) * 1_000_000L; }
+
+    // ===== 中局 =====
+
+    private Result midgame(long me, long opp, long t0, long until){
+        deadline = until;
+        out = false;
+        Ctx c = new Ctx();
+        int bestMove = Long.numberOfTrailingZeros(moves(me, opp)), bestScore = 0, completed = 0;
+        for (int depth = 1; depth <= 60 && !halted(); depth++) {
+            int s = c.mid(me, opp, depth, -INF, INF, false);
+            if (halted()) break;
+            bestMove = c.best; bestScore = s; completed = depth;
+            if (Math.abs(s) >= WIN) break;                            // 已经看到终局
+            if (System.nanoTime() - t0 > (until - t0) / 2) break;    // 下一层多半来不及
+        }
+        c.flush();
+        return new Result(bestMove, bestScore, completed, nodes.sum(), System.nanoTime() - t0, false);
+    }
+
+    // ===== 终局 =====
+
+    private Result exact(long me, long opp, long t0, long until){
+        deadline = until;
+        out = false;
+        int empties = 64 - Long.bitCount(me | opp);
+        int[] res = new int[2];
+        pool.invoke(new RecursiveAction() {
+            @Override protected void compute(){
+                Ctx c = new Ctx();
+                res[0] = c.solve(me, opp, -64, 64, false, null);
+                res[1] = c.best;
+                c.flush();
+            }
+        });
+        boolean done = !halted();
+        int move = moves(me, opp) == 0 ? -1 : res[1];
+        return new Result(move, res[0], empties, nodes.sum(), System.nanoTime() - t0, done);
+    }
+
+    /** YBWC 分裂点：长子搜完后其余兄弟并行；有一个到了 beta 就 cut，下面所有任务看到后尽快返回 */
+    private static final class Split {
+        final Split up;
+        final int beta;
+        volatile int alpha;
+        volatile boolean cut;
+        int best, bestMove;
+
+        Split(Split up, int alpha, int beta, int best, int bestMove){
+            this.up = up; this.alpha = alpha; this.beta = beta; this.best = best; this.bestMove = bestMove;
+        }
+
+        boolean aborted(){
+            for (Split s = this; s != null; s = s.up) if (s.cut) return true;
+            return false;
+        }
+
+        synchronized void offer(int score, int move){
+            if (score <= best) return;
+            best = score; bestMove = move;
+            if (score > alpha) { alpha = score; if (score >= beta) cut = true; }
+        }
+    }
+
+    /** 一个搜索任务：节点计数 + 按空格数分的排序缓冲（一条路径上空格数各不相同，停一手时同层也不会同时用） */
+    private final class Ctx {
+        final int[][] sq = new int[65][], key = new int[65][];
+        long count, flushed;
+        int best;
+
+        Ctx(){ for (int e = 0; e <= 64; e++) { sq[e] = new int[Math.max(1, e)]; key[e] = new int[Math.max(1, e)]; } }
+
+        boolean aborted(Split up){
+            if (count - flushed >= 4096) {
+                nodes.add(count - flushed);
+                flushed = count;
+                if (System.nanoTime() > deadline) out = true;
+            }
+            return halted() || up != null && up.aborted();
+        }
+
+        void flush(){ nodes.add(count - flushed); flushed = count; }
+
+        /** 精确值（走子方子数 - 对方子数），窗口外 fail-soft */
+        int solve(long me, long opp, int alpha, int beta, boolean passed, Split up){
+            count++;
+            if (aborted(up)) return 0;
+            int empties = 64 - Long.bitCount(me | opp);
+            if (empties <= SHALLOW) return shallow(me, opp, alpha, beta, passed, empties);
+            long mv = moves(me, opp);
+            if (mv == 0) {
+                if (passed) return Long.bitCount(me) - Long.bitCount(opp);
+                return -solve(opp, me, -beta, -alpha, true, up);
+            }
+
+            long h = 0;
+            int ti = 0, ttMove = -1;
+            if (empties >= TT_EMPTIES) {
+                h = key(me, opp);
+                ti = index(h, endTT);
+                long td = endTT[ti + 1];
+                if ((endTT[ti] ^ td) == h) {
+                    int lower = (int) (td & 255) - 64, upper = (int) (td >>> 8 & 255) - 64;
+                    ttMove = (int) (td >>> 16 & 127);
+                    if (lower >= beta || lower == upper) { best = ttMove; return lower; }
+                    if (upper <= alpha) { best = ttMove; return upper; }
+                }
+            }
+
+            int[] ms = sq[empties], ks = key[empties];
+            long odd = parity(~(me | opp));
+            int n = 0;
+            for (long m = mv; m != 0; m &= m - 1) {
+                int s = Long.numberOfTrailingZeros(m);
+                long f = flips(s, me, opp);
+                int k = s == ttMove ? 1 << 20
+                        : -16 * Long.bitCount(moves(opp & ~f, me | f | 1L << s)) + ((odd >>> s & 1) != 0 ? 6 : 0) + SQ_WEIGHT[s];
+                int j = n++;
+                while (j > 0 && ks[j - 1] < k) { ms[j] = ms[j - 1]; ks[j] = ks[j - 1]; j--; }
+                ms[j] = s; ks[j] = k;
+            }
+
+            int a0 = alpha, bestMove = ms[0];
+            long f0 = flips(ms[0], me, opp);
+            int best = -solve(opp & ~f0, me | f0 | 1L << ms[0], -beta, -alpha, false, up);
+            if (aborted(up)) return 0;
+            if (best > alpha) alpha = best;
+            if (best < beta && n > 1) {
+                if (empties >= SPLIT_EMPTIES && pool.getParallelism() > 1) {
+                    Split sp = new Split(up, alpha, beta, best, bestMove);
+                    List<Sibling> tasks = new ArrayList<>(n - 1);
+                    for (int i = 1; i < n; i++) tasks.add(new Sibling(sp, me, opp, ms[i]));
+                    ForkJoinTask.invokeAll(tasks);
+                    if (aborted(up)) return 0;
+                    best = sp.best; bestMove = sp.bestMove;
+                } else {
+                    for (int i = 1; i < n; i++) {
+                        int s = ms[i];
+                        long f = flips(s, me, opp), nme = opp & ~f, nop = me | f | 1L << s;
+                        int v = -solve(nme, nop, -alpha - 1, -alpha, false, up);
+                        if (v > alpha && v < beta) v = -solve(nme, nop, -beta, -alpha, false, up);
+                        if (aborted(up)) return 0;
+                        if (v > best) {
+                            best = v; bestMove = s;
+                            if (v > alpha) { alpha = v; if (v >= beta) break; }
+                        }
+                    }
+                }
+            }
+            if (empties >= TT_EMPTIES) {
+                int lower = best > a0 ? best : -64, upper = best < beta ? best : 64;
+                long data = (lower + 64) | (long) (upper + 64) << 8 | (long) bestMove << 16;
+                endTT[ti] = h ^ data;
+                endTT[ti + 1] = data;
+            }
+            this.best = bestMove;
+            return best;
+        }
+
+        /** 最后几个空格：先走奇数空格区域里的，不排序、不查表 */
+        int shallow(long me, long opp, int alpha, int beta, boolean passed, int empties){
+            count++;
+            long empty = ~(me | opp), odd = parity(empty);
+            int best = -65, bestMove = -1;
+            search:
+            for (int pass = 0; pass < 2; pass++) {
+                for (long m = empty & (pass == 0 ? odd : ~odd); m != 0; m &= m - 1) {
+                    int s = Long.numberOfTrailingZeros(m);
+                    long f = flips(s, me, opp);
+                    if (f == 0) continue;
+                    int v = empties == 1 ? Long.bitCount(me | f) + 1 - Long.bitCount(opp & ~f)
+                            : -shallow(opp & ~f, me | f | 1L << s, -beta, -alpha, false, empties - 1);
+                    if (v > best) {
+                        best = v; bestMove = s;
+                        if (v > alpha) { alpha = v; if (v >= beta) break search; }
+                    }
+                }
+            }
+            if (bestMove < 0) {
+                if (passed || empties == 0) return Long.bitCount(me) - Long.bitCount(opp);
+                return -shallow(opp, me, -beta, -alpha, true, empties);
+            }
+            this.best = bestMove;                 // 根节点就在这几格以内时要靠它给出着法
+            return best;
+        }
+
+        /** 中局 PVS，depth 层后取评估；终局节点给 ±WIN + 子数差 */
+        int mid(long me, long opp, int depth, int alpha, int beta, boolean passed){
+            count++;
+            if (aborted(null)) return 0;
+            long mv = moves(me, opp);
+            if (mv == 0) {
+                if (passed) {
+                    int d = Long.bitCount(me) - Long.bitCount(opp);
+                    return d > 0 ? WIN + d : d < 0 ? -WIN + d : 0;
+                }
+                return -mid(opp, me, depth, -beta, -alpha, true);
+            }
+            if (depth <= 0) return eval(me, opp);
+
+            long h = key(me, opp);
+            int ti = index(h, midTT), ttMove = -1;
+            long td = midTT[ti + 1];
+            if ((midTT[ti] ^ td) == h) {
+                int tdepth = (int) (td >>> 23 & 63), bound = (int) (td >>> 29 & 3), ts = (int) (td >>> 7 & 0xFFFF) - 32768;
+                ttMove = (int) (td & 127);
+                if (tdepth >= depth && (bound == 1 || bound == 2 && ts >= beta || bound == 3 && ts <= alpha)) {
+                    best = ttMove;
+                    return ts;
+                }
+            }
+
+            int empties = 64 - Long.bitCount(me | opp);
+            int[] ms = sq[empties], ks = key[empties];
+            int n = 0;
+            for (long m = mv; m != 0; m &= m - 1) {
+                int s = Long.numberOfTrailingZeros(m);
+                int k = s == ttMove ? 1 << 20 : SQ_WEIGHT[s] * 4;
+                if (depth >= 3 && s != ttMove) {
+                    long f = flips(s, me, opp);
+                    k -= 8 * Long.bitCount(moves(opp & ~f, me | f | 1L << s));
+                }
+                int j = n++;
+                while (j > 0 && ks[j - 1] < k) { ms[j] = ms[j - 1]; ks[j] = ks[j - 1]; j--; }
+                ms[j] = s; ks[j] = k;
+            }
+
+            int a0 = alpha, best = -INF, bestMove = ms[0];
+            for (int i = 0; i < n; i++) {
+                int s = ms[i];
+                long f = flips(s, me, opp), nme = opp & ~f, nop = me | f | 1L << s;
+                int v;
+                if (i == 0) v = -mid(nme, nop, depth - 1, -beta, -alpha, false);
+                else {
+                    v = -mid(nme, nop, depth - 1, -alpha - 1, -alpha, false);
+                    if (v > alpha && v < beta) v = -mid(nme, nop, depth - 1, -beta, -alpha, false);
+                }
+                if (halted()) return 0;
+                if (v > best) {
+                    best = v; bestMove = s;
+                    if (v > alpha) { alpha = v; if (v >= beta) break; }
+                }
+            }
+            int bound = best >= beta ? 2 : best > a0 ? 1 : 3;
+            long data = bestMove | (long) (best + 32768) << 7 | (long) depth << 23 | (long) bound << 29;
+            midTT[ti] = h ^ data;
+            midTT[ti + 1] = data;
+            this.best = bestMove;
+            return best;
+        }
+    }
+
+    /** 分裂点下的一个兄弟：先零窗口，超过当时的 alpha 再用全窗口重搜 */
+    private final class Sibling extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        final Split sp;
+        final long me, opp;
+        final int move;
+
+        Sibling(Split sp, long me, long opp, int move){ this.sp = sp; this.me = me; this.opp = opp; this.move = move; }
+
+        @Override protected void compute(){
+            if (sp.aborted() || halted()) return;
+            Ctx c = new Ctx();
+            long f = flips(move, me, opp), nme = opp & ~f, nop = me | f | 1L << move;
+            int a = sp.alpha;
+            int v = -c.solve(nme, nop, -a - 1, -a, false, sp);
+            // 零窗口高出只说明真值 ≥ v；这期间 alpha 可能已被兄弟抬高，按新的 alpha 重搜（真值不超过它就当低出）
+            if (!c.aborted(sp) && v > a && v < sp.beta) v = -c.solve(nme, nop, -sp.beta, -sp.alpha, false, sp);
+            c.flush();
+            if (!c.aborted(sp)) sp.offer(v, move);
+        }
+    }
+
+    /** 中局评估（走子方视角）：边棋型 + 行动力差 + 前沿子差 */
+    static int eval(long me, long opp){
+        int e = 0;
+        for (int[] sqs : EDGE_SQ) {
+            int idx = 0;
+            for (int k = 0; k < 10; k++) {
+                int s = sqs[k];
+                idx += (int) ((me >>> s & 1) + 2 * (opp >>> s & 1)) * POW3[k];
+            }
+            e += EDGE[idx];
+        }
+        int mm = Long.bitCount(moves(me, opp)), om = Long.bitCount(moves(opp, me));
+        e += 120 * (mm - om) / (mm + om + 2);
+        long empty = ~(me | opp);
+        long adj = empty << 8 | empty >>> 8
+                | (empty & NOT_H) << 1 | (empty & NOT_A) >>> 1
+                | (empty & NOT_H) << 9 | (empty & NOT_A) << 7
+                | (empty & NOT_H) >>> 7 | (empty & NOT_A) >>> 9;
+        int fm = Long.bitCount(me & adj), fo = Long.bitCount(opp & adj);
+        return e + 60 * (fo - fm) / (fm + fo + 2);
+    }
+
+    /** 空格数为奇数的象限合起来的掩码 */
+    private static long parity(long empty){
+        long odd = 0;
+        for (long q : QUADRANT) if ((Long.bitCount(empty & q) & 1) != 0) odd |= q;
+        return odd;
+    }
+
+    private static long key(long me, long opp){
+        long h = me * 0x9E3779B97F4A7C15L ^ Long.rotateLeft(opp * 0xC2B2AE3D27D4EB4FL, 31);
+        return h ^ h >>> 29;
+    }
+
+    private static int index(long h, long[] tt){ return ((int) (h >>> 32) & ((tt.length >> 1) - 1)) << 1; }
+}
@@ -0,0 +1,41 @@
+package com.easy.game;
+
+/**
+ * Zobrist 键表：固定种子的 SplitMix64，两端生成完全相同的随机键，局面哈希才能互相比较。
+ * 各棋种在落子/吃子/翻子时按格子 XOR 增量维护，校验只比一个 long。
+ */
+public final class Zobrist {
+
+    /** 轮到“后手方”走时 XOR 进哈希 */
+    public static final long SIDE = mix(0x5EED_0001L);
+
+    private Zobrist(){}
+
+    /** squares × states 的键表；salt 区分棋种，避免不同棋种碰巧同哈希 */
+    public static long[][] table(int squares, int states, long salt){
+        long[][] t = new long[squares][states];
+        long s = salt * 0x9E3779B97F4A7C15L;
+        for (int i = 0; i < squares; i++)
+            for (int j = 0; j < states; j++)
+                t[i][j] = mix(s += 0x9E3779B97F4A7C15L);
+        return t;
+    }
+
+    /** 帧里 "hash" 字段的写法：16 位十六进制 */
+    public static String hex(long h){
+        String s = Long.toHexString(h);
+        return s.length() == 16 ? s : "0000000000000000".substring(s.length()) + s;
+    }
+
+    /** 解析 "hash" 字段；空串/老版本的非十六进制内容返回 null（不校验） */
+    public static Long parse(String s){
+        if (s == null || s.length() != 16) return null;
+        try { return Long.parseUnsignedLong(s, 16); } catch (NumberFormatException e) { return null; }
+    }
+
+    private static long mix(long z){
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,182 @@
+package com.easy.net;
+
+import java.io.IOException;
+import java.net.DatagramSocket;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.NetworkInterface;
+import java.net.URI;
+import java.net.URLConnection;
+import java.nio.charset.StandardCharsets;
+import java.util.Enumeration;
+import java.util.concurrent.*;
+
+/**
+ * 本机局域网 IPv4 和公网 IPv4 的后台解析与缓存，生成邀请码时直接取：
+ * <pre>
+ *   AddressResolver.shared().warmUp();            // 应用启动时，两边并发开始解析
+ *   AddressResolver.shared().publicIp()           // 缓存新鲜就是已完成的 future
+ *       .thenAccept(ip -> …);
+ * </pre>
+ * 解析成功缓存 ttl（默认 10 分钟），失败 {@value #RETRY_MS} ms 后才重试；过期后先交出旧值、后台刷新。
+ * 每 {@value #WATCH_MS} ms 在后台比一次网卡指纹（启用的非回环网卡名 + 地址），变了就作废两份缓存重新解析——
+ * 换了网络旧地址不能再用，这时不交旧值。
+ * <p>
+ * 公网 IP 来源可替换：构造时传 {@link Callable}，或对默认实例用 -Deasy.publicip.url=http://127.0.0.1:端口/ 指向本地替身。
+ */
+public final class AddressResolver {
+
+    public static final String DEFAULT_PUBLIC_URL = "http://checkip.amazonaws.com/";
+    public static final long DEFAULT_TTL_MS = 10 * 60_000;
+    static final long RETRY_MS = 15_000;
+    static final long WATCH_MS = 5_000;
+
+    private static volatile AddressResolver shared;
+
+    private final ScheduledExecutorService exec;
+    private final Slot lan, pub;
+    private volatile int fingerprint;
+
+    /** 应用里共用的实例：公网来源取 -Deasy.publicip.url，默认 checkip.amazonaws.com */
+    public static AddressResolver shared(){
+        AddressResolver r = shared;
+        if (r == null) {
+            synchronized (AddressResolver.class) {
+                if ((r = shared) == null)
+                    shared = r = new AddressResolver(httpSource(System.getProperty("easy.publicip.url", DEFAULT_PUBLIC_URL)), DEFAULT_TTL_MS);
+            }
+        }
+        return r;
+    }
+
+    public AddressResolver(Callable<String> publicSource, long ttlMs){
+        exec = Executors.newScheduledThreadPool(2, r -> {
+            Thread t = new Thread(r, "addr-resolver");
+            t.setDaemon(true);
+            return t;
+        });
+        lan = new Slot("局域网", AddressResolver::lanIPv4, ttlMs);
+        pub = new Slot("公网", publicSource, ttlMs);
+        fingerprint = interfaces();
+        exec.scheduleWithFixedDelay(this::watch, WATCH_MS, WATCH_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /** 两边并发开始解析，不等结果 */
+    public void warmUp(){ lan.get(); pub.get(); }
+
+    public CompletableFuture<String> lan(){ return lan.get(); }
+
+    public CompletableFuture<String> publicIp(){ return pub.get(); }
+
+    /** 作废缓存并重新解析（网卡变化时自动调用） */
+    public void refresh(){ lan.invalidate(); pub.invalidate(); }
+
+    public void close(){ exec.shutdownNow(); }
+
+    /** 取 GET 响应第一行作为 IP（checkip / ipify 一类的纯文本服务） */
+    public static Callable<String> httpSource(String url){
+        return () -> {
+            URLConnection conn = URI.create(url).toURL().openConnection();
+            conn.setConnectTimeout(3000);
+            conn.setReadTimeout(3000);
+            try (var in = conn.getInputStream()) {
+                String s = new String(in.readNBytes(256), StandardCharsets.US_ASCII);
+                int nl = s.indexOf('\n');
+                return (nl < 0 ? s : s.substring(0, nl)).trim();
+            }
+        };
+    }
+
+    /** 默认出网接口的局域网 IPv4；不是私网地址就挨个网卡找 */
+    public static String lanIPv4() {
+        try (DatagramSocket ds = new DatagramSocket()) {
+            ds.connect(InetAddress.getByName("192.0.2.1"), 9);     // UDP connect 不发包，只选路由
+            InetAddress local = ((InetSocketAddress) ds.getLocalSocketAddress()).getAddress();
+            if (local instanceof Inet4Address && local.isSiteLocalAddress()) return local.getHostAddress();
+        } catch (Exception ignore) {}
+        try {
+            Enumeration<NetworkInterface> ifs = NetworkInterface.getNetworkInterfaces();
+            while (ifs.hasMoreElements()) {
+                NetworkInterface nif = ifs.nextElement();
+                if (!nif.isUp() || nif.isLoopback() || nif.isVirtual() || nif.isPointToPoint()) continue;
+                Enumeration<InetAddress> addrs = nif.getInetAddresses();
+                while (addrs.hasMoreElements()) {
+                    InetAddress a = addrs.nextElement();
+                    if (a instanceof Inet4Address && a.isSiteLocalAddress() && !a.isLoopbackAddress())
+                        return a.getHostAddress();
+                }
+            }
+        } catch (Exception ignore) {}
+        return null;
+    }
+
+    private void watch(){
+        int fp = interfaces();
+        if (fp == fingerprint) return;
+        fingerprint = fp;
+        refresh();
+    }
+
+    /** 启用的非回环网卡及其地址的指纹 */
+    private static int interfaces(){
+        int h = 1;
+        try {
+            Enumeration<NetworkInterface> ifs = NetworkInterface.getNetworkInterfaces();
+            while (ifs != null && ifs.hasMoreElements()) {
+                NetworkInterface nif = ifs.nextElement();
+                if (!nif.isUp() || nif.isLoopback()) continue;
+                h = 31 * h + nif.getName().hashCode();
+                Enumeration<InetAddress> addrs = nif.getInetAddresses();
+                while (addrs.hasMoreElements()) h = 31 * h + addrs.nextElement().hashCode();
+            }
+        } catch (Exception ignore) {}
+        return h;
+    }
+
+    /** 一个地址的缓存；gen 是代号：作废之后，之前发出去的解析结果回来也不再写进缓存 */
+    private final class Slot {
+        final String name;
+        final Callable<String> source;
+        final long ttlMs;
+        CompletableFuture<String> current;
+        long freshUntil;
+        String last;            // 最近一次成功的值，刷新期间先交它
+        int gen;
+
+        Slot(String name, Callable<String> source, long ttlMs){ this.name = name; this.source = source; this.ttlMs = ttlMs; }
+
+        synchronized CompletableFuture<String> get(){
+            if (current == null || current.isDone() && System.currentTimeMillis() >= freshUntil) start();
+            if (last != null && (!current.isDone() || current.isCompletedExceptionally())) return CompletableFuture.completedFuture(last);
+            return current;
+        }
+
+        synchronized void invalidate(){
+            last = null;
+            start();
+        }
+
+        private void start(){
+            int g = ++gen;
+            CompletableFuture<String> f = CompletableFuture.supplyAsync(() -> {
+                try {
+                    String ip = source.call();
+                    if (ip == null || ip.isEmpty()) throw new IOException("无法获取" + name + " IP");
+                    return ip;
+                } catch (Exception e) {
+                    throw e instanceof CompletionException ce ? ce : new CompletionException(e);
+                }
+            }, exec);
+            current = f;
+            freshUntil = Long.MAX_VALUE;
+            f.whenComplete((ip, e) -> done(g, ip, e));
+        }
+
+        private synchronized void done(int g, String ip, Throwable e){
+            if (g != gen) return;
+            if (e == null) last = ip;
+            freshUntil = System.currentTimeMillis() + (e == null ? ttlMs : RETRY_MS);
+        }
+    }
+}
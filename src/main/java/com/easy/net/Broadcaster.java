@@ -0,0 +1,221 @@
+package com.easy.net;
+
+import com.easy.util.Metrics;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 房主把本局的可重放帧（双方走子、GAME）广播给只读观战者。
+ * <p>
+ * 棋手线程 publish 只做一件事：把帧追加进共享环形日志，再唤醒一次扇出线程，耗时与观战人数无关。
+ * 扇出线程（一个 Selector 管所有观战连接）按各自游标从环里取帧，每帧每种编码只生成一次，
+ * 同一个不可变 byte[] 被所有观战者的 ByteBuffer 共享，聚集写（gathering write）一次发出多帧。
+ * 观战者落后超过环长就断开（重连后从本局历史追上），永远不会反压到棋手。
+ * 新观战者先收到本局历史，再从加入时的环位置接实时帧；两者在同一把锁下取快照，不漏不重。
+ */
+public final class Broadcaster {
+
+    /** 环长 = 观战者最多可落后的帧数 */
+    public static final int RING = 1024;
+    private static final int MASK = RING - 1;
+    private static final int HISTORY_CAP = 4096;
+    private static final int GATHER = 32;
+
+    /** 帧来源：写进广播帧的 "by" 字段 */
+    public static final int BY_HOST = 0, BY_CLIENT = 1;
+
+    /** 一帧的两种编码，各自首次用到时生成（只在扇出线程上），之后所有观战者共享 */
+    static final class Frame {
+        final JSONObject jo;
+        private byte[] json, bin;
+        Frame(JSONObject jo){ this.jo = jo; }
+        byte[] bytes(boolean binary){
+            if (binary) { if (bin == null) bin = Wire.encode(jo, true); return bin; }
+            if (json == null) json = Wire.encode(jo, false);
+            return json;
+        }
+    }
+
+    private static final class Watcher {
+        final String name; final boolean binary; final SocketChannel ch;
+        final ArrayDeque<Frame> catchUp;                  // 加入时的本局历史
+        final ArrayDeque<ByteBuffer> out = new ArrayDeque<>();
+        long cursor;                                      // 下一帧在环里的全局序号
+        SelectionKey key;
+        Watcher(String name, boolean binary, SocketChannel ch, List<Frame> history, long cursor){
+            this.name = name; this.binary = binary; this.ch = ch;
+            this.catchUp = new ArrayDeque<>(history); this.cursor = cursor;
+        }
+    }
+
+    private final Consumer<String> log;
+    private final Frame[] ring = new Frame[RING];
+    private volatile long head;                               // 已发布帧数；只在 synchronized 下递增
+    private final List<Frame> history = new ArrayList<>();    // 本局帧，GAME select/reset 时清空
+    private final ConcurrentLinkedQueue<Watcher> joins = new ConcurrentLinkedQueue<>();
+    private final List<Watcher> watchers = new ArrayList<>(); // 仅扇出线程
+    private volatile int count;
+    private final LongAdder published = new LongAdder(), delivered = new LongAdder(), dropped = new LongAdder();
+    private Selector selector;
+    private volatile boolean closed;
+
+    public Broadcaster(Consumer<String> log){ this.log = log; }
+
+    /**
+     * 广播一帧。jo 不会被修改（拷一份加 "by"）。
+     * 在棋手的发送/读线程上调用：O(1)，不编码、不碰任何观战连接。
+     */
+    public void publish(JSONObject jo, int by){
+        JSONObject copy = new JSONObject(jo, JSONObject.getNames(jo)).put("by", by);
+        Frame f = new Frame(copy);
+        Selector sel;
+        synchronized (this) {
+            if (startsRound(copy)) history.clear();
+            if (history.size() < HISTORY_CAP) history.add(f);
+            ring[(int) (head & MASK)] = f;
+            head++;
+            sel = selector;
+        }
+        published.increment();
+        if (sel != null && count > 0) sel.wakeup();
+    }
+
+    /**
+     * 加入一名观战者（HELLO 已交换完）。通道转为非阻塞交给扇出线程，调用方不再碰它。
+     */
+    public void add(String name, boolean binary, SocketChannel ch) throws IOException {
+        ch.configureBlocking(false);
+        Selector sel;
+        synchronized (this) {
+            if (closed) { ch.close(); return; }
+            if (selector == null) {
+                selector = Selector.open();
+                NetThreads.start("spectator-fanout", this::fanoutLoop);
+            }
+            joins.add(new Watcher(name, binary, ch, history, head));
+            sel = selector;
+            log.accept("[SPECTATE] 观战者加入: " + name + "（当前 " + (count + 1) + " 人，补发 " + history.size() + " 帧）");
+        }
+        sel.wakeup();
+    }
+
+    public int size(){ return count; }
+
+    /** 广播帧数 / 成功写出帧数 / 因过慢被断开的观战者数 */
+    public String stats(){
+        return String.format("spectators=%d published=%d delivered=%d dropped=%d",
+                count, published.sum(), delivered.sum(), dropped.sum());
+    }
+
+    public void close(){
+        Selector sel;
+        synchronized (this) { closed = true; sel = selector; }
+        if (sel != null) sel.wakeup();
+    }
+
+    // ===== 扇出线程 =====
+
+    private void fanoutLoop(){
+        ByteBuffer scratch = ByteBuffer.allocate(512);
+        ByteBuffer[] gather = new ByteBuffer[GATHER];
+        try {
+            while (!closed) {
+                selector.select();
+                Watcher j;
+                while ((j = joins.poll()) != null) {
+                    j.key = j.ch.register(selector, SelectionKey.OP_READ, j);
+                    watchers.add(j);
+                    count = watchers.size();
+                    Metrics.CONN_ACCEPTED.inc("spectator");
+                    Metrics.SPECTATORS.inc();
+                }
+                // 读：观战者发来的东西一律丢弃，只为发现断开
+                for (SelectionKey k : selector.selectedKeys()) {
+                    Watcher w = (Watcher) k.attachment();
+                    if (!k.isValid() || !k.isReadable()) continue;
+                    try {
+                        int n;
+                        do { scratch.clear(); n = w.ch.read(scratch); } while (n > 0);
+                        if (n < 0) remove(w, "已离开", false);
+                    } catch (IOException e) {
+                        remove(w, "已断开", false);
+                    }
+                }
+                selector.selectedKeys().clear();
+                // 写：每个观战者把能写的都写掉
+                for (int i = watchers.size() - 1; i >= 0; i--) pump(watchers.get(i), gather);
+            }
+        } catch (IOException e) {
+            log.accept("[SPECTATE] 扇出线程异常: " + e.getMessage());
+        } finally {
+            for (int i = watchers.size() - 1; i >= 0; i--) remove(watchers.get(i), "房间关闭", false);
+            Watcher j;
+            while ((j = joins.poll()) != null) try { j.ch.close(); } catch (IOException ignore) {}
+            try { selector.close(); } catch (IOException ignore) {}
+        }
+    }
+
+    private void pump(Watcher w, ByteBuffer[] gather){
+        if (!w.key.isValid()) { remove(w, "已断开", false); return; }
+        try {
+            while (true) {
+                while (w.out.size() < GATHER) {
+                    Frame f = w.catchUp.pollFirst();
+                    if (f == null) {
+                        long h = head;
+                        if (w.cursor >= h) break;
+                        f = ring[(int) (w.cursor & MASK)];
+                        if (head - w.cursor > RING) {   // 读槽前后都要检查：槽可能刚被覆盖
+                            remove(w, "落后超过 " + RING + " 帧，已断开", true);
+                            return;
+                        }
+                        w.cursor++;
+                    }
+                    byte[] b = f.bytes(w.binary);
+                    w.out.addLast(ByteBuffer.wrap(b));
+                    Wire.countOut(f.jo, b.length);
+                }
+                if (w.out.isEmpty()) { w.key.interestOps(SelectionKey.OP_READ); return; }
+                int n = 0;
+                for (ByteBuffer b : w.out) gather[n++] = b;
+                w.ch.write(gather, 0, n);
+                java.util.Arrays.fill(gather, 0, n, null);
+                while (!w.out.isEmpty() && !w.out.peekFirst().hasRemaining()) { w.out.pollFirst(); delivered.increment(); }
+                if (!w.out.isEmpty()) {                  // 对端收得慢：等可写
+                    w.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                    return;
+                }
+            }
+        } catch (IOException | java.nio.channels.CancelledKeyException e) {
+            remove(w, "写失败，已断开", false);
+        }
+    }
+
+    private void remove(Watcher w, String why, boolean slow){
+        if (!watchers.remove(w)) return;
+        count = watchers.size();
+        Metrics.CONN_CLOSED.inc("spectator");
+        Metrics.SPECTATORS.add(-1);
+        if (w.key != null) w.key.cancel();
+        try { w.ch.close(); } catch (IOException ignore) {}
+        if (slow) dropped.increment();
+        log.accept("[SPECTATE] 观战者 " + w.name + " " + why + "（剩 " + count + " 人）");
+    }
+
+    private static boolean startsRound(JSONObject jo){
+        if (!"GAME".equals(jo.optString("type", ""))) return false;
+        String cmd = jo.optString("cmd", "");
+        return "select".equals(cmd) || "reset".equals(cmd);
+    }
+}
@@ -0,0 +1,139 @@
+package com.easy.net;
+
+import com.easy.game.GameType;
+import com.easy.ui.MoveListener;
+import com.easy.ui.NetEventListener;
+import org.json.JSONObject;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 表驱动的消息分发：type（以及 GAME/BATTLE 这类带 cmd 的二级 cmd）-> Handler。
+ * 启动时注册一次，之后每帧一次哈希查找；每个 handler 记调用次数与耗时。
+ * NetServer / NetClient 共用 {@link #forGame} 注册的对局消息，各自再补 HELLO/ACK 等。
+ */
+public final class Dispatcher {
+
+    @FunctionalInterface
+    public interface Handler {
+        void handle(JSONObject jo) throws Exception;
+    }
+
+    /** 一个注册项：handler + 统计 */
+    private static final class Entry {
+        final String name;
+        final Handler h;
+        final LongAdder calls = new LongAdder();
+        final LongAdder nanos = new LongAdder();
+        Entry(String name, Handler h){ this.name = name; this.h = h; }
+    }
+
+    /** type 一级表；值是 Entry（不看 cmd）或 Map&lt;cmd, Entry&gt; */
+    private final Map<String, Object> table = new HashMap<>();
+    private final Map<String, Entry> all = new java.util.LinkedHashMap<>();
+    private Entry fallback;
+
+    /** 按 type 注册 */
+    public Dispatcher on(String type, Handler h){
+        Entry e = new Entry(type, h);
+        table.put(type, e);
+        all.put(e.name, e);
+        return this;
+    }
+
+    /** 按 type + cmd 注册 */
+    @SuppressWarnings("unchecked")
+    public Dispatcher on(String type, String cmd, Handler h){
+        Entry e = new Entry(type + "/" + cmd, h);
+        Object cur = table.get(type);
+        Map<String, Entry> byCmd;
+        if (cur instanceof Map) byCmd = (Map<String, Entry>) cur;
+        else { byCmd = new HashMap<>(); table.put(type, byCmd); }
+        byCmd.put(cmd, e);
+        all.put(e.name, e);
+        return this;
+    }
+
+    /** 没有匹配项时调用 */
+    public Dispatcher otherwise(Handler h){
+        fallback = new Entry("*", h);
+        all.put("*", fallback);
+        return this;
+    }
+
+    /** 分发一帧；没有 handler（也没有 fallback）返回 false */
+    public boolean dispatch(JSONObject jo) throws Exception {
+        Object v = table.get(jo.optString("type", ""));
+        Entry e;
+        if (v instanceof Entry) e = (Entry) v;
+        else if (v != null) e = ((Map<?, ?>) v).get(jo.optString("cmd", "")) instanceof Entry x ? x : fallback;
+        else e = fallback;
+        if (e == null) return false;
+        long t0 = System.nanoTime();
+        try {
+            e.h.handle(jo);
+        } finally {
+            e.calls.increment();
+            e.nanos.add(System.nanoTime() - t0);
+        }
+        return true;
+    }
+
+    /** 每个 handler 的调用次数与平均耗时，一行一个 */
+    public String stats(){
+        StringBuilder sb = new StringBuilder();
+        for (Entry e : all.values()) {
+            long c = e.calls.sum();
+            if (c == 0) continue;
+            sb.append(String.format("%-16s calls=%d avg=%.1fus total=%.1fms%n",
+                    e.name, c, e.nanos.sum() / 1e3 / c, e.nanos.sum() / 1e6));
+        }
+        return sb.toString();
+    }
+
+    // ===== 两端共用的对局消息 =====
+
+    /**
+     * 注册 MOVE / MOVE_FXFY / BATTLE fire / GAME select|suggest|reset / SYNC req|state。
+     * @param afterMove 每个走子帧处理完后调用（如回 ACK），可为 null
+     */
+    public static Dispatcher forGame(MoveListener listener, NetEventListener events, Handler afterMove){
+        Dispatcher d = new Dispatcher();
+        d.on("MOVE", jo -> {
+            if (listener != null) {
+                String h = jo.optString("hash", "");
+                if (jo.has("cap")) listener.onOpponentMoveFxFy(jo.getInt("fx"), jo.getInt("fy"), jo.getInt("x"), jo.getInt("y"), jo.getInt("cap"), h);
+                else if (jo.has("fx")) listener.onOpponentMoveFxFy(jo.getInt("fx"), jo.getInt("fy"), jo.getInt("x"), jo.getInt("y"), h);
+                else listener.onOpponentMove(jo.getInt("x"), jo.getInt("y"), h);
+            }
+            if (afterMove != null) afterMove.handle(jo);
+        });
+        d.on("MOVE_FXFY", jo -> {
+            if (listener != null) listener.onOpponentMoveFxFy(jo.getInt("fx"), jo.getInt("fy"), jo.getInt("x"), jo.getInt("y"), jo.optString("hash", ""));
+            if (afterMove != null) afterMove.handle(jo);
+        });
+        d.on("BATTLE", "fire", jo -> {
+            if (listener != null) listener.onOpponentMove(jo.getInt("x"), jo.getInt("y"), jo.optString("hash", "")); // 对方打我
+            if (afterMove != null) afterMove.handle(jo);
+        });
+        d.on("GAME", "select", jo -> {
+            if (events != null) events.onGameSelected(GameType.from(jo.optString("game", "GOMOKU")), jo.optString("starter", "host"));
+        });
+        d.on("GAME", "suggest", jo -> {
+            if (events != null) events.onGameSuggested(GameType.from(jo.optString("game", "GOMOKU")));
+        });
+        d.on("GAME", "reset", jo -> {
+            // 重开当前棋局：UI 按“全局交替”重置
+            if (events != null) events.onGameSelected(GameType.from(jo.optString("game", "GOMOKU")), "host");
+        });
+        d.on("SYNC", "req", jo -> {
+            if (events != null) events.onSyncRequest();
+        });
+        d.on("SYNC", "state", jo -> {
+            if (events != null) events.onSyncState(GameType.from(jo.optString("game", "GOMOKU")), jo.optString("state", ""), jo.optString("hash", ""));
+        });
+        return d;
+    }
+}
@@ -1,67 +1,121 @@
 package com.easy.net;
 
 import com.easy.util.AES256;
+import java.security.SecureRandom;
 import java.time.Instant;
-import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 public class InviteCodec {
     // 32-byte key; replace in prod (env/config). DO NOT commit secrets in real apps.
     private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes();
+    // nonce 是一次性令牌（InviteVerifier 靠它防重放），必须猜不到
+    private static final SecureRandom RND = new SecureRandom();
 
     public static String gen(String ip, int port) throws Exception {
-        long ts = Instant.now().getEpochSecond();
-        String nonce = UUID.randomUUID().toString().replaceAll("-", "").substring(0, 16);
-        String plain = String.format("v=1|ip=%s|port=%d|ts=%d|nonce=%s", ip, port, ts, nonce);
-        return AES256.encrypt(plain, KEY);
+        return gen(ip, port, 0);
     }
 
+    /** udpPort>0 时在邀请码里声明房主也收 UDP（老客户端不认识这个字段，照旧走 TCP） */
+    public static String gen(String ip, int port, int udpPort) throws Exception {
+        return gen(ip, port, udpPort, Instant.now().getEpochSecond(), nonce());
+    }
 
+    /** 指定 ts / nonce（测试用） */
+    static String gen(String ip, int port, int udpPort, long ts, String nonce) throws Exception {
+        String plain = "v=1|ip=" + ip + "|port=" + port + "|ts=" + ts + "|nonce=" + nonce;
+        if (udpPort > 0) plain += "|udp=" + udpPort;
+        return AES256.encrypt(plain, KEY);
+    }
 
-
-public static Endpoint parse(String code) throws Exception {
-    if (code == null) throw new IllegalArgumentException("empty invite");
-    String original = code;
-    code = code.replaceAll("\s+", "");
-
-    String s;
-    try {
-        s = AES256.decrypt(code, KEY);
-    } catch (Exception e) {
-        String msg = e.getClass().getSimpleName() + (e.getMessage() == null ? "" : (": " + e.getMessage()));
-        throw new IllegalArgumentException("decrypt failed (" + msg + "). Hint: ensure full single-line code.");
+    /** 16 位十六进制随机串（64 bit） */
+    static String nonce(){
+        String h = Long.toHexString(RND.nextLong());
+        return "0000000000000000".substring(h.length()) + h;
     }
-    if (s == null) throw new IllegalArgumentException("decrypted payload is null");
 
-    String payload = s.trim();
-    // Robustly extract using regex to avoid split pitfalls
-    Pattern ipPat   = Pattern.compile("(^|\\|)ip=([^|]+)($|\\|)");
-    Pattern portPat = Pattern.compile("(^|\\|)port=([0-9]{1,5})($|\\|)");
+    public static Endpoint parse(String code) throws Exception {
+        if (code == null) throw new IllegalArgumentException("empty invite");
+        String original = code;
+        code = stripWhitespace(code);
 
+        String s;
+        try {
+            s = AES256.decrypt(code, KEY);
+        } catch (Exception e) {
+            String msg = e.getClass().getSimpleName() + (e.getMessage() == null ? "" : (": " + e.getMessage()));
+            throw new IllegalArgumentException("decrypt failed (" + msg + "). Hint: ensure full single-line code.");
+        }
+        if (s == null) throw new IllegalArgumentException("decrypted payload is null");
 
-    Matcher m1 = ipPat.matcher(payload);
-    Matcher m2 = portPat.matcher(payload);
+        String payload = s.trim();
+        // 逐段扫 k=v（'|' 分隔），不用正则；同名字段取第一个，和原来的 find() 一致
+        String ip = null, nonce = "";
+        int port = -1, udp = 0;
+        long ts = 0;
+        boolean seenTs = false, seenNonce = false, seenUdp = false;
+        for (int i = 0, n = payload.length(); i <= n; ) {
+            int bar = payload.indexOf('|', i);
+            if (bar < 0) bar = n;
+            int eq = payload.indexOf('=', i);
+            if (eq > i && eq < bar) {
+                String k = payload.substring(i, eq);
+                switch (k) {
+                    case "ip"    -> { if (ip == null) ip = payload.substring(eq + 1, bar).trim(); }
+                    case "port"  -> { if (port < 0) port = digits(payload, eq + 1, bar, 5); }
+                    case "udp"   -> { if (!seenUdp) { seenUdp = true; udp = digits(payload, eq + 1, bar, 5); } }
+                    case "ts"    -> { if (!seenTs) { seenTs = true; ts = Math.max(0, digitsLong(payload, eq + 1, bar, 18)); } }
+                    case "nonce" -> { if (!seenNonce) { seenNonce = true; nonce = payload.substring(eq + 1, bar); } }
+                    default -> {}
+                }
+            }
+            i = bar + 1;
+        }
 
-    String ip = null;
-    Integer port = null;
+        if (ip == null || ip.isEmpty()) {
+            throw new IllegalArgumentException("missing ip in payload (payload='" + payload + "', code='" + original + "')");
+        }
+        if (port <= 0 || port > 65535) {
+            throw new IllegalArgumentException("missing/invalid port in payload (payload='" + payload + "', code='" + original + "')");
+        }
+        if (udp < 0 || udp > 65535) udp = 0;
+        return new Endpoint(ip, port, udp, ts, nonce);
+    }
 
-    if (m1.find()) ip = m1.group(2).trim();
-    if (m2.find()) {
-        try { port = Integer.parseInt(m2.group(2)); } catch (NumberFormatException ignore) {}
+    /** [from,to) 全是数字且不超过 maxLen 位时返回数值，否则 -1 */
+    private static int digits(String s, int from, int to, int maxLen){
+        long v = digitsLong(s, from, to, maxLen);
+        return v > Integer.MAX_VALUE ? -1 : (int) v;
     }
 
-    if (ip == null || ip.isEmpty()) {
-        throw new IllegalArgumentException("missing ip in payload (payload='" + payload + "', code='" + original + "')");
+    private static long digitsLong(String s, int from, int to, int maxLen){
+        if (to <= from || to - from > maxLen) return -1;
+        long v = 0;
+        for (int i = from; i < to; i++) {
+            char c = s.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            v = v * 10 + (c - '0');
+        }
+        return v;
     }
-    if (port == null || port <= 0 || port > 65535) {
-        throw new IllegalArgumentException("missing/invalid port in payload (payload='" + payload + "', code='" + original + "')");
+
+    static String stripWhitespace(String s){
+        int i = 0, n = s.length();
+        while (i < n && !Character.isWhitespace(s.charAt(i))) i++;
+        if (i == n) return s;                                   // 常见情况：本来就是一行
+        StringBuilder sb = new StringBuilder(n).append(s, 0, i);
+        for (; i < n; i++) { char c = s.charAt(i); if (!Character.isWhitespace(c)) sb.append(c); }
+        return sb.toString();
     }
-    return new Endpoint(ip, port);
-}
+
     public static class Endpoint {
         public final String ip;
         public final int port;
-        public Endpoint(String ip, int port){ this.ip = ip; this.port = port; }
+        public final int udpPort; // 0 = 房主未开 UDP
+        public final long ts;     // 生成时间（epoch 秒），老邀请码没有则为 0
+        public final String nonce;
+        public Endpoint(String ip, int port){ this(ip, port, 0); }
+        public Endpoint(String ip, int port, int udpPort){ this(ip, port, udpPort, 0, ""); }
+        public Endpoint(String ip, int port, int udpPort, long ts, String nonce){
+            this.ip = ip; this.port = port; this.udpPort = udpPort; this.ts = ts; this.nonce = nonce;
+        }
     }
 }
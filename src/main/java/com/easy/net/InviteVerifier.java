@@ -0,0 +1,88 @@
+package com.easy.net;
+
+import com.easy.util.Metrics;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * 大厅侧的邀请码校验：{@link InviteCodec#parse} 解出 ip/port 之后再查两件事——
+ * ts 在新鲜窗口内（允许少量时钟偏差），nonce 没被用过。线程安全，多个接入线程共用一个实例。
+ * <p>
+ * 用过的 nonce 记在有界的并发表里，到 ts + 窗口 过期（过了这个时间 ts 检查本身就会拒绝，不必再记）；
+ * 过期项按窗口的 1/4 为周期顺带清掉。表满且清完仍满时拒绝新邀请码，而不是挤掉没过期的 nonce——挤掉就能重放。
+ * <pre>
+ *   InviteVerifier v = new InviteVerifier();          // 30 分钟窗口、±60 s 偏差、最多 262144 个 nonce
+ *   InviteCodec.Endpoint ep = v.verify(code);         // 不通过抛 IllegalArgumentException
+ * </pre>
+ */
+public final class InviteVerifier {
+
+    public static final long DEFAULT_WINDOW_S = 30 * 60;
+    public static final long DEFAULT_SKEW_S = 60;
+    public static final int DEFAULT_CAPACITY = 1 << 18;
+
+    /** 校验结果：ok / malformed / stale / future / replay / full */
+    static final Metrics.Family RESULTS = Metrics.counter("easy_invite_verify_total", "Invite verifications, by result", "result");
+
+    private final long windowS, skewS;
+    private final int capacity;
+    private final LongSupplier clock;                       // epoch 秒
+    private final ConcurrentHashMap<String, Long> seen;     // nonce -> 过期时间（epoch 秒）
+    private final AtomicLong nextSweep = new AtomicLong();
+
+    public InviteVerifier(){
+        this(DEFAULT_WINDOW_S, DEFAULT_SKEW_S, DEFAULT_CAPACITY, () -> System.currentTimeMillis() / 1000);
+    }
+
+    public InviteVerifier(long windowS, long skewS, int capacity, LongSupplier clock){
+        if (windowS <= 0 || skewS < 0 || capacity <= 0) throw new IllegalArgumentException("bad verifier config");
+        this.windowS = windowS;
+        this.skewS = skewS;
+        this.capacity = capacity;
+        this.clock = clock;
+        this.seen = new ConcurrentHashMap<>(Math.min(capacity, 1 << 16));
+    }
+
+    /** 解析并校验；同一邀请码只有第一次能通过 */
+    public InviteCodec.Endpoint verify(String code) throws Exception {
+        InviteCodec.Endpoint ep;
+        try {
+            ep = InviteCodec.parse(code);
+        } catch (IllegalArgumentException e) {
+            throw reject("malformed", e.getMessage());
+        }
+        long now = clock.getAsLong();
+        if (ep.ts <= 0 || ep.nonce.isEmpty()) throw reject("malformed", "invite has no ts/nonce");
+        if (ep.ts > now + skewS) throw reject("future", "invite ts is " + (ep.ts - now) + "s in the future");
+        if (now - ep.ts > windowS) throw reject("stale", "invite expired " + (now - ep.ts - windowS) + "s ago");
+
+        long expiry = ep.ts + windowS;
+        if (seen.size() >= capacity) {
+            sweep(now);
+            if (seen.size() >= capacity) throw reject("full", "too many outstanding invites, try again later");
+        }
+        Long prev = seen.putIfAbsent(ep.nonce, expiry);
+        // 同一 nonce 的旧记录已过期（清理还没轮到它）：换成新的过期时间；换失败说明别的线程刚用了它
+        if (prev != null && (prev >= now || !seen.replace(ep.nonce, prev, expiry)))
+            throw reject("replay", "invite already used");
+
+        long due = nextSweep.get();
+        if (now >= due && nextSweep.compareAndSet(due, now + Math.max(1, windowS / 4))) sweep(now);
+        RESULTS.inc("ok");
+        return ep;
+    }
+
+    /** 当前记着的 nonce 数 */
+    public int size(){ return seen.size(); }
+
+    private void sweep(long now){
+        seen.values().removeIf(exp -> exp < now);
+    }
+
+    private static IllegalArgumentException reject(String result, String why){
+        RESULTS.inc(result);
+        return new IllegalArgumentException("invite rejected: " + why);
+    }
+}
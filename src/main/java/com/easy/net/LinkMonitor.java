@@ -0,0 +1,119 @@
+package com.easy.net;
+
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 每个会话一个：给可重放帧（走子、GAME）编 seq，走子帧另记发送时刻，收到带同一 seq 的 ACK 时记一次 RTT；
+ * 链路空闲超过 pingIdleMs 时发 PING，对端原样回 PONG，同样计入 RTT。
+ * 同时记录已收到对端的最大 seq（lastSeen），断线重连补发时据此去重。seq 跨重连连续，新开会话时归零。
+ */
+public final class LinkMonitor {
+
+    @FunctionalInterface
+    public interface Sender { void send(JSONObject jo) throws IOException; }
+
+    private final Sender sender;
+    private final long pingIdleMs;
+    private final RttStats rtt = new RttStats();
+    private final AtomicInteger nextSeq = new AtomicInteger();
+    private final AtomicInteger lastSeen = new AtomicInteger();
+    private final AtomicInteger generation = new AtomicInteger(); // 每次 start 换代，旧 PING 线程自行退出
+    private final Map<Integer, Long> pending = new ConcurrentHashMap<>();
+    private volatile long lastSendNs = System.nanoTime();
+    private volatile boolean running;
+
+    public LinkMonitor(Sender sender, long pingIdleMs){
+        this.sender = sender;
+        this.pingIdleMs = pingIdleMs;
+    }
+
+    public RttStats rtt(){ return rtt; }
+
+    /** 走子类帧：MOVE / MOVE_FXFY / BATTLE fire */
+    public static boolean isMove(JSONObject jo){
+        String t = jo.optString("type", "");
+        return "MOVE".equals(t) || "MOVE_FXFY".equals(t) || ("BATTLE".equals(t) && "fire".equals(jo.optString("cmd", "")));
+    }
+
+    /** 可重放帧：走子 + GAME（断线重连时按 seq 补发） */
+    public static boolean isReplayable(JSONObject jo){
+        return isMove(jo) || "GAME".equals(jo.optString("type", ""));
+    }
+
+    /** 发送前调用：可重放帧补 seq，走子帧登记发送时刻；返回同一个对象 */
+    public JSONObject stamp(JSONObject jo){
+        lastSendNs = System.nanoTime();
+        if (isReplayable(jo) && !jo.has("seq")) {
+            int seq = nextSeq.incrementAndGet();
+            jo.put("seq", seq);
+            if (isMove(jo)) {
+                if (pending.size() > 1024) pending.clear(); // 对端从不回 ACK（老版本）时别无限增长
+                pending.put(seq, lastSendNs);
+            }
+        }
+        return jo;
+    }
+
+    /** 收到对端帧时调用：重复的可重放帧（seq 不大于 lastSeen）返回 false，调用方丢弃 */
+    public boolean acceptInbound(JSONObject jo){
+        if (!isReplayable(jo) || !jo.has("seq")) return true;
+        int seq = jo.getInt("seq");
+        while (true) {
+            int cur = lastSeen.get();
+            if (seq <= cur) return false;
+            if (lastSeen.compareAndSet(cur, seq)) return true;
+        }
+    }
+
+    /** 已收到的对端最大 seq */
+    public int lastSeen(){ return lastSeen.get(); }
+
+    /** 新开会话：两个方向的 seq 都从 0 开始 */
+    public void resetSession(){
+        nextSeq.set(0);
+        lastSeen.set(0);
+        pending.clear();
+    }
+
+    /** 收到 ACK */
+    public void onAck(JSONObject jo){
+        if (!jo.has("seq")) return; // 老对端的 ACK 不带 seq
+        Long t0 = pending.remove(jo.optInt("seq"));
+        if (t0 != null) rtt.record(System.nanoTime() - t0);
+    }
+
+    /** 收到 PING：原样回带时间戳的 PONG */
+    public void onPing(JSONObject jo) throws IOException {
+        sender.send(Proto.pong(jo.optLong("t")));
+    }
+
+    /** 收到 PONG：时间戳是自己发 PING 时的 nanoTime */
+    public void onPong(JSONObject jo){
+        if (jo.has("t")) rtt.record(System.nanoTime() - jo.getLong("t"));
+    }
+
+    /** 启动空闲 PING 线程 */
+    public void start(String name){
+        running = true;
+        final int gen = generation.incrementAndGet();
+        NetThreads.start(name, () -> {
+            while (running && gen == generation.get()) {
+                try { Thread.sleep(Math.max(100, pingIdleMs / 2)); } catch (InterruptedException e) { return; }
+                if (!running || gen != generation.get()) return;
+                if (System.nanoTime() - lastSendNs < pingIdleMs * 1_000_000L) continue;
+                try {
+                    sender.send(stamp(Proto.ping(System.nanoTime())));
+                } catch (IOException e) {
+                    running = false;
+                }
+            }
+        });
+    }
+
+    public void stop(){ running = false; pending.clear(); }
+}
@@ -0,0 +1,147 @@
+package com.easy.net;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 进程内回环传输：一对端点，和 Socket / {@link UdpLink} 一样对外只是 in() / out() / close()，
+ * NetServer、NetClient 的读循环和 Outbox 不用改就能跑在上面。
+ * <p>
+ * 每个方向一条无锁队列（ConcurrentLinkedQueue&lt;byte[]&gt;）：写端拷一份入队再 unpark 读线程，
+ * 读端队列空了就 park。不经过 socket、UPnP、邀请码，测试和基准在一个 JVM 里就能跑完整会话
+ * （HELLO、GAME select、MOVE、ACK），没有内核缓冲和网卡带来的抖动。
+ * <pre>
+ *   client.connectLoopback(server::acceptLoopback);
+ * </pre>
+ * 一端 close 后：对端读完队列里剩下的数据再读到 EOF，任一方向再写都抛 IOException（相当于 RST）。
+ */
+public final class Loopback {
+
+    private static final AtomicInteger IDS = new AtomicInteger();
+
+    private Loopback(){}
+
+    /** 新建一对互联的端点：[0] 给发起方，[1] 给接受方 */
+    public static End[] pair(){
+        int id = IDS.incrementAndGet();
+        Pipe ab = new Pipe(), ba = new Pipe();
+        return new End[]{ new End("loopback#" + id + "/a", ba, ab), new End("loopback#" + id + "/b", ab, ba) };
+    }
+
+    /** 单向管道：多写一读 */
+    private static final class Pipe {
+        final ConcurrentLinkedQueue<byte[]> q = new ConcurrentLinkedQueue<>();
+        volatile Thread reader;   // 正在 park 的读线程
+        volatile boolean closed;
+
+        void write(byte[] b, int off, int len) throws IOException {
+            if (closed) throw new IOException("loopback closed");
+            if (len == 0) return;
+            byte[] copy = new byte[len];
+            System.arraycopy(b, off, copy, 0, len);
+            q.offer(copy);
+            Thread t = reader;
+            if (t != null) LockSupport.unpark(t);
+        }
+
+        void close(){
+            closed = true;
+            Thread t = reader;
+            if (t != null) LockSupport.unpark(t);
+        }
+    }
+
+    public static final class End implements Closeable {
+        private final String name;
+        private final Pipe inbound, outbound;
+        private final InputStream in;
+        private final OutputStream out;
+
+        private End(String name, Pipe inbound, Pipe outbound){
+            this.name = name;
+            this.inbound = inbound;
+            this.outbound = outbound;
+            this.in = new In(inbound);
+            this.out = new OutputStream() {
+                @Override public void write(int b) throws IOException { write(new byte[]{ (byte) b }, 0, 1); }
+                @Override public void write(byte[] b, int off, int len) throws IOException { outbound.write(b, off, len); }
+                @Override public void close(){ End.this.close(); }
+            };
+        }
+
+        public InputStream in(){ return in; }
+        public OutputStream out(){ return out; }
+        public String name(){ return name; }
+        public boolean isClosed(){ return outbound.closed; }
+
+        @Override public void close(){
+            outbound.close();
+            inbound.close();
+        }
+
+        @Override public String toString(){ return name; }
+    }
+
+    private static final class In extends InputStream {
+        private final Pipe p;
+        private byte[] cur;
+        private int pos;
+
+        In(Pipe p){ this.p = p; }
+
+        @Override public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            if (!fill()) return -1;
+            int n = Math.min(len, cur.length - pos);
+            System.arraycopy(cur, pos, b, off, n);
+            pos += n;
+            // 顺手把已经到的后续块也拷进来，少几次唤醒
+            while (n < len) {
+                if (pos == cur.length) {
+                    byte[] next = p.q.poll();
+                    if (next == null) break;
+                    cur = next; pos = 0;
+                }
+                int k = Math.min(len - n, cur.length - pos);
+                System.arraycopy(cur, pos, b, off + n, k);
+                pos += k; n += k;
+            }
+            return n;
+        }
+
+        @Override public int available(){
+            return cur == null ? 0 : cur.length - pos;
+        }
+
+        /** 保证 cur 里有未读字节；对端关闭且读空返回 false */
+        private boolean fill() throws IOException {
+            while (cur == null || pos == cur.length) {
+                byte[] next = p.q.poll();
+                if (next != null) { cur = next; pos = 0; return true; }
+                if (p.closed) {
+                    // 看空队列和看 closed 之间对端可能刚 write 再 close：关闭前写的帧还得读出来
+                    next = p.q.poll();
+                    if (next != null) { cur = next; pos = 0; return true; }
+                    cur = null; return false;
+                }
+                p.reader = Thread.currentThread();
+                // 登记后再看一次：写端入队在前、读 reader 在后，两边至少有一方看得见对方
+                if (p.q.isEmpty() && !p.closed) LockSupport.park(p);
+                p.reader = null;
+                if (Thread.interrupted()) throw new InterruptedIOException("loopback read interrupted");
+            }
+            return true;
+        }
+    }
+}
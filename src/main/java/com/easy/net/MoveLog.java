@@ -0,0 +1,44 @@
+package com.easy.net;
+
+import org.json.JSONObject;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 本端发出的可重放帧（走子、GAME 选择/重置）按 seq 顺序留档，断线重连时只补发对端没收到的尾巴。
+ * 有容量上限，超出丢最旧的；要的尾巴已被丢弃时 {@link #tail} 返回 null（只能重开）。
+ */
+public final class MoveLog {
+
+    private final int capacity;
+    private final ArrayDeque<JSONObject> frames = new ArrayDeque<>();
+
+    public MoveLog(int capacity){ this.capacity = Math.max(16, capacity); }
+
+    public synchronized void append(JSONObject jo){
+        if (frames.size() == capacity) frames.pollFirst();
+        frames.addLast(jo);
+    }
+
+    /** seq 大于 afterSeq 的所有帧；留档不够旧（中间有缺口）返回 null */
+    public synchronized List<JSONObject> tail(int afterSeq){
+        List<JSONObject> res = new ArrayList<>();
+        JSONObject first = frames.peekFirst();
+        if (first != null && first.optInt("seq") > afterSeq + 1) return null;
+        // 从尾部往前找，重连通常只差几帧
+        var it = frames.descendingIterator();
+        while (it.hasNext()) {
+            JSONObject jo = it.next();
+            if (jo.optInt("seq") <= afterSeq) break;
+            res.add(jo);
+        }
+        java.util.Collections.reverse(res);
+        return res;
+    }
+
+    public synchronized int size(){ return frames.size(); }
+
+    public synchronized void clear(){ frames.clear(); }
+}
@@ -1,103 +1,306 @@
 package com.easy.net;
 
 import com.easy.ui.ConsoleSink;
+import com.easy.ui.ConsoleSink.Level;
 import com.easy.ui.MoveListener;
 import com.easy.ui.NetEventListener;
+import com.easy.util.Metrics;
 import org.json.JSONObject;
 
 import java.io.*;
 import java.net.*;
+import java.util.List;
 
 public class NetClient implements com.easy.ui.MoveSender {
     private final ConsoleSink log;
     private final MoveListener listener;
     private final NetEventListener events;
+    private final Dispatcher dispatcher;
+    private final LinkMonitor monitor = new LinkMonitor(this::send, 2000);
 
-    private Socket s;
-    private BufferedReader br;
-    private OutputStream out;
+    private volatile Closeable conn;  // 当前连接（Socket 或 UdpLink）
+    private Wire.Reader rd;
+    private volatile boolean preferUdp = true; // 邀请码声明了 UDP 时优先走 UDP
+    private volatile boolean udpFailed;        // UDP 握手失败过：本会话后续只走 TCP
+    private volatile boolean spectator;        // 只读观战：不发走子、不回 ACK、不续传
+    private volatile boolean encrypt = true;   // HELLO 里提供加密（房主也提供才启用；观战不加密）
+    private volatile boolean encrypted;
+    private volatile Outbox outbox;   // 当前连接的发送队列；断线期间为 null
+    private volatile boolean binary; // HELLO 协商结果：对端支持二进制帧
+    private volatile boolean closed;
+
+    // ===== 会话续传 =====
+    private InviteCodec.Endpoint ep;
+    private java.util.function.Consumer<Loopback.End> loopbackHost; // 非 null = 进程内回环（测试/基准）
+    private String sessionToken = "";          // 房主在 HELLO 里给的令牌
+    private String session = "";               // 连中转服务器时约定的局号，同一局号的两端配成一局
+    private volatile String seat = "";         // 中转服务器分的座位：host（先到，当房主）/ client；直连时为空
+    private final MoveLog moveLog = new MoveLog(4096);
+    private final Object sendLock = new Object(); // 留档 + 入队 与 续传补发 互斥，保证 seq 按序上线
+    private static final long[] RETRY_MS = { 0, 200, 500, 1000, 2000, 3000, 5000, 5000, 5000, 5000 };
 
     public NetClient(ConsoleSink log, MoveListener listener){ this(log, listener, null); }
     public NetClient(ConsoleSink log, MoveListener listener, NetEventListener events){
         this.log = log; this.listener = listener; this.events = events;
+        this.dispatcher = Dispatcher.forGame(listener, events, jo -> { if (!spectator) send(Proto.ack(jo.optInt("seq", -1))); })
+                .on("HELLO", jo -> {})
+                .on("ACK", monitor::onAck)
+                .on("PING", monitor::onPing)
+                .on("PONG", monitor::onPong)
+                .otherwise(jo -> log.log(Level.DEBUG, () -> "[CLIENT] recv: " + jo));
     }
 
+    /** 各消息 handler 的调用次数/耗时 */
+    public String dispatchStats(){ return dispatcher.stats(); }
+
     public void connect(String inviteCode) throws Exception {
-        InviteCodec.Endpoint ep = InviteCodec.parse(inviteCode==null? null : inviteCode.replaceAll("\\s+",""));
-        log.println("[CLIENT] 解析邀请码 -> " + ep.ip + ":" + ep.port);
-        s = new Socket();
-        s.setTcpNoDelay(true);
-        log.println("[CLIENT] connecting to " + ep.ip + ":" + ep.port + " ...");
-        s.connect(new InetSocketAddress(ep.ip, ep.port), 8000);
-        br = new BufferedReader(new InputStreamReader(s.getInputStream(),"UTF-8"));
-        out = s.getOutputStream();
-        log.println("[CLIENT] connected. local="+s.getLocalAddress()+":"+s.getLocalPort());
-
-        // 发送 HELLO
-        JSONObject hello = Proto.hello("client");
-        log.println("[CLIENT] sending HELLO: " + hello);
-        Proto.sendJSON(out, hello);
+        ep = InviteCodec.parse(inviteCode); // parse 自己去空白
+        log.println("[CLIENT] 解析邀请码 -> " + ep.ip + ":" + ep.port + (ep.udpPort > 0 ? " (udp " + ep.udpPort + ")" : ""));
+        open(false);
+        NetThreads.start("client-read-loop", this::loopRead);
+    }
+
+    /**
+     * 不走网络，直接和同进程里的房主配对（测试/基准）：{@code client.connectLoopback(server::acceptLoopback)}。
+     * 每次建连（含断线续传）新建一对 {@link Loopback} 端点，把房主那端交给 host。
+     */
+    public void connectLoopback(java.util.function.Consumer<Loopback.End> host) throws Exception {
+        loopbackHost = host;
+        open(false);
+        NetThreads.start("client-read-loop", this::loopRead);
+    }
+
+    /**
+     * 经中转服务器（{@link NioServer}）对局：连 host:port，按 {@link #setSession} 的局号配对。
+     * 先到的一端拿到 host 座位（见 {@link #seat}），界面据此当房主；断线后照常带令牌续传，回到原座位。
+     */
+    public void connectHub(String host, int port) throws Exception {
+        ep = new InviteCodec.Endpoint(host, port, 0, 0, "");
+        log.println("[CLIENT] 连接中转服务器 " + host + ":" + port + (session.isEmpty() ? "（按到达顺序配对）" : "，局号 " + session));
+        open(false);
+        NetThreads.start("client-read-loop", this::loopRead);
+    }
+
+    /** 在 connect 之前调用：经中转服务器（{@link NioServer}）对局时的局号；空 = 按到达顺序配对 */
+    public void setSession(String id){ session = id == null ? "" : id; }
+
+    /** 中转服务器分的座位："host" / "client"；直连房主时为空 */
+    public String seat(){ return seat; }
+
+    /** 经中转对局且坐在 host 座位：这一端当房主（选棋、以本端局面为准） */
+    public boolean isHostSeat(){ return "host".equals(seat); }
+
+    /** 在 connect 之前调用：false 时即使邀请码声明了 UDP 也走 TCP */
+    public void setPreferUdp(boolean v){ preferUdp = v; }
+
+    /** 在 connect 之前调用：false 时不提供加密，整条连接走明文 */
+    public void setEncrypt(boolean on){ encrypt = on; }
+
+    /** 当前连接是否已加密 */
+    public boolean isEncrypted(){ return encrypted; }
+
+    /** 在 connect 之前调用：以观战者身份加入（房主把双方走子都推过来，帧里 "by" 0=房主 1=客户端） */
+    public void setSpectator(boolean v){ spectator = v; }
+
+    /** 当前连接是否走 UDP */
+    public boolean isUdp(){ return conn instanceof UdpLink; }
+
+    /** 建连 + HELLO 交换；resume=true 时出示令牌并补发对方没收到的帧 */
+    private void open(boolean resume) throws Exception {
+        if (preferUdp && !udpFailed && !spectator && loopbackHost == null && ep.udpPort > 0) { // 观战只走 TCP
+            try {
+                open(resume, true);
+                return;
+            } catch (Exception e) {
+                udpFailed = true;
+                log.println("[CLIENT] UDP 不通（" + e.getMessage() + "），改用 TCP");
+            }
+        }
+        open(resume, false);
+    }
+
+    private void open(boolean resume, boolean viaUdp) throws Exception {
+        long t0 = System.nanoTime();
+        InputStream in; OutputStream out; Closeable c;
+        if (loopbackHost != null) {
+            Loopback.End[] p = Loopback.pair();
+            log.println("[CLIENT] connecting via " + p[0].name() + " ...");
+            loopbackHost.accept(p[1]);
+            in = p[0].in(); out = p[0].out(); c = p[0];
+        } else if (viaUdp) {
+            log.println("[CLIENT] connecting to " + ep.ip + ":" + ep.udpPort + "/udp ...");
+            UdpLink link = UdpLink.connect(new InetSocketAddress(ep.ip, ep.udpPort));
+            link.setIdleTimeoutMs(3000); // 握手阶段收不到回应就尽快退回 TCP
+            in = link.in(); out = link.out(); c = link;
+        } else {
+            Socket sock = new Socket();
+            sock.setTcpNoDelay(true);
+            log.println("[CLIENT] connecting to " + ep.ip + ":" + ep.port + " ...");
+            sock.connect(new InetSocketAddress(ep.ip, ep.port), 8000);
+            log.println("[CLIENT] connected. local="+sock.getLocalAddress()+":"+sock.getLocalPort());
+            in = sock.getInputStream(); out = sock.getOutputStream(); c = sock;
+        }
+        conn = c;
+        rd = new Wire.Reader(in);
+        binary = false;
+        Outbox ob = new Outbox(out, "client-writer", Outbox.DEFAULT_CAPACITY, () -> {
+            try { c.close(); } catch (Exception ignore) {}
+        });
+
+        // 发送 HELLO（续传时带令牌与已收到的最大 seq）
+        // 中转服务器按 session 归座：首连用约定的局号，续传用它上次分配的（匿名配对时是 anon-N）
+        String sid = resume && !sessionToken.isEmpty() ? sessionToken : session;
+        JSONObject hello = sid.isEmpty() ? Proto.hello(spectator ? "spectator" : "client") : Proto.hello(spectator ? "spectator" : "client", sid);
+        SecureChannel.Handshake hs = null;
+        if (encrypt && !spectator) {
+            try { hs = new SecureChannel.Handshake(); }
+            catch (java.security.GeneralSecurityException e) { log.println(Level.WARN, "[CLIENT] 本机不支持 X25519，本连接不加密: " + e.getMessage()); }
+        }
+        SecureChannel.offer(hello, hs);
+        if (resume && !sessionToken.isEmpty()) hello.put("resume", sessionToken).put("lastSeen", monitor.lastSeen());
+        log.log(Level.DEBUG, () -> "[CLIENT] sending HELLO: " + hello);
+        ob.send(Wire.encodeOut(hello, false));
 
         // 读对端 HELLO
+        JSONObject h;
         try {
-            JSONObject h = Proto.readJSON(br);
-            log.println("[CLIENT] HELLO read: " + h);
+            h = rd.read();
+            if (log.isEnabled(Level.DEBUG)) log.println(Level.DEBUG, "[CLIENT] HELLO read: " + h);
         } catch (Exception ex){
-            log.println("[CLIENT] HELLO read error: " + ex);
+            log.println(Level.WARN, "[CLIENT] HELLO read error: " + ex);
+            h = null;
         }
+        if (h == null && (resume || viaUdp)) {
+            ob.close();
+            try { c.close(); } catch (Exception ignore) {}
+            throw new IOException(resume ? "续传握手失败" : "握手无回应");
+        }
+        if (h != null && !"HELLO".equals(h.optString("type"))) {   // 中转服务器回 HUB full：座位还被旧连接占着，稍后再试
+            ob.close();
+            try { c.close(); } catch (Exception ignore) {}
+            throw new IOException("对端拒绝: " + h);
+        }
+        if (c instanceof UdpLink link) link.setIdleTimeoutMs(10_000); // 空闲 PING 每 2s 一次，10s 无包算断线
+        binary = Wire.peerSupportsBinary(h);
+        SecureChannel sc = null;
+        if (hs != null && SecureChannel.offered(h)) {
+            try {
+                sc = hs.complete(h.getString("pub"), false);
+            } catch (java.security.GeneralSecurityException e) {
+                ob.close();
+                try { c.close(); } catch (Exception ignore) {}
+                throw new IOException("密钥协商失败: " + e.getMessage(), e);
+            }
+            rd.decryptWith(sc.opener());
+            ob.sealWith(sc.sealer());   // HELLO 之后入队的帧（含续传补发）全部加密
+        }
+        encrypted = sc != null;
+        log.println("[CLIENT] 线路编码: " + (binary ? "binary v" + Wire.BIN_VERSION : "json") + (encrypted ? "，" + SecureChannel.SUITE + " 加密" : "，明文"));
 
-        new Thread(this::loopRead, "client-read-loop").start();
+        String token = h == null ? "" : h.optString("session", "");
+        seat = h == null ? "" : h.optString("seat", "");
+        synchronized (sendLock) {
+            List<JSONObject> tail = null;
+            if (resume && !token.isEmpty() && token.equals(sessionToken)) {
+                tail = moveLog.tail(h.optInt("lastSeen", 0));
+                if (tail == null) log.println("[CLIENT] 留档不足，无法续传");
+            } else if (resume) {
+                log.println("[CLIENT] 房主会话已变化，无法续传，按新会话处理");
+            }
+            if (tail == null) {
+                moveLog.clear();
+                monitor.resetSession();
+            } else {
+                for (JSONObject f : tail) ob.send(Wire.encodeOut(f, binary));
+                log.println(String.format("[CLIENT] 会话已恢复：补发 %d 帧，用时 %.2f ms", tail.size(), (System.nanoTime() - t0) / 1e6));
+            }
+            sessionToken = token;
+            outbox = ob;
+        }
+        Metrics.CONN_ACCEPTED.inc("client");
+        if (!spectator) monitor.start("client-ping");
     }
 
     private void loopRead(){
-        try {
-            log.println("[CLIENT] entering read loop...");
-            JSONObject jo;
-            while ((jo = Proto.readJSON(br)) != null){
-                String t = jo.optString("type","");
-                if ("MOVE".equals(t)){
-                    if (jo.has("fx")){
-                        int fx=jo.getInt("fx"), fy=jo.getInt("fy");
-                        int x=jo.getInt("x"), y=jo.getInt("y");
-                        if (listener instanceof com.easy.ui.BoardCanvas canvas){
-                            canvas.onOpponentMoveFxFy(fx,fy,x,y);
-                        }
-                    }else{
-                        listener.onOpponentMove(jo.getInt("x"), jo.getInt("y"));
-                    }
-                } else if ("GAME".equals(t)){
-                    String cmd = jo.optString("cmd","");
-                    if ("select".equals(cmd) && events!=null){
-                        events.onGameSelected(com.easy.game.GameType.from(jo.getString("game")), jo.optString("starter","host"));
-                    } else if ("suggest".equals(cmd) && events!=null){
-                        events.onGameSuggested(com.easy.game.GameType.from(jo.getString("game")));
-                    }
-                } else if ("BATTLE".equals(t)){
-                    String cmd = jo.optString("cmd","");
-                    if ("fire".equals(cmd)){
-                        int x=jo.getInt("x"), y=jo.getInt("y");
-                        listener.onOpponentMove(x,y); // 对方打我
-                    }
-                } else if ("HELLO".equals(t)){
-                    // ignore
-                } else {
-                    log.println("[CLIENT] recv: " + jo);
+        while (!closed) {
+            try {
+                log.println("[CLIENT] entering read loop...");
+                JSONObject jo;
+                while ((jo = rd.read()) != null){
+                    if (!spectator && !monitor.acceptInbound(jo)) continue; // 续传时的重复帧
+                    dispatcher.dispatch(jo);
                 }
+                log.println("[CLIENT] read loop end, connection closed.");
+            } catch (Exception e){
+                if (!closed) log.println(Level.WARN, "[CLIENT] read error: " + e.getMessage());
+            } finally {
+                monitor.stop();
+                Outbox ob = outbox;
+                outbox = null;
+                if (ob!=null) ob.close();
+                try { Closeable c = conn; if (c!=null) c.close(); } catch (Exception ignore) {}
+                Metrics.CONN_CLOSED.inc("client");
+            }
+            if (closed || spectator || sessionToken.isEmpty() || !reconnect()) break;
+        }
+    }
+
+    /** 断线后按退避重试续传；成功返回 true */
+    private boolean reconnect(){
+        for (long wait : RETRY_MS) {
+            if (closed) return false;
+            try { if (wait > 0) Thread.sleep(wait); } catch (InterruptedException e) { return false; }
+            try {
+                log.println("[CLIENT] 尝试续传会话 " + sessionToken + " …");
+                open(true);
+                return true;
+            } catch (Exception e) {
+                log.println("[CLIENT] 重连失败: " + e.getMessage());
             }
-            log.println("[CLIENT] read loop end, connection closed.");
-        } catch (Exception e){
-            log.println("[CLIENT] read error: " + e.getMessage());
         }
+        log.println("[CLIENT] 放弃重连，请重新输入邀请码。");
+        return false;
+    }
+
+    /** 只断当前连接，随后照常续传（测试用，模拟掉线） */
+    void dropConnection(){
+        try { Closeable c = conn; if (c!=null) c.close(); } catch (Exception ignore) {}
     }
 
+    /** 主动断开（不再重连） */
+    public void close(){
+        closed = true;
+        try { Closeable c = conn; if (c!=null) c.close(); } catch (Exception ignore) {}
+    }
+
+    /** 非阻塞：只入发送队列，由 client-writer 线程写出 */
     public void sendJson(JSONObject jo) throws IOException {
-        if (out==null) throw new IOException("尚未连接");
-        Proto.sendJSON(out, jo);
+        send(jo);
     }
 
     @Override
     public void sendMove(int x,int y,int turn,String hash) throws IOException {
-        if (out==null) throw new IOException("尚未连接");
-        Proto.sendJSON(out, Proto.move(x,y,turn,hash));
+        send(Proto.move(x,y,turn,hash));
     }
+
+    private void send(JSONObject jo) throws IOException {
+        if (spectator) throw new IOException("观战模式只读");
+        synchronized (sendLock) {
+            monitor.stamp(jo);
+            if (LinkMonitor.isReplayable(jo)) moveLog.append(jo);
+            Outbox ob = outbox;
+            if (ob==null) {
+                // 断线期间的走子只留档，重连后补发
+                if (LinkMonitor.isReplayable(jo) && !closed && !sessionToken.isEmpty()) return;
+                throw new IOException("尚未连接");
+            }
+            ob.send(Wire.encodeOut(jo, binary));
+        }
+    }
+
+    /** 本连接的往返时延统计（走子 ACK + 空闲 PING） */
+    public RttStats rtt(){ return monitor.rtt(); }
+
+    /** 发送队列积压帧数 */
+    public int pendingFrames(){ Outbox ob = outbox; return ob==null ? 0 : ob.depth(); }
 }
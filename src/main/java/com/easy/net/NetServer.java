@@ -1,13 +1,20 @@
 package com.easy.net;
 
 import com.easy.ui.ConsoleSink;
+import com.easy.ui.ConsoleSink.Level;
 import com.easy.ui.MoveListener;
 import com.easy.ui.NetEventListener;
+import com.easy.util.Metrics;
 import org.json.JSONObject;
 
 import java.io.*;
 import java.net.*;
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.nio.channels.DatagramChannel;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
 
 public class NetServer implements com.easy.ui.MoveSender {
 
@@ -15,15 +22,33 @@ public class NetServer implements com.easy.ui.MoveSender {
     private final ConsoleSink log;
     private final MoveListener listener;
     private final NetEventListener events;
+    private final Dispatcher dispatcher;
+    private final LinkMonitor monitor = new LinkMonitor(this::send, 2000);
 
-    private ServerSocket ss;
-    private Socket s;
-    private BufferedReader br;
-    private OutputStream out;
+    private ServerSocketChannel ss;   // 用通道接入：观战连接握手后转非阻塞交给 Broadcaster
+    private DatagramChannel udp;      // 可选 UDP 传输，与 TCP 同端口
+    private UdpLink.Listener udpListener; // udp 上唯一的收包线程，按来源地址分给各条链路
+    private volatile boolean udpEnabled;
+    private volatile Closeable conn;  // 当前对端连接（Socket 或 UdpLink）
+    private final ReentrantLock serveLock = new ReentrantLock(); // 同一时刻只服务一个对端（不用 monitor：读循环里持锁会钉住虚拟线程）
+    private final Broadcaster spectators;
+    private Wire.Reader rd;
+    private volatile Outbox outbox;   // 当前连接的发送队列；断线期间为 null
+    private volatile boolean binary; // HELLO 协商结果：对端支持二进制帧
+    private volatile boolean encrypt = true;       // HELLO 里提供加密（对端也提供才启用）
+    private volatile boolean encrypted;            // 当前连接是否已加密
+    private SecureChannel.Handshake handshake;     // 本连接的临时密钥对，收到对方 HELLO 后用掉
+    private volatile boolean closed;
+
+    // ===== 会话续传 =====
+    private final String sessionToken = java.util.UUID.randomUUID().toString().replace("-", "").substring(0, 16);
+    private final MoveLog moveLog = new MoveLog(4096);
+    private final Object sendLock = new Object(); // 留档 + 入队 与 续传补发 互斥，保证 seq 按序上线
+    private volatile boolean handshaking;          // 收到对方 HELLO 之前，走子帧只留档
 
     // ===== UPnP 开关与状态 =====
-    private volatile boolean upnpEnabled = true;  // 默认启用（由 UI 切公网时打开）
-    private volatile boolean upnpMapped  = false; // 是否已映射成功
+    private volatile boolean upnpEnabled = false; // 由 UI 切公网时打开
+    private volatile boolean upnpMapped  = false; // 是否已发出映射（在途也算，关的时候要回收）
     private volatile int     mappedPort  = -1;
 
     public NetServer(int port, ConsoleSink log, MoveListener listener, NetEventListener events){
@@ -31,11 +56,23 @@ public class NetServer implements com.easy.ui.MoveSender {
         this.log = log;
         this.listener = listener;
         this.events = events;
+        this.spectators = new Broadcaster(log::println);
+        this.dispatcher = Dispatcher.forGame(listener, events, jo -> send(Proto.ack(jo.optInt("seq", -1))))
+                .on("HELLO", this::onHello)
+                .on("ACK", monitor::onAck)
+                .on("PING", monitor::onPing)
+                .on("PONG", monitor::onPong);
     }
 
+    /** 各消息 handler 的调用次数/耗时 */
+    public String dispatchStats(){ return dispatcher.stats(); }
+
+    /** 本局会话令牌（写进 HELLO，客户端断线重连时出示） */
+    public String sessionToken(){ return sessionToken; }
+
     public void start() throws IOException {
-        ss = new ServerSocket();
-        ss.setReuseAddress(true);
+        ss = ServerSocketChannel.open();
+        ss.setOption(StandardSocketOptions.SO_REUSEADDR, true);
         ss.bind(new InetSocketAddress(port));
         log.println("服务器监听端口: " + port + "，等待客户端连接…");
 
@@ -44,28 +81,225 @@ public class NetServer implements com.easy.ui.MoveSender {
             tryOpenUpnp(port);
         }
 
-        new Thread(this::acceptLoop, "server-accept").start();
+        if (udpEnabled) {
+            udp = DatagramChannel.open();
+            udp.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            udp.bind(new InetSocketAddress(port));
+            udpListener = new UdpLink.Listener(udp);
+            log.println("UDP 传输已开启: " + port + "/UDP");
+            NetThreads.start("server-udp-accept", this::udpAcceptLoop);
+        }
+
+        NetThreads.start("server-accept", this::acceptLoop);
     }
 
+    /** 在 start() 之前调用：同端口再收 UDP（见 {@link UdpLink}），邀请码里随之声明 */
+    public void setUdpEnabled(boolean enabled){ this.udpEnabled = enabled; }
+
+    public boolean isUdpEnabled(){ return udpEnabled; }
+
+    /** 连接断开后不关服务器：会话保留，继续等客户端带令牌重连；观战者随时可以进来 */
     private void acceptLoop() {
         try {
-            s = ss.accept();
-            log.println("客户端已连接: " + s.getRemoteSocketAddress());
-            s.setTcpNoDelay(true);
+            while (!closed) {
+                SocketChannel ch = ss.accept();
+                NetThreads.start("server-conn", () -> onAccepted(ch));
+            }
+        } catch (Exception e) {
+            if (!closed) log.println(Level.ERROR, "服务器异常: " + e.getMessage());
+        } finally {
+            close();
+        }
+    }
+
+    /** 先读对方 HELLO 看角色：spectator 进广播，其余按棋手服务 */
+    private void onAccepted(SocketChannel ch) {
+        Socket sock = ch.socket();
+        String remote = String.valueOf(sock.getRemoteSocketAddress());
+        try {
+            sock.setTcpNoDelay(true);
+            sock.setSoTimeout(10_000);
+            Wire.Reader r = new Wire.Reader(sock.getInputStream());
+            JSONObject first = r.read();
+            sock.setSoTimeout(0);
+            if (first != null && "spectator".equals(first.optString("role", ""))) {
+                spectate(ch, first, remote);
+                return;
+            }
+            serve(r, sock.getOutputStream(), sock, remote, first);
+            if (!closed) log.println("[SERVER] 连接断开，会话保留（已留档 " + moveLog.size() + " 帧），等待客户端重连…");
+        } catch (Exception e) {
+            if (!closed) log.println("[SERVER] 握手失败 " + remote + ": " + e.getMessage());
+            try { sock.close(); } catch (Exception ignore) {}
+        }
+    }
+
+    /** 和 TCP 一样每条链路一个线程：旧链路还在服务时，续传的新链路照样能进 serve 接管 */
+    private void udpAcceptLoop() {
+        try {
+            while (!closed) {
+                UdpLink link = udpListener.accept(1000);
+                if (link != null) NetThreads.start("server-conn", () -> onUdpAccepted(link));
+            }
+        } catch (Exception e) {
+            if (!closed) log.println("UDP 监听异常: " + e.getMessage());
+        }
+    }
+
+    private void onUdpAccepted(UdpLink link) {
+        String remote = "udp:" + link.peer();
+        try {
+            Wire.Reader r = new Wire.Reader(link.in());
+            JSONObject first = r.read();
+            if (first != null && "spectator".equals(first.optString("role", ""))) {
+                log.println("[SERVER] 观战只支持 TCP，拒绝 " + remote);
+                link.close();
+                return;
+            }
+            serve(r, link.out(), link, remote, first);
+            if (!closed) log.println("[SERVER] UDP 连接断开，会话保留（已留档 " + moveLog.size() + " 帧），等待客户端重连…");
+        } catch (Exception e) {
+            if (!closed) log.println("[SERVER] 握手失败 " + remote + ": " + e.getMessage());
+            link.close();
+        }
+    }
+
+    /**
+     * 进程内接入（测试/基准）：和 TCP 接入走同一套握手、续传、ACK，只是不经过 socket。
+     * 用法：{@code client.connectLoopback(server::acceptLoopback)}；不需要先 start()。
+     */
+    public void acceptLoopback(Loopback.End end) {
+        NetThreads.start("server-conn", () -> {
+            try {
+                Wire.Reader r = new Wire.Reader(end.in());
+                JSONObject first = r.read();
+                if (first != null && "spectator".equals(first.optString("role", ""))) {
+                    log.println("[SERVER] 观战只支持 TCP，拒绝 " + end.name());
+                    end.close();
+                    return;
+                }
+                serve(r, end.out(), end, end.name(), first);
+                if (!closed) log.println("[SERVER] 连接断开，会话保留（已留档 " + moveLog.size() + " 帧），等待客户端重连…");
+            } catch (Exception e) {
+                if (!closed) log.println("[SERVER] 握手失败 " + end.name() + ": " + e.getMessage());
+                end.close();
+            }
+        });
+    }
+
+    /** 观战者：回 HELLO 后整条连接交给 Broadcaster 的扇出线程，本线程结束 */
+    private void spectate(SocketChannel ch, JSONObject hello, String remote) throws IOException {
+        Wire.write(ch.socket().getOutputStream(), Proto.hello("server").put("session", sessionToken), false);
+        spectators.add(remote, Wire.peerSupportsBinary(hello), ch);
+    }
+
+    /**
+     * 已有对端在线时不排队：出示本局令牌的（客户端续传，而服务端还没发现旧连接已经半开）关掉旧连接接管，
+     * 其余直接拒绝。
+     */
+    private void serve(Wire.Reader r, OutputStream out, Closeable c, String remote, JSONObject first) {
+        if (!serveLock.tryLock()) {
+            if (first == null || !sessionToken.equals(first.optString("resume", ""))) {
+                log.println("[SERVER] 已有对端在线，拒绝 " + remote);
+                try { c.close(); } catch (Exception ignore) {}
+                return;
+            }
+            log.println("[SERVER] " + remote + " 出示令牌续传，关闭旧连接接管");
+            try { Closeable old = conn; if (old != null) old.close(); } catch (Exception ignore) {}
+            try {
+                if (!serveLock.tryLock(5, TimeUnit.SECONDS)) {
+                    log.println("[SERVER] 旧连接未能释放，拒绝 " + remote);
+                    try { c.close(); } catch (Exception ignore) {}
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                try { c.close(); } catch (Exception ignore) {}
+                return;
+            }
+        }
+        try {
+            if (!closed) serveLocked(r, out, c, remote, first);
+            else try { c.close(); } catch (Exception ignore) {}
+        } finally {
+            serveLock.unlock();
+        }
+    }
 
-            out = s.getOutputStream();
-            br  = new BufferedReader(new InputStreamReader(s.getInputStream(), "UTF-8"));
+    private void serveLocked(Wire.Reader r, OutputStream out, Closeable c, String remote, JSONObject first) {
+        Metrics.CONN_ACCEPTED.inc("server");
+        try {
+            conn = c;
+            log.println("客户端已连接: " + remote);
 
-            // 先发 HELLO
-            Proto.sendJSON(out, Proto.hello("server"));
+            rd  = r;
+            binary = false;
+            encrypted = false;
+            handshaking = true;
+            handshake = null;
+            if (encrypt) {
+                try { handshake = new SecureChannel.Handshake(); }
+                catch (java.security.GeneralSecurityException e) { log.println(Level.WARN, "[SERVER] 本机不支持 X25519，本连接不加密: " + e.getMessage()); }
+            }
+            outbox = new Outbox(out, "server-writer", Outbox.DEFAULT_CAPACITY, () -> {
+                try { c.close(); } catch (Exception ignore) {}
+            });
+
+            // 先发 HELLO（带会话令牌与已收到的最大 seq，供对方续传）
+            send(SecureChannel.offer(Proto.hello("server").put("session", sessionToken).put("lastSeen", monitor.lastSeen()), handshake));
             log.println("[SERVER] HELLO sent.");
+            monitor.start("server-ping");
+
+            // 角色判断时已读出的第一帧（通常是对方 HELLO）
+            if (first != null) onInbound(first);
 
             // 读循环
             readLoop();
         } catch (Exception e) {
-            log.println("服务器异常: " + e.getMessage());
+            log.println(Level.ERROR, "服务器异常: " + e.getMessage());
         } finally {
-            close();
+            monitor.stop();
+            Outbox ob = outbox;
+            outbox = null;
+            if (ob != null) ob.close();
+            try { c.close(); } catch (Exception ignore) {}
+            Metrics.CONN_CLOSED.inc("server");
+        }
+    }
+
+    private void onHello(JSONObject jo) throws IOException {
+        binary = Wire.peerSupportsBinary(jo);
+        SecureChannel.Handshake hs = handshake;
+        handshake = null;
+        SecureChannel sc = null;
+        if (hs != null && SecureChannel.offered(jo)) {
+            try { sc = hs.complete(jo.getString("pub"), true); }
+            catch (java.security.GeneralSecurityException e) { throw new IOException("密钥协商失败: " + e.getMessage(), e); }
+        }
+        encrypted = sc != null;
+        log.println("[SERVER] 线路编码: " + (binary ? "binary v" + Wire.BIN_VERSION : "json") + (encrypted ? "，" + SecureChannel.SUITE + " 加密" : "，明文"));
+        long t0 = System.nanoTime();
+        synchronized (sendLock) {
+            handshaking = false;
+            if (sc != null) {           // 读写两个方向都从这里切换：onHello 跑在读线程上
+                rd.decryptWith(sc.opener());
+                outbox.sealWith(sc.sealer());
+            }
+            if (sessionToken.equals(jo.optString("resume", ""))) {
+                // 续传：只补发对方没收到的尾巴
+                List<JSONObject> tail = moveLog.tail(jo.optInt("lastSeen", 0));
+                if (tail != null) {
+                    for (JSONObject f : tail) outbox.send(Wire.encodeOut(f, binary));
+                    log.println(String.format("[SERVER] 会话已恢复：补发 %d 帧，用时 %.2f ms", tail.size(), (System.nanoTime() - t0) / 1e6));
+                    return;
+                }
+                log.println("[SERVER] 留档不足，无法续传，按新会话处理");
+            }
+            // 新会话：令牌不变也没关系，两个方向 seq 都归零
+            if (monitor.lastSeen() > 0 || moveLog.size() > 0) {
+                moveLog.clear();
+                monitor.resetSession();
+            }
         }
     }
 
@@ -73,114 +307,116 @@ public class NetServer implements com.easy.ui.MoveSender {
         try {
             log.println("[SERVER] entering read loop...");
             JSONObject jo;
-            while ((jo = Proto.readJSON(br)) != null) {
-                String t = jo.optString("type", "");
-                log.println("[SERVER] received: " + jo.toString());
-
-                if ("HELLO".equals(t)) {
-                    // ignore
-                } else if ("MOVE".equals(t)) {
-                    int x = jo.optInt("x"), y = jo.optInt("y");
-                    if (listener != null) listener.onOpponentMove(x, y);
-                    // 回 ACK
-                    Proto.sendJSON(out, Proto.ack());
-                } else if ("MOVE_FXFY".equals(t)) {
-                    int fx = jo.optInt("fx"), fy = jo.optInt("fy");
-                    int tx = jo.optInt("x"),  ty = jo.optInt("y");
-                    if (listener instanceof com.easy.ui.BoardCanvas bc) {
-                        bc.onOpponentMoveFxFy(fx, fy, tx, ty);
-                    } else if (listener != null) {
-                        // 退化为单点
-                        listener.onOpponentMove(tx, ty);
-                    }
-                    Proto.sendJSON(out, Proto.ack());
-                } else if ("GAME".equals(t)) {
-                    String cmd = jo.optString("cmd", "");
-                    String g   = jo.optString("game", "GOMOKU");
-                    String starter = jo.optString("starter", "host");
-                    if ("select".equals(cmd)) {
-                        if (events != null) events.onGameSelected(com.easy.game.GameType.from(g), starter);
-                    } else if ("suggest".equals(cmd)) {
-                        if (events != null) events.onGameSuggested(com.easy.game.GameType.from(g));
-                    } else if ("reset".equals(cmd)) {
-                        // 如果你要“重开当前棋局”，这里触发 UI 重置
-                        if (events != null) events.onGameSelected(com.easy.game.GameType.from(g), "host");
-                    }
-                }
+            while ((jo = rd.read()) != null) {
+                if (log.isEnabled(Level.DEBUG)) log.println(Level.DEBUG, "[SERVER] received: " + jo);
+                onInbound(jo);
             }
             log.println("[SERVER] read loop end, peer closed.");
         } catch (SocketTimeoutException e) {
             log.println("[SERVER] read timeout: " + e.getMessage());
         } catch (Exception e) {
-            log.println("[SERVER] read error: " + e.getMessage());
+            if (!closed) log.println(Level.WARN, "[SERVER] read error: " + e.getMessage());
         }
     }
 
+    private void onInbound(JSONObject jo) throws Exception {
+        if (!monitor.acceptInbound(jo)) return; // 续传时的重复帧
+        if (LinkMonitor.isReplayable(jo)) spectators.publish(jo, Broadcaster.BY_CLIENT);
+        dispatcher.dispatch(jo);
+    }
+
     // ====== 供 UI/外部调用 ======
+    /** 非阻塞：只入发送队列，由 server-writer 线程写出 */
     public void sendJson(JSONObject jo) throws IOException {
-        if (out == null) throw new IOException("尚未建立连接");
-        Proto.sendJSON(out, jo);
+        send(jo);
     }
 
     @Override
     public void sendMove(int x, int y, int turn, String hash) throws IOException {
-        if (out == null) throw new IOException("尚未建立连接");
-        Proto.sendJSON(out, Proto.move(x, y, turn, hash));
+        send(Proto.move(x, y, turn, hash));
     }
 
+    private void send(JSONObject jo) throws IOException {
+        synchronized (sendLock) {
+            monitor.stamp(jo);
+            boolean replayable = LinkMonitor.isReplayable(jo);
+            if (replayable) {
+                moveLog.append(jo);
+                spectators.publish(jo, Broadcaster.BY_HOST);
+            }
+            Outbox ob = outbox;
+            if (ob == null || (replayable && handshaking)) {
+                // 断线/握手期间的走子只留档，续传时补发
+                if (replayable && !closed) return;
+                throw new IOException("尚未建立连接");
+            }
+            ob.send(Wire.encodeOut(jo, binary));
+        }
+    }
+
+    /** 本连接的往返时延统计（走子 ACK + 空闲 PING） */
+    public RttStats rtt(){ return monitor.rtt(); }
+
+    /** 观战广播（人数、广播/丢弃统计） */
+    public Broadcaster spectators(){ return spectators; }
+
+    /** 发送队列积压帧数 */
+    public int pendingFrames(){ Outbox ob = outbox; return ob == null ? 0 : ob.depth(); }
+
     public void close() {
-        try { if (br != null)  br.close(); } catch (Exception ignore) {}
-        try { if (out != null) out.close(); } catch (Exception ignore) {}
-        try { if (s != null)    s.close(); } catch (Exception ignore) {}
+        if (closed) return;
+        closed = true;
+        Closeable c = conn;
+        try { if (c instanceof Socket sk) sk.shutdownInput(); } catch (Exception ignore) {}
+        Outbox ob = outbox;
+        if (ob != null) ob.close();
+        try { if (c != null)   c.close(); } catch (Exception ignore) {}
         try { if (ss != null)  ss.close(); } catch (Exception ignore) {}
+        if (udpListener != null) udpListener.close();
+        try { if (udp != null) udp.close(); } catch (Exception ignore) {}
+        spectators.close();
         closeUpnpIfAny();
         log.println("服务器已关闭");
     }
 
     // ===== UPnP 相关 =====
 
+    /** 是否在 HELLO 里提供加密（默认开；只影响之后的连接） */
+    public void setEncrypt(boolean on){ encrypt = on; }
+
+    /** 当前连接是否已加密 */
+    public boolean isEncrypted(){ return encrypted; }
+
     /** UI 可调用：打开/关闭 UPnP 功能（仅影响后续 start/映射行为） */
     public void setUpnpEnabled(boolean enabled) {
         this.upnpEnabled = enabled;
         log.println("UPnP 已" + (enabled ? "启用" : "关闭"));
     }
 
-    /** UI 可调用：显式撤销映射（或在 close() 时自动调用） */
+    /** UI 可调用：显式撤销映射（或在 close() 时自动调用）；删除在 UPnP 线程上排在映射之后执行 */
     public void closeUpnpIfAny() {
         if (!upnpMapped) return;
-        try {
-            // 如果存在 simtechdata 的库，优先使用
-            Class<?> cls = Class.forName("com.simtechdata.waifupnp.UPnP");
-            // closePortTCP(int)
-            cls.getMethod("closePortTCP", int.class).invoke(null, mappedPort);
-            log.println("已回收 UPnP 端口映射: " + mappedPort);
-        } catch (ClassNotFoundException cnf) {
-            // 没有库就忽略（或者在这里接入你自己的 miniupnp）
-            log.println("未检测到 waifupnp 库，跳过回收映射（可忽略）。");
-        } catch (Exception e) {
-            log.println("回收 UPnP 端口映射失败: " + e.getMessage());
-        } finally {
-            upnpMapped = false;
-            mappedPort = -1;
-        }
+        int p = mappedPort;
+        upnpMapped = false;
+        mappedPort = -1;
+        UpnpHelper.closeTcp(p);
+        if (udpEnabled) UpnpHelper.closeUdp(p);
+        log.println("已回收 UPnP 端口映射: " + p);
     }
 
-    /** 根据端口尝试建立 UPnP 映射（库可选存在） */
+    /** 后台建立 UPnP 映射，不挡 start()：网关通常已在启动时找好，结果到了再打日志 */
     private void tryOpenUpnp(int port) {
-        try {
-            Class<?> cls = Class.forName("com.simtechdata.waifupnp.UPnP");
-            boolean ok = (boolean) cls.getMethod("openPortTCP", int.class).invoke(null, port);
-            if (ok) {
-                upnpMapped = true;
-                mappedPort = port;
-                log.println("UPnP 端口映射成功: " + port + "/TCP");
-            } else {
-                log.println("UPnP 端口映射失败（路由器不支持或被禁用）");
-            }
-        } catch (ClassNotFoundException cnf) {
-            log.println("未检测到 waifupnp 库，跳过 UPnP 自动映射（可忽略）。");
-        } catch (Exception e) {
-            log.println("UPnP 映射异常: " + e.getMessage());
-        }
+        upnpMapped = true;
+        mappedPort = port;
+        reportUpnp(UpnpHelper.openTcp(port, "easy-p2p"), port + "/TCP");
+        if (udpEnabled) reportUpnp(UpnpHelper.openUdp(port, "easy-p2p"), port + "/UDP");
+    }
+
+    private void reportUpnp(java.util.concurrent.CompletableFuture<Boolean> f, String what) {
+        f.whenComplete((ok, e) -> {
+            if (Boolean.TRUE.equals(ok)) { log.println("UPnP 端口映射成功: " + what); return; }
+            Throwable c = e instanceof java.util.concurrent.CompletionException && e.getCause() != null ? e.getCause() : e;
+            log.println(Level.WARN, "UPnP 映射失败：请在路由器手动把 " + what + " 映射到本机" + (c == null ? "" : "（" + (c.getMessage() == null ? c : c.getMessage()) + "）"));
+        });
     }
 }
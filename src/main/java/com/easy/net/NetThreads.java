@@ -0,0 +1,74 @@
+package com.easy.net;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.Locale;
+
+/**
+ * 网络线程工厂：accept 循环、每连接读循环、阻塞写统一从这里起线程。
+ * 模式由 -Deasy.threads=virtual|platform 选择（默认 platform）。
+ * 虚拟线程通过反射调用 Thread.ofVirtual()，因此源码仍按 release 17 编译；
+ * 运行在 JDK 21+ 上才真正生效，否则自动退回平台线程。
+ */
+public final class NetThreads {
+
+    public enum Mode { PLATFORM, VIRTUAL }
+
+    private static final MethodHandle OF_VIRTUAL;   // Thread.ofVirtual()
+    private static final MethodHandle NAME;         // Thread.Builder.name(String)
+    private static final MethodHandle START;        // Thread.Builder.start(Runnable)
+
+    static {
+        MethodHandle ofVirtual = null, name = null, start = null;
+        try {
+            MethodHandles.Lookup lk = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            ofVirtual = lk.findStatic(Thread.class, "ofVirtual", MethodType.methodType(Class.forName("java.lang.Thread$Builder$OfVirtual")));
+            name  = lk.findVirtual(builder, "name",  MethodType.methodType(builder, String.class));
+            start = lk.findVirtual(builder, "start", MethodType.methodType(Thread.class, Runnable.class));
+        } catch (Throwable ignore) {
+            ofVirtual = null; // JDK < 21
+        }
+        OF_VIRTUAL = ofVirtual; NAME = name; START = start;
+    }
+
+    private static volatile Mode mode = parse(System.getProperty("easy.threads"));
+
+    private NetThreads(){}
+
+    private static Mode parse(String s){
+        if (s != null && "virtual".equals(s.trim().toLowerCase(Locale.ROOT)) && OF_VIRTUAL != null) return Mode.VIRTUAL;
+        return Mode.PLATFORM;
+    }
+
+    /** 当前 JVM 是否支持虚拟线程 */
+    public static boolean virtualAvailable(){ return OF_VIRTUAL != null; }
+
+    public static Mode mode(){ return mode; }
+
+    /** 切换模式（只影响之后新起的线程）；不支持虚拟线程时保持 PLATFORM */
+    public static void setMode(Mode m){
+        mode = (m == Mode.VIRTUAL && OF_VIRTUAL == null) ? Mode.PLATFORM : m;
+    }
+
+    /** 按当前模式起线程 */
+    public static Thread start(String name, Runnable r){
+        return start(mode, name, r);
+    }
+
+    public static Thread start(Mode m, String name, Runnable r){
+        if (m == Mode.VIRTUAL && OF_VIRTUAL != null) {
+            try {
+                Object b = OF_VIRTUAL.invoke();
+                b = NAME.invoke(b, name);
+                return (Thread) START.invoke(b, r);
+            } catch (Throwable e) {
+                // 反射失败则退回平台线程
+            }
+        }
+        Thread t = new Thread(r, name);
+        t.start();
+        return t;
+    }
+}
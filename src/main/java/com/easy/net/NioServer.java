@@ -0,0 +1,436 @@
+package com.easy.net;
+
+import com.easy.ui.ConsoleSink;
+import com.easy.util.Metrics;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 多会话中转服务器（NIO：ServerSocketChannel + Selector）。
+ * 一个端口承载任意多局：每个连接先发 HELLO（可带 session），同一 session 的两个连接配成一局，
+ * 之后双方的帧原样互转。没有 session 的连接按到达顺序两两配对。
+ * 回给客户端的 HELLO 带上它所在的 session（匿名配对时是 anon-N）和座位 seat（先到的 host 当房主选棋），
+ * 断线重连时客户端拿 session 当 resume 出示，回到原来的座位。
+ * <p>
+ * 续传：每个座位记着它发出、已经转给对面的最大可重放 seq，写进回给它的 HELLO 的 lastSeen，客户端只补发这之后的尾巴。
+ * 座位空着时对面发来的帧替它留着（和掉线时没写出去的一起），回来后跟在 HELLO 后面发出。
+ * <p>
+ * 背压：每个连接待写字节有上限（{@link #MAX_QUEUED}），对端不读、超了就断开它，和 Outbox / Broadcaster 一样不无限缓冲。
+ */
+public class NioServer {
+
+    private static final int READ_BUF = 4096;
+    private static final int MAX_FRAME = 64 * 1024;
+    static final int MAX_QUEUED = 256 * 1024;           // 每连接待写字节上限
+    private static final int MAX_HELD = 2 * MAX_QUEUED;  // 每个空座位替它留的字节上限
+
+    private final int port;
+    private final int loopCount;
+    private final ConsoleSink log;
+
+    private ServerSocketChannel ssc;
+    private Selector acceptSel;
+    private EventLoop[] loops;
+    private final AtomicInteger nextLoop = new AtomicInteger();
+    private volatile boolean running;
+
+    // session id -> 会话
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private Session lobby; // 等待匿名配对的会话（synchronized(this) 保护）
+    private final AtomicInteger anonSeq = new AtomicInteger();
+
+    // ===== 统计 =====
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder sessionsOpened = new LongAdder();
+    private final LongAdder messages = new LongAdder();
+    private final LongAdder bytesIn = new LongAdder();
+
+    public NioServer(int port, int loopCount, ConsoleSink log){
+        this.port = port;
+        this.loopCount = Math.max(1, loopCount);
+        this.log = log;
+    }
+
+    public void start() throws IOException {
+        ssc = ServerSocketChannel.open();
+        ssc.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+        ssc.bind(new InetSocketAddress(port), 1024);
+        ssc.configureBlocking(false);
+        acceptSel = Selector.open();
+        ssc.register(acceptSel, SelectionKey.OP_ACCEPT);
+
+        running = true;
+        loops = new EventLoop[loopCount];
+        for (int i = 0; i < loopCount; i++) {
+            loops[i] = new EventLoop(i);
+            new Thread(loops[i], "hub-loop-" + i).start();
+        }
+        new Thread(this::acceptLoop, "hub-accept").start();
+        log.println("[HUB] 监听端口 " + port + "，事件线程 " + loopCount + " 个");
+    }
+
+    public int localPort(){
+        try { return ((InetSocketAddress) ssc.getLocalAddress()).getPort(); }
+        catch (Exception e) { return port; }
+    }
+
+    private void acceptLoop(){
+        try {
+            while (running) {
+                acceptSel.select();
+                acceptSel.selectedKeys().clear();
+                SocketChannel ch;
+                while ((ch = ssc.accept()) != null) {
+                    ch.configureBlocking(false);
+                    ch.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                    accepted.increment();
+                    Metrics.CONN_ACCEPTED.inc("hub");
+                    EventLoop l = loops[Math.floorMod(nextLoop.getAndIncrement(), loops.length)];
+                    l.adopt(ch);
+                }
+            }
+        } catch (ClosedSelectorException | ClosedChannelException ignore) {
+        } catch (IOException e) {
+            log.println("[HUB] accept 异常: " + e.getMessage());
+        }
+    }
+
+    public void close(){
+        running = false;
+        try { if (acceptSel != null) acceptSel.close(); } catch (Exception ignore) {}
+        try { if (ssc != null) ssc.close(); } catch (Exception ignore) {}
+        if (loops != null) for (EventLoop l : loops) l.shutdown();
+        sessions.clear();
+        log.println("[HUB] 已关闭");
+    }
+
+    // ===== 统计输出 =====
+
+    /** 累计值快照：accepted, sessions, messages, bytesIn, active sessions */
+    public long[] counters(){
+        return new long[]{ accepted.sum(), sessionsOpened.sum(), messages.sum(), bytesIn.sum(), sessions.size() };
+    }
+
+    /** 每隔 periodMs 打印一次 sessions/s 与 messages/s（守护线程） */
+    public void startReporter(long periodMs){
+        Thread t = new Thread(() -> {
+            long[] prev = counters();
+            long prevT = System.nanoTime();
+            while (running) {
+                try { Thread.sleep(periodMs); } catch (InterruptedException e) { return; }
+                long[] cur = counters();
+                long now = System.nanoTime();
+                double sec = (now - prevT) / 1e9;
+                log.println(String.format("[HUB] sessions/s=%.1f msgs/s=%.1f in=%.1fKB/s active=%d conns=%d",
+                        (cur[1]-prev[1])/sec, (cur[2]-prev[2])/sec, (cur[3]-prev[3])/1024.0/sec, cur[4], cur[0]));
+                prev = cur; prevT = now;
+            }
+        }, "hub-stats");
+        t.setDaemon(true);
+        t.start();
+    }
+
+    // ===== 会话路由 =====
+
+    private static final class Session {
+        final String id;
+        final Conn[] seats = new Conn[2]; // 0=host, 1=client
+        final int[] lastSeq = new int[2];        // 该座位发出、已转给（或替）对面的最大可重放 seq
+        final boolean[] gap = new boolean[2];    // 该座位的帧丢过一帧：lastSeq 停在丢之前，续传时多补的由对面按 seq 去重
+        @SuppressWarnings("unchecked")
+        final ArrayDeque<ByteBuffer>[] held = new ArrayDeque[]{ new ArrayDeque<>(), new ArrayDeque<>() };
+        final int[] heldBytes = new int[2];
+        Session(String id){ this.id = id; }
+
+        /** resume=false 是新来的：座位上的 seq 记录清零（替它留的帧照给，比如开局前房主的选棋） */
+        synchronized int join(Conn c, boolean resume){
+            for (int i = 0; i < 2; i++) if (seats[i] == null) {
+                seats[i] = c;
+                if (!resume) { lastSeq[i] = 0; gap[i] = false; }
+                return i;
+            }
+            return -1;
+        }
+        synchronized Conn other(Conn c){
+            return seats[0] == c ? seats[1] : seats[1] == c ? seats[0] : null;
+        }
+        /** 离座：没写出去的帧转进留存；两个座位都空了返回 true */
+        synchronized boolean leave(Conn c){
+            for (int i = 0; i < 2; i++) if (seats[i] == c) {
+                seats[i] = null;
+                ByteBuffer b = c.writing;
+                if (b != null) hold(i, b.rewind());        // 写了一半的帧对端丢弃，整帧重发
+                while ((b = c.outQ.poll()) != null) hold(i, b);
+                c.writing = null;
+            }
+            return seats[0] == null && seats[1] == null;
+        }
+        /** from 座位发来的帧：对面在就转，不在就替它留着；seq > 0 是可重放帧 */
+        synchronized void relay(int from, ByteBuffer frame, int seq){
+            Conn peer = seats[1 - from];
+            if (peer != null) peer.send(frame);
+            else hold(1 - from, frame);
+            if (seq > lastSeq[from] && !gap[from]) lastSeq[from] = seq;
+        }
+        synchronized List<ByteBuffer> takeHeld(int seat){
+            List<ByteBuffer> l = new ArrayList<>(held[seat]);
+            held[seat].clear();
+            heldBytes[seat] = 0;
+            return l;
+        }
+        synchronized int lastSeq(int seat){ return lastSeq[seat]; }
+
+        private boolean hold(int seat, ByteBuffer b){
+            if (heldBytes[seat] + b.remaining() > MAX_HELD) { gap[1 - seat] = true; return false; }
+            held[seat].add(b);
+            heldBytes[seat] += b.remaining();
+            return true;
+        }
+    }
+
+    /** HELLO 到达：按 resume / session 归座；返回座位号（-1=满） */
+    private synchronized int route(Conn c, JSONObject hello){
+        String sid = hello.optString("resume", "");
+        boolean resume = !sid.isEmpty();
+        if (sid.isEmpty()) sid = hello.optString("session", "");
+        Session s;
+        if (sid.isEmpty()) {
+            if (lobby == null) {
+                lobby = new Session("anon-" + anonSeq.incrementAndGet());
+                sessions.put(lobby.id, lobby);
+                sessionsOpened.increment();
+            }
+            s = lobby;
+        } else {
+            s = sessions.computeIfAbsent(sid, k -> { sessionsOpened.increment(); return new Session(k); });
+        }
+        int seat = s.join(c, resume);
+        if (s == lobby && seat == 1) lobby = null; // 凑齐一局，下一个匿名连接开新会话
+        if (seat >= 0) { c.session = s; c.seat = seat; }
+        return seat;
+    }
+
+    /** 和 route 同一把锁：刚被移出表的会话不会再被 HELLO 加入 */
+    private void leave(Conn c){
+        Session s = c.session;
+        if (s == null) return;
+        c.session = null;
+        Conn peer;
+        synchronized (this) {
+            peer = s.other(c);
+            if (s.leave(c)) sessions.remove(s.id, s);
+            if (lobby == s && s.seats[0] == null) lobby = null;
+        }
+        if (peer != null) peer.send(line(new JSONObject().put("type", "HUB").put("cmd", "peer_left")));
+    }
+
+    private static final byte[] SEQ_KEY = "\"seq\":".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] TYPE_KEY = "\"type\":\"".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] FIRE = "\"cmd\":\"fire\"".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * 可重放帧（{@link LinkMonitor#isReplayable}：MOVE / MOVE_FXFY / GAME / BATTLE fire）的 seq，其余 -1。
+     * 中转整局走 JSON 行：直接在字节里找键，不解析整帧。
+     */
+    static int replayableSeq(byte[] f){
+        int at = indexOf(f, SEQ_KEY, 0);
+        if (at < 0) return -1;
+        int t = indexOf(f, TYPE_KEY, 0);
+        if (t < 0) return -1;
+        t += TYPE_KEY.length;
+        int e = t;
+        while (e < f.length && f[e] != '"') e++;
+        String type = new String(f, t, e - t, StandardCharsets.US_ASCII);
+        boolean replayable = switch (type) {
+            case "MOVE", "MOVE_FXFY", "GAME" -> true;
+            case "BATTLE" -> indexOf(f, FIRE, 0) >= 0;
+            default -> false;
+        };
+        if (!replayable) return -1;
+        int v = 0, i = at + SEQ_KEY.length;
+        if (i >= f.length || f[i] < '0' || f[i] > '9') return -1;
+        for (; i < f.length && f[i] >= '0' && f[i] <= '9'; i++) v = v * 10 + (f[i] - '0');
+        return v;
+    }
+
+    private static int indexOf(byte[] a, byte[] key, int from){
+        outer:
+        for (int i = from; i <= a.length - key.length; i++) {
+            for (int j = 0; j < key.length; j++) if (a[i + j] != key[j]) continue outer;
+            return i;
+        }
+        return -1;
+    }
+
+    private static ByteBuffer line(JSONObject jo){
+        return ByteBuffer.wrap((jo.toString() + "\n").getBytes(StandardCharsets.UTF_8));
+    }
+
+    // ===== 连接 =====
+
+    private final class Conn {
+        final SocketChannel ch;
+        final EventLoop loop;
+        SelectionKey key;
+        ByteBuffer in = ByteBuffer.allocate(READ_BUF);
+        final ConcurrentLinkedQueue<ByteBuffer> outQ = new ConcurrentLinkedQueue<>();
+        final AtomicInteger queued = new AtomicInteger();   // outQ 里的字节数
+        ByteBuffer writing;          // 当前未写完的帧
+        volatile Session session;
+        int seat;
+        boolean helloDone;
+        volatile boolean overflow;   // 待写超过 MAX_QUEUED：事件线程断开它
+        boolean closing;             // 写完队列就关（HUB full）
+
+        Conn(SocketChannel ch, EventLoop loop){ this.ch = ch; this.loop = loop; }
+
+        /** 任意线程可调：入队并让所属事件线程负责写出 */
+        void send(ByteBuffer b){
+            if (queued.addAndGet(b.remaining()) > MAX_QUEUED) overflow = true;
+            outQ.add(b);
+            loop.requestFlush(this);
+        }
+    }
+
+    private final class EventLoop implements Runnable {
+        final int idx;
+        final Selector sel;
+        final ConcurrentLinkedQueue<SocketChannel> adoptQ = new ConcurrentLinkedQueue<>();
+        final ConcurrentLinkedQueue<Conn> flushQ = new ConcurrentLinkedQueue<>();
+
+        EventLoop(int idx) throws IOException { this.idx = idx; this.sel = Selector.open(); }
+
+        void adopt(SocketChannel ch){ adoptQ.add(ch); sel.wakeup(); }
+        void requestFlush(Conn c){ flushQ.add(c); sel.wakeup(); }
+        void shutdown(){
+            try {
+                for (SelectionKey k : sel.keys()) { try { k.channel().close(); } catch (Exception ignore) {} }
+                sel.close();
+            } catch (Exception ignore) {}
+        }
+
+        @Override public void run(){
+            try {
+                while (running) {
+                    sel.select();
+                    SocketChannel nc;
+                    while ((nc = adoptQ.poll()) != null) {
+                        Conn c = new Conn(nc, this);
+                        c.key = nc.register(sel, SelectionKey.OP_READ, c);
+                    }
+                    Conn fc;
+                    while ((fc = flushQ.poll()) != null) {
+                        try {
+                            if (fc.overflow) {
+                                if (fc.ch.isOpen()) log.println("[HUB] " + fc.ch.getRemoteAddress() + " 待写超过 " + MAX_QUEUED / 1024 + " KB，断开");
+                                drop(fc);
+                            } else if (fc.key != null && fc.key.isValid()) flush(fc);
+                        } catch (IOException e) {
+                            drop(fc);
+                        }
+                    }
+                    Iterator<SelectionKey> it = sel.selectedKeys().iterator();
+                    while (it.hasNext()) {
+                        SelectionKey k = it.next(); it.remove();
+                        Conn c = (Conn) k.attachment();
+                        try {
+                            if (k.isValid() && k.isReadable()) onReadable(c);
+                            if (k.isValid() && k.isWritable()) flush(c);
+                        } catch (IOException | RuntimeException e) {
+                            drop(c);
+                        }
+                    }
+                }
+            } catch (ClosedSelectorException ignore) {
+            } catch (IOException e) {
+                log.println("[HUB] loop-" + idx + " 异常: " + e.getMessage());
+            }
+        }
+
+        private void onReadable(Conn c) throws IOException {
+            int n = c.ch.read(c.in);
+            if (n < 0) { drop(c); return; }
+            bytesIn.add(n);
+            Metrics.BYTES_IN.add(n);
+            c.in.flip();
+            byte[] a = c.in.array();
+            int len;
+            while ((len = Wire.frameLength(a, c.in.position(), c.in.remaining())) > 0) {
+                byte[] frame = new byte[len];
+                c.in.get(frame);
+                onFrame(c, frame);
+            }
+            c.in.compact();
+            if (!c.in.hasRemaining()) {
+                if (c.in.capacity() >= MAX_FRAME) throw new IOException("frame too large");
+                ByteBuffer bigger = ByteBuffer.allocate(c.in.capacity() * 2);
+                c.in.flip(); bigger.put(c.in); c.in = bigger;
+            }
+        }
+
+        private void onFrame(Conn c, byte[] frame){
+            messages.increment();
+            if (!c.helloDone) {
+                if ((frame[0] & 0xFF) == Wire.MAGIC) return; // HELLO 之前的帧丢弃
+                JSONObject h = new JSONObject(new String(frame, StandardCharsets.UTF_8));
+                if (!"HELLO".equals(h.optString("type"))) return;
+                c.helloDone = true;
+                int seat = route(c, h);
+                if (seat < 0) {
+                    c.closing = true;   // 座位满（常见于旧连接还没断干净）：告诉它再试，然后关掉
+                    c.send(line(new JSONObject().put("type", "HUB").put("cmd", "full")));
+                    return;
+                }
+                // 中转原样转发，不知道另一端是否支持二进制，所以不通告 bin，整局走 JSON 行
+                Session s = c.session;
+                JSONObject reply = Proto.hello("server");
+                reply.remove("bin");
+                c.send(line(reply
+                        .put("session", s.id)
+                        .put("seat", seat == 0 ? "host" : "client")
+                        .put("lastSeen", s.lastSeq(seat))));
+                for (ByteBuffer b : s.takeHeld(seat)) c.send(b);
+                Conn peer = s.other(c);
+                if (peer != null) {
+                    ByteBuffer paired = line(new JSONObject().put("type", "HUB").put("cmd", "paired"));
+                    c.send(paired.duplicate());
+                    peer.send(paired.duplicate());
+                }
+                return;
+            }
+            Session s = c.session;
+            if (s != null) s.relay(c.seat, ByteBuffer.wrap(frame), replayableSeq(frame));
+        }
+
+        private void flush(Conn c) throws IOException {
+            while (true) {
+                if (c.writing == null && (c.writing = c.outQ.poll()) != null) c.queued.addAndGet(-c.writing.remaining());
+                if (c.writing == null) break;
+                c.ch.write(c.writing);
+                if (c.writing.hasRemaining()) break; // socket 满了，等 OP_WRITE
+                c.writing = null;
+            }
+            if (c.writing == null && c.closing) { drop(c); return; }
+            int ops = c.writing == null ? SelectionKey.OP_READ : (SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            if (c.key.interestOps() != ops) c.key.interestOps(ops);
+        }
+
+        private void drop(Conn c){
+            if (c.ch.isOpen()) Metrics.CONN_CLOSED.inc("hub");
+            try { c.key.cancel(); } catch (Exception ignore) {}
+            try { c.ch.close(); } catch (Exception ignore) {}
+            leave(c);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+package com.easy.net;
+
+import com.easy.util.Metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * 每连接一个的异步发送队列：调用方（EDT、读循环）只入队，不碰 socket；
+ * 专用写线程每轮把队列里积压的帧一次性拼进同一个缓冲，一次 write + flush 发出。
+ * 队列有界：满了 offer 直接返回 false（不阻塞调用方），由上层决定报错还是丢弃。
+ * 所有 Outbox 的排队帧数合计进 {@link Metrics#OUTBOX_QUEUED}。
+ * 加密会话里帧在写线程上逐个用 {@link SecureChannel.Sealer} 封进同一个缓冲：计数 nonce 的顺序就是上线顺序。
+ */
+public final class Outbox {
+
+    public static final int DEFAULT_CAPACITY = 1024;
+
+    private static final byte[] CLOSE = new byte[0]; // 毒丸
+    private static final byte[] SEAL = new byte[0];  // 标记：此后的帧用 nextSealer 加密
+
+    private final OutputStream out;
+    private final BlockingQueue<byte[]> q;
+    private final Runnable onError;
+    private volatile boolean closed;
+    private volatile IOException failure;
+    private volatile SecureChannel.Sealer nextSealer;
+
+    private byte[] buf = new byte[8192]; // 仅写线程使用
+
+    /**
+     * @param onError 写失败时回调一次（通常用来关 socket，让读循环退出）
+     */
+    public Outbox(OutputStream out, String name, int capacity, Runnable onError){
+        this.out = out;
+        this.q = new ArrayBlockingQueue<>(Math.max(1, capacity));
+        this.onError = onError;
+        NetThreads.start(name, this::drainLoop);
+    }
+
+    /** 非阻塞入队；队列满或已关闭返回 false */
+    public boolean offer(byte[] frame){
+        if (closed || failure != null) return false;
+        if (!q.offer(frame)) return false;
+        Metrics.OUTBOX_QUEUED.inc();
+        return true;
+    }
+
+    /** 入队，失败时抛出可读的 IOException（给 sendJson/sendMove 用） */
+    public void send(byte[] frame) throws IOException {
+        if (failure != null) throw new IOException("发送失败: " + failure.getMessage(), failure);
+        if (closed) throw new IOException("连接已关闭");
+        if (!q.offer(frame)) throw new IOException("发送队列已满（" + q.size() + " 帧），对端过慢");
+        Metrics.OUTBOX_QUEUED.inc();
+    }
+
+    /**
+     * 已排队的帧照旧明文发出，之后入队的帧都用 sealer 加密（HELLO 协商出密钥后调用一次）。
+     */
+    public void sealWith(SecureChannel.Sealer sealer) throws IOException {
+        if (closed) throw new IOException("连接已关闭");
+        nextSealer = sealer;
+        if (!q.offer(SEAL)) throw new IOException("发送队列已满（" + q.size() + " 帧），对端过慢");
+    }
+
+    /** 当前排队帧数 */
+    public int depth(){ return q.size(); }
+
+    /** 已排队的帧写完后停止写线程 */
+    public void close(){
+        if (closed) return;
+        closed = true;
+        if (!q.offer(CLOSE)) { discard(); q.offer(CLOSE); }
+    }
+
+    /** 丢掉队列里还没写的帧，同步扣掉指标 */
+    private void discard(){
+        List<byte[]> left = new ArrayList<>();
+        q.drainTo(left);
+        int n = 0;
+        for (byte[] f : left) if (f != CLOSE && f != SEAL) n++;
+        if (n > 0) Metrics.OUTBOX_QUEUED.add(-n);
+    }
+
+    private void drainLoop(){
+        List<byte[]> batch = new ArrayList<>(64);
+        SecureChannel.Sealer sealer = null;
+        try {
+            while (true) {
+                batch.add(q.take());
+                q.drainTo(batch);
+                int n = 0, frames = 0;
+                boolean stop = false;
+                for (byte[] f : batch) {
+                    if (f == CLOSE) { stop = true; continue; }
+                    if (f == SEAL) { sealer = nextSealer; continue; }
+                    frames++;
+                    if (stop) continue;
+                    int room = f.length + (sealer == null ? 0 : SecureChannel.OVERHEAD);
+                    if (n + room > buf.length) buf = java.util.Arrays.copyOf(buf, Math.max(n + room, buf.length * 2));
+                    if (sealer != null) n += sealer.seal(f, 0, f.length, buf, n);
+                    else { System.arraycopy(f, 0, buf, n, f.length); n += f.length; }
+                }
+                batch.clear();
+                Metrics.OUTBOX_QUEUED.add(-frames);
+                if (n > 0) {
+                    out.write(buf, 0, n);
+                    out.flush();
+                }
+                if (stop) return;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            failure = e;
+            discard();
+            if (onError != null) onError.run();
+        }
+    }
+}
@@ -5,7 +5,12 @@ import org.json.JSONObject;
 public class Proto {
 
     public static JSONObject hello(String role){
-        return new JSONObject().put("type","HELLO").put("role",role);
+        // bin：本端支持的二进制帧版本，双方一致才切到二进制（老版本不带此字段 => 一直走 JSON）
+        return new JSONObject().put("type","HELLO").put("role",role).put("bin",Wire.BIN_VERSION);
+    }
+    // 连中转服务器（NioServer）时带上 session，同一 session 的两端配成一局
+    public static JSONObject hello(String role, String session){
+        return hello(role).put("session",session);
     }
 
     // 传统单点 MOVE（仍保留给五子棋/黑白棋）
@@ -17,6 +22,14 @@ public class Proto {
     public static JSONObject moveFxFy(int fx,int fy,int x,int y){
         return new JSONObject().put("type","MOVE").put("fx",fx).put("fy",fy).put("x",x).put("y",y);
     }
+    // hash：走完这步后本端的局面哈希（Zobrist.hex），对端走完同一步后比对
+    public static JSONObject moveFxFy(int fx,int fy,int x,int y,String hash){
+        return moveFxFy(fx,fy,x,y).put("hash",hash);
+    }
+    // 跳棋：多带 cap = 这一步吃掉的子（CheckersBoard 深色格掩码 s = y*4 + x/2，不吃子为 0），起止相同的连跳靠它区分
+    public static JSONObject checkersMove(int fx,int fy,int x,int y,int cap,String hash){
+        return moveFxFy(fx,fy,x,y).put("cap",cap).put("hash",hash);
+    }
 
     // GAME：select/suggest/reset
     public static JSONObject gameSelect(String game, String starter){
@@ -30,6 +43,17 @@ public class Proto {
     public static JSONObject battleFire(int x,int y){
         return new JSONObject().put("type","BATTLE").put("cmd","fire").put("x",x).put("y",y);
     }
+    public static JSONObject battleFire(int x,int y,String hash){
+        return battleFire(x,y).put("hash",hash);
+    }
+
+    // SYNC：哈希对不上时重同步。req = 请房主发局面；state = 房主的局面快照（Game.snapshot）+ 其哈希
+    public static JSONObject syncRequest(){
+        return new JSONObject().put("type","SYNC").put("cmd","req");
+    }
+    public static JSONObject syncState(String game, String state, String hash){
+        return new JSONObject().put("type","SYNC").put("cmd","state").put("game",game).put("state",state).put("hash",hash);
+    }
 
     // I/O
     public static void sendJSON(java.io.OutputStream out, JSONObject jo) throws java.io.IOException {
@@ -50,4 +74,15 @@ public class Proto {
         // 轻量 ACK：服务端/客户端收到后可忽略或仅做日志
         return new org.json.JSONObject().put("type", "ACK");
     }
+    // 回应某个带 seq 的走子帧，发送方据此计算 RTT；seq<0（老对端没带）时退化为无 seq 的 ACK
+    public static org.json.JSONObject ack(int seq) {
+        return seq < 0 ? ack() : ack().put("seq", seq);
+    }
+    // 空闲探测：t 为发送方 System.nanoTime()，对端在 PONG 里原样带回
+    public static JSONObject ping(long t){
+        return new JSONObject().put("type","PING").put("t",t);
+    }
+    public static JSONObject pong(long t){
+        return new JSONObject().put("type","PONG").put("t",t);
+    }
 }
@@ -0,0 +1,70 @@
+package com.easy.net;
+
+/**
+ * 往返时延统计：对数分桶直方图（每 2 倍区间 16 个子桶，约 6% 精度）+ RFC 3550 风格抖动。
+ * 采样率很低（每步棋/每次 PING 一个），所以直接 synchronized。
+ */
+public final class RttStats {
+
+    private static final int SUB = 16;             // 每个 2 倍区间的子桶数
+    private static final int OCTAVES = 40;          // 覆盖 1ns .. ~1e12ns
+    private final long[] counts = new long[OCTAVES * SUB];
+    private long n;
+    private long minNs = Long.MAX_VALUE, maxNs;
+    private long lastNs = -1;
+    private double jitterNs;
+
+    public synchronized void record(long rttNs){
+        if (rttNs < 0) return;
+        counts[bucket(rttNs)]++;
+        n++;
+        if (rttNs < minNs) minNs = rttNs;
+        if (rttNs > maxNs) maxNs = rttNs;
+        if (lastNs >= 0) jitterNs += (Math.abs(rttNs - lastNs) - jitterNs) / 16.0;
+        lastNs = rttNs;
+    }
+
+    public synchronized long count(){ return n; }
+
+    /** p 取 0..100；没有样本返回 -1 */
+    public synchronized long percentileNs(double p){
+        if (n == 0) return -1;
+        long rank = (long) Math.ceil(p / 100.0 * n);
+        if (rank < 1) rank = 1;
+        long seen = 0;
+        for (int i = 0; i < counts.length; i++) {
+            seen += counts[i];
+            if (seen >= rank) return Math.min(maxNs, Math.max(minNs, upper(i)));
+        }
+        return maxNs;
+    }
+
+    public synchronized long jitterNs(){ return (long) jitterNs; }
+    public synchronized long lastNs(){ return lastNs; }
+
+    public synchronized void reset(){
+        java.util.Arrays.fill(counts, 0);
+        n = 0; minNs = Long.MAX_VALUE; maxNs = 0; lastNs = -1; jitterNs = 0;
+    }
+
+    /** 给界面/日志的一行摘要（毫秒） */
+    public String summary(){
+        if (count() == 0) return "RTT: 暂无样本";
+        return String.format("RTT p50=%.1f p95=%.1f p99=%.1f 抖动=%.1f ms (n=%d)",
+                percentileNs(50) / 1e6, percentileNs(95) / 1e6, percentileNs(99) / 1e6, jitterNs() / 1e6, count());
+    }
+
+    private static int bucket(long v){
+        if (v < SUB) return (int) v;
+        int oct = 63 - Long.numberOfLeadingZeros(v);          // v 在 [2^oct, 2^(oct+1))
+        int sub = (int) ((v >>> (oct - 4)) & (SUB - 1));      // 次高 4 位
+        int idx = (oct - 3) * SUB + sub;
+        return Math.min(idx, OCTAVES * SUB - 1);
+    }
+
+    private static long upper(int idx){
+        if (idx < SUB) return idx;
+        int oct = idx / SUB + 3, sub = idx % SUB;
+        return ((long) (SUB + sub + 1) << (oct - 4)) - 1;
+    }
+}
@@ -0,0 +1,185 @@
+package com.easy.net;
+
+import org.json.JSONObject;
+
+import javax.crypto.AEADBadTagException;
+import javax.crypto.Cipher;
+import javax.crypto.KeyAgreement;
+import javax.crypto.Mac;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.KeyFactory;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.MessageDigest;
+import java.security.PublicKey;
+import java.security.spec.X509EncodedKeySpec;
+import java.util.Base64;
+
+/**
+ * 棋手连接的加密会话：HELLO 里互换 X25519 临时公钥，各自算出共享秘密，
+ * HKDF-SHA256 派生出两个方向各一把 AES-256 密钥和 4 字节 IV 前缀；之后每帧用 AES-GCM 封一次。
+ * <pre>
+ * HELLO : "enc":"x25519-aes256gcm", "pub":base64(X.509 公钥)     双方都带才启用
+ * 密封帧: 0xE5 | varint 长度 | GCM(原帧字节) + 16B tag
+ *         nonce = IV 前缀(4) | 本方向帧计数(8，大端)；TCP / UdpLink / Loopback 都保序，计数隐式递增不上线
+ * </pre>
+ * 原帧可以是 JSON 行也可以是二进制帧，读端解密后照常按首字节区分。
+ * 收到第一个密封帧之后再来明文帧视为攻击，直接断开；之前的明文（对方切换前发出的 PING 等）照收。
+ * <p>
+ * 密钥交换本身不做身份认证：能挡被动窃听和篡改/注入/重放（GCM tag + 隐式计数），
+ * 挡不住在 HELLO 阶段就介入的中间人，也挡不住把 "enc" 字段删掉的降级。
+ * <p>
+ * Sealer 只在 Outbox 写线程上用，Opener 只在读线程上用；各持一个 Cipher 反复 init，输出直接写进调用方的缓冲。
+ * JDK 的 AES/GCM 在有 AES-NI + PCLMULQDQ 的 x86 上走 intrinsic。
+ */
+public final class SecureChannel {
+
+    public static final String SUITE = "x25519-aes256gcm";
+    /** 密封帧首字节 */
+    static final int SEALED = 0xE5;
+    static final int TAG = 16;
+    /** 一帧密封后最多多出的字节：首字节 + varint 长度 + tag */
+    static final int OVERHEAD = 1 + 5 + TAG;
+
+    private static final byte[] INFO = "easy-p2p session v1".getBytes(StandardCharsets.US_ASCII);
+
+    private final Sealer sealer;
+    private final Opener opener;
+
+    private SecureChannel(Sealer sealer, Opener opener){ this.sealer = sealer; this.opener = opener; }
+
+    public Sealer sealer(){ return sealer; }
+    public Opener opener(){ return opener; }
+
+    /** 对端 HELLO 是否提供了同一套加密 */
+    public static boolean offered(JSONObject hello){
+        return hello != null && SUITE.equals(hello.optString("enc", "")) && !hello.optString("pub", "").isEmpty();
+    }
+
+    /** 给本端 HELLO 加上加密通告 */
+    public static JSONObject offer(JSONObject hello, Handshake hs){
+        return hs == null ? hello : hello.put("enc", SUITE).put("pub", hs.publicKey());
+    }
+
+    /** 本端一次握手：生成临时密钥对，HELLO 里发 {@link #publicKey()}，收到对端公钥后 {@link #complete} */
+    public static final class Handshake {
+        private final KeyPair kp;
+        private final byte[] pub;
+
+        public Handshake() throws GeneralSecurityException {
+            kp = KeyPairGenerator.getInstance("X25519").generateKeyPair();
+            pub = kp.getPublic().getEncoded();
+        }
+
+        public String publicKey(){ return Base64.getEncoder().encodeToString(pub); }
+
+        /**
+         * @param server 本端是否房主：决定哪把密钥用来发、哪把用来收
+         */
+        public SecureChannel complete(String peerPub, boolean server) throws GeneralSecurityException {
+            byte[] peer;
+            try { peer = Base64.getDecoder().decode(peerPub); }
+            catch (IllegalArgumentException e) { throw new GeneralSecurityException("bad peer key"); }
+            PublicKey pk = KeyFactory.getInstance("X25519").generatePublic(new X509EncodedKeySpec(peer));
+            KeyAgreement ka = KeyAgreement.getInstance("X25519");
+            ka.init(kp.getPrivate());
+            ka.doPhase(pk, true);
+            byte[] shared = ka.generateSecret();
+
+            // salt 绑定双方公钥（先房主后客户端），两端算出同一份
+            MessageDigest sha = MessageDigest.getInstance("SHA-256");
+            sha.update(server ? pub : peer);
+            sha.update(server ? peer : pub);
+            byte[] okm = hkdf(sha.digest(), shared, INFO, 32 + 32 + 4 + 4);
+            java.util.Arrays.fill(shared, (byte) 0);
+
+            SecretKeySpec s2c = new SecretKeySpec(okm, 0, 32, "AES"), c2s = new SecretKeySpec(okm, 32, 32, "AES");
+            byte[] ivS2c = java.util.Arrays.copyOfRange(okm, 64, 68), ivC2s = java.util.Arrays.copyOfRange(okm, 68, 72);
+            java.util.Arrays.fill(okm, (byte) 0);
+            return server
+                    ? new SecureChannel(new Sealer(s2c, ivS2c), new Opener(c2s, ivC2s))
+                    : new SecureChannel(new Sealer(c2s, ivC2s), new Opener(s2c, ivS2c));
+        }
+    }
+
+    /** RFC 5869，HMAC-SHA256 */
+    static byte[] hkdf(byte[] salt, byte[] ikm, byte[] info, int len) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(salt, "HmacSHA256"));
+        byte[] prk = mac.doFinal(ikm);
+        mac.init(new SecretKeySpec(prk, "HmacSHA256"));
+        byte[] out = new byte[len], t = new byte[0];
+        for (int off = 0, i = 1; off < len; i++) {
+            mac.update(t);
+            mac.update(info);
+            mac.update((byte) i);
+            t = mac.doFinal();
+            int k = Math.min(t.length, len - off);
+            System.arraycopy(t, 0, out, off, k);
+            off += k;
+        }
+        return out;
+    }
+
+    private abstract static class Dir {
+        final Cipher c;
+        final SecretKeySpec key;
+        final byte[] iv = new byte[12];
+        long counter;
+
+        Dir(SecretKeySpec key, byte[] prefix) throws GeneralSecurityException {
+            this.c = Cipher.getInstance("AES/GCM/NoPadding");
+            this.key = key;
+            System.arraycopy(prefix, 0, iv, 0, 4);
+        }
+
+        void init(int mode) throws GeneralSecurityException {
+            long n = counter++;
+            for (int i = 11; i >= 4; i--) { iv[i] = (byte) n; n >>>= 8; }
+            c.init(mode, key, new GCMParameterSpec(TAG * 8, iv));
+        }
+    }
+
+    /** 发送方向：单线程使用 */
+    public static final class Sealer extends Dir {
+        Sealer(SecretKeySpec key, byte[] prefix) throws GeneralSecurityException { super(key, prefix); }
+
+        /** 把 in[off, off+len) 封成一整个密封帧写进 out[outOff..]（至少留 len + {@link #OVERHEAD}），返回写入字节数 */
+        public int seal(byte[] in, int off, int len, byte[] out, int outOff) throws IOException {
+            int p = outOff;
+            out[p++] = (byte) SEALED;
+            int v = len + TAG;
+            while ((v & ~0x7F) != 0) { out[p++] = (byte) ((v & 0x7F) | 0x80); v >>>= 7; }
+            out[p++] = (byte) v;
+            try {
+                init(Cipher.ENCRYPT_MODE);
+                p += c.doFinal(in, off, len, out, p);
+            } catch (GeneralSecurityException e) {
+                throw new IOException("seal failed: " + e.getMessage(), e);
+            }
+            return p - outOff;
+        }
+    }
+
+    /** 接收方向：单线程使用 */
+    public static final class Opener extends Dir {
+        Opener(SecretKeySpec key, byte[] prefix) throws GeneralSecurityException { super(key, prefix); }
+
+        /** 解开密文+tag in[off, off+len)，明文写进 out[outOff..]（至少留 len - TAG），返回明文长度；被篡改抛 IOException */
+        public int open(byte[] in, int off, int len, byte[] out, int outOff) throws IOException {
+            if (len < TAG) throw new IOException("sealed frame too short");
+            try {
+                init(Cipher.DECRYPT_MODE);
+                return c.doFinal(in, off, len, out, outOff);
+            } catch (AEADBadTagException e) {
+                throw new IOException("sealed frame failed authentication");
+            } catch (GeneralSecurityException e) {
+                throw new IOException("open failed: " + e.getMessage(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package com.easy.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.channels.DatagramChannel;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * UDP 上的轻量可靠有序字节流：对上层就是一对 InputStream/OutputStream，
+ * 所以 Outbox（写）和 Wire.Reader（读）照常使用，帧格式不变。
+ * <pre>
+ * DATA: 0x01 | seq(int32) | 负载（≤ 1200B）
+ * ACK : 0x02 | cum(int32) | sack(int64)   cum=已按序收到的最大 seq，sack 第 i 位=收到了 cum+2+i
+ * FIN : 0x03
+ * </pre>
+ * 发送端：窗口内未确认的包按 RTO 重传（Jacobson/Karels 估计 RTT，Karn 规则不采样重传包），
+ * SACK 显示后面已有 3 个包到达时立即快速重传缺口；窗口满时写线程阻塞（背压传给 Outbox 队列）。
+ * 接收端：乱序包缓存、重复包丢弃、每个 DATA 立刻回 ACK。
+ * 超过 idleTimeoutMs 没收到任何包视为断线，读端返回 EOF（上层走续传逻辑）。
+ * <p>
+ * 房主的共享通道交给 {@link Listener}：一个线程收包、按来源地址分给各条链路，没见过的地址发来 seq=1 就排队等 accept。
+ * 续传的客户端每次从新的临时端口来，旧链路还没超时也不会吞掉它的握手。
+ */
+public final class UdpLink implements java.io.Closeable {
+
+    private static final byte DATA = 1, ACK = 2, FIN = 3;
+    public static final int MAX_PAYLOAD = 1200;
+    private static final int WINDOW = 256;
+    private static final int HDR = 5;
+
+    private final DatagramChannel ch;
+    private final DatagramSocket sock;     // ch 的 socket 适配器，用它做带超时的 receive
+    private final boolean ownsChannel;     // 客户端自己开的通道，关闭时一起关
+    private final SocketAddress peer;
+    private Listener listener;             // 房主侧：收包由它分发，关闭时从它那里注销
+
+    // ===== 可调参数（基准测试里用来做“类 TCP”对照）=====
+    private volatile long minRtoNs = 20_000_000L;     // 20ms
+    private volatile long maxRtoNs = 2_000_000_000L;  // 2s
+    private volatile boolean sackEnabled = true;
+    private volatile double lossRate;                 // 注入丢包率（仅测试用，丢出站包）
+    private volatile long idleTimeoutMs = 10_000;
+
+    // ===== 发送状态（synchronized(this)）=====
+    private int nextSeq = 1;
+    private final TreeMap<Integer, Pending> unacked = new TreeMap<>();
+    private long srttNs = -1, rttvarNs, rtoNs = 200_000_000L;
+
+    private static final class Pending {
+        final byte[] pkt; long sentNs; long deadlineNs; int retries; boolean fastDone;
+        Pending(byte[] pkt){ this.pkt = pkt; }
+    }
+
+    // ===== 接收状态（仅接收线程）=====
+    private int delivered;                                      // 已按序交付的最大 seq
+    private final TreeMap<Integer, byte[]> outOfOrder = new TreeMap<>();
+    private final LinkedBlockingQueue<byte[]> inbox = new LinkedBlockingQueue<>();
+    private static final byte[] EOF = new byte[0];
+
+    private volatile boolean closed;
+    private volatile long lastHeardNs = System.nanoTime();
+
+    // 统计
+    private volatile long retransmits, fastRetransmits, dupDrops;
+
+    private final InputStream in = new LinkIn();
+    private final OutputStream out = new LinkOut();
+
+    private UdpLink(DatagramChannel ch, SocketAddress peer, boolean ownsChannel){
+        this.ch = ch; this.sock = ch.socket(); this.peer = peer; this.ownsChannel = ownsChannel;
+    }
+
+    // ===== 建立 =====
+
+    /** 客户端：自己开一个通道连向 host 的 UDP 端口 */
+    public static UdpLink connect(InetSocketAddress host) throws IOException {
+        DatagramChannel ch = DatagramChannel.open();
+        ch.bind(null);
+        UdpLink l = new UdpLink(ch, host, true);
+        l.startThreads();
+        return l;
+    }
+
+    /** 单个对端（基准测试）：在通道上等第一个发来 seq=1 的对端，之后本链路自己收包；超时返回 null。房主用 {@link Listener} */
+    public static UdpLink accept(DatagramChannel ch, long timeoutMs) throws IOException {
+        DatagramSocket s = ch.socket();
+        byte[] buf = new byte[HDR + MAX_PAYLOAD + 64];
+        long deadline = System.currentTimeMillis() + timeoutMs;
+        while (System.currentTimeMillis() < deadline) {
+            DatagramPacket p = new DatagramPacket(buf, buf.length);
+            s.setSoTimeout((int) Math.max(1, Math.min(500, deadline - System.currentTimeMillis())));
+            try { s.receive(p); } catch (SocketTimeoutException e) { continue; }
+            if (p.getLength() < HDR || buf[0] != DATA || ByteBuffer.wrap(buf, 1, 4).getInt() != 1) {
+                if (p.getLength() > 0 && buf[0] != FIN) s.send(new DatagramPacket(new byte[]{FIN}, 1, p.getSocketAddress()));
+                continue; // 上一个对端的残包：回 FIN 让它放弃
+            }
+            UdpLink l = new UdpLink(ch, p.getSocketAddress(), false);
+            l.onPacket(buf, p.getLength());
+            l.startThreads();
+            return l;
+        }
+        return null;
+    }
+
+    private void startThreads(){
+        NetThreads.start("udp-recv", this::recvLoop);
+        NetThreads.start("udp-timer", this::timerLoop);
+    }
+
+    /**
+     * 房主侧共享通道的收包线程：已知地址的包交给对应链路，没见过的地址发来 seq=1 就建新链路排队等 {@link #accept}，
+     * 其余（早已关掉的对端的残包）回 FIN。同一对端断线后从新端口续传时，旧链路照旧在，交给上层决定接管还是拒绝。
+     */
+    public static final class Listener implements java.io.Closeable {
+        private final DatagramChannel ch;
+        private final ConcurrentHashMap<SocketAddress, UdpLink> links = new ConcurrentHashMap<>();
+        private final LinkedBlockingQueue<UdpLink> pending = new LinkedBlockingQueue<>();
+        private volatile boolean closed;
+
+        public Listener(DatagramChannel ch){
+            this.ch = ch;
+            NetThreads.start("udp-listen", this::loop);
+        }
+
+        /** 等下一个新对端；超时返回 null */
+        public UdpLink accept(long timeoutMs) throws IOException {
+            try { return pending.poll(timeoutMs, TimeUnit.MILLISECONDS); }
+            catch (InterruptedException e) { throw new InterruptedIOException(); }
+        }
+
+        /** 当前登记的链路数 */
+        public int size(){ return links.size(); }
+
+        @Override public void close(){
+            closed = true;
+            for (UdpLink l : links.values()) l.close();
+        }
+
+        private void loop(){
+            byte[] buf = new byte[HDR + MAX_PAYLOAD + 64];
+            DatagramPacket p = new DatagramPacket(buf, buf.length);
+            DatagramSocket s = ch.socket();
+            try {
+                s.setSoTimeout(200);
+                while (!closed) {
+                    p.setLength(buf.length);
+                    try { s.receive(p); } catch (SocketTimeoutException e) { continue; }
+                    SocketAddress from = p.getSocketAddress();
+                    int len = p.getLength();
+                    UdpLink l = links.get(from);
+                    if (l != null && l.closed) { links.remove(from, l); l = null; }   // 对端 FIN 过
+                    if (l != null) {
+                        try { l.onPacket(buf, len); } catch (IOException e) { l.close(); }
+                    } else if (len >= HDR && buf[0] == DATA && ByteBuffer.wrap(buf, 1, 4).getInt() == 1) {
+                        l = new UdpLink(ch, from, false);
+                        l.listener = this;
+                        links.put(from, l);
+                        try { l.onPacket(buf, len); } catch (IOException e) { l.close(); continue; }
+                        NetThreads.start("udp-timer", l::timerLoop);
+                        pending.offer(l);
+                    } else if (len > 0 && buf[0] != FIN) {
+                        s.send(new DatagramPacket(new byte[]{FIN}, 1, from));   // 上一个对端的残包：回 FIN 让它放弃
+                    }
+                }
+            } catch (IOException e) {
+                closed = true;
+            }
+        }
+    }
+
+    public InputStream in(){ return in; }
+    public OutputStream out(){ return out; }
+    public SocketAddress peer(){ return peer; }
+
+    public void setLossRate(double p){ lossRate = p; }
+    public void setMinRtoMs(long ms){ minRtoNs = ms * 1_000_000L; }
+    public void setSackEnabled(boolean v){ sackEnabled = v; }
+    public void setIdleTimeoutMs(long ms){ idleTimeoutMs = ms; }
+
+    public String stats(){
+        synchronized (this) {
+            return String.format("srtt=%.1fms rto=%.1fms inflight=%d retx=%d fast=%d dup=%d",
+                    srttNs / 1e6, rtoNs / 1e6, unacked.size(), retransmits, fastRetransmits, dupDrops);
+        }
+    }
+
+    @Override
+    public void close(){
+        if (closed) return;
+        closed = true;
+        try { rawSend(new byte[]{FIN}, true); } catch (Exception ignore) {}
+        inbox.offer(EOF);
+        synchronized (this) { notifyAll(); }
+        if (ownsChannel) try { ch.close(); } catch (Exception ignore) {}
+        if (listener != null) listener.links.remove(peer, this);
+    }
+
+    public boolean isClosed(){ return closed; }
+
+    // ===== 发送 =====
+
+    private void sendData(byte[] b, int off, int len) throws IOException {
+        byte[] pkt = new byte[HDR + len];
+        pkt[0] = DATA;
+        System.arraycopy(b, off, pkt, HDR, len);
+        Pending p = new Pending(pkt);
+        synchronized (this) {
+            while (unacked.size() >= WINDOW && !closed) {
+                try { wait(50); } catch (InterruptedException e) { throw new InterruptedIOException(); }
+            }
+            if (closed) throw new IOException("udp link closed");
+            int seq = nextSeq++;
+            ByteBuffer.wrap(pkt, 1, 4).putInt(seq);
+            p.sentNs = System.nanoTime();
+            p.deadlineNs = p.sentNs + rtoNs;
+            unacked.put(seq, p);
+        }
+        rawSend(pkt, false);
+    }
+
+    private void rawSend(byte[] pkt, boolean control) throws IOException {
+        if (!control && lossRate > 0 && ThreadLocalRandom.current().nextDouble() < lossRate) return; // 注入丢包
+        ch.send(ByteBuffer.wrap(pkt), peer);
+    }
+
+    private void onAck(int cum, long sack){
+        long now = System.nanoTime();
+        synchronized (this) {
+            // 累计确认
+            Iterator<Map.Entry<Integer, Pending>> it = unacked.headMap(cum, true).entrySet().iterator();
+            while (it.hasNext()) {
+                Pending p = it.next().getValue();
+                if (p.retries == 0) sampleRtt(now - p.sentNs);
+                it.remove();
+            }
+            // 选择确认
+            int highestSacked = cum;
+            if (sackEnabled && sack != 0) {
+                for (int i = 0; i < 64; i++) {
+                    if ((sack & (1L << i)) == 0) continue;
+                    int s = cum + 2 + i;
+                    Pending p = unacked.remove(s);
+                    if (p != null && p.retries == 0) sampleRtt(now - p.sentNs);
+                    highestSacked = s;
+                }
+                // 快速重传：缺口之后已有 ≥3 个包到达
+                Pending gap = unacked.get(cum + 1);
+                if (gap != null && !gap.fastDone && Long.bitCount(sack) >= 3 && highestSacked > cum + 1) {
+                    gap.fastDone = true;
+                    gap.retries++;
+                    gap.deadlineNs = now + rtoNs;
+                    fastRetransmits++;
+                    try { rawSend(gap.pkt, false); } catch (IOException ignore) {}
+                }
+            }
+            notifyAll();
+        }
+    }
+
+    private void sampleRtt(long r){
+        if (srttNs < 0) { srttNs = r; rttvarNs = r / 2; }
+        else {
+            rttvarNs += (Math.abs(srttNs - r) - rttvarNs) / 4;
+            srttNs += (r - srttNs) / 8;
+        }
+        rtoNs = Math.max(minRtoNs, Math.min(maxRtoNs, srttNs + 4 * rttvarNs));
+    }
+
+    /** 重传定时 + 空闲检测 */
+    private void timerLoop(){
+        while (!closed) {
+            try { Thread.sleep(2); } catch (InterruptedException e) { return; }
+            long now = System.nanoTime();
+            if ((now - lastHeardNs) / 1_000_000L > idleTimeoutMs) { close(); return; }
+            boolean giveUp = false;
+            synchronized (this) {
+                for (Pending p : unacked.values()) {
+                    if (p.deadlineNs > now) continue;
+                    p.retries++;
+                    retransmits++;
+                    if (p.retries > 15) { giveUp = true; break; }
+                    long backoff = Math.min(maxRtoNs, rtoNs << Math.min(p.retries, 6));
+                    p.deadlineNs = now + backoff;
+                    try { rawSend(p.pkt, false); } catch (IOException ignore) {}
+                }
+            }
+            if (giveUp) { close(); return; }   // 重传耗尽：照常发 FIN、关自己开的通道
+        }
+    }
+
+    // ===== 接收 =====
+
+    private void recvLoop(){
+        byte[] buf = new byte[HDR + MAX_PAYLOAD + 64];
+        DatagramPacket p = new DatagramPacket(buf, buf.length);
+        try {
+            sock.setSoTimeout(200);
+            while (!closed) {
+                p.setLength(buf.length);
+                try { sock.receive(p); } catch (SocketTimeoutException e) { continue; }
+                if (!peer.equals(p.getSocketAddress())) continue; // 其它来源忽略
+                onPacket(buf, p.getLength());
+            }
+        } catch (IOException e) {
+            if (!closed) close();
+        }
+    }
+
+    private void onPacket(byte[] buf, int len) throws IOException {
+        if (len < 1) return;
+        lastHeardNs = System.nanoTime();
+        switch (buf[0]) {
+            case DATA -> {
+                if (len < HDR) return;
+                int seq = ByteBuffer.wrap(buf, 1, 4).getInt();
+                if (seq <= delivered || outOfOrder.containsKey(seq)) dupDrops++;
+                else if (seq == delivered + 1) {
+                    deliver(java.util.Arrays.copyOfRange(buf, HDR, len));
+                    delivered = seq;
+                    byte[] next;
+                    while ((next = outOfOrder.remove(delivered + 1)) != null) { deliver(next); delivered++; }
+                } else if (seq - delivered <= WINDOW * 2) {
+                    outOfOrder.put(seq, java.util.Arrays.copyOfRange(buf, HDR, len));
+                }
+                sendAck();
+            }
+            case ACK -> {
+                if (len < 13) return;
+                ByteBuffer bb = ByteBuffer.wrap(buf, 1, 12);
+                onAck(bb.getInt(), bb.getLong());
+            }
+            case FIN -> { closed = true; inbox.offer(EOF); synchronized (this) { notifyAll(); } if (ownsChannel) try { ch.close(); } catch (Exception ignore) {} }
+            default -> {}
+        }
+    }
+
+    private void deliver(byte[] payload){ if (payload.length > 0) inbox.offer(payload); }
+
+    private void sendAck() throws IOException {
+        long sack = 0;
+        for (int s : outOfOrder.keySet()) {
+            int i = s - delivered - 2;
+            if (i >= 0 && i < 64) sack |= 1L << i;
+        }
+        byte[] pkt = new byte[13];
+        ByteBuffer.wrap(pkt).put(ACK).putInt(delivered).putLong(sack);
+        rawSend(pkt, false);
+    }
+
+    // ===== 流适配 =====
+
+    private final class LinkIn extends InputStream {
+        private byte[] cur; private int pos;
+
+        @Override public int read() throws IOException {
+            byte[] one = new byte[1];
+            int n = read(one, 0, 1);
+            return n < 0 ? -1 : one[0] & 0xFF;
+        }
+
+        @Override public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) return 0;
+            while (cur == null || pos >= cur.length) {
+                if (cur == EOF) return -1;
+                try { cur = inbox.take(); pos = 0; } catch (InterruptedException e) { throw new InterruptedIOException(); }
+                if (cur == EOF) { inbox.offer(EOF); return -1; }
+            }
+            int n = Math.min(len, cur.length - pos);
+            System.arraycopy(cur, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+
+        @Override public int available(){
+            return cur == null || cur == EOF ? 0 : cur.length - pos;
+        }
+
+        @Override public void close(){ UdpLink.this.close(); }
+    }
+
+    private final class LinkOut extends OutputStream {
+        @Override public void write(int b) throws IOException { write(new byte[]{(byte) b}, 0, 1); }
+        @Override public void write(byte[] b, int off, int len) throws IOException {
+            while (len > 0) {
+                int n = Math.min(len, MAX_PAYLOAD);
+                sendData(b, off, n);
+                off += n; len -= n;
+            }
+        }
+        @Override public void close(){ UdpLink.this.close(); }
+    }
+}
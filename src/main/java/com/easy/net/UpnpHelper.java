@@ -1,45 +1,241 @@
 package com.easy.net;
 
+import com.easy.ui.ConsoleSink;
 import org.bitlet.weupnp.GatewayDiscover;
 import org.bitlet.weupnp.GatewayDevice;
 
-import java.net.InetAddress;
+import java.io.IOException;
+import java.net.DatagramPacket;
+import java.net.DatagramSocket;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.*;
 
-/** 基于 weupnp 的简单 UPnP 工具 */
+/**
+ * 基于 weupnp 的 UPnP 端口映射。网关发现（SSDP 要等几秒）和所有 SOAP 请求都排在一个后台守护线程 "upnp" 上串行执行，
+ * 调用方只拿 future，EDT 上也可以直接调：
+ * <pre>
+ *   UpnpHelper.warmUp();                                         // 应用启动时：后台先把网关找好
+ *   UpnpHelper.openTcp(port, "easy-p2p").thenAccept(ok -> …);    // 不阻塞
+ *   UpnpHelper.closeTcp(port);                                   // 删映射、停续租
+ * </pre>
+ * 找到的网关连同本机地址缓存 10 分钟（-Deasy.upnp.ttl=秒），没找到的话 {@value #RETRY_S} s 后才再发现。
+ * 映射带租期（默认 3600 s，-Deasy.upnp.lease=秒），租期过半时重新 AddPortMapping 续上；续失败就作废网关缓存，
+ * {@value #RETRY_S} s 后重新发现再续。路由只支持永久映射（错误 725）时退回租期 0，也就不用续。
+ * <p>
+ * -Deasy.upnp.ssdp=host:port 把 M-SEARCH 单播给指定地址而不是组播，配合 {@code com.easy.bench.FakeIgd} 在本机测试。
+ * 映射表只在 "upnp" 线程上读写，不加锁。
+ */
 public final class UpnpHelper {
-    private static GatewayDevice device;     // 已选中的网关
-    private static InetAddress   localAddr;  // 网关识别出的本机地址
+
+    static final String IGD = "urn:schemas-upnp-org:device:InternetGatewayDevice:1";
+    static final int DISCOVER_TIMEOUT_MS = 3000;
+    static final long RETRY_S = 30;
+    /** 路由 OnlyPermanentLeasesSupported */
+    private static final String PERMANENT_ONLY = "725";
+
+    private static final ScheduledExecutorService EXEC = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "upnp");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static volatile ConsoleSink log = s -> {};
+
+    // 网关缓存：类锁保护
+    private static CompletableFuture<GatewayDevice> gateway;
+    private static long gatewayUntil;
+
+    /** 已建立的映射，键 "port/PROTO"；仅 upnp 线程 */
+    private static final Map<String, Lease> leases = new HashMap<>();
+
+    private static final class Lease {
+        final int port;
+        final String proto, desc;
+        GatewayDevice device;
+        ScheduledFuture<?> next;
+
+        Lease(int port, String proto, String desc){ this.port = port; this.proto = proto; this.desc = desc; }
+        String key(){ return port + "/" + proto; }
+    }
 
     private UpnpHelper(){}
 
-    /** 发现网关（只做一次缓存） */
-    private static synchronized boolean ensureGateway() throws Exception {
-        if (device != null && localAddr != null) return true;
-        GatewayDiscover discover = new GatewayDiscover();
-        Map<InetAddress, GatewayDevice> map = discover.discover();
-        device = discover.getValidGateway();
-        if (device == null) return false;
-        localAddr = device.getLocalAddress();
-        return localAddr != null;
+    /** 续租、重新发现这类没人等结果的后台事件往哪打 */
+    public static void setLog(ConsoleSink sink){ log = sink == null ? s -> {} : sink; }
+
+    /** 应用启动时调用：后台开始发现网关，之后第一次映射就不用再等 SSDP */
+    public static void warmUp(){ gateway(); }
+
+    /** 当前网关（缓存过期或上次没找到才重新发现）；不阻塞 */
+    public static synchronized CompletableFuture<GatewayDevice> gateway(){
+        if (gateway == null || gateway.isDone() && System.currentTimeMillis() >= gatewayUntil) {
+            CompletableFuture<GatewayDevice> f = CompletableFuture.supplyAsync(UpnpHelper::discover, EXEC);
+            gateway = f;
+            gatewayUntil = Long.MAX_VALUE;          // 发现完成后再定
+            f.whenComplete((d, e) -> expire(f, e == null ? Long.getLong("easy.upnp.ttl", 600) * 1000 : RETRY_S * 1000));
+        }
+        return gateway;
+    }
+
+    private static synchronized void expire(CompletableFuture<GatewayDevice> f, long afterMs){
+        if (gateway == f) gatewayUntil = System.currentTimeMillis() + afterMs;
+    }
+
+    /** 开 TCP 端口映射：external=port → internal=本机:port；完成值为是否成功 */
+    public static CompletableFuture<Boolean> openTcp(int port, String desc) { return open(port, "TCP", desc); }
+
+    /** 开 UDP 端口映射（UDP 传输用，和 TCP 同端口号） */
+    public static CompletableFuture<Boolean> openUdp(int port, String desc) { return open(port, "UDP", desc); }
+
+    /** 关 TCP 端口映射 */
+    public static CompletableFuture<Void> closeTcp(int port) { return close(port, "TCP"); }
+
+    /** 关 UDP 端口映射 */
+    public static CompletableFuture<Void> closeUdp(int port) { return close(port, "UDP"); }
+
+    /** 退出前调用：删掉所有映射，最多等 timeoutMs */
+    public static void closeAll(long timeoutMs){
+        try {
+            CompletableFuture.runAsync(() -> {
+                for (Lease l : new ArrayList<>(leases.values())) delete(l);
+            }, EXEC).get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (Exception ignore) {}
+    }
+
+    private static CompletableFuture<Boolean> open(int port, String proto, String desc){
+        return gateway().thenApplyAsync(d -> {
+            Lease l = new Lease(port, proto, desc);
+            Lease old = leases.remove(l.key());
+            if (old != null && old.next != null) old.next.cancel(false);
+            // 某些路由已存在时返回错误，先删再加更稳
+            try { d.deletePortMapping(port, proto); } catch (Exception ignore) {}
+            int granted = add(d, l);
+            if (granted < 0) return false;
+            l.device = d;
+            leases.put(l.key(), l);
+            if (granted > 0) l.next = EXEC.schedule(() -> renew(l), granted / 2, TimeUnit.SECONDS);
+            return true;
+        }, EXEC);
     }
 
-    /** 开 TCP 端口映射：external=port → internal=localAddr:port */
-    public static synchronized boolean openTcp(int port, String desc) {
+    private static CompletableFuture<Void> close(int port, String proto){
+        // 排在同端口在途的 open 之后执行，先开后关也能删干净
+        return CompletableFuture.runAsync(() -> {
+            Lease l = leases.get(port + "/" + proto);
+            if (l != null) delete(l);
+        }, EXEC);
+    }
+
+    private static void delete(Lease l){
+        leases.remove(l.key(), l);
+        if (l.next != null) l.next.cancel(false);
+        try { l.device.deletePortMapping(l.port, l.proto); }
+        catch (Exception e) { log.println("UPnP 删除映射 " + l.key() + " 失败: " + e.getMessage()); }
+    }
+
+    /** upnp 线程：租期过半，重发 AddPortMapping（不先删，映射不断档） */
+    private static void renew(Lease l){
+        if (leases.get(l.key()) != l) return;
+        gateway().whenCompleteAsync((d, e) -> {
+            if (leases.get(l.key()) != l) return;
+            int granted = e == null ? add(d, l) : -1;
+            if (granted < 0) {
+                synchronized (UpnpHelper.class) { gatewayUntil = 0; }   // 网关可能换了：下次重新发现
+                log.println("UPnP 续租 " + l.key() + " 失败，" + RETRY_S + " s 后重试");
+                l.next = EXEC.schedule(() -> renew(l), RETRY_S, TimeUnit.SECONDS);
+                return;
+            }
+            l.device = d;
+            log.println(granted > 0 ?"UPnP 已续租 " + l.key() + "（" + granted + " s）" : "UPnP 映射 " + l.key() + " 已转为永久");
+            if (granted > 0) l.next = EXEC.schedule(() -> renew(l), granted / 2, TimeUnit.SECONDS);
+        }, EXEC);
+    }
+
+    /** 返回网关给的租期（秒，0 = 永久），失败 -1 */
+    private static int add(GatewayDevice d, Lease l){
+        int lease = Math.max(0, Integer.getInteger("easy.upnp.lease", 3600));
         try {
-            if (!ensureGateway()) return false;
-            // 某些路由已存在时返回 false，先删再加更稳
-            try { device.deletePortMapping(port, "TCP"); } catch (Exception ignore) {}
-            return device.addPortMapping(port, port, localAddr.getHostAddress(), "TCP", desc);
+            Map<String, String> r = addMapping(d, l, lease);
+            if (lease > 0 && PERMANENT_ONLY.equals(r.get("errorCode"))) {
+                lease = 0;
+                r = addMapping(d, l, 0);
+            }
+            if (r.get("errorCode") == null) return lease;
+            log.println("UPnP AddPortMapping " + l.key() + " 被拒: " + r.get("errorCode") + " " + r.getOrDefault("errorDescription", ""));
         } catch (Exception e) {
-            return false;
+            log.println("UPnP AddPortMapping " + l.key() + " 异常: " + e.getMessage());
         }
+        return -1;
     }
 
-    /** 关 TCP 端口映射 */
-    public static synchronized void closeTcp(int port) {
+    private static Map<String, String> addMapping(GatewayDevice d, Lease l, int lease) throws Exception {
+        // weupnp 的 addPortMapping 写死租期 0，这里自己发 SOAP
+        Map<String, String> args = new LinkedHashMap<>();
+        args.put("NewRemoteHost", "");
+        args.put("NewExternalPort", Integer.toString(l.port));
+        args.put("NewProtocol", l.proto);
+        args.put("NewInternalPort", Integer.toString(l.port));
+        args.put("NewInternalClient", d.getLocalAddress().getHostAddress());
+        args.put("NewEnabled", "1");
+        args.put("NewPortMappingDescription", l.desc);
+        args.put("NewLeaseDuration", Integer.toString(lease));
+        return GatewayDevice.simpleUPnPcommand(d.getControlURL(), d.getServiceType(), "AddPortMapping", args);
+    }
+
+    /** upnp 线程：组播 SSDP（或单播给 -Deasy.upnp.ssdp），读设备描述 */
+    private static GatewayDevice discover(){
         try {
-            if (device != null) device.deletePortMapping(port, "TCP");
-        } catch (Exception ignore) {}
+            String at = System.getProperty("easy.upnp.ssdp");
+            GatewayDevice d;
+            if (at == null) {
+                GatewayDiscover gd = new GatewayDiscover();
+                gd.setTimeout(DISCOVER_TIMEOUT_MS);
+                gd.discover();
+                d = gd.getValidGateway();
+            } else {
+                int colon = at.lastIndexOf(':');
+                d = discoverAt(new InetSocketAddress(at.substring(0, colon), Integer.parseInt(at.substring(colon + 1))));
+            }
+            if (d == null || d.getLocalAddress() == null) throw new IOException("未发现 UPnP 网关");
+            log.println("UPnP 网关: " + d.getFriendlyName() + "，本机地址 " + d.getLocalAddress().getHostAddress());
+            return d;
+        } catch (Exception e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    private static GatewayDevice discoverAt(InetSocketAddress target) throws Exception {
+        try (DatagramSocket s = new DatagramSocket()) {
+            s.setSoTimeout(DISCOVER_TIMEOUT_MS);
+            s.connect(target);
+            byte[] req = ("M-SEARCH * HTTP/1.1\r\nHOST: 239.255.255.250:1900\r\nST: " + IGD
+                    + "\r\nMAN: \"ssdp:discover\"\r\nMX: 2\r\n\r\n").getBytes(StandardCharsets.US_ASCII);
+            s.send(new DatagramPacket(req, req.length));
+            byte[] buf = new byte[1536];
+            DatagramPacket p = new DatagramPacket(buf, buf.length);
+            s.receive(p);
+            String resp = new String(buf, 0, p.getLength(), StandardCharsets.ISO_8859_1);
+            String location = header(resp, "LOCATION");
+            if (location == null) throw new IOException("SSDP 应答没有 LOCATION");
+            GatewayDevice d = new GatewayDevice();
+            d.setSt(header(resp, "ST"));
+            d.setLocation(location);
+            d.setLocalAddress(s.getLocalAddress());
+            d.loadDescription();
+            return d;
+        }
+    }
+
+    private static String header(String resp, String name){
+        for (String line : resp.split("\r\n")) {
+            int c = line.indexOf(':');
+            if (c > 0 && line.substring(0, c).trim().equalsIgnoreCase(name)) return line.substring(c + 1).trim();
+        }
+        return null;
     }
 }
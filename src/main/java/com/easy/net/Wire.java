@@ -0,0 +1,340 @@
+package com.easy.net;
+
+import com.easy.util.Metrics;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 线路编码：JSON 行（默认，兼容老版本）+ 紧凑二进制帧（HELLO 协商后启用）。
+ * <pre>
+ * JSON 帧 : {...}\n
+ * 二进制帧: 0xB1 | varint 长度 | tag | varint 字段掩码 | 按 schema 顺序的字段
+ *          int 字段 = zigzag varint；字符串字段 = varint 长度 + UTF-8
+ * </pre>
+ * 只有 schema 能完整表达的消息才走二进制（多出来的键、类型不符都回退 JSON 行），
+ * 读端按首字节自动区分两种帧，所以协商前后、新老对端混用都能读。
+ * "by" 只出现在发给观战者的广播帧里（0=房主，1=客户端），棋手之间不带。
+ * 走子帧的 "hash" 是走完后的局面哈希（16 位十六进制）；SYNC 重同步帧很少见，始终走 JSON 行。
+ * 带起点的 MOVE 可多一个 "cap"：跳棋这一步吃掉的子（深色格掩码），区分起止相同的两条连跳。
+ * 加密会话（{@link SecureChannel}）在这两种帧外面再包一层 0xE5 密封帧，由 Outbox 写线程封、Reader 解。
+ */
+public final class Wire {
+
+    /** 二进制帧格式版本；HELLO 里以 "bin" 字段互相通告，版本一致才启用 */
+    public static final int BIN_VERSION = 6;
+    static final int MAGIC = 0xB1;
+    private static final int MAX_FRAME = 64 * 1024;
+
+    private Wire(){}
+
+    // ===== schema =====
+
+    private static final class Schema {
+        final int tag; final String type; final String cmd; final boolean fx;
+        final String[] ints; final String[] strs;
+        Schema(int tag, String type, String cmd, boolean fx, String[] ints, String[] strs){
+            this.tag=tag; this.type=type; this.cmd=cmd; this.fx=fx; this.ints=ints; this.strs=strs;
+        }
+    }
+
+    private static final String[] NONE = {};
+    private static final Schema[] SCHEMAS = {
+        null,
+        new Schema(1, "MOVE",      null,      false, new String[]{"x","y","turn","seq","by"},       new String[]{"hash"}),
+        new Schema(2, "MOVE",      null,      true,  new String[]{"fx","fy","x","y","seq","by","cap"}, new String[]{"hash"}),
+        new Schema(3, "MOVE_FXFY", null,      false, new String[]{"fx","fy","x","y","seq","by"},    new String[]{"hash"}),
+        new Schema(4, "BATTLE",    "fire",    false, new String[]{"x","y","seq","by"},              new String[]{"hash"}),
+        new Schema(5, "GAME",      "select",  false, new String[]{"seq","by"},                new String[]{"game","starter"}),
+        new Schema(6, "GAME",      "suggest", false, new String[]{"seq","by"},                new String[]{"game"}),
+        new Schema(7, "GAME",      "reset",   false, new String[]{"seq","by"},                new String[]{"game","starter"}),
+        new Schema(8, "ACK",       null,      false, new String[]{"seq"},                NONE),
+    };
+
+    private static Schema schemaOf(JSONObject jo){
+        String t = jo.optString("type", "");
+        String cmd = jo.has("cmd") ? jo.optString("cmd", null) : null;
+        boolean fx = jo.has("fx");
+        for (int i = 1; i < SCHEMAS.length; i++) {
+            Schema s = SCHEMAS[i];
+            if (!s.type.equals(t)) continue;
+            if (s.cmd == null ? cmd != null : !s.cmd.equals(cmd)) continue;
+            if ("MOVE".equals(t) && s.fx != fx) continue;
+            return s;
+        }
+        return null;
+    }
+
+    // ===== 编码 =====
+
+    /** 编成一帧；binary=false 或 schema 表达不了时给 JSON 行 */
+    public static byte[] encode(JSONObject jo, boolean binary){
+        if (binary) {
+            byte[] b = encodeBinary(jo);
+            if (b != null) return b;
+        }
+        return (jo.toString() + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    /** 要发给对端的一帧：编码并计入出站指标（帧数按 type、字节数） */
+    public static byte[] encodeOut(JSONObject jo, boolean binary){
+        byte[] b = encode(jo, binary);
+        countOut(jo, b.length);
+        return b;
+    }
+
+    static void countOut(JSONObject jo, int bytes){
+        Metrics.FRAMES_OUT.inc(jo.optString("type", "?"));
+        Metrics.BYTES_OUT.add(bytes);
+    }
+
+    /** 编码并写出一帧（写 + flush） */
+    public static void write(OutputStream out, JSONObject jo, boolean binary) throws IOException {
+        out.write(encodeOut(jo, binary));
+        out.flush();
+    }
+
+    /** 二进制编码；表达不了返回 null */
+    static byte[] encodeBinary(JSONObject jo){
+        Schema s = schemaOf(jo);
+        if (s == null) return null;
+        // 键必须都在 schema 里
+        int known = 1 + (s.cmd != null ? 1 : 0);
+        int mask = 0, present = 0;
+        for (int i = 0; i < s.ints.length; i++) {
+            Object v = jo.opt(s.ints[i]);
+            if (v == null) continue;
+            if (!(v instanceof Integer)) return null;
+            mask |= 1 << i; present++;
+        }
+        for (int i = 0; i < s.strs.length; i++) {
+            Object v = jo.opt(s.strs[i]);
+            if (v == null) continue;
+            if (!(v instanceof String)) return null;
+            mask |= 1 << (s.ints.length + i); present++;
+        }
+        if (jo.length() != known + present) return null;
+
+        Buf body = new Buf(16);
+        body.put(s.tag);
+        body.varint(mask);
+        for (int i = 0; i < s.ints.length; i++)
+            if ((mask & (1 << i)) != 0) body.varint(zigzag(jo.getInt(s.ints[i])));
+        for (int i = 0; i < s.strs.length; i++) {
+            if ((mask & (1 << (s.ints.length + i))) == 0) continue;
+            byte[] u = jo.getString(s.strs[i]).getBytes(StandardCharsets.UTF_8);
+            body.varint(u.length); body.put(u, 0, u.length);
+        }
+        Buf out = new Buf(body.n + 6);
+        out.put(MAGIC);
+        out.varint(body.n);
+        out.put(body.a, 0, body.n);
+        return out.toArray();
+    }
+
+    // ===== 解码 =====
+
+    /** 解二进制帧体（不含 MAGIC 与长度） */
+    static JSONObject decodeBody(byte[] a, int off, int len) throws IOException {
+        int[] p = { off };
+        int end = off + len;
+        int tag = a[p[0]++] & 0xFF;
+        if (tag <= 0 || tag >= SCHEMAS.length) throw new IOException("unknown frame tag " + tag);
+        Schema s = SCHEMAS[tag];
+        int mask = readVarint(a, p, end);
+        JSONObject jo = new JSONObject().put("type", s.type);
+        if (s.cmd != null) jo.put("cmd", s.cmd);
+        for (int i = 0; i < s.ints.length; i++)
+            if ((mask & (1 << i)) != 0) jo.put(s.ints[i], unzigzag(readVarint(a, p, end)));
+        for (int i = 0; i < s.strs.length; i++) {
+            if ((mask & (1 << (s.ints.length + i))) == 0) continue;
+            int n = readVarint(a, p, end);
+            if (p[0] + n > end) throw new IOException("truncated frame");
+            jo.put(s.strs[i], new String(a, p[0], n, StandardCharsets.UTF_8));
+            p[0] += n;
+        }
+        return jo;
+    }
+
+    /** 阻塞读端：自动区分 JSON 行、二进制帧与密封帧 */
+    public static final class Reader {
+        private final InputStream in;
+        private byte[] buf = new byte[256];
+        private byte[] plain = new byte[256];   // 密封帧解出的原帧
+        private SecureChannel.Opener opener;
+        private boolean sealedSeen;
+
+        public Reader(InputStream in){
+            this.in = in instanceof BufferedInputStream ? in : new BufferedInputStream(in);
+        }
+
+        /**
+         * HELLO 协商出加密后由读线程调用：之后可以收密封帧；收到第一个密封帧起不再接受明文帧。
+         */
+        public void decryptWith(SecureChannel.Opener o){
+            opener = o;
+            sealedSeen = false;
+        }
+
+        /** 读下一帧；对端关闭返回 null */
+        public JSONObject read() throws IOException {
+            while (true) {
+                int first = in.read();
+                if (first < 0) return null;
+                if (first == SecureChannel.SEALED) {
+                    if (opener == null) throw parseError(new IOException("unexpected sealed frame"));
+                    int len = readVarint(in);
+                    if (len <= SecureChannel.TAG || len > MAX_FRAME + SecureChannel.TAG) throw parseError(new IOException("bad sealed frame length " + len));
+                    ensure(len);
+                    readFully(buf, len);
+                    if (plain.length < len) plain = new byte[Math.max(len, plain.length * 2)];
+                    JSONObject jo;
+                    try {
+                        int n = opener.open(buf, 0, len, plain, 0);
+                        sealedSeen = true;
+                        jo = decodeFrame(plain, n);
+                    } catch (IOException e) { throw parseError(e); }
+                    catch (JSONException e) { throw parseError(e); }
+                    return counted(jo, len + 1 + (32 - Integer.numberOfLeadingZeros(len) + 6) / 7);
+                }
+                if (sealedSeen) throw parseError(new IOException("plaintext frame after encryption started"));
+                if (first == MAGIC) {
+                    int len = readVarint(in);
+                    if (len <= 0 || len > MAX_FRAME) throw parseError(new IOException("bad frame length " + len));
+                    ensure(len);
+                    readFully(buf, len);
+                    JSONObject jo;
+                    try { jo = decodeBody(buf, 0, len); } catch (IOException e) { throw parseError(e); }
+                    return counted(jo, len + 1 + (32 - Integer.numberOfLeadingZeros(len) + 6) / 7);
+                }
+                if (first == '\n' || first == '\r') continue; // 空行
+                int n = 0;
+                int c = first;
+                while (c >= 0 && c != '\n') {
+                    if (n == MAX_FRAME) throw parseError(new IOException("line too long"));
+                    ensure(n + 1);
+                    buf[n++] = (byte) c;
+                    c = in.read();
+                }
+                if (n > 0 && buf[n - 1] == '\r') n--;
+                if (n == 0) { if (c < 0) return null; continue; }
+                JSONObject jo;
+                try { jo = new JSONObject(new String(buf, 0, n, StandardCharsets.UTF_8)); } catch (JSONException e) { throw parseError(e); }
+                return counted(jo, n + 1);
+            }
+        }
+
+        /** 解密后的一整个原帧：二进制帧或 JSON 行 */
+        private static JSONObject decodeFrame(byte[] a, int n) throws IOException {
+            if (n > 0 && (a[0] & 0xFF) == MAGIC) {
+                int[] p = { 1 };
+                int len = readVarint(a, p, n);
+                if (len <= 0 || p[0] + len != n) throw new IOException("bad inner frame length " + len);
+                return decodeBody(a, p[0], len);
+            }
+            while (n > 0 && (a[n - 1] == '\n' || a[n - 1] == '\r')) n--;
+            return new JSONObject(new String(a, 0, n, StandardCharsets.UTF_8));
+        }
+
+        private static JSONObject counted(JSONObject jo, int bytes){
+            Metrics.FRAMES_IN.inc(jo.optString("type", "?"));
+            Metrics.BYTES_IN.add(bytes);
+            return jo;
+        }
+
+        private static <E extends Exception> E parseError(E e){
+            Metrics.PARSE_ERRORS.inc();
+            return e;
+        }
+
+        private void ensure(int n){
+            if (buf.length < n) buf = java.util.Arrays.copyOf(buf, Math.max(n, buf.length * 2));
+        }
+        private void readFully(byte[] b, int len) throws IOException {
+            int r = 0;
+            while (r < len) {
+                int k = in.read(b, r, len - r);
+                if (k < 0) throw new EOFException("truncated frame");
+                r += k;
+            }
+        }
+    }
+
+    /**
+     * 非阻塞场景（NioServer）用：从 a[off, off+avail) 找一整帧，返回帧总长度；
+     * 不完整返回 0。
+     */
+    static int frameLength(byte[] a, int off, int avail) throws IOException {
+        if (avail <= 0) return 0;
+        int b0 = a[off] & 0xFF;
+        if (b0 == MAGIC || b0 == SecureChannel.SEALED) {           // 密封帧同样是 首字节 + varint 长度
+            int len = 0, shift = 0, i = off + 1;
+            while (true) {
+                if (i >= off + avail) return 0;
+                int b = a[i++] & 0xFF;
+                len |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) break;
+                shift += 7;
+                if (shift > 28) throw new IOException("bad varint");
+            }
+            if (len <= 0 || len > MAX_FRAME + SecureChannel.TAG) throw new IOException("bad frame length " + len);
+            int total = (i - off) + len;
+            return total <= avail ? total : 0;
+        }
+        for (int i = off; i < off + avail; i++) if (a[i] == '\n') return i - off + 1;
+        return 0;
+    }
+
+    // ===== HELLO 协商 =====
+
+    /** 对端 HELLO 是否声明了相同版本的二进制帧 */
+    public static boolean peerSupportsBinary(JSONObject hello){
+        return hello != null && hello.optInt("bin", 0) == BIN_VERSION;
+    }
+
+    // ===== varint =====
+
+    static int zigzag(int v){ return (v << 1) ^ (v >> 31); }
+    static int unzigzag(int v){ return (v >>> 1) ^ -(v & 1); }
+
+    private static int readVarint(byte[] a, int[] p, int end) throws IOException {
+        int v = 0, shift = 0;
+        while (true) {
+            if (p[0] >= end) throw new IOException("truncated varint");
+            int b = a[p[0]++] & 0xFF;
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+            shift += 7;
+            if (shift > 28) throw new IOException("bad varint");
+        }
+    }
+
+    private static int readVarint(InputStream in) throws IOException {
+        int v = 0, shift = 0;
+        while (true) {
+            int b = in.read();
+            if (b < 0) throw new EOFException("truncated varint");
+            v |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return v;
+            shift += 7;
+            if (shift > 28) throw new IOException("bad varint");
+        }
+    }
+
+    /** 简单可增长字节缓冲 */
+    private static final class Buf {
+        byte[] a; int n;
+        Buf(int cap){ a = new byte[cap]; }
+        void put(int b){ grow(1); a[n++] = (byte) b; }
+        void put(byte[] b, int off, int len){ grow(len); System.arraycopy(b, off, a, n, len); n += len; }
+        void varint(int v){
+            grow(5);
+            while ((v & ~0x7F) != 0) { a[n++] = (byte) ((v & 0x7F) | 0x80); v >>>= 7; }
+            a[n++] = (byte) v;
+        }
+        void grow(int k){ if (n + k > a.length) a = java.util.Arrays.copyOf(a, Math.max(n + k, a.length * 2)); }
+        byte[] toArray(){ return n == a.length ? a : java.util.Arrays.copyOf(a, n); }
+    }
+}
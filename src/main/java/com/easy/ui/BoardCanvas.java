@@ -7,6 +7,7 @@ import java.util.List;
 
 import com.easy.game.*;
 import com.easy.net.Proto;
+import com.easy.util.Metrics;
 
 public class BoardCanvas extends JPanel implements MoveListener, NetEventListener {
 
@@ -96,6 +97,7 @@ public class BoardCanvas extends JPanel implements MoveListener, NetEventListene
         }
         game.reset(iStart);
         game.setMyTurn(iStart);
+        Metrics.GAMES_STARTED.inc(type.name());
         log.println("游戏开始：" + type + "，" + (iStart ? "你先手" : "你后手"));
         repaint();
     }
@@ -146,7 +148,7 @@ public class BoardCanvas extends JPanel implements MoveListener, NetEventListene
             lastMine = new Point(x,y);
             repaint();
             try {
-                sender.sendMove(x,y,0,"");
+                sender.sendMove(x,y,0,Zobrist.hex(game.hash()));
             } catch (Exception ex) { log.println("发送落子失败: " + ex.getMessage()); }
             afterMoveCheck();
         } else {
@@ -183,8 +185,7 @@ public class BoardCanvas extends JPanel implements MoveListener, NetEventListene
             sel = null; legal = java.util.Collections.emptyList();
             repaint();
             try {
-                if (sender instanceof com.easy.net.NetServer s) s.sendJson(Proto.moveFxFy(fx,fy,x,y));
-                else if (sender instanceof com.easy.net.NetClient c) c.sendJson(Proto.moveFxFy(fx,fy,x,y));
+                sender.sendJson(Proto.moveFxFy(fx,fy,x,y,Zobrist.hex(game.hash())));
             } catch (Exception ex) { log.println("发送走子失败: " + ex.getMessage()); }
             afterMoveCheck();
         } else {
@@ -214,13 +215,26 @@ public class BoardCanvas extends JPanel implements MoveListener, NetEventListene
 
         if (!game.myTurn()) { log.println("现在不是你的回合"); return; }
         int fx = sel.x, fy = sel.y;
-        if (ck.move(fx,fy,x,y)) {
+        List<Integer> caps = ck.captureChoices(fx,fy,x,y);
+        int cap = caps.isEmpty() ? -1 : caps.get(0);
+        if (caps.size() > 1) {   // 起止相同的几条连跳：让玩家选吃哪些子
+            String[] labels = new String[caps.size()];
+            for (int i = 0; i < labels.length; i++) {
+                StringBuilder sb = new StringBuilder("吃");
+                for (Point p : CheckersGame.capturedSquares(caps.get(i))) sb.append(" (").append(p.x).append(',').append(p.y).append(')');
+                labels[i] = sb.toString();
+            }
+            int k = JOptionPane.showOptionDialog(this, "起点终点相同的连跳有 " + labels.length + " 条，选择要吃掉的子：", "选择连跳路线",
+                    JOptionPane.DEFAULT_OPTION, JOptionPane.QUESTION_MESSAGE, null, labels, labels[0]);
+            if (k < 0) { log.println("已取消"); return; }
+            cap = caps.get(k);
+        }
+        if (ck.move(fx,fy,x,y,cap)) {
             lastMine = new Point(x,y);
             sel = null; legal = java.util.Collections.emptyList();
             repaint();
             try {
-                if (sender instanceof com.easy.net.NetServer s) s.sendJson(Proto.moveFxFy(fx,fy,x,y));
-                else if (sender instanceof com.easy.net.NetClient c) c.sendJson(Proto.moveFxFy(fx,fy,x,y));
+                sender.sendJson(Proto.checkersMove(fx,fy,x,y,cap,Zobrist.hex(game.hash())));
             } catch (Exception ex) { log.println("发送走子失败: " + ex.getMessage()); }
             afterMoveCheck();
         } else {
@@ -249,8 +263,7 @@ public class BoardCanvas extends JPanel implements MoveListener, NetEventListene
             BattleshipGame.FireResult fr = bg.fireAtEnemy(x,y);
             repaint();
             try {
-                if (sender instanceof com.easy.net.NetServer s) s.sendJson(Proto.battleFire(x,y));
-                else if (sender instanceof com.easy.net.NetClient c) c.sendJson(Proto.battleFire(x,y));
+                sender.sendJson(Proto.battleFire(x,y,Zobrist.hex(game.hash())));
             } catch (Exception ex){ log.println("发送开火失败: " + ex.getMessage()); }
             if (fr == BattleshipGame.FireResult.WIN){ log.println("你击沉了对方所有舰船！"); }
             afterMoveCheck();
@@ -261,6 +274,7 @@ public class BoardCanvas extends JPanel implements MoveListener, NetEventListene
 
     private void afterMoveCheck(){
         if (game.isFinished()){
+            Metrics.GAMES_FINISHED.inc(game.type().name());
             // 下一局由对方先
             hostStartsNext = !hostStartsNext;
             log.println("游戏结束：" + game.resultText() + "。3 秒后重开下一局并交换先手。");
@@ -275,55 +289,75 @@ public class BoardCanvas extends JPanel implements MoveListener, NetEventListene
     // ====== 来自网络的对方走子 ======
 
     @Override
-    public void onOpponentMove(int x, int y){
+    public void onOpponentMove(int x, int y){ onOpponentMove(x, y, ""); }
+
+    @Override
+    public void onOpponentMoveFxFy(int fx,int fy,int x,int y){ onOpponentMoveFxFy(fx, fy, x, y, ""); }
+
+    @Override
+    public void onOpponentMove(int x, int y, String hash){
         // 仅兼容 Gomoku/Reversi/battle-hit-only 情况，带起点的见 onOpponentMoveFxFy
         SwingUtilities.invokeLater(() -> {
-            switch (game.type()){
-                case CHESS, CHECKERS -> { /* 忽略（这两者用 fx,fy 通道）*/ }
+            boolean applied = switch (game.type()){
+                case CHESS, CHECKERS -> false; /* 这两者用 fx,fy 通道 */
                 case BATTLE -> {
                     BattleshipGame bg = (BattleshipGame) game;
                     bg.applyEnemyFire(x,y); // 对方打我
-                    lastOpp = new Point(x,y);
-                    repaint();
-                    afterMoveCheck();
-                }
-                default -> {
-                    if (game.play(x,y)){
-                        lastOpp = new Point(x,y);
-                        repaint();
-                        afterMoveCheck();
-                    }
+                    yield true;
                 }
+                default -> game.play(x,y);
+            };
+            if (applied){
+                lastOpp = new Point(x,y);
+                repaint();
+                afterMoveCheck();
             }
+            verify(applied, hash);
         });
     }
 
-    public void onOpponentMoveFxFy(int fx,int fy,int x,int y){
+    @Override
+    public void onOpponentMoveFxFy(int fx,int fy,int x,int y, String hash){ onOpponentMoveFxFy(fx, fy, x, y, -1, hash); }
+
+    /** cap：跳棋这一步吃掉的子（-1 = 对端没带，起止有歧义时这步走不通，随后按哈希重同步） */
+    @Override
+    public void onOpponentMoveFxFy(int fx,int fy,int x,int y, int cap, String hash){
         SwingUtilities.invokeLater(() -> {
-            switch (game.type()){
-                case CHESS -> {
-                    ChessGame cg = (ChessGame) game;
-                    if (cg.moveFromPeer(fx,fy,x,y)) {
-                        lastOpp = new Point(x,y);
-                        sel = null; legal = java.util.Collections.emptyList();
-                        repaint();
-                        afterMoveCheck();
-                    }
-                }
-                case CHECKERS -> {
-                    CheckersGame ck = (CheckersGame) game;
-                    if (ck.moveFromPeer(fx,fy,x,y)) {
-                        lastOpp = new Point(x,y);
-                        sel = null; legal = java.util.Collections.emptyList();
-                        repaint();
-                        afterMoveCheck();
-                    }
-                }
-                default -> {}
+            boolean applied = switch (game.type()){
+                case CHESS -> ((ChessGame) game).moveFromPeer(fx,fy,x,y);
+                case CHECKERS -> ((CheckersGame) game).moveFromPeer(fx,fy,x,y,cap);
+                default -> false;
+            };
+            if (applied){
+                lastOpp = new Point(x,y);
+                sel = null; legal = java.util.Collections.emptyList();
+                repaint();
+                afterMoveCheck();
             }
+            verify(applied, hash);
         });
     }
 
+    // ====== 局面哈希校验 / 重同步 ======
+
+    /** 对方走完这步后的哈希 vs 我走完同一步后的哈希：一次 long 比较；对不上（或这步在我这边走不通）就重同步 */
+    private void verify(boolean applied, String hash){
+        if (!applied) Metrics.MOVE_REJECTS.inc(game.type().name());
+        Long want = Zobrist.parse(hash);
+        if (want == null) return; // 老对端不带哈希
+        if (applied && game.hash() == want) return;
+        log.println("[SYNC] 局面不一致（本地 " + Zobrist.hex(game.hash()) + " / 对方 " + hash + (applied ? "" : "，该步无法应用") + "），以房主局面为准重同步");
+        resync();
+    }
+
+    /** 房主直接推快照；客户端请房主推 */
+    private void resync(){
+        try {
+            if (hostSide) sender.sendJson(Proto.syncState(game.type().name(), game.snapshot(), Zobrist.hex(game.hash())));
+            else sender.sendJson(Proto.syncRequest());
+        } catch (Exception ex){ log.println("[SYNC] 发送失败: " + ex.getMessage()); }
+    }
+
     // ====== NetEventListener ======
 
     @Override
@@ -335,6 +369,26 @@ public class BoardCanvas extends JPanel implements MoveListener, NetEventListene
     public void onGameSuggested(GameType type){
         log.println("对方建议切换游戏：" + type);
     }
+    @Override
+    public void onSyncRequest(){
+        SwingUtilities.invokeLater(() -> { if (hostSide) resync(); });
+    }
+    @Override
+    public void onSyncState(GameType type, String state, String hash){
+        SwingUtilities.invokeLater(() -> {
+            if (hostSide) return; // 房主局面为准，不接受反向覆盖
+            if (game.type() != type) switchGame(type);
+            boolean wasFinished = game.isFinished();
+            if (!game.restore(state)) { log.println("[SYNC] 快照无法解析，忽略"); return; }
+            Long want = Zobrist.parse(hash);
+            clearHints();
+            repaint();
+            log.println(want == null || game.hash() == want
+                    ? "[SYNC] 已按房主局面重同步"
+                    : "[SYNC] 重同步后哈希仍不一致（本地 " + Zobrist.hex(game.hash()) + " / 房主 " + hash + "）");
+            if (!wasFinished) afterMoveCheck();
+        });
+    }
 
     // ====== 绘制 ======
 
@@ -1,25 +1,121 @@
 package com.easy.ui;
 
 import javax.swing.*;
+import javax.swing.text.BadLocationException;
+import javax.swing.text.Document;
+import javax.swing.text.Element;
 import java.awt.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
-public 
+/**
+ * 日志面板。任意线程 println 只做三件事：过级别、领一个序号、把行放进无锁环；
+ * EDT 上的合并定时器每 {@value #FLUSH_MS} ms 把环里新到的行拼成一段，一次 append 进文档，
+ * 再把超出上限的旧行从头部裁掉。读循环逐帧打日志也不会再一行一个 EDT 任务、文档也不会无限长。
+ * <p>
+ * 生产者比 UI 快出一整个环（{@value #RING} 行）时，来不及显示的行直接丢弃，并在界面上注明丢了多少。
+ * 上限与级别：-Deasy.console.lines=2000，-Deasy.log.level=INFO（也可在面板右上角切换，只影响之后的日志）。
+ */
+public
 class ConsolePanel extends JPanel implements ConsoleSink {
+
+    private static final int RING = 4096;           // 2 的幂
+    private static final int MASK = RING - 1;
+    private static final int FLUSH_MS = 50;
+
+    private record Line(long seq, String text) {}
+
     private final JTextArea area = new JTextArea(10, 80); // ~10 rows by default
+    private final int maxLines;
+    private volatile Level level;
+
+    private final AtomicReferenceArray<Line> ring = new AtomicReferenceArray<>(RING);
+    private final AtomicLong seq = new AtomicLong();        // 下一行的序号
+    private long cursor;                                     // 下一行待显示的序号，仅 EDT
+    private final AtomicBoolean pending = new AtomicBoolean();
+    private final Timer flush = new Timer(FLUSH_MS, e -> drain());
 
     public ConsolePanel() {
+        this(Integer.getInteger("easy.console.lines", 2000), parseLevel(System.getProperty("easy.log.level")));
+    }
+
+    public ConsolePanel(int maxLines, Level level) {
+        this.maxLines = Math.max(1, maxLines);
+        this.level = level;
+        flush.setRepeats(false);
+        flush.setCoalesce(false);   // drain 进行中再 start 的那一次不能被合并掉，否则 pending 永远不复位
+
         setLayout(new BorderLayout());
         area.setEditable(false);
         area.setLineWrap(true);
         area.setWrapStyleWord(true);
         add(new JScrollPane(area), BorderLayout.CENTER);
+
+        JComboBox<Level> levels = new JComboBox<>(Level.values());
+        levels.setSelectedItem(level);
+        levels.addActionListener(e -> setLevel((Level) levels.getSelectedItem()));
+        JPanel bar = new JPanel(new FlowLayout(FlowLayout.RIGHT, 4, 0));
+        bar.add(new JLabel("日志级别"));
+        bar.add(levels);
+        add(bar, BorderLayout.NORTH);
     }
 
+    public void setLevel(Level level){ this.level = level; }
+    public Level level(){ return level; }
+
+    @Override public boolean isEnabled(Level l){ return l.ordinal() >= level.ordinal(); }
+
+    @Override
+    public void println(String s) { println(Level.INFO, s); }
+
     @Override
-    public void println(String s) {
-        SwingUtilities.invokeLater(() -> {
-            area.append(s + "\n");
-            area.setCaretPosition(area.getDocument().getLength());
-        });
+    public void println(Level l, String s) {
+        if (!isEnabled(l)) return;
+        long n = seq.getAndIncrement();
+        ring.set((int) (n & MASK), new Line(n, s));
+        if (pending.compareAndSet(false, true)) flush.start();
+    }
+
+    /** EDT：取出环里所有已写好的行，一次写进文档 */
+    private void drain(){
+        pending.set(false);
+        long end = seq.get();
+        StringBuilder sb = new StringBuilder();
+        long dropped = 0;
+        while (cursor < end) {
+            Line l = ring.get((int) (cursor & MASK));
+            if (l == null || l.seq < cursor) break;          // 序号已领、行还没放进来：下一轮再取
+            if (l.seq > cursor) {                            // 已被覆盖：跳到环里现存最老的一行（生产者还在往前写，重读一次）
+                long oldest = Math.max(cursor + 1, seq.get() - RING + 1);
+                dropped += oldest - cursor;
+                cursor = oldest;
+                continue;
+            }
+            sb.append(l.text).append('\n');
+            cursor++;
+        }
+        if (cursor < seq.get() && pending.compareAndSet(false, true)) flush.start();
+        if (dropped > 0) sb.insert(0, "…（日志过快，省略 " + dropped + " 行）\n");
+        if (sb.length() == 0) return;
+        area.append(sb.toString());
+        trim();
+        area.setCaretPosition(area.getDocument().getLength());
+    }
+
+    /** 只保留最后 maxLines 行 */
+    private void trim(){
+        Document doc = area.getDocument();
+        Element root = doc.getDefaultRootElement();
+        int excess = root.getElementCount() - 1 - maxLines;  // 末尾换行后还有一个空段落
+        if (excess <= 0) return;
+        try {
+            doc.remove(0, root.getElement(excess - 1).getEndOffset());
+        } catch (BadLocationException ignore) {}
+    }
+
+    private static Level parseLevel(String s){
+        if (s != null) for (Level l : Level.values()) if (l.name().equalsIgnoreCase(s.trim())) return l;
+        return Level.INFO;
     }
 }
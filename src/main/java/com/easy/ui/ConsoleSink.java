@@ -1,4 +1,19 @@
 package com.easy.ui;
+
+import java.util.function.Supplier;
+
 public interface ConsoleSink {
+
+    /** 日志级别：DEBUG 是逐帧收发记录，界面默认不显示 */
+    enum Level { DEBUG, INFO, WARN, ERROR }
+
     void println(String s);
+
+    /** 该级别会不会被输出；热路径据此跳过拼字符串 */
+    default boolean isEnabled(Level level){ return true; }
+
+    default void println(Level level, String s){ if (isEnabled(level)) println(s); }
+
+    /** 先过级别再格式化：被过滤掉时 msg 不会被求值 */
+    default void log(Level level, Supplier<String> msg){ if (isEnabled(level)) println(level, msg.get()); }
 }
@@ -27,6 +27,11 @@ public class MainFrame extends JFrame implements ConsoleSink {
                 if (real==null) throw new java.io.IOException("尚未建立连接");
                 real.sendMove(x,y,turn,hash);
             }
+            @Override public void sendJson(org.json.JSONObject jo) throws java.io.IOException {
+                MoveSender real = sidebar.getCurrentSender();
+                if (real==null) throw new java.io.IOException("尚未建立连接");
+                real.sendJson(jo);
+            }
         }, this);
 
         sidebar.setBoard(board);
@@ -59,7 +64,7 @@ public class MainFrame extends JFrame implements ConsoleSink {
     private void hostSelectGame(GameType type){
         println("房主选择游戏：" + type);
         try {
-            var s = getServerIfAny();
+            var s = sidebar.isHost() ? sidebar.getCurrentSender() : null;   // 自己开服，或中转里坐 host 座位的 NetClient
             if (s!=null) s.sendJson(Proto.gameSelect(type.name(), "host"));
         } catch (Exception ex){ println("发送游戏选择失败: " + ex.getMessage()); }
         board.setHostStartsNext(hostStartsNext);
@@ -75,21 +80,8 @@ public class MainFrame extends JFrame implements ConsoleSink {
         } catch (Exception ex){ println("发送建议失败: " + ex.getMessage()); }
     }
 
-    private boolean sidebarIsHost(){
-        try {
-            var f = SidebarPanel.class.getDeclaredField("server");
-            f.setAccessible(true);
-            return f.get(sidebar)!=null;
-        } catch (Exception e){ return false; }
-    }
+    private boolean sidebarIsHost(){ return sidebar.isHost(); }
 
-    private NetServer getServerIfAny(){
-        try {
-            var f = SidebarPanel.class.getDeclaredField("server");
-            f.setAccessible(true);
-            return (NetServer) f.get(sidebar);
-        } catch (Exception e){ return null; }
-    }
     private NetClient getClientIfAny(){
         try {
             var f = SidebarPanel.class.getDeclaredField("client");
@@ -99,4 +91,6 @@ public class MainFrame extends JFrame implements ConsoleSink {
     }
 
     @Override public void println(String s){ console.println(s); }
+    @Override public void println(Level level, String s){ console.println(level, s); }
+    @Override public boolean isEnabled(Level level){ return console.isEnabled(level); }
 }
@@ -1,4 +1,11 @@
 package com.easy.ui;
 public interface MoveListener {
     void onOpponentMove(int x, int y);
+    /** 带起点的走子（Chess/Checkers）；默认退化为单点 */
+    default void onOpponentMoveFxFy(int fx, int fy, int x, int y){ onOpponentMove(x, y); }
+    /** 带对端局面哈希的走子（hash 为空 = 老对端没带，不校验）；默认忽略哈希 */
+    default void onOpponentMove(int x, int y, String hash){ onOpponentMove(x, y); }
+    default void onOpponentMoveFxFy(int fx, int fy, int x, int y, String hash){ onOpponentMoveFxFy(fx, fy, x, y); }
+    /** 跳棋带吃子掩码的走子（cap 见 Proto.checkersMove）；默认丢掉 cap */
+    default void onOpponentMoveFxFy(int fx, int fy, int x, int y, int cap, String hash){ onOpponentMoveFxFy(fx, fy, x, y, hash); }
 }
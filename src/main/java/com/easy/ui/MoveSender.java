@@ -3,4 +3,6 @@ import java.io.IOException;
 
 public interface MoveSender {
     void sendMove(int x, int y, int turn, String hash) throws IOException;
+    /** 发送任意协议帧（MOVE fx/fy、BATTLE fire 等） */
+    void sendJson(org.json.JSONObject jo) throws IOException;
 }
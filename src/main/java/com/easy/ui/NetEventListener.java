@@ -4,4 +4,8 @@ public interface NetEventListener {
     void onOpponentMove(int x, int y);
     void onGameSelected(GameType type, String starter);
     void onGameSuggested(GameType type);
+    /** 对方发现局面哈希不一致，请求房主发快照 */
+    default void onSyncRequest(){}
+    /** 收到房主的局面快照 */
+    default void onSyncState(GameType type, String state, String hash){}
 }
@@ -0,0 +1,219 @@
+package com.easy.ui;
+
+import com.easy.game.ChessBoard;
+import com.easy.game.ChessGame;
+import com.easy.game.ChessSearch;
+import com.easy.game.Game;
+import com.easy.game.GameType;
+import com.easy.game.GomokuBoard;
+import com.easy.game.GomokuGame;
+import com.easy.game.GomokuSearch;
+import com.easy.game.ReversiBoard;
+import com.easy.game.ReversiGame;
+import com.easy.game.ReversiSearch;
+import com.easy.game.Zobrist;
+import com.easy.net.Proto;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 电脑对手（国际象棋、五子棋、黑白棋）：以客户端身份接在 {@link com.easy.net.NetClient} 上，和真人客户端走同一套协议——
+ * 房主选棋、走子帧带哈希、终局 3 秒后交换先手重开、对不上时请房主发快照。
+ * 房主那边的 {@link BoardCanvas} 照常用 {@link ChessGame#moveFromPeer} / {@link Game#play} 接它的走子，分不出对面是不是人。
+ * <p>
+ * 网络读线程进来的回调都在 synchronized 里改局面；想棋在单独的 "practice-bot" 线程上跑引擎
+ * （国际象棋 {@link ChessSearch} Lazy SMP，五子棋 {@link GomokuSearch} 威胁搜索 + fork/join alpha-beta，
+ * 黑白棋 {@link ReversiSearch} 中局评估 + 终局 fork/join 精确求解）。
+ * round 每开一局 +1，换局/重同步时先 stop 正在进行的搜索，想完回来 round 变了就丢掉。
+ */
+public final class PracticeBot implements MoveListener, NetEventListener, AutoCloseable {
+
+    private final ConsoleSink log;
+    private final int threads;
+    private final long moveMs;
+    private final ScheduledExecutorService exec = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "practice-bot");
+        t.setDaemon(true);
+        return t;
+    });
+    private ChessSearch chess;          // 第一次用到时才建（置换表、线程池）
+    private GomokuSearch gomoku;
+    private ReversiSearch reversi;
+
+    private MoveSender out;
+    private Game game;                  // null = 当前棋种电脑不会下
+    private boolean hostStartsNext = true;
+    private int round;
+
+    /** @param threads 搜索线程数；@param moveMs 每步限时 */
+    public PracticeBot(ConsoleSink log, int threads, long moveMs){
+        this.log = log;
+        this.threads = threads;
+        this.moveMs = moveMs;
+    }
+
+    /** 走子从这里发出去（一般是接着的 NetClient） */
+    public synchronized void attach(MoveSender out){ this.out = out; }
+
+    @Override public synchronized void close(){
+        stopThinking();
+        exec.shutdownNow();
+        if (chess != null) chess.close();
+        if (gomoku != null) gomoku.close();
+        if (reversi != null) reversi.close();
+    }
+
+    private void stopThinking(){
+        if (chess != null) chess.stop();
+        if (gomoku != null) gomoku.stop();
+        if (reversi != null) reversi.stop();
+    }
+
+    // ===== 开局 / 终局 =====
+
+    private void newGame(GameType type, boolean iStart){
+        stopThinking();
+        round++;
+        switch (type) {
+            case CHESS -> {
+                if (chess == null) {
+                    chess = new ChessSearch(threads, 64);
+                    chess.setQueenPromotionsOnly(true);    // ChessGame / MOVE_FXFY 只会升后
+                }
+                game = new ChessGame();
+                exec.execute(chess::clear);
+            }
+            case GOMOKU -> {
+                if (gomoku == null) gomoku = new GomokuSearch(threads);
+                game = new GomokuGame();
+            }
+            case REVERSI -> {
+                if (reversi == null) reversi = new ReversiSearch(threads);
+                game = new ReversiGame();
+                exec.execute(reversi::clear);
+            }
+            default -> {
+                game = null;
+                log.println("[BOT] 电脑只会下国际象棋、五子棋和黑白棋，" + type + " 请找真人");
+                return;
+            }
+        }
+        game.reset(iStart);
+        game.setMyTurn(iStart);
+        log.println("[BOT] " + type + " 开局，电脑" + (iStart ? "先手" : "后手") + "（" + threads + " 线程，每步 " + moveMs + " ms）");
+        if (iStart) think();
+    }
+
+    /** 和 BoardCanvas 一样：终局后交换先手，3 秒后重开 */
+    private void finished(){
+        log.println("[BOT] 对局结束：" + game.resultText());
+        hostStartsNext = !hostStartsNext;
+        int r = round;
+        GameType type = game.type();
+        exec.schedule(() -> {
+            synchronized (this) { if (r == round) newGame(type, !hostStartsNext); }
+        }, 3, TimeUnit.SECONDS);
+    }
+
+    // ===== 想棋 =====
+
+    private void think(){
+        int r = round;
+        if (game instanceof ChessGame cg) {
+            ChessBoard pos = new ChessBoard(cg.board());
+            exec.execute(() -> playChess(r, chess.search(pos, ChessSearch.MAX_PLY, moveMs)));
+        } else if (game instanceof GomokuGame gg) {
+            GomokuBoard pos = new GomokuBoard(gg.board());
+            exec.execute(() -> playGomoku(r, gomoku.search(pos, moveMs)));
+        } else if (game instanceof ReversiGame rg) {
+            ReversiBoard pos = new ReversiBoard(rg.board());
+            exec.execute(() -> playReversi(r, reversi.search(pos, moveMs)));
+        }
+    }
+
+    private synchronized void playChess(int r, ChessSearch.Result res){
+        if (r != round || !(game instanceof ChessGame cg) || !cg.myTurn() || res.move() == 0) return;
+        int m = res.move();
+        int fx = ChessBoard.from(m) & 7, fy = 7 - (ChessBoard.from(m) >> 3);
+        int tx = ChessBoard.to(m) & 7, ty = 7 - (ChessBoard.to(m) >> 3);
+        if (!cg.move(fx, fy, tx, ty)) { log.println("[BOT] 引擎给出的走法无法应用：" + ChessBoard.uci(m)); return; }
+        log.println("[BOT] " + ChessBoard.uci(m) + "  " + res);
+        send(Proto.moveFxFy(fx, fy, tx, ty, Zobrist.hex(cg.hash())));
+        if (cg.isFinished()) finished();
+    }
+
+    private synchronized void playGomoku(int r, GomokuSearch.Result res){
+        if (r != round || !(game instanceof GomokuGame gg) || !gg.myTurn() || res.move() < 0) return;
+        if (!gg.play(res.x(), res.y())) { log.println("[BOT] 引擎给出的落点无法应用：" + res); return; }
+        log.println("[BOT] " + res);
+        try {
+            out.sendMove(res.x(), res.y(), 0, Zobrist.hex(gg.hash()));
+        } catch (Exception e) {
+            log.println("[BOT] 发送走子失败: " + e.getMessage());
+        }
+        if (gg.isFinished()) finished();
+    }
+
+    /** 对方没棋可走时 ReversiGame 自动停一手，轮次又回到电脑，接着想 */
+    private synchronized void playReversi(int r, ReversiSearch.Result res){
+        if (r != round || !(game instanceof ReversiGame rg) || !rg.myTurn() || res.move() < 0) return;
+        if (!rg.play(res.x(), res.y())) { log.println("[BOT] 引擎给出的落点无法应用：" + res); return; }
+        log.println("[BOT] " + res);
+        try {
+            out.sendMove(res.x(), res.y(), 0, Zobrist.hex(rg.hash()));
+        } catch (Exception e) {
+            log.println("[BOT] 发送走子失败: " + e.getMessage());
+        }
+        if (rg.isFinished()) finished();
+        else if (rg.myTurn()) think();
+    }
+
+    private void send(org.json.JSONObject jo){
+        try { out.sendJson(jo); } catch (Exception e) { log.println("[BOT] 发送走子失败: " + e.getMessage()); }
+    }
+
+    // ===== 网络回调 =====
+
+    @Override public void onOpponentMove(int x, int y){ onOpponentMove(x, y, ""); }
+
+    @Override
+    public synchronized void onOpponentMove(int x, int y, String hash){
+        if (!(game instanceof GomokuGame || game instanceof ReversiGame) || game.isFinished()) return;
+        afterPeerMove(game.play(x, y), hash);
+    }
+
+    @Override
+    public synchronized void onOpponentMoveFxFy(int fx, int fy, int x, int y, String hash){
+        if (!(game instanceof ChessGame cg) || cg.isFinished()) return;
+        afterPeerMove(cg.moveFromPeer(fx, fy, x, y), hash);
+    }
+
+    private void afterPeerMove(boolean applied, String hash){
+        Long want = Zobrist.parse(hash);
+        if (!applied || want != null && want != game.hash()) {
+            log.println("[BOT] 局面不一致，请房主同步");
+            send(Proto.syncRequest());
+            return;
+        }
+        if (game.isFinished()) finished();
+        else if (game.myTurn()) think();
+    }
+
+    @Override
+    public synchronized void onGameSelected(GameType type, String starter){ newGame(type, !hostStartsNext); }
+
+    @Override public void onGameSuggested(GameType type){}
+
+    @Override
+    public synchronized void onSyncState(GameType type, String state, String hash){
+        if (game == null || game.type() != type) newGame(type, !hostStartsNext);
+        if (game == null) return;
+        stopThinking();
+        round++;
+        if (!game.restore(state)) { log.println("[BOT] 快照无法解析"); return; }
+        if (game.isFinished()) finished();
+        else if (game.myTurn()) think();
+    }
+}
@@ -1,5 +1,6 @@
 package com.easy.ui;
 
+import com.easy.net.AddressResolver;
 import com.easy.net.InviteCodec;
 import com.easy.net.NetClient;
 import com.easy.net.NetServer;
@@ -9,9 +10,8 @@ import com.easy.ui.GameStartPolicy;
 
 import javax.swing.*;
 import java.awt.*;
-import java.net.HttpURLConnection;
-import java.net.URL;
-import java.util.Scanner;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public class SidebarPanel extends JPanel {
     private java.util.function.Consumer<Boolean> roleCb; // true=host, false=client
@@ -21,17 +21,25 @@ public class SidebarPanel extends JPanel {
     private final JTextField inviteIn  = new JTextField();
     private final JTextField inviteOut = new JTextField();
     private final JTextField portField = new JTextField("2266");
+    private final JTextField hubField  = new JTextField();      // 中转服务器 host:port
+    private final JTextField roomField = new JTextField();      // 局号；空 = 按到达顺序配对
 
     private final JRadioButton lanBtn = new JRadioButton("局域网");
     private final JRadioButton wanBtn = new JRadioButton("公网", true);
+    private final JCheckBox udpBox = new JCheckBox("UDP 低延迟传输", true);
+    private final JLabel rttLabel = new JLabel("RTT: 未连接");
 
     private NetServer server;
     private NetClient client;
+    private PracticeBot bot;
     private MoveSender currentSender;
+    private boolean hostSide;           // 本端当房主：自己开服 / 人机练习 / 中转分到 host 座位
     private BoardCanvas board;
+    private boolean resolving;          // 仅 EDT
 
     public SidebarPanel(ConsoleSink log) {
         this.log = log;
+        UpnpHelper.setLog(log);
         setLayout(new GridLayout(0,1,6,6));
 
         Dimension btnSize = new Dimension(140, 28);
@@ -59,12 +67,25 @@ public class SidebarPanel extends JPanel {
         });
         inviteOut.setEditable(false);
 
-        add(new JLabel("连接模式")); add(lanBtn); add(wanBtn);
+        add(new JLabel("连接模式")); add(lanBtn); add(wanBtn); add(udpBox);
         add(new JLabel("端口(建议 30000-60000)：")); add(portField);
         add(serverBtn);
         add(new JLabel("邀请码输出")); add(inviteOut); add(copyBtn);
         add(new JLabel("输入邀请码连接")); add(inviteIn); add(clientBtn);
 
+        JButton hubBtn = new JButton("经中转对局");
+        hubBtn.setPreferredSize(btnSize);
+        hubBtn.addActionListener(e -> connectHub());
+        hubField.setPreferredSize(new Dimension(180, 26));
+        roomField.setPreferredSize(new Dimension(180, 26));
+        add(new JLabel("中转服务器 host:port")); add(hubField);
+        add(new JLabel("局号（空=随机配对）")); add(roomField); add(hubBtn);
+
+        JButton botBtn = new JButton("人机练习(象棋/五子棋/黑白棋)");
+        botBtn.setPreferredSize(btnSize);
+        botBtn.addActionListener(e -> startPractice());
+        add(botBtn);
+
         JButton resetBtn = new JButton("重置整局");
         resetBtn.setPreferredSize(btnSize);
         resetBtn.addActionListener(e -> {
@@ -79,8 +100,8 @@ public class SidebarPanel extends JPanel {
 
             // 广播给对端
             try {
-                if (server != null) {
-                    server.sendJson(com.easy.net.Proto.gameSelect(type.name(),
+                if (hostSide && currentSender != null) {
+                    currentSender.sendJson(com.easy.net.Proto.gameSelect(type.name(),
                             thisRoundHostStart ? "host" : "client"));
                 } else if (client != null) {
                     // 客户端发 reset 只有在你做了允许时才有意义；默认：仅房主能“开始一局”
@@ -97,14 +118,37 @@ public class SidebarPanel extends JPanel {
 
         add(new JLabel("提示：初始阶段仅连接，不预先选择棋类（房主稍后选择）。"));
 
+        // 实时 RTT（走子 ACK + 空闲 PING），每 500ms 刷新
+        add(rttLabel);
+        new Timer(500, e -> {
+            com.easy.net.RttStats r = currentRtt();
+            rttLabel.setText(r == null ? "RTT: 未连接" : r.summary());
+        }).start();
+
         Runtime.getRuntime().addShutdownHook(new Thread(() -> {
             try { if (server != null) server.closeUpnpIfAny(); } catch (Exception ignore) {}
+            UpnpHelper.closeAll(2000);
         }));
     }
 
     public void setBoard(BoardCanvas board){ this.board = board; }
+
+    private com.easy.net.RttStats currentRtt(){
+        if (currentSender instanceof NetServer s) return s.rtt();
+        if (currentSender instanceof NetClient c) return c.rtt();
+        return null;
+    }
     public MoveSender getCurrentSender(){ return currentSender; }
 
+    /** 本端是否房主（选棋、同步以本端局面为准） */
+    public boolean isHost(){ return hostSide; }
+
+    private void setRole(boolean host){
+        hostSide = host;
+        if (board != null) board.setHost(host);
+        if (roleCb != null) roleCb.accept(host);
+    }
+
     private int pickPort() {
         try {
             int p = Integer.parseInt(portField.getText().trim());
@@ -117,57 +161,117 @@ public class SidebarPanel extends JPanel {
         }
     }
 
-    /** 公网：先 UPnP 映射成功再启动监听；LAN：直接监听 */
+    /**
+     * 公网：启动监听并在后台做 UPnP 映射（结果见日志）；LAN：直接监听。
+     * 地址取 {@link AddressResolver} 的缓存：启动时已在后台解析，通常是已完成的 future；还没回来就等它回来再在 EDT 上接着做。
+     */
     private void startServerAndGenInvite(){
+        if (resolving) return;                          // 上一次点击还在等地址
+        long t0 = System.nanoTime();
         int port = pickPort();
         boolean isLan = lanBtn.isSelected();
-        try {
-            String ip = isLan ? getLanIPv4() : fetchPublicIP();
-            if (ip == null) { log.println("无法获取" + (isLan? "局域网":"公网") + "IP。"); return; }
-
-            if (!isLan) {
-                boolean ok = UpnpHelper.openTcp(port, "easy-p2p");
-                if (!ok) { log.println("UPnP 映射失败：请在路由器手动把 " + port + "/TCP 映射到本机，然后重试。"); return; }
-                log.println("UPnP 端口映射成功: " + port + "/TCP");
+        boolean udp = udpBox.isSelected();
+        AddressResolver r = AddressResolver.shared();
+        CompletableFuture<String> ip = isLan ? r.lan() : r.publicIp();
+        if (!ip.isDone()) log.println("正在获取" + (isLan ? "局域网" : "公网") + " IP…");
+        resolving = true;
+        ip.whenComplete((addr, e) -> SwingUtilities.invokeLater(() -> {
+            resolving = false;
+            if (e != null) {
+                Throwable c = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+                log.println("无法获取" + (isLan ? "局域网" : "公网") + " IP: " + c.getMessage());
+                return;
             }
+            startServer(addr, port, isLan, udp, t0);
+        }));
+    }
 
-            server = new NetServer(port, log,
-                    (x,y) -> { if (board != null) board.onOpponentMove(x,y); },
-                    (com.easy.ui.NetEventListener) board);
+    private void startServer(String ip, int port, boolean isLan, boolean udp, long t0){
+        try {
+            // UDP 映射失败时客户端握手超时会自己退回 TCP
+            server = new NetServer(port, log, board, board);
             server.setUpnpEnabled(!isLan);
+            server.setUdpEnabled(udp);
             server.start();
 
-            String code = InviteCodec.gen(ip, port);
+            String code = InviteCodec.gen(ip, port, udp ? port : 0);
             inviteOut.setText(code);
 
             String mode = isLan ? "局域网" : "公网";
-            String note = isLan ? "（LAN 使用默认出网接口）" : "（已通过 UPnP 映射端口）";
-            log.println(mode + " IP " + ip + " 端口 " + port + " 已生成邀请码 " + note);
+            String note = isLan ? "（LAN 使用默认出网接口）" : "（UPnP 映射在后台进行，结果见日志）";
+            log.println(mode + " IP " + ip + " 端口 " + port + " 已生成邀请码 " + note
+                    + String.format("，点击到出码 %.1f ms", (System.nanoTime() - t0) / 1e6));
 
             currentSender = server;
-            if (board != null) board.setHost(true);
-            if (roleCb != null) roleCb.accept(true);
+            setRole(true);
         } catch (Exception ex) {
             log.println("生成邀请码或启动服务器失败: " + ex.getMessage());
-            try { if (!isLan) UpnpHelper.closeTcp(port); } catch (Exception ignore){}
+            if (!isLan) { UpnpHelper.closeTcp(port); UpnpHelper.closeUdp(port); }
         }
     }
 
     private void connectByInvite(){
         try {
-            client = new NetClient(log,
-                    (x,y) -> { if (board != null) board.onOpponentMove(x,y); },
-                    (com.easy.ui.NetEventListener) board);
+            client = new NetClient(log, board, board);
+            client.setPreferUdp(udpBox.isSelected());
             client.connect(inviteIn.getText().replaceAll("\\s+",""));
-            log.println("连接已建立");
+            log.println("连接已建立" + (client.isUdp() ? "（UDP）" : "（TCP）"));
             currentSender = client;
-            if (board != null) board.setHost(false);
-            if (roleCb != null) roleCb.accept(false);
+            setRole(false);
         } catch (Exception ex){
             log.println("连接失败: " + ex.getMessage());
         }
     }
 
+    /** 经中转服务器对局：两端都是 NetClient，中转分的座位决定谁当房主（先到的 host） */
+    private void connectHub(){
+        String addr = hubField.getText().trim();
+        int colon = addr.lastIndexOf(':');
+        int port;
+        try {
+            port = Integer.parseInt(addr.substring(colon + 1));
+            if (colon <= 0 || port < 1 || port > 65535) throw new IllegalArgumentException();
+        } catch (Exception e) {
+            log.println("中转地址格式应为 host:port");
+            return;
+        }
+        try {
+            client = new NetClient(log, board, board);
+            client.setSession(roomField.getText().trim());
+            client.connectHub(addr.substring(0, colon), port);
+            boolean host = client.isHostSeat();
+            log.println("已连上中转，座位 " + client.seat() + (host ? "（你当房主）" : ""));
+            currentSender = client;
+            setRole(host);
+        } catch (Exception ex){
+            log.println("连接中转失败: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * 人机练习：本机当房主，电脑以客户端身份走进程内回环接进来（不开端口）；之后在右侧选国际象棋、五子棋或黑白棋开局。
+     * 每步限时 -Deasy.bot.ms（默认 1000），线程数 -Deasy.bot.threads（默认全部核）。
+     */
+    private void startPractice(){
+        if (currentSender != null) { log.println("已经建立了连接，人机练习请重新打开程序"); return; }
+        try {
+            server = new NetServer(0, log, board, board);
+            server.setUpnpEnabled(false);
+            bot = new PracticeBot(log, Integer.getInteger("easy.bot.threads", Runtime.getRuntime().availableProcessors()),
+                    Long.getLong("easy.bot.ms", 1000L));
+            NetClient c = new NetClient(log, bot, bot);
+            bot.attach(c);
+            c.connectLoopback(server::acceptLoopback);
+            log.println("人机练习已就绪：在右侧选择国际象棋、五子棋或黑白棋开局");
+            currentSender = server;
+            setRole(true);
+        } catch (Exception ex) {
+            log.println("启动人机练习失败: " + ex.getMessage());
+            if (bot != null) bot.close();
+            server = null; bot = null;
+        }
+    }
+
     private void doReset() {
         try {
             if (currentSender instanceof NetServer) {
@@ -181,34 +285,4 @@ public class SidebarPanel extends JPanel {
             log.println("重置失败: " + ex.getMessage());
         }
     }
-
-    private static String fetchPublicIP() throws Exception {
-        URL url = new URL("http://checkip.amazonaws.com/");
-        HttpURLConnection conn = (HttpURLConnection) url.openConnection();
-        conn.setConnectTimeout(3000); conn.setReadTimeout(3000);
-        try (Scanner sc = new Scanner(conn.getInputStream())) {
-            return sc.nextLine().trim();
-        }
-    }
-    private static String getLanIPv4() {
-        try (java.net.DatagramSocket ds = new java.net.DatagramSocket()) {
-            ds.connect(java.net.InetAddress.getByName("192.0.2.1"), 9);
-            java.net.InetAddress local = ((java.net.InetSocketAddress) ds.getLocalSocketAddress()).getAddress();
-            if (local instanceof java.net.Inet4Address && local.isSiteLocalAddress()) return local.getHostAddress();
-        } catch (Exception ignore) {}
-        try {
-            java.util.Enumeration<java.net.NetworkInterface> ifs = java.net.NetworkInterface.getNetworkInterfaces();
-            while (ifs.hasMoreElements()) {
-                java.net.NetworkInterface nif = ifs.nextElement();
-                if (!nif.isUp() || nif.isLoopback() || nif.isVirtual() || nif.isPointToPoint()) continue;
-                java.util.Enumeration<java.net.InetAddress> addrs = nif.getInetAddresses();
-                while (addrs.hasMoreElements()) {
-                    java.net.InetAddress a = addrs.nextElement();
-                    if (a instanceof java.net.Inet4Address && a.isSiteLocalAddress() && !a.isLoopbackAddress())
-                        return a.getHostAddress();
-                }
-            }
-        } catch (Exception ignore) {}
-        return null;
-    }
 }
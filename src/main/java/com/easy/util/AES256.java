@@ -4,6 +4,7 @@ import javax.crypto.Cipher;
 import javax.crypto.SecretKey;
 import javax.crypto.spec.IvParameterSpec;
 import javax.crypto.spec.SecretKeySpec;
+import java.security.GeneralSecurityException;
 import java.security.SecureRandom;
 import java.util.Base64;
 import java.nio.charset.StandardCharsets;
@@ -11,29 +12,33 @@ import java.nio.charset.StandardCharsets;
 public class AES256 {
     private static final String ALG = "AES/CBC/PKCS5Padding";
 
+    // Cipher.getInstance 每次都要走 Provider 查找，Cipher 本身又不是线程安全的：每线程一个，用前重新 init
+    private static final ThreadLocal<Cipher> CIPHER = ThreadLocal.withInitial(() -> {
+        try { return Cipher.getInstance(ALG); }
+        catch (GeneralSecurityException e) { throw new IllegalStateException(ALG + " unavailable", e); }
+    });
+    private static final SecureRandom RND = new SecureRandom();
+
     public static String encrypt(String plaintext, byte[] key32) throws Exception {
-        SecureRandom rnd = new SecureRandom();
         byte[] iv = new byte[16];
-        rnd.nextBytes(iv);
+        RND.nextBytes(iv);
         IvParameterSpec ivspec = new IvParameterSpec(iv);
         SecretKey key = new SecretKeySpec(key32, "AES");
-        Cipher c = Cipher.getInstance(ALG);
+        Cipher c = CIPHER.get();
         c.init(Cipher.ENCRYPT_MODE, key, ivspec);
-        byte[] enc = c.doFinal(plaintext.getBytes(StandardCharsets.UTF_8));
-        byte[] out = new byte[iv.length + enc.length];
+        byte[] plain = plaintext.getBytes(StandardCharsets.UTF_8);
+        byte[] out = new byte[iv.length + c.getOutputSize(plain.length)];
         System.arraycopy(iv,0,out,0,iv.length);
-        System.arraycopy(enc,0,out,iv.length,enc.length);
-        return Base64.getEncoder().encodeToString(out);
+        int n = c.doFinal(plain, 0, plain.length, out, iv.length);
+        return Base64.getEncoder().encodeToString(n == out.length - iv.length ? out : java.util.Arrays.copyOf(out, iv.length + n));
     }
 
     public static String decrypt(String b64, byte[] key32) throws Exception {
         byte[] data = Base64.getDecoder().decode(b64);
         if (data.length < 17) throw new IllegalArgumentException("cipher too short");
-        byte[] iv = new byte[16];
-        System.arraycopy(data,0,iv,0,16);
-        IvParameterSpec ivspec = new IvParameterSpec(iv);
+        IvParameterSpec ivspec = new IvParameterSpec(data, 0, 16);
         SecretKey key = new SecretKeySpec(key32, "AES");
-        Cipher c = Cipher.getInstance(ALG);
+        Cipher c = CIPHER.get();
         c.init(Cipher.DECRYPT_MODE, key, ivspec);
         byte[] dec = c.doFinal(data, 16, data.length - 16);
         return new String(dec, StandardCharsets.UTF_8);
@@ -0,0 +1,176 @@
+package com.easy.util;
+
+import com.sun.net.httpserver.HttpServer;
+
+import javax.management.*;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 进程内指标：每个序列一个 LongAdder，读循环/写线程上只做一次无锁累加，不加锁、不分配。
+ * 对外两条路：JMX（com.easy:type=Metrics，每个序列一个只读属性）和本机 HTTP
+ * （{@link #serve}，GET /metrics，Prometheus 文本格式；只绑 127.0.0.1）。
+ * <p>
+ * 标签值可能来自对端（帧的 type），每个指标族最多 {@value #MAX_SERIES} 个序列，超出的记到 "other"。
+ */
+public final class Metrics {
+
+    private static final int MAX_SERIES = 64;
+
+    /** 一个指标族：名字 + 至多一个标签维度；各标签值的序列按需创建后缓存 */
+    public static final class Family {
+        final String name, help, label;
+        final boolean gauge;
+        final ConcurrentHashMap<String, LongAdder> series = new ConcurrentHashMap<>();
+
+        private Family(String name, String help, String label, boolean gauge){
+            this.name = name; this.help = help; this.label = label; this.gauge = gauge;
+        }
+
+        /** 标签值对应的累加器；无标签的族用 "" */
+        public LongAdder of(String value){
+            LongAdder a = series.get(value);
+            if (a != null) return a;
+            if (series.size() >= MAX_SERIES) value = "other";
+            return series.computeIfAbsent(value, k -> new LongAdder());
+        }
+
+        public void inc(String value){ of(value).increment(); }
+        public void add(String value, long n){ of(value).add(n); }
+        public void inc(){ of("").increment(); }
+        public void add(long n){ of("").add(n); }
+
+        public long get(String value){ LongAdder a = series.get(value); return a == null ? 0 : a.sum(); }
+        public long get(){ return get(""); }
+    }
+
+    private static final List<Family> FAMILIES = new CopyOnWriteArrayList<>();
+
+    // ===== 连接 =====
+    public static final Family CONN_ACCEPTED = counter("easy_connections_accepted_total",
+            "Connections established (server/spectator/hub: accepted; client: connected)", "side");
+    public static final Family CONN_CLOSED   = counter("easy_connections_closed_total", "Connections closed", "side");
+
+    // ===== 帧 =====
+    public static final Family FRAMES_IN     = counter("easy_frames_in_total", "Frames read, by message type", "type");
+    public static final Family FRAMES_OUT    = counter("easy_frames_out_total", "Frames written, by message type", "type");
+    public static final Family BYTES_IN      = counter("easy_bytes_in_total", "Frame bytes read", null);
+    public static final Family BYTES_OUT     = counter("easy_bytes_out_total", "Frame bytes written", null);
+    public static final Family PARSE_ERRORS  = counter("easy_parse_errors_total", "Inbound frames that failed to decode", null);
+
+    // ===== 对局 =====
+    public static final Family MOVE_REJECTS  = counter("easy_move_rejects_total", "Peer moves rejected by local validation", "game");
+    public static final Family GAMES_STARTED = counter("easy_games_started_total", "Games started", "game");
+    public static final Family GAMES_FINISHED= counter("easy_games_finished_total", "Games finished", "game");
+
+    // ===== 队列 =====
+    public static final Family OUTBOX_QUEUED = gauge("easy_outbox_queued_frames", "Frames waiting in send queues (all connections)", null);
+    public static final Family SPECTATORS    = gauge("easy_spectators", "Connected spectators", null);
+
+    private static volatile HttpServer http;
+
+    static {
+        try {
+            ManagementFactory.getPlatformMBeanServer().registerMBean(new Bean(), new ObjectName("com.easy:type=Metrics"));
+        } catch (Exception ignore) {
+            // 重复注册（同一 JVM 里多个类加载器）或无 JMX：只是少一个出口
+        }
+    }
+
+    private Metrics(){}
+
+    public static Family counter(String name, String help, String label){ return register(new Family(name, help, label, false)); }
+    public static Family gauge(String name, String help, String label){ return register(new Family(name, help, label, true)); }
+
+    private static Family register(Family f){
+        FAMILIES.add(f);
+        return f;
+    }
+
+    /** Prometheus 文本格式（0.0.4） */
+    public static String scrape(){
+        StringBuilder sb = new StringBuilder(2048);
+        for (Family f : FAMILIES) {
+            sb.append("# HELP ").append(f.name).append(' ').append(f.help).append('\n');
+            sb.append("# TYPE ").append(f.name).append(f.gauge ? " gauge\n" : " counter\n");
+            if (f.label == null) {
+                sb.append(f.name).append(' ').append(f.get()).append('\n');
+                continue;
+            }
+            for (Map.Entry<String, LongAdder> e : new TreeMap<>(f.series).entrySet())
+                sb.append(f.name).append('{').append(f.label).append("=\"").append(escape(e.getKey())).append("\"} ")
+                  .append(e.getValue().sum()).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 在 127.0.0.1:port 上开 GET /metrics；port=0 取空闲端口。返回实际端口。重复调用返回已开的端口。
+     */
+    public static synchronized int serve(int port) throws IOException {
+        if (http != null) return http.getAddress().getPort();
+        HttpServer s = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        s.createContext("/metrics", ex -> {
+            byte[] body = scrape().getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            ex.sendResponseHeaders(200, body.length);
+            try (OutputStream os = ex.getResponseBody()) { os.write(body); }
+        });
+        s.start();
+        http = s;
+        return s.getAddress().getPort();
+    }
+
+    public static synchronized void stopServing(){
+        if (http != null) { http.stop(0); http = null; }
+    }
+
+    private static String escape(String v){
+        return v.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String attr(Family f, String value){
+        return f.label == null ? f.name : f.name + "{" + f.label + "=" + value + "}";
+    }
+
+    /** JMX 出口：属性名即序列名（name 或 name{label=value}），值为当前累计 */
+    private static final class Bean implements DynamicMBean {
+        @Override public Object getAttribute(String attribute) throws AttributeNotFoundException {
+            for (Family f : FAMILIES)
+                for (String v : f.series.keySet())
+                    if (attr(f, v).equals(attribute)) return f.get(v);
+            throw new AttributeNotFoundException(attribute);
+        }
+        @Override public AttributeList getAttributes(String[] attributes){
+            AttributeList l = new AttributeList();
+            for (String a : attributes) try { l.add(new Attribute(a, getAttribute(a))); } catch (Exception ignore) {}
+            return l;
+        }
+        @Override public MBeanInfo getMBeanInfo(){
+            List<MBeanAttributeInfo> attrs = new ArrayList<>();
+            for (Family f : FAMILIES)
+                for (String v : new TreeMap<>(f.series).keySet())
+                    attrs.add(new MBeanAttributeInfo(attr(f, v), "long", f.help, true, false, false));
+            return new MBeanInfo(Metrics.class.getName(), "easy-p2p connection and game telemetry",
+                    attrs.toArray(new MBeanAttributeInfo[0]), null, null, null);
+        }
+        @Override public void setAttribute(Attribute attribute) throws AttributeNotFoundException {
+            throw new AttributeNotFoundException("read-only: " + attribute.getName());
+        }
+        @Override public AttributeList setAttributes(AttributeList attributes){ return new AttributeList(); }
+        @Override public Object invoke(String actionName, Object[] params, String[] signature) throws MBeanException {
+            throw new MBeanException(new UnsupportedOperationException(actionName));
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package com.easy.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.Point;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link CheckersBoard}：开局 perft 到 8 层和公认的节点数比对（更深的在 {@code com.easy.bench.CheckersPerft}），
+ * 再看起止相同、吃子不同的两条连跳在 {@link CheckersGame} 里要带 cap 才走得通、两端走完一致。
+ */
+class CheckersBoardPerftTest {
+
+    private static final long[] NODES = { 7, 49, 302, 1469, 7361, 36768, 179740, 845931 };
+
+    @Test
+    void perftFromStart(){
+        for (int d = 1; d <= NODES.length; d++) {
+            CheckersBoard b = new CheckersBoard();
+            long hash = b.hash();
+            assertEquals(NODES[d - 1], b.perft(d), "depth " + d);
+            assertEquals(hash, b.hash());
+        }
+    }
+
+    /** 兵 (3,6) 往上菱形两连跳到 (3,2)：经 (2,5)(2,3) 或经 (4,5)(4,3) */
+    @Test
+    void diamondChainsNeedCaptureMask(){
+        String snap = diamond();
+        CheckersGame me = new CheckersGame(), peer = new CheckersGame();
+        me.reset(true);
+        peer.reset(false);
+        assertTrue(me.restore(snap));
+        assertTrue(peer.restore(snap));
+
+        assertEquals(List.of(new Point(3, 2)), me.legalMovesFrom(3, 6));
+        List<Integer> caps = me.captureChoices(3, 6, 3, 2);
+        assertEquals(2, caps.size());
+        assertNotEquals(caps.get(0), caps.get(1));
+
+        assertFalse(me.move(3, 6, 3, 2), "有歧义时只给起止不该走");
+        assertFalse(me.move(3, 6, 3, 2, caps.get(0) | caps.get(1)));
+        int cap = caps.get(1);
+        assertTrue(me.move(3, 6, 3, 2, cap));
+        assertTrue(peer.moveFromPeer(3, 6, 3, 2, cap));
+        assertEquals(me.hash(), peer.hash());
+        assertEquals(me.snapshot(), peer.snapshot());
+        for (Point p : CheckersGame.capturedSquares(cap)) assertEquals(0, me.get(p.x, p.y));
+        assertEquals(2, me.get(2, 5) + me.get(4, 5), "另一条链上的子还在");
+    }
+
+    private static String diamond(){
+        char[] cells = new char[64];
+        Arrays.fill(cells, '0');
+        cells[6 * 8 + 3] = (char) ('0' + CheckersBoard.MAN1);
+        for (int[] p : new int[][]{ {2, 5}, {2, 3}, {4, 5}, {4, 3}, {7, 0} })
+            cells[p[1] * 8 + p[0]] = (char) ('0' + CheckersBoard.MAN2);
+        return "K;1;0;" + new String(cells) + ";";
+    }
+}
@@ -0,0 +1,31 @@
+package com.easy.game;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * {@link ChessBoard} 走法生成：标准局面浅层 perft 和公认的节点数比对（深层在 {@code com.easy.bench.Perft}），
+ * 走完整棵树后 FEN 和哈希都还原。
+ */
+class ChessBoardPerftTest {
+
+    @ParameterizedTest(name = "{0} depth {2}")
+    @CsvSource(delimiter = '|', value = {
+            "start    | rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1            | 4 | 197281",
+            "kiwipete | r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1 | 3 | 97862",
+            "pos3     | 8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1                          | 4 | 43238",
+            "pos4     | r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1   | 3 | 9467",
+            "pos5     | rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8          | 3 | 62379",
+            "pos6     | r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10 | 3 | 89890",
+    })
+    void perft(String name, String fen, int depth, long nodes){
+        ChessBoard b = new ChessBoard(fen);
+        String before = b.fen();
+        long hash = b.hash();
+        assertEquals(nodes, b.perft(depth));
+        assertEquals(before, b.fen());
+        assertEquals(hash, b.hash());
+    }
+}
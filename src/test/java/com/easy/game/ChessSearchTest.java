@@ -0,0 +1,32 @@
+package com.easy.game;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link ChessSearch}：f8=N 一步杀，默认能搜出来；开了只升后（给 ChessGame 下棋）就只在它走得出的棋里挑。
+ */
+class ChessSearchTest {
+
+    private static final String KNIGHT_MATE = "6br/5Ppk/6pp/8/8/8/8/K7 w - - 0 1";
+
+    @Test
+    void findsKnightPromotionMate(){
+        try (ChessSearch s = new ChessSearch(1, 1)) {
+            ChessSearch.Result r = s.search(new ChessBoard(KNIGHT_MATE), 4, 0);
+            assertEquals("f7f8n", ChessBoard.uci(r.move()));
+            assertTrue(r.isMate());
+        }
+    }
+
+    @Test
+    void queenPromotionsOnlySkipsUnderpromotions(){
+        try (ChessSearch s = new ChessSearch(1, 1)) {
+            s.setQueenPromotionsOnly(true);
+            int m = s.search(new ChessBoard(KNIGHT_MATE), 4, 0).move();
+            int promo = ChessBoard.promo(m);
+            assertTrue(promo == 0 || promo == ChessBoard.QUEEN, ChessBoard.uci(m));
+        }
+    }
+}
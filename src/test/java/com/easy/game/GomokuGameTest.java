@@ -0,0 +1,45 @@
+package com.easy.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/** {@link GomokuGame} 只是 {@link GomokuBoard} 外面一层：两端对下、快照恢复后哈希和局面都一致，直到分出胜负。 */
+class GomokuGameTest {
+
+    @Test
+    void peersAndSnapshotsAgree(){
+        Random r = new Random(5);
+        int wins = 0;
+        for (int g = 0; g < 50; g++) {
+            GomokuGame host = new GomokuGame(), guest = new GomokuGame();
+            host.reset(true);
+            guest.reset(true);
+            guest.setMyTurn(false);
+            while (!host.isFinished() && host.board().count() < 49) {      // 中间 7×7 里乱下，很快就有人连成五
+                int x, y;
+                do { x = 4 + r.nextInt(7); y = 4 + r.nextInt(7); } while (host.get(x, y) != 0);
+                int mover = host.currentPlayer();
+                assertTrue(host.play(x, y));
+                assertTrue(guest.play(x, y));
+                assertEquals(mover, host.get(x, y));
+                assertEquals(host.hash(), guest.hash());
+                assertEquals(host.hash(), host.board().hash());
+
+                GomokuGame copy = new GomokuGame();
+                copy.reset(true);
+                assertTrue(copy.restore(host.snapshot()));
+                assertEquals(host.snapshot(), copy.snapshot());
+                assertEquals(host.hash(), copy.hash());
+                assertEquals(host.isFinished(), copy.isFinished());
+            }
+            if (host.isFinished()) {
+                wins++;
+                assertFalse(host.play(0, 0));
+            }
+        }
+        assertTrue(wins > 0);
+    }
+}
@@ -0,0 +1,71 @@
+package com.easy.game;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link ReversiBoard}：开局 perft 到 8 层和公认的节点数比对（更深的在 {@code com.easy.bench.ReversiPerft}），
+ * 再拿随机对局核对合法步集合与翻子和逐格扫描的写法一致。
+ */
+class ReversiBoardPerftTest {
+
+    private static final long[] NODES = { 4, 12, 56, 244, 1396, 8200, 55092, 390216 };
+
+    @Test
+    void perftFromStart(){
+        for (int d = 1; d <= NODES.length; d++) {
+            ReversiBoard b = new ReversiBoard();
+            long hash = b.hash();
+            assertEquals(NODES[d - 1], b.perft(d), "depth " + d);
+            assertEquals(hash, b.hash());
+        }
+    }
+
+    @Test
+    void movesAndFlipsMatchScan(){
+        Random r = new Random(7);
+        for (int g = 0; g < 200; g++) {
+            ReversiBoard b = new ReversiBoard();
+            while (true) {
+                long legal = b.legal();
+                assertEquals(scanMoves(b), legal);
+                if (legal == 0) {
+                    b.pass();
+                    if (b.legal() == 0) break;
+                    continue;
+                }
+                for (int k = r.nextInt(Long.bitCount(legal)); k > 0; k--) legal &= legal - 1;
+                int sq = Long.numberOfTrailingZeros(legal);
+                int mine = b.count(b.side()), theirs = b.count(3 - b.side());
+                long flips = ReversiBoard.flips(sq, b.mine(), b.theirs());
+                assertEquals(scanFlips(b, sq), flips);
+                assertTrue(b.play(sq));
+                assertEquals(mine + Long.bitCount(flips) + 1, b.count(3 - b.side()));
+                assertEquals(theirs - Long.bitCount(flips), b.count(b.side()));
+            }
+        }
+    }
+
+    /** 逐格、八方向扫描（原 int[8][8] 写法）：能翻子的空格 */
+    private static long scanMoves(ReversiBoard b){
+        long m = 0;
+        for (int sq = 0; sq < 64; sq++) if (b.get(sq) == ReversiBoard.EMPTY && scanFlips(b, sq) != 0) m |= 1L << sq;
+        return m;
+    }
+
+    private static long scanFlips(ReversiBoard b, int sq){
+        int me = b.side(), x0 = sq & 7, y0 = sq >> 3;
+        long all = 0;
+        for (int dy = -1; dy <= 1; dy++) for (int dx = -1; dx <= 1; dx++) {
+            if (dx == 0 && dy == 0) continue;
+            long run = 0;
+            int x = x0 + dx, y = y0 + dy;
+            while (x >= 0 && x < 8 && y >= 0 && y < 8 && b.get(y * 8 + x) == 3 - me) { run |= 1L << (y * 8 + x); x += dx; y += dy; }
+            if (run != 0 && x >= 0 && x < 8 && y >= 0 && y < 8 && b.get(y * 8 + x) == me) all |= run;
+        }
+        return all;
+    }
+}
@@ -0,0 +1,156 @@
+package com.easy.net;
+
+import com.easy.ui.ConsoleSink;
+import com.easy.ui.MoveListener;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 两个 {@link NetClient} 经 {@link NioServer}（临时端口）配成一局：座位、双向走子、一端掉线续传只补尾巴，
+ * 以及座位满时关连接、对端不读时断开。
+ */
+class HubSessionTest {
+
+    private final BlockingQueue<String> aMoves = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> bMoves = new LinkedBlockingQueue<>();
+    private final List<String> aLog = new CopyOnWriteArrayList<>();
+    private NioServer hub;
+    private NetClient a, b;
+
+    @AfterEach
+    void tearDown(){
+        if (a != null) a.close();
+        if (b != null) b.close();
+        if (hub != null) hub.close();
+    }
+
+    private int startHub() throws Exception {
+        hub = new NioServer(0, 2, s -> {});
+        hub.start();
+        return hub.localPort();
+    }
+
+    private NetClient client(BlockingQueue<String> moves, ConsoleSink log, int port) throws Exception {
+        NetClient c = new NetClient(log, new MoveListener() {
+            @Override public void onOpponentMove(int x, int y){ moves.add(x + "," + y); }
+        });
+        c.setSession("room");
+        c.connectHub("127.0.0.1", port);
+        return c;
+    }
+
+    @Test
+    void pairPlayDropResumeReplaysOnlyTail() throws Exception {
+        int port = startHub();
+        a = client(aMoves, s -> aLog.add(s), port);
+        b = client(bMoves, s -> {}, port);
+        assertEquals("host", a.seat());
+        assertTrue(a.isHostSeat());
+        assertEquals("client", b.seat());
+
+        a.sendMove(1, 1, 1, "");
+        a.sendMove(2, 2, 1, "");
+        assertEquals("1,1", bMoves.poll(5, TimeUnit.SECONDS));
+        assertEquals("2,2", bMoves.poll(5, TimeUnit.SECONDS));
+        b.sendMove(3, 3, 2, "");
+        assertEquals("3,3", aMoves.poll(5, TimeUnit.SECONDS));
+        await(() -> a.rtt().count() >= 2 && b.rtt().count() >= 1);
+
+        a.dropConnection();
+        b.sendMove(4, 4, 2, "");                         // a 不在座位上时：中转替它留着
+        await(() -> aLog.stream().anyMatch(s -> s.contains("会话已恢复")));
+        assertTrue(aLog.stream().anyMatch(s -> s.contains("补发 0 帧")), "中转已转过的两步不该再补发: " + aLog);
+        assertEquals("host", a.seat());
+
+        assertEquals("4,4", aMoves.poll(5, TimeUnit.SECONDS));
+        a.sendMove(5, 5, 1, "");
+        assertEquals("5,5", bMoves.poll(5, TimeUnit.SECONDS));
+        assertNull(bMoves.poll(200, TimeUnit.MILLISECONDS), "b 收到了重复的走子");
+        assertNull(aMoves.poll(50, TimeUnit.MILLISECONDS), "a 收到了重复的走子");
+    }
+
+    @Test
+    void thirdConnectionIsToldFullAndClosed() throws Exception {
+        int port = startHub();
+        a = client(aMoves, s -> {}, port);
+        b = client(bMoves, s -> {}, port);
+        try (Socket s = new Socket("127.0.0.1", port)) {
+            s.setSoTimeout(5000);
+            s.getOutputStream().write((Proto.hello("client", "room") + "\n").getBytes(StandardCharsets.UTF_8));
+            String all = new String(s.getInputStream().readAllBytes(), StandardCharsets.UTF_8);   // 读到 EOF 才返回
+            assertTrue(all.contains("\"full\""), all);
+        }
+        a.sendMove(6, 6, 1, "");
+        assertEquals("6,6", bMoves.poll(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void peerThatStopsReadingIsDropped() throws Exception {
+        int port = startHub();
+        try (Socket slow = new Socket("127.0.0.1", port); Socket fast = new Socket("127.0.0.1", port)) {
+            slow.setReceiveBufferSize(4096);
+            slow.getOutputStream().write((Proto.hello("client", "flood") + "\n").getBytes(StandardCharsets.UTF_8));
+            fast.getOutputStream().write((Proto.hello("client", "flood") + "\n").getBytes(StandardCharsets.UTF_8));
+            InputStream fin = fast.getInputStream();
+            fast.setSoTimeout(5000);
+            while (!readLine(fin).contains("paired")) { }
+
+            // slow 一直不读：内核缓冲填满后中转待写涨过上限就把它断开，之后 fast 收到 peer_left
+            byte[] frame = (Proto.move(1, 1, 1, "").put("pad", "x".repeat(1000)) + "\n").getBytes(StandardCharsets.UTF_8);
+            OutputStream fout = fast.getOutputStream();
+            AtomicBoolean done = new AtomicBoolean();
+            Thread flood = new Thread(() -> {
+                try {
+                    for (long sent = 0; !done.get() && sent < 256L * 1024 * 1024; sent += frame.length) fout.write(frame);
+                } catch (Exception ignore) {}
+            });
+            flood.start();
+            fast.setSoTimeout(20_000);
+            String l;
+            do l = readLine(fin); while (!l.contains("peer_left"));
+            done.set(true);
+            flood.join(5000);
+        }
+    }
+
+    @Test
+    void replayableSeqOnlyForReplayableFrames(){
+        assertEquals(7, NioServer.replayableSeq(bytes(Proto.move(1, 2, 1, "ab").put("seq", 7))));
+        assertEquals(12, NioServer.replayableSeq(bytes(Proto.gameSelect("CHESS", "host").put("seq", 12))));
+        assertEquals(-1, NioServer.replayableSeq(bytes(Proto.ack(7))));
+        assertEquals(-1, NioServer.replayableSeq(bytes(Proto.ping(3))));
+        assertEquals(-1, NioServer.replayableSeq(bytes(Proto.move(1, 2, 1, "ab"))));
+    }
+
+    private static byte[] bytes(org.json.JSONObject jo){ return jo.toString().getBytes(StandardCharsets.UTF_8); }
+
+    private static String readLine(InputStream in) throws Exception {
+        StringBuilder sb = new StringBuilder();
+        int c;
+        while ((c = in.read()) >= 0 && c != '\n') sb.append((char) c);
+        if (c < 0 && sb.length() == 0) fail("连接已关闭");
+        return sb.toString();
+    }
+
+    private static void await(BooleanSupplier cond) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!cond.getAsBoolean()) {
+            if (System.nanoTime() > end) fail("5 秒内条件未满足");
+            Thread.sleep(10);
+        }
+    }
+}
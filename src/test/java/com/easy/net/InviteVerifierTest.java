@@ -0,0 +1,79 @@
+package com.easy.net;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link InviteVerifier}：时钟注入，窗口 100 s、偏差 10 s，逐条看新鲜 / 过期 / 超前 / 重放 / 过期后复用 nonce。
+ */
+class InviteVerifierTest {
+
+    private static final long T0 = 1_700_000_000L;
+
+    private final AtomicLong now = new AtomicLong(T0);
+    private final InviteVerifier v = new InviteVerifier(100, 10, 4, now::get);
+
+    private static String code(long ts, String nonce) throws Exception {
+        return InviteCodec.gen("10.0.0.1", 5000, 0, ts, nonce);
+    }
+
+    @Test
+    void freshInviteIsAccepted() throws Exception {
+        InviteCodec.Endpoint ep = v.verify(code(T0 - 30, "00000000000000a1"));
+        assertEquals("10.0.0.1", ep.ip);
+        assertEquals(5000, ep.port);
+        assertEquals(1, v.size());
+        assertNotNull(v.verify(code(T0 + 10, "00000000000000a2")), "偏差以内的超前也算新鲜");
+    }
+
+    @Test
+    void staleInviteIsRejected() throws Exception {
+        assertNotNull(v.verify(code(T0 - 100, "00000000000000b1")));
+        assertThrows(IllegalArgumentException.class, () -> v.verify(code(T0 - 101, "00000000000000b2")));
+    }
+
+    @Test
+    void futureInviteIsRejected(){
+        assertThrows(IllegalArgumentException.class, () -> v.verify(code(T0 + 11, "00000000000000c1")));
+        assertEquals(0, v.size());
+    }
+
+    @Test
+    void sameCodeTwiceIsReplay() throws Exception {
+        String c = code(T0, "00000000000000d1");
+        assertNotNull(v.verify(c));
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> v.verify(c));
+        assertTrue(e.getMessage().contains("already used"));
+        // 换个 ts 带同一个 nonce 也不行
+        assertThrows(IllegalArgumentException.class, () -> v.verify(code(T0 - 5, "00000000000000d1")));
+    }
+
+    @Test
+    void expiredNonceCanBeReusedOnlyWithFreshTs() throws Exception {
+        String old = code(T0, "00000000000000e1");
+        assertNotNull(v.verify(old));
+        now.set(T0 + 101);                                       // 记录到 T0+100 过期
+        assertThrows(IllegalArgumentException.class, () -> v.verify(old), "旧码本身已过期");
+        assertNotNull(v.verify(code(T0 + 101, "00000000000000e1")), "nonce 记录过期后可以再用");
+        assertThrows(IllegalArgumentException.class, () -> v.verify(code(T0 + 101, "00000000000000e1")));
+    }
+
+    @Test
+    void fullTableRejectsInsteadOfEvicting() throws Exception {
+        for (int i = 0; i < 4; i++) assertNotNull(v.verify(code(T0, "00000000000000f" + i)));
+        assertThrows(IllegalArgumentException.class, () -> v.verify(code(T0, "00000000000000f9")));
+        assertThrows(IllegalArgumentException.class, () -> v.verify(code(T0, "00000000000000f0")), "没挤掉旧 nonce");
+        now.set(T0 + 101);
+        assertNotNull(v.verify(code(T0 + 101, "00000000000000f9")), "过期项清掉后又有空位");
+    }
+
+    @Test
+    void noncesAreSixteenHexDigitsAndDistinct(){
+        String a = InviteCodec.nonce(), b = InviteCodec.nonce();
+        assertTrue(a.matches("[0-9a-f]{16}"), a);
+        assertNotEquals(a, b);
+    }
+}
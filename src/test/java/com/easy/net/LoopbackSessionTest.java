@@ -0,0 +1,152 @@
+package com.easy.net;
+
+import com.easy.game.GameType;
+import com.easy.ui.MoveListener;
+import com.easy.ui.NetEventListener;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 整条会话走 {@link Loopback}，不开 socket：HELLO 交换、GAME 选棋、MOVE 带 seq、对端回 ACK 记 RTT。
+ */
+class LoopbackSessionTest {
+
+    private final BlockingQueue<String> serverMoves = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> clientMoves = new LinkedBlockingQueue<>();
+    private final BlockingQueue<String> clientGames = new LinkedBlockingQueue<>();
+    private NetServer server;
+    private NetClient client;
+
+    @AfterEach
+    void tearDown(){
+        if (client != null) client.close();
+        if (server != null) server.close();
+    }
+
+    private NetServer newServer(){
+        server = new NetServer(0, s -> {}, recorder(serverMoves), null);
+        server.setUpnpEnabled(false);
+        return server;
+    }
+
+    /** 线上逐帧看：测试这端手写 HELLO / ACK，房主是真的 NetServer */
+    @Test
+    void rawFramesHelloGameMoveAck() throws Exception {
+        newServer();
+        Loopback.End[] p = Loopback.pair();
+        server.acceptLoopback(p[1]);
+        Wire.write(p[0].out(), Proto.hello("client"), false);      // 不带 pub：不加密
+        Wire.Reader r = new Wire.Reader(p[0].in());
+
+        JSONObject hello = next(r, "HELLO");
+        assertEquals(server.sessionToken(), hello.getString("session"));
+        Wire.write(p[0].out(), Proto.ping(1), false);              // 等房主处理完我方 HELLO（同一读线程按序处理）
+        next(r, "PONG");
+        assertFalse(server.isEncrypted());
+
+        server.sendJson(Proto.gameSelect("GOMOKU", "host"));
+        JSONObject game = next(r, "GAME");
+        assertEquals("select", game.getString("cmd"));
+        assertEquals(1, game.getInt("seq"));
+
+        server.sendMove(7, 7, 1, "abcd");
+        JSONObject move = next(r, "MOVE");
+        assertEquals(7, move.getInt("x"));
+        assertEquals(2, move.getInt("seq"));
+        Wire.write(p[0].out(), Proto.ack(2), false);
+        await(() -> server.rtt().count() == 1);
+
+        Wire.write(p[0].out(), Proto.move(8, 9, 2, "ef01").put("seq", 1), false);
+        assertEquals("8,9 ef01", serverMoves.poll(5, TimeUnit.SECONDS));
+        assertEquals(1, next(r, "ACK").getInt("seq"));
+        p[0].close();
+    }
+
+    /** 两端都是真实现：加密握手、选棋、双向走子，各自收到对方的 ACK */
+    @Test
+    void clientAndServerRoundTrip() throws Exception {
+        newServer();
+        client = new NetClient(s -> {}, recorder(clientMoves), new NetEventListener() {
+            @Override public void onOpponentMove(int x, int y){}
+            @Override public void onGameSelected(GameType type, String starter){ clientGames.add(type + " " + starter); }
+            @Override public void onGameSuggested(GameType type){}
+        });
+        client.connectLoopback(server::acceptLoopback);
+        await(() -> client.isEncrypted() && server.isEncrypted());
+
+        server.sendJson(Proto.gameSelect("REVERSI", "client"));
+        assertEquals("REVERSI client", clientGames.poll(5, TimeUnit.SECONDS));
+
+        server.sendMove(3, 2, 1, "1111");
+        assertEquals("3,2 1111", clientMoves.poll(5, TimeUnit.SECONDS));
+        client.sendMove(2, 4, 2, "2222");
+        assertEquals("2,4 2222", serverMoves.poll(5, TimeUnit.SECONDS));
+        await(() -> server.rtt().count() >= 1 && client.rtt().count() >= 1);
+    }
+
+    /** 已有棋手在线时，不出示本局令牌的第二个连接直接被关掉，不排队 */
+    @Test
+    void secondPlayerWithoutTokenIsRejected() throws Exception {
+        newServer();
+        client = new NetClient(s -> {}, recorder(clientMoves));
+        client.connectLoopback(server::acceptLoopback);
+        await(() -> client.isEncrypted());
+
+        Loopback.End[] p = Loopback.pair();
+        server.acceptLoopback(p[1]);
+        Wire.write(p[0].out(), Proto.hello("client"), false);
+        assertNull(new Wire.Reader(p[0].in()).read());
+
+        server.sendMove(1, 1, 1, "");
+        assertEquals("1,1 ", clientMoves.poll(5, TimeUnit.SECONDS));
+    }
+
+    /** 对端写完立刻关：读端不管赶在哪一刻看队列，都要先读到那一帧再 EOF */
+    @Test
+    void frameWrittenBeforeCloseIsNotLost() throws Exception {
+        for (int i = 0; i < 2000; i++) {
+            Loopback.End[] p = Loopback.pair();
+            Thread w = new Thread(() -> {
+                try { Wire.write(p[1].out(), Proto.ack(1), false); } catch (Exception ignored) {}
+                p[1].close();
+            });
+            w.start();
+            JSONObject jo = new Wire.Reader(p[0].in()).read();
+            assertNotNull(jo, "第 " + i + " 轮帧丢了");
+            w.join();
+        }
+    }
+
+    private static MoveListener recorder(BlockingQueue<String> q){
+        return new MoveListener() {
+            @Override public void onOpponentMove(int x, int y){ q.add(x + "," + y); }
+            @Override public void onOpponentMove(int x, int y, String hash){ q.add(x + "," + y + " " + hash); }
+        };
+    }
+
+    /** 读到指定类型的帧为止（跳过 PING/PONG 等心跳） */
+    private static JSONObject next(Wire.Reader r, String type) throws Exception {
+        for (int i = 0; i < 20; i++) {
+            JSONObject jo = r.read();
+            assertNotNull(jo, "连接在等 " + type + " 时关闭");
+            if (type.equals(jo.optString("type"))) return jo;
+        }
+        return fail("没等到 " + type);
+    }
+
+    private static void await(BooleanSupplier cond) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!cond.getAsBoolean()) {
+            if (System.nanoTime() > end) fail("5 秒内条件未满足");
+            Thread.sleep(10);
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.easy.net;
+
+import com.easy.ui.MoveListener;
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * UDP 续传：客户端从新的临时端口回来时，房主那边的旧链路还没超时。新链路的握手不能被旧链路吞掉，
+ * 出示令牌的接管旧链路，不出示的被拒，旧链路照常服务。
+ */
+class UdpResumeTest {
+
+    private final BlockingQueue<String> serverMoves = new LinkedBlockingQueue<>();
+    private NetServer server;
+    private int port;
+
+    @AfterEach
+    void tearDown(){
+        if (server != null) server.close();
+    }
+
+    private void startServer() throws Exception {
+        try (ServerSocket probe = new ServerSocket(0)) { port = probe.getLocalPort(); }
+        server = new NetServer(port, s -> {}, new MoveListener() {
+            @Override public void onOpponentMove(int x, int y){ serverMoves.add(x + "," + y); }
+        }, null);
+        server.setUpnpEnabled(false);
+        server.setUdpEnabled(true);
+        server.start();
+    }
+
+    private UdpLink link() throws Exception {
+        return UdpLink.connect(new InetSocketAddress("127.0.0.1", port));
+    }
+
+    @Test
+    void resumeFromNewPortTakesOverStaleLink() throws Exception {
+        startServer();
+        UdpLink old = link();
+        Wire.write(old.out(), Proto.hello("client"), false);
+        Wire.Reader or = new Wire.Reader(old.in());
+        assertEquals(server.sessionToken(), next(or, "HELLO").getString("session"));
+        Wire.write(old.out(), Proto.move(3, 4, 2, "").put("seq", 1), false);
+        assertEquals("3,4", serverMoves.poll(5, TimeUnit.SECONDS));
+
+        // 旧链路不关、不发 FIN，像客户端换了网络；新链路从另一个端口带令牌回来
+        long t0 = System.nanoTime();
+        UdpLink fresh = link();
+        Wire.write(fresh.out(), Proto.hello("client").put("resume", server.sessionToken()).put("lastSeen", 0), false);
+        JSONObject hello = next(new Wire.Reader(fresh.in()), "HELLO");
+        long ms = (System.nanoTime() - t0) / 1_000_000L;
+        assertEquals(server.sessionToken(), hello.getString("session"));
+        assertEquals(1, hello.getInt("lastSeen"));
+        assertTrue(ms < 2000, "续传握手用了 " + ms + " ms");
+
+        awaitClosed(old);                               // 房主关掉旧链路时给它发了 FIN
+        Wire.write(fresh.out(), Proto.move(5, 6, 2, "").put("seq", 2), false);
+        assertEquals("5,6", serverMoves.poll(5, TimeUnit.SECONDS));
+        fresh.close();
+    }
+
+    @Test
+    void newcomerWithoutTokenIsRejectedAndOldLinkStays() throws Exception {
+        startServer();
+        UdpLink old = link();
+        Wire.write(old.out(), Proto.hello("client"), false);
+        Wire.Reader or = new Wire.Reader(old.in());
+        next(or, "HELLO");
+
+        UdpLink stranger = link();
+        Wire.write(stranger.out(), Proto.hello("client"), false);
+        assertNull(new Wire.Reader(stranger.in()).read());
+        assertFalse(old.isClosed());
+
+        Wire.write(old.out(), Proto.move(1, 2, 2, "").put("seq", 1), false);
+        assertEquals("1,2", serverMoves.poll(5, TimeUnit.SECONDS));
+        old.close();
+    }
+
+    private static JSONObject next(Wire.Reader r, String type) throws Exception {
+        for (int i = 0; i < 20; i++) {
+            JSONObject jo = r.read();
+            assertNotNull(jo, "连接在等 " + type + " 时关闭");
+            if (type.equals(jo.optString("type"))) return jo;
+        }
+        return fail("没等到 " + type);
+    }
+
+    private static void awaitClosed(UdpLink l) throws InterruptedException {
+        long end = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!l.isClosed()) {
+            if (System.nanoTime() > end) fail("旧链路 5 秒内没关");
+            Thread.sleep(10);
+        }
+    }
+}